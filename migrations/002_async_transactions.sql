@@ -0,0 +1,27 @@
+-- =============================================================================
+-- Internal Wallet Service - Async (accept-then-process) transactions
+-- PostgreSQL 16+. Run AFTER 001_init.sql.
+-- =============================================================================
+
+BEGIN;
+
+-- ---------------------------------------------------------------------------
+-- Requests sent with "Prefer: respond-async" are recorded as 'pending' and
+-- answered with 202. A background processor later moves them to 'completed'
+-- or 'failed' (e.g. insufficient funds, with the reason recorded).
+-- ---------------------------------------------------------------------------
+ALTER TABLE transactions DROP CONSTRAINT IF EXISTS transactions_status_check;
+ALTER TABLE transactions ADD CONSTRAINT transactions_status_check
+    CHECK (status IN ('pending', 'completed', 'failed'));
+
+-- The requested operation is stored on the row so a pending transaction can be
+-- processed without the original HTTP request. Populated for every new row.
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS account_id     BIGINT REFERENCES accounts(id);
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS asset_type_id  BIGINT REFERENCES asset_types(id);
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS amount         BIGINT;
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS failure_reason TEXT;
+
+-- Work queue for the background processor: only ever holds pending rows
+CREATE INDEX IF NOT EXISTS idx_transactions_pending ON transactions(id) WHERE status = 'pending';
+
+COMMIT;
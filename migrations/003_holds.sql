@@ -0,0 +1,42 @@
+-- =============================================================================
+-- Internal Wallet Service - Authorize/capture holds
+-- PostgreSQL 16+. Run AFTER 002_async_transactions.sql.
+-- =============================================================================
+
+BEGIN;
+
+-- ---------------------------------------------------------------------------
+-- wallets.held_amount: sum of the wallet's active holds. Maintained under the
+-- wallet's FOR UPDATE lock by authorize/capture/release/expiry, so the funds
+-- check is  SUM(ledger) - held_amount  with no scan of the holds table.
+-- Adding a column with a constant default is a metadata-only change.
+-- ---------------------------------------------------------------------------
+ALTER TABLE wallets ADD COLUMN IF NOT EXISTS held_amount BIGINT NOT NULL DEFAULT 0;
+
+-- ---------------------------------------------------------------------------
+-- holds: funds reserved against a wallet's available balance.
+--   active   → counted in wallets.held_amount
+--   captured → converted (fully or partially) into a spend transaction
+--   released → cancelled by the caller
+--   expired  → swept after expires_at
+-- ---------------------------------------------------------------------------
+CREATE TABLE IF NOT EXISTS holds (
+    id               BIGSERIAL    PRIMARY KEY,
+    idempotency_key  VARCHAR(255) NOT NULL,
+    wallet_id        BIGINT       NOT NULL REFERENCES wallets(id)      ON DELETE RESTRICT,
+    account_id       BIGINT       NOT NULL REFERENCES accounts(id)     ON DELETE RESTRICT,
+    asset_type_id    BIGINT       NOT NULL REFERENCES asset_types(id)  ON DELETE RESTRICT,
+    amount           BIGINT       NOT NULL CHECK (amount > 0),
+    captured_amount  BIGINT       NOT NULL DEFAULT 0,
+    status           VARCHAR(20)  NOT NULL DEFAULT 'active'
+                         CHECK (status IN ('active', 'captured', 'released', 'expired')),
+    description      TEXT,
+    transaction_id   BIGINT       REFERENCES transactions(id)          ON DELETE RESTRICT,
+    expires_at       TIMESTAMPTZ  NOT NULL,
+    created_at       TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    CONSTRAINT uq_holds_idempotency_key UNIQUE (idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_holds_active_expiry ON holds(expires_at) WHERE status = 'active';
+
+COMMIT;
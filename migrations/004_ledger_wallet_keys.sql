@@ -0,0 +1,84 @@
+-- =============================================================================
+-- Internal Wallet Service - Denormalized wallet keys on ledger_entries
+-- PostgreSQL 16+. Run AFTER 003_holds.sql.
+--
+-- Balance and history reads filter by (account_id, asset_type_id). Carrying
+-- both on every ledger row lets them run as index-only scans on one covering
+-- index, with no join to wallets.
+--
+-- Written to run ONLINE against a live ledger, so there is no wrapping
+-- transaction: CREATE/DROP INDEX CONCURRENTLY and the batched backfill
+-- procedure (which commits per batch) cannot run inside one. Every step is
+-- idempotent — if the script is interrupted, re-run it.
+-- =============================================================================
+
+-- ---------------------------------------------------------------------------
+-- 1. New nullable columns: metadata-only, no table rewrite. The service
+--    populates them on every insert from this release on.
+-- ---------------------------------------------------------------------------
+ALTER TABLE ledger_entries ADD COLUMN IF NOT EXISTS account_id    BIGINT;
+ALTER TABLE ledger_entries ADD COLUMN IF NOT EXISTS asset_type_id BIGINT;
+
+-- ---------------------------------------------------------------------------
+-- 2. Rows still missing their keys, for the backfill to find its next batch.
+--    Empty once the backfill is done.
+-- ---------------------------------------------------------------------------
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ledger_entries_unkeyed
+    ON ledger_entries(id) WHERE account_id IS NULL;
+
+-- ---------------------------------------------------------------------------
+-- 3. Backfill in small batches, committing after each one so row locks are
+--    short-lived and vacuum keeps up. SKIP LOCKED: never waits on live writes.
+-- ---------------------------------------------------------------------------
+CREATE OR REPLACE PROCEDURE backfill_ledger_wallet_keys(batch_size INT DEFAULT 5000)
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    updated INT;
+BEGIN
+    LOOP
+        UPDATE ledger_entries le
+        SET    account_id = w.account_id, asset_type_id = w.asset_type_id
+        FROM   wallets w
+        WHERE  w.id = le.wallet_id
+          AND  le.id IN (SELECT id FROM ledger_entries
+                         WHERE account_id IS NULL
+                         ORDER BY id
+                         LIMIT batch_size
+                         FOR UPDATE SKIP LOCKED);
+        GET DIAGNOSTICS updated = ROW_COUNT;
+        COMMIT;
+        EXIT WHEN updated = 0;
+    END LOOP;
+END;
+$$;
+
+CALL backfill_ledger_wallet_keys();
+
+-- ---------------------------------------------------------------------------
+-- 4. Enforce presence without an ACCESS EXCLUSIVE full-table check:
+--    NOT VALID is instant, VALIDATE scans under a SHARE UPDATE EXCLUSIVE lock
+--    that does not block reads or writes.
+-- ---------------------------------------------------------------------------
+ALTER TABLE ledger_entries DROP CONSTRAINT IF EXISTS chk_ledger_entries_wallet_keys;
+ALTER TABLE ledger_entries ADD CONSTRAINT chk_ledger_entries_wallet_keys
+    CHECK (account_id IS NOT NULL AND asset_type_id IS NOT NULL) NOT VALID;
+ALTER TABLE ledger_entries VALIDATE CONSTRAINT chk_ledger_entries_wallet_keys;
+
+-- ---------------------------------------------------------------------------
+-- 5. Covering index for balance (SUM(amount)), count and newest-first
+--    history pages: all read as index-only scans.
+-- ---------------------------------------------------------------------------
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ledger_entries_account_asset
+    ON ledger_entries(account_id, asset_type_id, created_at DESC, id DESC)
+    INCLUDE (amount, transaction_id, wallet_id);
+
+-- ---------------------------------------------------------------------------
+-- 6. The wallet_id-keyed read indexes are superseded; dropping them removes
+--    two index updates from every ledger insert.
+-- ---------------------------------------------------------------------------
+DROP INDEX CONCURRENTLY IF EXISTS idx_ledger_entries_wallet_amount;
+DROP INDEX CONCURRENTLY IF EXISTS idx_ledger_entries_wallet_time;
+
+-- Refresh statistics and the visibility map so index-only scans apply at once
+VACUUM (ANALYZE) ledger_entries;
@@ -0,0 +1,52 @@
+-- =============================================================================
+-- Internal Wallet Service - Compact idempotency keys with a replay window
+-- PostgreSQL 16+. Run AFTER 004_ledger_wallet_keys.sql.
+--
+-- transactions.idempotency_key was VARCHAR(255) with a UNIQUE constraint AND
+-- a redundant plain index: two wide text B-trees updated on every insert and
+-- growing forever. The gate moves to idempotency_keys:
+--   key_hash   UUID = md5(client key) — fixed 16 bytes, the only B-tree
+--   created_at      — BRIN (a few pages) for the purge to find expired keys
+-- Keys older than the replay window (wallet.idempotency.replay-window-hours)
+-- are moved to idempotency_keys_archive in batches by the service, keeping
+-- the hot index small enough to stay cached.
+--
+-- transactions.idempotency_key keeps the client's text for auditing, unindexed.
+-- Apply together with the release that uses the new gate: older builds rely
+-- on ON CONFLICT (idempotency_key), which needs the dropped constraint.
+-- =============================================================================
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    key_hash        UUID         PRIMARY KEY,
+    transaction_id  BIGINT       NOT NULL,
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created_at
+    ON idempotency_keys USING BRIN (created_at);
+
+-- Expired keys: append-only, no unique index — kept for audit/forensics only
+CREATE TABLE IF NOT EXISTS idempotency_keys_archive (
+    key_hash        UUID         NOT NULL,
+    transaction_id  BIGINT       NOT NULL,
+    created_at      TIMESTAMPTZ  NOT NULL,
+    archived_at     TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_archive_created_at
+    ON idempotency_keys_archive USING BRIN (created_at);
+
+-- Existing keys, oldest first so the BRIN ranges stay tight. Keys already past
+-- the window are archived by the first purge runs after deploy.
+INSERT INTO idempotency_keys (key_hash, transaction_id, created_at)
+SELECT md5(idempotency_key)::uuid, id, created_at
+FROM transactions
+ORDER BY id
+ON CONFLICT (key_hash) DO NOTHING;
+
+ALTER TABLE transactions DROP CONSTRAINT IF EXISTS uq_transactions_idempotency_key;
+DROP INDEX IF EXISTS idx_transactions_idempotency_key;
+
+COMMIT;
@@ -0,0 +1,20 @@
+-- =============================================================================
+-- Internal Wallet Service - Ledger history in id order (ETag change marker)
+-- PostgreSQL 16+. Run AFTER 005_idempotency_keys.sql.
+--
+-- Ledger rows for a wallet are only ever inserted under that wallet's
+-- FOR UPDATE lock, so per wallet their ids are assigned in commit order —
+-- unlike created_at, which is the inserting transaction's START time. That
+-- makes MAX(id) per wallet a reliable change marker (used for balance and
+-- ledger ETags) and id DESC the true newest-first order.
+--
+-- The covering index is re-keyed on id so the marker is a single index probe
+-- and history pages stay index-only scans. No wrapping transaction:
+-- CREATE/DROP INDEX CONCURRENTLY cannot run inside one.
+-- =============================================================================
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ledger_entries_account_asset_id
+    ON ledger_entries(account_id, asset_type_id, id DESC)
+    INCLUDE (amount, created_at, transaction_id, wallet_id);
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_ledger_entries_account_asset;
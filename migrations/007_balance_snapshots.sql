@@ -0,0 +1,42 @@
+-- =============================================================================
+-- Internal Wallet Service - Balance engine snapshots
+-- PostgreSQL 16+. Run AFTER 006_ledger_id_order.sql.
+--
+-- Optional in-memory balance engine (wallet.engine.*, see BalanceEngine).
+-- The ledger stays the source of truth; these tables only shorten the
+-- engine's startup: load the snapshot, then replay ledger entries with
+-- id > through_entry_id instead of summing the whole ledger.
+-- =============================================================================
+
+BEGIN;
+
+-- Committed ledger balance per engine-owned wallet, upserted for wallets
+-- that changed since the previous snapshot.
+CREATE TABLE IF NOT EXISTS balance_snapshots (
+    wallet_id      BIGINT       PRIMARY KEY REFERENCES wallets(id) ON DELETE CASCADE,
+    asset_type_id  BIGINT       NOT NULL,
+    balance        BIGINT       NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_balance_snapshots_asset_type ON balance_snapshots(asset_type_id);
+
+-- Every ledger entry of the asset type with id <= through_entry_id is
+-- reflected in balance_snapshots (the engine is the asset's only writer).
+CREATE TABLE IF NOT EXISTS balance_snapshot_marks (
+    asset_type_id     BIGINT       PRIMARY KEY,
+    through_entry_id  BIGINT       NOT NULL,
+    taken_at          TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
+
+-- The node running the asset type (its gRPC address, where other nodes
+-- forward writes) and the ownership epoch, bumped by every claim. Each
+-- commit batch and snapshot checks the epoch under FOR SHARE, so a node that
+-- lost its claim stops before writing again.
+CREATE TABLE IF NOT EXISTS engine_leases (
+    asset_type_id  BIGINT        PRIMARY KEY,
+    owner          VARCHAR(255)  NOT NULL,
+    epoch          BIGINT        NOT NULL,
+    claimed_at     TIMESTAMPTZ   NOT NULL DEFAULT NOW()
+);
+
+COMMIT;
@@ -0,0 +1,51 @@
+-- =============================================================================
+-- Internal Wallet Service - Daily rollups
+-- PostgreSQL 16+. Run AFTER 007_balance_snapshots.sql.
+--
+-- Reporting reads these instead of summing transactions/ledger_entries.
+-- RollupJob folds new ledger entries in behind a watermark; a day can be
+-- recomputed from the ledger (POST /api/v1/admin/rollups/rebuild).
+-- Days are UTC.
+-- =============================================================================
+
+BEGIN;
+
+-- Volume and count per (day, asset type, transaction type): the credit leg
+-- of each transaction (every transaction has exactly one).
+CREATE TABLE IF NOT EXISTS daily_rollups (
+    day            DATE         NOT NULL,
+    asset_type_id  BIGINT       NOT NULL,
+    type           VARCHAR(20)  NOT NULL,
+    volume         BIGINT       NOT NULL,
+    tx_count       BIGINT       NOT NULL,
+    PRIMARY KEY (day, asset_type_id, type)
+);
+
+-- Net change of user balances per (day, asset type). Outstanding liability
+-- at the end of a day is the running sum up to that day.
+CREATE TABLE IF NOT EXISTS daily_liability_changes (
+    day            DATE         NOT NULL,
+    asset_type_id  BIGINT       NOT NULL,
+    net_change     BIGINT       NOT NULL,
+    PRIMARY KEY (day, asset_type_id)
+);
+
+-- Single row: every ledger entry with id <= through_entry_id is in the rollups.
+CREATE TABLE IF NOT EXISTS rollup_watermark (
+    id                  BOOLEAN      PRIMARY KEY DEFAULT TRUE CHECK (id),
+    through_entry_id    BIGINT       NOT NULL,
+    through_created_at  TIMESTAMPTZ,
+    updated_at          TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
+
+INSERT INTO rollup_watermark (through_entry_id) VALUES (0) ON CONFLICT (id) DO NOTHING;
+
+-- Fence for the advancer (see RollupRepository#placeFence): the highest entry
+-- id visible when it was placed and that snapshot's xmax.
+ALTER TABLE rollup_watermark ADD COLUMN IF NOT EXISTS fence_entry_id BIGINT;
+ALTER TABLE rollup_watermark ADD COLUMN IF NOT EXISTS fence_xid      xid8;
+
+-- Day-range scans for rebuilds; BRIN stays tiny on the append-only ledger.
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_created_at ON ledger_entries USING BRIN (created_at);
+
+COMMIT;
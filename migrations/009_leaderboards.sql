@@ -0,0 +1,60 @@
+-- =============================================================================
+-- Internal Wallet Service - Leaderboards
+-- PostgreSQL 16+. Run AFTER 008_daily_rollups.sql.
+--
+-- Top-N boards are read from ordered indexes on values that the ledger post
+-- statement maintains in the same transaction as the entries it writes:
+--   * wallets.balance — a user wallet's ledger balance ("richest players");
+--     system wallets (Treasury, Revenue) are never ranked and keep 0, so the
+--     rows every posting touches are not updated on the indexed column
+--   * weekly_spend    — spend per user per UTC week ("top spenders")
+-- A board of K rows is an index scan of about K rows, however many users exist.
+--
+-- Runs in one transaction: ADD COLUMN locks wallets, so no write can post
+-- between the backfill and the commit. Writes pause for the length of one
+-- pass over ledger_entries — run it in a quiet period.
+-- =============================================================================
+
+BEGIN;
+
+-- Nullable first so the backfill can tell new columns from maintained ones
+ALTER TABLE wallets ADD COLUMN IF NOT EXISTS balance BIGINT;
+
+UPDATE wallets w
+SET    balance = CASE WHEN a.type = 'user'
+                      THEN COALESCE((SELECT SUM(e.amount) FROM ledger_entries e WHERE e.wallet_id = w.id), 0)
+                      ELSE 0 END
+FROM   accounts a
+WHERE  a.id = w.account_id AND w.balance IS NULL;
+
+ALTER TABLE wallets ALTER COLUMN balance SET DEFAULT 0;
+ALTER TABLE wallets ALTER COLUMN balance SET NOT NULL;
+
+-- account_id breaks ties so equal balances rank deterministically
+CREATE INDEX IF NOT EXISTS idx_wallets_leaderboard
+    ON wallets(asset_type_id, balance DESC, account_id);
+
+-- Amount spent per (asset type, UTC week starting Monday, account). Weeks
+-- older than wallet.leaderboard.weeks-retained are deleted by LeaderboardPurger.
+CREATE TABLE IF NOT EXISTS weekly_spend (
+    asset_type_id  BIGINT  NOT NULL,
+    week_start     DATE    NOT NULL,
+    account_id     BIGINT  NOT NULL,
+    amount         BIGINT  NOT NULL,
+    PRIMARY KEY (asset_type_id, week_start, account_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_weekly_spend_leaderboard
+    ON weekly_spend(asset_type_id, week_start, amount DESC, account_id);
+
+-- Current week, rebuilt from the ledger (earlier weeks are not backfilled)
+INSERT INTO weekly_spend (asset_type_id, week_start, account_id, amount)
+SELECT e.asset_type_id, (date_trunc('week', e.created_at AT TIME ZONE 'UTC'))::date, e.account_id, -SUM(e.amount)
+FROM   ledger_entries e
+JOIN   transactions t ON t.id = e.transaction_id AND t.type = 'spend'
+WHERE  e.amount < 0
+  AND  e.created_at >= date_trunc('week', NOW(), 'UTC')
+GROUP  BY 1, 2, 3
+ON CONFLICT (asset_type_id, week_start, account_id) DO NOTHING;
+
+COMMIT;
@@ -0,0 +1,19 @@
+-- =============================================================================
+-- Internal Wallet Service - Account listing and lookup indexes
+-- PostgreSQL 16+. Run AFTER 009_leaderboards.sql.
+--
+-- GET /api/v1/accounts pages by id (keyset, never OFFSET) and filters by
+-- type and name prefix; exact name lookups use uq_accounts_name.
+--
+-- uq_accounts_name follows the database collation, which cannot serve
+-- LIKE 'prefix%' unless the collation is C; the text_pattern_ops index can.
+-- (type, id) keeps a page of system accounts an index range scan.
+--
+-- No wrapping transaction: CREATE INDEX CONCURRENTLY cannot run inside one.
+-- =============================================================================
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_accounts_name_prefix
+    ON accounts(name text_pattern_ops);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_accounts_type_id
+    ON accounts(type, id);
@@ -0,0 +1,25 @@
+-- =============================================================================
+-- Internal Wallet Service - Bulk account import staging
+-- PostgreSQL 16+. Run AFTER 010_account_listing.sql.
+--
+-- POST /api/v1/admin/imports/accounts COPYs each chunk of input rows in here,
+-- applies it set-based (accounts, wallets, opening balances) and deletes it,
+-- all in one transaction. Rows never outlive their chunk, so the table is
+-- UNLOGGED: no WAL for staging, and a crash loses nothing that was committed.
+-- =============================================================================
+
+BEGIN;
+
+CREATE UNLOGGED TABLE IF NOT EXISTS account_import_rows (
+    chunk_id       UUID    NOT NULL,
+    line           BIGINT  NOT NULL,
+    name           TEXT    NOT NULL,
+    asset_type_id  BIGINT,
+    amount         BIGINT  NOT NULL,
+    account_id     BIGINT,
+    wallet_id      BIGINT,
+    rejection      TEXT,
+    PRIMARY KEY (chunk_id, line)
+);
+
+COMMIT;
@@ -0,0 +1,65 @@
+-- =============================================================================
+-- Internal Wallet Service - Expiring bonus credits
+-- PostgreSQL 16+. Run AFTER 011_account_imports.sql.
+--
+-- A bonus may carry an expiry. Each such bonus is a grant whose unspent part
+-- is kept in bonus_grants.remaining: spends draw it down (soonest-expiring
+-- grant first) under the wallet lock, and BonusExpirySweeper returns what is
+-- left at expiry to Treasury as a 'bonus_expiry' transaction. Neither ever
+-- re-reads the wallet's ledger to find what is left of a grant.
+-- =============================================================================
+
+BEGIN;
+
+-- New transaction type, swapped in only where the constraint lacks it, so a
+-- re-run takes no lock. Dropped and re-added in this transaction, so no
+-- write ever sees the table without a check. NOT VALID skips the scan here;
+-- validated below, after COMMIT, without blocking writes.
+DO $$
+BEGIN
+    IF NOT EXISTS (
+        SELECT 1 FROM pg_constraint
+        WHERE  conrelid = 'transactions'::regclass
+          AND  conname  = 'transactions_type_check'
+          AND  pg_get_constraintdef(oid) LIKE '%bonus_expiry%'
+    ) THEN
+        ALTER TABLE transactions DROP CONSTRAINT IF EXISTS transactions_type_check;
+        ALTER TABLE transactions ADD CONSTRAINT transactions_type_check
+            CHECK (type IN ('topup', 'bonus', 'spend', 'bonus_expiry')) NOT VALID;
+    END IF;
+END
+$$;
+
+-- ---------------------------------------------------------------------------
+-- bonus_grants: one row per expiring bonus.
+--   remaining > 0, expired_at IS NULL → live, spendable, due at expires_at
+--   expired_at set                    → swept; expired_amount went back to
+--                                       Treasury in expiry_transaction_id
+-- ---------------------------------------------------------------------------
+CREATE TABLE IF NOT EXISTS bonus_grants (
+    id                     BIGSERIAL    PRIMARY KEY,
+    transaction_id         BIGINT       NOT NULL REFERENCES transactions(id)  ON DELETE RESTRICT,
+    wallet_id              BIGINT       NOT NULL REFERENCES wallets(id)       ON DELETE RESTRICT,
+    account_id             BIGINT       NOT NULL REFERENCES accounts(id)      ON DELETE RESTRICT,
+    asset_type_id          BIGINT       NOT NULL REFERENCES asset_types(id)   ON DELETE RESTRICT,
+    amount                 BIGINT       NOT NULL CHECK (amount > 0),
+    remaining              BIGINT       NOT NULL CHECK (remaining >= 0),
+    expires_at             TIMESTAMPTZ  NOT NULL,
+    expired_at             TIMESTAMPTZ,
+    expired_amount         BIGINT,
+    expiry_transaction_id  BIGINT       REFERENCES transactions(id)           ON DELETE RESTRICT,
+    created_at             TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    CONSTRAINT uq_bonus_grants_transaction UNIQUE (transaction_id)
+);
+
+-- Sweep order: both indexes cover live grants only, so they stay small
+CREATE INDEX IF NOT EXISTS idx_bonus_grants_due
+    ON bonus_grants(expires_at, id) WHERE expired_at IS NULL AND remaining > 0;
+
+-- Consumption order within a wallet (soonest-expiring first)
+CREATE INDEX IF NOT EXISTS idx_bonus_grants_wallet
+    ON bonus_grants(wallet_id, expires_at, id) WHERE expired_at IS NULL AND remaining > 0;
+
+COMMIT;
+
+ALTER TABLE transactions VALIDATE CONSTRAINT transactions_type_check;
@@ -0,0 +1,19 @@
+package com.dinoventures.wallet.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the annotated method (or every method of the annotated class) on the
+ * given workload's connection pool, overriding the default routing by the
+ * transaction's read-only flag. Applies to everything the call does,
+ * including nested calls into other beans.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Bulkhead {
+
+    Workload value();
+}
@@ -1,34 +1,334 @@
 package com.dinoventures.wallet.config;
 
+import com.dinoventures.wallet.model.AccountScoped;
+import com.dinoventures.wallet.service.FlowRecorder;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.actuate.health.CompositeHealthContributor;
+import org.springframework.boot.actuate.health.HealthContributor;
+import org.springframework.boot.actuate.jdbc.DataSourceHealthIndicator;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Configuration
 @EnableTransactionManagement
 public class JdbcConfig {
 
+    /**
+     * Shards from wallet.sharding.shards[i].{url,username,password,weight};
+     * without any, a single shard on spring.datasource.* (see {@link ShardRouter}).
+     */
+    @Bean
+    public ShardRouter shardRouter(DataSourceProperties properties, Environment env) {
+        List<ShardRouter.Shard> configured = Binder.get(env)
+                .bind("wallet.sharding.shards", Bindable.listOf(ShardRouter.Shard.class))
+                .orElse(List.of());
+        if (configured.isEmpty()) {
+            return new ShardRouter(List.of(new ShardRouter.Shard(properties.determineUrl(),
+                    properties.determineUsername(), properties.determinePassword(), 1)));
+        }
+        return new ShardRouter(configured.stream()
+                .map(s -> new ShardRouter.Shard(s.url(),
+                        s.username() != null ? s.username() : properties.determineUsername(),
+                        s.password() != null ? s.password() : properties.determinePassword(),
+                        s.weight()))
+                .toList());
+    }
+
+    /**
+     * Bulkhead pools: one HikariCP pool per {@link Workload} on every shard,
+     * so a slow ledger scan or batch job queues on its own pool instead of
+     * taking connections from spends.
+     *
+     * Each pool starts from spring.datasource.hikari.* and is then overridden
+     * by wallet.pools.{write|read|batch|ingest}.* (any HikariCP property;
+     * sizes are per shard). Pool saturation is exported per pool as
+     * hikaricp.connections.{active,pending,usage,acquire}{pool=wallet-write|
+     * wallet-read|wallet-batch|wallet-ingest}, suffixed -{shard} when sharded.
+     *
+     * Not DataSources themselves, so everything else still sees only
+     * {@link #dataSource}.
+     */
+    @Bean(destroyMethod = "close")
+    public ShardPools shardPools(ShardRouter router, DataSourceProperties properties,
+                                 Environment env, MeterRegistry registry) {
+        List<ShardRouter.Shard> shards = router.shards();
+        List<Map<Workload, HikariDataSource>> pools = new ArrayList<>(shards.size());
+        for (int k = 0; k < shards.size(); k++) {
+            String suffix = shards.size() == 1 ? "" : "-" + k;
+            Map<Workload, HikariDataSource> shardPools = new EnumMap<>(Workload.class);
+            for (Workload workload : Workload.values()) {
+                shardPools.put(workload, pool(workload, shards.get(k), suffix, properties, env, registry));
+            }
+            pools.add(shardPools);
+        }
+        return new ShardPools(pools);
+    }
+
+    /**
+     * The application DataSource: routes each connection to a shard (see
+     * {@link ShardRoutingDataSource}, only when sharded) and then to a pool
+     * (see {@link WorkloadRoutingDataSource}), behind a lazy proxy so the
+     * choice is made at the first statement — when the transaction's
+     * read-only flag is known and the shard has been selected.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardPools pools, Environment env, MeterRegistry registry) {
+        List<DataSource> shards = new ArrayList<>();
+        for (Map<Workload, HikariDataSource> shardPools : pools.pools()) {
+            Map<Object, Object> targets = new HashMap<>();
+            shardPools.forEach((workload, pool) -> targets.put(workload, limited(pool, workload, env, registry)));
+            WorkloadRoutingDataSource routing = new WorkloadRoutingDataSource();
+            routing.setTargetDataSources(targets);
+            routing.setDefaultTargetDataSource(targets.get(Workload.WRITE));
+            routing.afterPropertiesSet();
+            shards.add(routing);
+        }
+
+        DataSource target = shards.get(0);
+        if (shards.size() > 1) {
+            ShardInitializer.initialize(pools.pools().stream()
+                    .<DataSource>map(p -> p.get(Workload.WRITE))
+                    .toList(), env);
+            Map<Object, Object> targets = new HashMap<>();
+            for (int k = 0; k < shards.size(); k++) {
+                targets.put(k, shards.get(k));
+            }
+            ShardRoutingDataSource routing = new ShardRoutingDataSource();
+            routing.setTargetDataSources(targets);
+            routing.afterPropertiesSet();
+            target = routing;
+        }
+
+        LazyConnectionDataSourceProxy lazy = new LazyConnectionDataSourceProxy(target);
+        // Known defaults (HikariCP / PostgreSQL) — spares a probe connection
+        lazy.setDefaultAutoCommit(true);
+        lazy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return lazy;
+    }
+
+    /**
+     * Replaces the default DataSource health check, which would probe the
+     * routing DataSource with no shard selected: one check per shard on its
+     * write pool (named shard-{k} when sharded).
+     */
+    @Bean
+    public HealthContributor dbHealthContributor(ShardPools pools) {
+        List<Map<Workload, HikariDataSource>> shards = pools.pools();
+        if (shards.size() == 1) {
+            return new DataSourceHealthIndicator(shards.get(0).get(Workload.WRITE));
+        }
+        Map<String, HealthContributor> perShard = new LinkedHashMap<>();
+        for (int k = 0; k < shards.size(); k++) {
+            perShard.put("shard-" + k, new DataSourceHealthIndicator(shards.get(k).get(Workload.WRITE)));
+        }
+        return CompositeHealthContributor.fromMap(perShard);
+    }
+
+    /**
+     * Applies {@link Bulkhead} on beans and methods. Infrastructure role so the
+     * transaction auto-proxy creator picks it up (no AspectJ needed); ordered
+     * outside @Transactional so the routing is in place before it begins.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor bulkheadAdvisor() {
+        MethodInterceptor interceptor = invocation -> {
+            Bulkhead bulkhead = AnnotatedElementUtils.findMergedAnnotation(invocation.getMethod(), Bulkhead.class);
+            if (bulkhead == null && invocation.getThis() != null) {
+                bulkhead = AnnotatedElementUtils.findMergedAnnotation(invocation.getThis().getClass(), Bulkhead.class);
+            }
+            if (bulkhead == null) {
+                return invocation.proceed();
+            }
+            Workload previous = WorkloadRoutingDataSource.enter(bulkhead.value());
+            try {
+                return invocation.proceed();
+            } finally {
+                WorkloadRoutingDataSource.exit(previous);
+            }
+        };
+        ComposablePointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(Bulkhead.class, true))
+                .union(AnnotationMatchingPointcut.forMethodAnnotation(Bulkhead.class));
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, interceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    /**
+     * Applies {@link ShardKey}: runs the method on the shard owning the
+     * annotated argument. Same placement as {@link #bulkheadAdvisor} — the
+     * shard must be selected before @Transactional fetches its connection.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor shardKeyAdvisor(ObjectProvider<ShardRouter> routerProvider) {
+        Map<Method, Integer> keyIndex = new ConcurrentHashMap<>();
+        MethodInterceptor interceptor = invocation -> {
+            ShardRouter router = routerProvider.getObject();
+            if (router.shardCount() == 1) {
+                return invocation.proceed();
+            }
+            Method method = invocation.getMethod();
+            Object key = invocation.getArguments()[keyIndex.computeIfAbsent(method, JdbcConfig::shardKeyIndex)];
+            long id;
+            if (key instanceof Number number) {
+                id = number.longValue();
+            } else if (key instanceof AccountScoped scoped && scoped.getAccountId() != null) {
+                id = scoped.getAccountId();
+            } else {
+                throw new IllegalArgumentException("No shard key in @ShardKey argument of " + method);
+            }
+            Integer previous = ShardRoutingDataSource.enter(router.shardOf(id));
+            try {
+                return invocation.proceed();
+            } finally {
+                ShardRoutingDataSource.exit(previous);
+            }
+        };
+        StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return shardKeyIndex(method) >= 0;
+            }
+        };
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, interceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    /**
+     * Plain positional JdbcTemplate for the hot write path (ledger inserts,
+     * wallet locks, idempotency gate). Statements there are constant SQL
+     * strings bound with ? placeholders: no named-parameter parsing or
+     * parameter-source maps per call, and the driver can reuse one
+     * server-side prepared statement per connection.
+     *
+     * Every statement created through it (named-parameter calls included) is
+     * counted for the current flow's JFR event — applyStatementSettings is the
+     * one hook all JdbcTemplate execution paths share.
+     */
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource, FlowRecorder flowRecorder) {
+        return new JdbcTemplate(dataSource) {
+            @Override
+            protected void applyStatementSettings(Statement stmt) throws SQLException {
+                flowRecorder.statementIssued();
+                super.applyStatementSettings(stmt);
+            }
+        };
+    }
+
     /**
      * NamedParameterJdbcTemplate enables :paramName style SQL parameters
      * instead of positional ?. This makes complex queries more readable
      * and less error-prone, especially in the ledger and locking queries.
      */
     @Bean
-    public NamedParameterJdbcTemplate namedParameterJdbcTemplate(DataSource dataSource) {
-        return new NamedParameterJdbcTemplate(dataSource);
+    public NamedParameterJdbcTemplate namedParameterJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
     }
 
     /**
-     * Transaction manager for @Transactional support.
-     * Spring Boot auto-configures HikariCP as the DataSource.
+     * Transaction manager for @Transactional support, over the routing
+     * DataSource: a transaction stays on the one connection it first fetched.
      */
     @Bean
     public PlatformTransactionManager transactionManager(DataSource dataSource) {
         return new DataSourceTransactionManager(dataSource);
     }
+
+    /**
+     * Wraps a pool in a {@link LimitedDataSource} when wallet.db-limiter.enabled.
+     * Permits: wallet.db-limiter.{pool}.permits, default the pool size (more
+     * could never be used); queue: wallet.db-limiter.{pool}.max-waiting,
+     * default 4 × permits; wait: wallet.db-limiter.wait-timeout-ms, default
+     * the pool's connection-timeout.
+     */
+    private static DataSource limited(HikariDataSource pool, Workload workload, Environment env,
+                                      MeterRegistry registry) {
+        if (!env.getProperty("wallet.db-limiter.enabled", Boolean.class, false)) {
+            return pool;
+        }
+        String name = workload.name().toLowerCase();
+        int permits = env.getProperty("wallet.db-limiter." + name + ".permits", Integer.class,
+                pool.getMaximumPoolSize());
+        int maxWaiting = env.getProperty("wallet.db-limiter." + name + ".max-waiting", Integer.class, 4 * permits);
+        long waitMs = env.getProperty("wallet.db-limiter.wait-timeout-ms", Long.class, pool.getConnectionTimeout());
+        return new LimitedDataSource(pool, permits, maxWaiting, waitMs, pool.getPoolName(), registry);
+    }
+
+    private static HikariDataSource pool(Workload workload, ShardRouter.Shard shard, String suffix,
+                                         DataSourceProperties properties, Environment env, MeterRegistry registry) {
+        HikariConfig config = new HikariConfig();
+        Binder binder = Binder.get(env);
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(config));
+        binder.bind("wallet.pools." + workload.name().toLowerCase(), Bindable.ofInstance(config));
+
+        config.setJdbcUrl(shard.url());
+        config.setUsername(shard.username());
+        config.setPassword(shard.password());
+        config.setDriverClassName(properties.determineDriverClassName());
+        config.setPoolName("wallet-" + workload.name().toLowerCase() + suffix);
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        return new HikariDataSource(config);
+    }
+
+    private static int shardKeyIndex(Method method) {
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].isAnnotationPresent(ShardKey.class)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Every shard's pools, closed on shutdown. */
+    record ShardPools(List<Map<Workload, HikariDataSource>> pools) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            pools.forEach(shard -> shard.values().forEach(HikariDataSource::close));
+        }
+    }
 }
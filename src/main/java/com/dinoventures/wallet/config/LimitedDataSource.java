@@ -0,0 +1,130 @@
+package com.dinoventures.wallet.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps how many threads may hold or be acquiring a connection from one pool,
+ * and how many may queue for one.
+ *
+ * With platform threads, Tomcat's thread pool bounded how many requests
+ * could wait on the connection pool. Virtual threads remove that bound:
+ * every request reaches getConnection at once and waits there for the full
+ * connection-timeout, so a slow database turns into an unbounded queue of
+ * requests that will mostly time out anyway. Here at most {@code permits}
+ * threads hold a connection, at most {@code maxWaiting} more wait for one
+ * on a fair semaphore (FIFO, {@code waitTimeoutMs}), and anything beyond is
+ * refused at once.
+ *
+ * This is about queueing, not pinning: pgjdbc 42.7 guards a connection with
+ * a ReentrantLock (org.postgresql.jdbc.ResourceLock), so a virtual thread
+ * blocked in a statement unmounts from its carrier. Permits below the pool
+ * size only matter if something on the connection path still pins (check
+ * jdk.VirtualThreadPinned via VirtualThreadDiagnostics before relying on it).
+ *
+ * A permit is held from getConnection until the connection is closed.
+ * Enabled with wallet.db-limiter.enabled (see JdbcConfig).
+ */
+class LimitedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int maxWaiting;
+    private final long waitTimeoutMs;
+    private final Counter rejected;
+
+    LimitedDataSource(DataSource target, int permits, int maxWaiting, long waitTimeoutMs, String pool,
+                      MeterRegistry registry) {
+        super(target);
+        this.permits = new Semaphore(permits, true);
+        this.maxWaiting = maxWaiting;
+        this.waitTimeoutMs = waitTimeoutMs;
+        Gauge.builder("wallet.db.limiter.waiting", this.permits, Semaphore::getQueueLength)
+                .description("Threads queued for a connection permit")
+                .tag("pool", pool).register(registry);
+        Gauge.builder("wallet.db.limiter.available", this.permits, Semaphore::availablePermits)
+                .tag("pool", pool).register(registry);
+        this.rejected = Counter.builder("wallet.db.limiter.rejected")
+                .description("getConnection calls refused because max-waiting threads were already queued")
+                .tag("pool", pool).register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            // Zero timeout rather than tryAcquire(): it honours the queue's FIFO order
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+            if (permits.getQueueLength() >= maxWaiting) {
+                rejected.increment();
+                throw new SQLTransientConnectionException(
+                        "Connection limiter: " + maxWaiting + " threads already waiting");
+            }
+            if (!permits.tryAcquire(waitTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Connection limiter: no permit within " + waitTimeoutMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted waiting for a connection permit", e);
+        }
+    }
+
+    private Connection releasingOnClose(Connection target) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":   return proxy == args[0];
+                        case "hashCode": return System.identityHashCode(proxy);
+                        default:         break;
+                    }
+                    if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                        try {
+                            target.close();
+                        } finally {
+                            permits.release();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,105 @@
+package com.dinoventures.wallet.config;
+
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prepares every shard at startup when more than one is configured — the
+ * sharded stand-in for spring.sql.init, which only knows one database:
+ *
+ *   1. Runs the schema scripts (wallet.sharding.schema-locations)
+ *   2. Stripes the id sequences: INCREMENT BY N, next value ≡ k (mod N) on
+ *      shard k — before any seed row takes an id
+ *   3. Runs the per-shard seed (wallet.sharding.data-locations: asset types,
+ *      system accounts and their wallets — no demo users)
+ *   4. Fails startup if a shard holds accounts with unstriped ids (a
+ *      database that was populated before sharding) or if asset types differ
+ *      between shards
+ *
+ * Steps 1 and 3 are skipped with wallet.sharding.init-scripts=false. All
+ * steps are idempotent; step 2 only touches a sequence that is not striped
+ * yet, so nodes starting next to live ones never rewind a sequence.
+ */
+final class ShardInitializer {
+
+    // Tables whose ids are used for routing
+    private static final List<String> STRIPED_TABLES =
+            List.of("accounts", "wallets", "transactions", "ledger_entries", "holds");
+
+    private ShardInitializer() {
+    }
+
+    static void initialize(List<DataSource> shards, Environment env) {
+        boolean runScripts = env.getProperty("wallet.sharding.init-scripts", Boolean.class, true);
+        String[] schema = env.getProperty("wallet.sharding.schema-locations", String[].class,
+                new String[]{"classpath:schema.sql"});
+        String[] data = env.getProperty("wallet.sharding.data-locations", String[].class,
+                new String[]{"classpath:db/shard-data.sql"});
+
+        int n = shards.size();
+        List<String> expectedAssetTypes = null;
+        for (int k = 0; k < n; k++) {
+            DataSource shard = shards.get(k);
+            JdbcTemplate jdbc = new JdbcTemplate(shard);
+            if (runScripts) {
+                populate(shard, schema);
+            }
+            for (String table : STRIPED_TABLES) {
+                stripe(jdbc, table, k, n);
+            }
+            if (runScripts) {
+                populate(shard, data);
+            }
+
+            if (Boolean.TRUE.equals(jdbc.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM accounts WHERE mod(id, ?) <> ?)", Boolean.class, n, k))) {
+                throw new IllegalStateException("Shard " + k + " holds accounts whose ids do not satisfy "
+                        + "id mod " + n + " = " + k + "; it was populated before sharding or for a different "
+                        + "shard count (re-sharding an existing database is not supported)");
+            }
+            List<String> assetTypes = jdbc.queryForList(
+                    "SELECT id || ':' || code FROM asset_types ORDER BY id", String.class);
+            if (expectedAssetTypes == null) {
+                expectedAssetTypes = assetTypes;
+            } else if (!expectedAssetTypes.equals(assetTypes)) {
+                throw new IllegalStateException("Asset types on shard " + k + " " + assetTypes
+                        + " differ from shard 0 " + expectedAssetTypes);
+            }
+        }
+    }
+
+    private static void stripe(JdbcTemplate jdbc, String table, int k, int n) {
+        String sequence = jdbc.queryForObject("SELECT pg_get_serial_sequence(?, 'id')", String.class, table);
+        long increment = jdbc.queryForObject(
+                "SELECT seqincrement FROM pg_sequence WHERE seqrelid = ?::regclass", Long.class, sequence);
+        // sequence comes from the catalog, not from input
+        Map<String, Object> state = jdbc.queryForMap("SELECT last_value, is_called FROM " + sequence);
+        long last = ((Number) state.get("last_value")).longValue();
+        boolean called = (Boolean) state.get("is_called");
+
+        long next = called ? last + increment : last;
+        if (increment == n && Math.floorMod(next, n) == k) {
+            return;   // already striped
+        }
+        long from = called ? last + 1 : last;
+        long aligned = from + Math.floorMod(k - from, n);
+        jdbc.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + n);
+        jdbc.queryForObject("SELECT setval(?::regclass, ?, false)", Long.class, sequence, aligned);
+    }
+
+    private static void populate(DataSource shard, String[] locations) {
+        ResourceLoader loader = new DefaultResourceLoader();
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+        for (String location : locations) {
+            populator.addScript(loader.getResource(location));
+        }
+        populator.execute(shard);
+    }
+}
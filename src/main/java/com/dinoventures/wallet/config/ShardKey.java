@@ -0,0 +1,18 @@
+package com.dinoventures.wallet.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the method on the shard that owns the annotated argument: an id
+ * ({@code long}/{@code Long} — account, wallet, transaction or hold ids all
+ * name their shard, see {@link ShardRouter}) or an
+ * {@link com.dinoventures.wallet.model.AccountScoped} request. Applies to
+ * everything the call does, including nested calls into other beans.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+}
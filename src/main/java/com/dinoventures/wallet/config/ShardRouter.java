@@ -0,0 +1,166 @@
+package com.dinoventures.wallet.config;
+
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Maps accounts — and everything stored with them — to shards.
+ *
+ * Each shard is a separate PostgreSQL database with its own write/read/batch
+ * pools (wallet.sharding.shards[i].*, see JdbcConfig). Placement rules:
+ *
+ *   1. Ids are striped: on shard k of N every id sequence yields ids with
+ *      id mod N = k (see ShardInitializer), so an account, wallet,
+ *      transaction or hold id alone names its shard — {@link #shardOf}.
+ *   2. A wallet's rows (ledger, transactions, holds, idempotency keys) live
+ *      on its account's shard.
+ *   3. System accounts (Treasury, Revenue) and asset types exist on every
+ *      shard, so topup, bonus, spend and holds stay single-shard transactions.
+ *   4. New accounts go to the shard chosen by weighted rendezvous hashing of
+ *      the account name ({@link #placeAccount}): a shard's share of new
+ *      accounts follows wallet.sharding.shards[i].weight, weight 0 closes it
+ *      to new accounts, and the same name always lands on the same shard, so
+ *      the per-shard unique constraint on names stays global.
+ *
+ * With a single shard (the default) every method here is a pass-through.
+ */
+public class ShardRouter {
+
+    /** One shard's database; username/password default to spring.datasource.*. */
+    public record Shard(String url, String username, String password, @DefaultValue("1") int weight) {}
+
+    private final List<Shard> shards;
+
+    public ShardRouter(List<Shard> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        if (shards.stream().noneMatch(s -> s.weight() > 0)) {
+            throw new IllegalArgumentException("At least one shard needs a weight above 0");
+        }
+        this.shards = List.copyOf(shards);
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    List<Shard> shards() {
+        return shards;
+    }
+
+    /**
+     * A new connection to {@code shard}, outside its pools and limiters — for
+     * session state held for the process lifetime (the balance engine's
+     * ownership locks). The caller closes it.
+     */
+    public Connection connect(int shard) throws SQLException {
+        Shard s = shards.get(shard);
+        return DriverManager.getConnection(s.url(), s.username(), s.password());
+    }
+
+    /** Shard owning an account, wallet, transaction or hold id. */
+    public int shardOf(long id) {
+        return (int) Math.floorMod(id, (long) shards.size());
+    }
+
+    /** Shard a new account with this name is created on. */
+    public int placeAccount(String name) {
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < shards.size(); i++) {
+            int weight = shards.get(i).weight();
+            if (weight <= 0) {
+                continue;
+            }
+            // Weighted rendezvous: -w / ln(u), u uniform in (0, 1) per (name, shard)
+            double u = ((mix(name.hashCode() * 0x9E3779B97F4A7C15L + i) >>> 11) + 0.5) * 0x1.0p-53;
+            double score = -weight / Math.log(u);
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /** Runs {@code work} with this thread's connections routed to {@code shard}. */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        if (shards.size() == 1) {
+            return work.get();
+        }
+        Integer previous = ShardRoutingDataSource.enter(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardRoutingDataSource.exit(previous);
+        }
+    }
+
+    /** Runs {@code work} once per shard, one shard at a time (batch jobs). */
+    public void onEachShard(IntConsumer work) {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int s = shard;
+            onShard(s, () -> {
+                work.accept(s);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Scatter-gather: runs {@code work} on every shard in parallel (one virtual
+     * thread per shard) and returns the results in shard order. The first
+     * failure is rethrown once every shard has finished.
+     */
+    public <T> List<T> scatter(IntFunction<T> work) {
+        if (shards.size() == 1) {
+            return List.of(work.apply(0));
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<T>> futures = new ArrayList<>(shards.size());
+            for (int shard = 0; shard < shards.size(); shard++) {
+                int s = shard;
+                futures.add(executor.submit(() -> onShard(s, () -> work.apply(s))));
+            }
+            List<T> results = new ArrayList<>(shards.size());
+            for (Future<T> future : futures) {
+                results.add(join(future));
+            }
+            return results;
+        }
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during scatter-gather", e);
+        }
+    }
+
+    // SplitMix64 finalizer — spreads String.hashCode's weak low bits
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
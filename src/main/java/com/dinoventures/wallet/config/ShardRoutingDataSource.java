@@ -0,0 +1,51 @@
+package com.dinoventures.wallet.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Picks the shard for each new connection from the one selected on this
+ * thread by {@link ShardRouter} or a {@link ShardKey} method. Only installed
+ * when more than one shard is configured.
+ *
+ * There is deliberately no default shard: a connection fetched without one is
+ * a routing bug, and failing beats silently writing to shard 0.
+ */
+class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = CURRENT.get();
+        if (shard == null) {
+            throw new IllegalStateException("No shard selected for this connection — route the call "
+                    + "through a @ShardKey method or ShardRouter (and keep spring.sql.init.mode=never "
+                    + "when sharding: ShardInitializer runs the scripts on every shard)");
+        }
+        return shard;
+    }
+
+    /**
+     * Routes this thread's new connections to {@code shard}; returns the
+     * previous selection. A transaction is bound to the shard it started on,
+     * so switching shards inside one is refused rather than ignored.
+     */
+    static Integer enter(int shard) {
+        Integer previous = CURRENT.get();
+        if (previous != null && previous != shard && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException(
+                    "Cross-shard call inside a transaction (shard " + previous + " → " + shard + ")");
+        }
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void exit(Integer previous) {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
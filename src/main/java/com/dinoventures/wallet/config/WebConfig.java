@@ -0,0 +1,57 @@
+package com.dinoventures.wallet.config;
+
+import com.dinoventures.wallet.service.RequestDeadline;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    static final String DEADLINE_HEADER = "X-Request-Timeout-Ms";
+
+    private final RequestDeadline deadline;
+
+    /**
+     * Starts the request's deadline from X-Request-Timeout-Ms (if present) and
+     * clears it when the request completes. An interceptor rather than a
+     * servlet filter so a malformed header goes through GlobalExceptionHandler
+     * as a 400.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                String header = request.getHeader(DEADLINE_HEADER);
+                if (header != null) {
+                    deadline.start(parseBudget(header));
+                }
+                return true;
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                        Object handler, Exception ex) {
+                deadline.clear();
+            }
+        });
+    }
+
+    private static long parseBudget(String header) {
+        try {
+            long budgetMs = Long.parseLong(header.trim());
+            if (budgetMs > 0) {
+                return budgetMs;
+            }
+        } catch (NumberFormatException ignored) {
+            // fall through
+        }
+        throw new IllegalArgumentException(DEADLINE_HEADER + " must be a positive number of milliseconds");
+    }
+}
@@ -0,0 +1,20 @@
+package com.dinoventures.wallet.config;
+
+/**
+ * Workload classes, each with its own connection pool (bulkhead) so one
+ * class saturating its pool cannot starve the others. See JdbcConfig.
+ */
+public enum Workload {
+
+    /** Request-path writes: topup, bonus, spend, holds. The default. */
+    WRITE,
+
+    /** Request-path reads — any read-only transaction. */
+    READ,
+
+    /** Background and batch jobs: async processing, sweeps, purges, exports. */
+    BATCH,
+
+    /** Streamed ingestion groups (NDJSON stream, gRPC SubmitBatch). */
+    INGEST
+}
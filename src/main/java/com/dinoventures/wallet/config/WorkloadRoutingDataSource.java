@@ -0,0 +1,44 @@
+package com.dinoventures.wallet.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Picks the pool for each new connection:
+ *
+ *   1. The workload set by an enclosing {@link Bulkhead} method, if any
+ *   2. READ if the current transaction is read-only
+ *   3. WRITE otherwise
+ *
+ * Step 2 only works behind a LazyConnectionDataSourceProxy: the transaction
+ * manager asks for its connection before the read-only flag is published, the
+ * proxy defers the real fetch to the first statement.
+ */
+class WorkloadRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final ThreadLocal<Workload> OVERRIDE = new ThreadLocal<>();
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Workload workload = OVERRIDE.get();
+        if (workload != null) {
+            return workload;
+        }
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Workload.READ : Workload.WRITE;
+    }
+
+    /** Routes this thread's new connections to {@code workload}; returns the previous override. */
+    static Workload enter(Workload workload) {
+        Workload previous = OVERRIDE.get();
+        OVERRIDE.set(workload);
+        return previous;
+    }
+
+    static void exit(Workload previous) {
+        if (previous != null) {
+            OVERRIDE.set(previous);
+        } else {
+            OVERRIDE.remove();
+        }
+    }
+}
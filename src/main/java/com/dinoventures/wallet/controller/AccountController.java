@@ -2,13 +2,24 @@ package com.dinoventures.wallet.controller;
 
 import com.dinoventures.wallet.model.Account;
 import com.dinoventures.wallet.model.AssetType;
+import com.dinoventures.wallet.model.BalanceSnapshot;
 import com.dinoventures.wallet.model.dto.*;
 import com.dinoventures.wallet.service.WalletService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 import java.util.List;
 import java.util.Map;
@@ -17,7 +28,10 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class AccountController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final WalletService walletService;
+    private final ObjectMapper  objectMapper;
 
     /**
      * GET /health
@@ -38,12 +52,52 @@ public class AccountController {
     }
 
     /**
-     * GET /api/v1/accounts
-     * Lists all accounts (users and system accounts).
+     * GET /api/v1/accounts?limit=100&after=0&type=user&name_prefix=Al
+     * Lists accounts in id order, one keyset page at a time: pass the
+     * response's next_after as {@code after} for the next page. type and
+     * name_prefix (case-sensitive) are optional filters.
+     * Returns 400 for an unknown type or a limit outside 1..wallet.accounts.max-page-size.
      */
     @GetMapping("/api/v1/accounts")
-    public ResponseEntity<List<Account>> listAccounts() {
-        return ResponseEntity.ok(walletService.getAllAccounts());
+    public ResponseEntity<AccountPage> listAccounts(
+            @RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "name_prefix", required = false) String namePrefix) {
+        return ResponseEntity.ok(walletService.listAccounts(after, type, namePrefix, limit));
+    }
+
+    /**
+     * GET /api/v1/accounts/export?type=user
+     * Streams every account as NDJSON (one JSON object per line), shard by
+     * shard, reading in keyset batches — for full dumps, where paging through
+     * the listing would cost a request per page.
+     */
+    @GetMapping(value = "/api/v1/accounts/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportAccounts(
+            @RequestParam(value = "type", required = false) String type) {
+        WalletService.validateAccountType(type);   // before the 200 is committed
+        StreamingResponseBody body = out -> walletService.exportAccounts(type, batch -> {
+            try {
+                for (Account account : batch) {
+                    out.write(objectMapper.writeValueAsBytes(account));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * GET /api/v1/accounts/by-name/{name}
+     * Exact (case-sensitive) name lookup. 404 if no account has the name.
+     */
+    @GetMapping("/api/v1/accounts/by-name/{name}")
+    public ResponseEntity<Account> findAccountByName(@PathVariable("name") String name) {
+        return ResponseEntity.ok(walletService.findAccountByName(name));
     }
 
     /**
@@ -59,30 +113,64 @@ public class AccountController {
     /**
      * GET /api/v1/accounts/{id}/balance?asset_type_id=1
      * Returns the computed balance for a specific account and asset type.
-     * Balance is always derived from SUM(ledger_entries.amount) — never cached.
+     * Balance is always derived from SUM(ledger_entries.amount); concurrent
+     * reads of the same wallet share one query (see BalanceCache).
+     *
+     * Conditional GET: If-None-Match with the current ETag → 304, checked
+     * against the wallet's change marker without computing the balance.
+     * Otherwise the body and its ETag come from the same snapshot, which may
+     * be cached (see WalletService#getBalanceSnapshot).
      */
     @GetMapping("/api/v1/accounts/{id}/balance")
     public ResponseEntity<BalanceResponse> getBalance(
             @PathVariable("id") long accountId,
-            @RequestParam("asset_type_id") long assetTypeId) {
+            @RequestParam("asset_type_id") long assetTypeId,
+            WebRequest request) {
 
-        BalanceResponse response = walletService.getBalance(accountId, assetTypeId);
-        return ResponseEntity.ok(response);
+        String current = walletService.balanceETag(accountId, assetTypeId);
+        if (current != null && clientHas(request, current)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(CacheControl.noCache()).eTag(current).build();
+        }
+        // Not checkNotModified(current): that would also stamp the response
+        // with current, which need not be the ETag of the body below. An
+        // If-None-Match matching the snapshot's ETag still gets its 304 from
+        // Spring's ResponseEntity handling.
+        BalanceSnapshot snapshot = walletService.getBalanceSnapshot(accountId, assetTypeId);
+        return conditional(snapshot.getEtag()).body(snapshot.getResponse());
     }
 
     /**
      * GET /api/v1/accounts/{id}/ledger?asset_type_id=1&page=1&page_size=20
      * Returns the paginated ledger history for an account + asset type.
-     * Entries are returned newest-first.
+     * Entries are returned newest-first. Supports If-None-Match like the balance.
      */
     @GetMapping("/api/v1/accounts/{id}/ledger")
     public ResponseEntity<LedgerResponse> getLedger(
             @PathVariable("id") long accountId,
             @RequestParam("asset_type_id") long assetTypeId,
             @RequestParam(value = "page", defaultValue = "1") int page,
-            @RequestParam(value = "page_size", defaultValue = "20") int pageSize) {
+            @RequestParam(value = "page_size", defaultValue = "20") int pageSize,
+            WebRequest request) {
 
+        String etag = walletService.ledgerETag(accountId, assetTypeId, page, pageSize);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;   // 304 Not Modified, ETag header already set
+        }
         LedgerResponse response = walletService.getLedger(accountId, assetTypeId, page, pageSize);
-        return ResponseEntity.ok(response);
+        return conditional(etag).body(response);
+    }
+
+    /** Weak If-None-Match comparison, as checkNotModified does, without touching the response. */
+    private static boolean clientHas(WebRequest request, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        return ifNoneMatch != null && ETag.parse(ifNoneMatch).stream()
+                .anyMatch(tag -> tag.isWildcard() || tag.tag().equals(etag));
+    }
+
+    /** 200 that clients may store but must revalidate (If-None-Match) before reuse. */
+    private static ResponseEntity.BodyBuilder conditional(String etag) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        return etag != null ? ok.eTag(etag) : ok;
     }
 }
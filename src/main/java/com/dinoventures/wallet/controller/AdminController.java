@@ -0,0 +1,155 @@
+package com.dinoventures.wallet.controller;
+
+import com.dinoventures.wallet.model.dto.AccountImportResponse;
+import com.dinoventures.wallet.model.dto.HotWalletResponse;
+import com.dinoventures.wallet.service.AccountImportService;
+import com.dinoventures.wallet.service.HotWalletDetector;
+import com.dinoventures.wallet.service.JfrRecordings;
+import com.dinoventures.wallet.service.ReportService;
+import com.dinoventures.wallet.service.VirtualThreadDiagnostics;
+import jdk.jfr.Recording;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operational endpoints. Internal service — expose only on the admin network.
+ */
+@RestController
+@RequestMapping("/api/v1/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final HotWalletDetector hotWalletDetector;
+    private final JfrRecordings     jfrRecordings;
+    private final ObjectProvider<VirtualThreadDiagnostics> virtualThreadDiagnostics;
+    private final ReportService     reportService;
+    private final AccountImportService accountImportService;
+
+    /**
+     * GET /api/v1/admin/hot-wallets
+     *
+     * Wallets currently flagged hot (their writes take the serialized path),
+     * hottest first.
+     */
+    @GetMapping("/hot-wallets")
+    public ResponseEntity<List<HotWalletResponse>> hotWallets() {
+        return ResponseEntity.ok(hotWalletDetector.hotWallets());
+    }
+
+    /**
+     * POST /api/v1/admin/jfr/start?max_age_seconds=600
+     *
+     * Starts a JFR recording with the wallet preset (jfr/wallet.jfc), keeping
+     * the last max_age_seconds. Idempotent while one is running.
+     */
+    @PostMapping("/jfr/start")
+    public ResponseEntity<Map<String, Object>> startRecording(
+            @RequestParam(value = "max_age_seconds", defaultValue = "600") long maxAgeSeconds) throws IOException {
+        if (maxAgeSeconds < 1) {
+            throw new IllegalArgumentException("max_age_seconds must be positive");
+        }
+        Recording recording = jfrRecordings.start(Duration.ofSeconds(maxAgeSeconds));
+        return ResponseEntity.ok(Map.of(
+                "name", recording.getName(),
+                "state", recording.getState().name(),
+                "max_age_seconds", recording.getMaxAge().toSeconds()));
+    }
+
+    /**
+     * GET /api/v1/admin/jfr/dump
+     *
+     * Downloads the running recording's buffer as a .jfr file (open it in JDK
+     * Mission Control or with `jfr print`). The recording keeps running.
+     */
+    @GetMapping("/jfr/dump")
+    public ResponseEntity<StreamingResponseBody> dumpRecording() throws IOException {
+        Path file = jfrRecordings.dump();
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(file.getFileName().toString()).build().toString())
+                .body(body);
+    }
+
+    /**
+     * POST /api/v1/admin/jfr/stop
+     */
+    @PostMapping("/jfr/stop")
+    public ResponseEntity<Void> stopRecording() {
+        jfrRecordings.stop();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * GET /api/v1/admin/virtual-threads
+     *
+     * Pinning and carrier-utilization snapshot; requires
+     * wallet.diagnostics.virtual-threads.enabled=true.
+     */
+    @GetMapping("/virtual-threads")
+    public ResponseEntity<Map<String, Object>> virtualThreads() {
+        VirtualThreadDiagnostics diagnostics = virtualThreadDiagnostics.getIfAvailable();
+        if (diagnostics == null) {
+            return ResponseEntity.ok(Map.of("enabled", false));
+        }
+        return ResponseEntity.ok(diagnostics.snapshot());
+    }
+
+    /**
+     * POST /api/v1/admin/rollups/rebuild?from=2026-10-01&to=2026-10-31
+     *
+     * Recomputes the daily rollups of the range from the ledger (e.g. after a
+     * correction), days in parallel. Safe while the rollup job runs.
+     */
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRollups(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        long start = System.nanoTime();
+        int days = reportService.rebuild(from, to);
+        return ResponseEntity.ok(Map.of(
+                "days", days,
+                "duration_ms", Duration.ofNanos(System.nanoTime() - start).toMillis()));
+    }
+
+    /**
+     * POST /api/v1/admin/imports/accounts
+     * Content-Type: text/csv | application/x-ndjson
+     *
+     * Bulk onboarding: creates the accounts and wallets in the body and posts
+     * their opening balances from Treasury. CSV needs a header row naming the
+     * columns (name, asset_type_id, opening_balance); NDJSON takes one object
+     * per line with the same fields. Bad rows are rejected and reported by line
+     * number without failing the rest; re-running an import is safe.
+     */
+    @PostMapping(value = "/imports/accounts", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<AccountImportResponse> importAccounts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"));
+        return ResponseEntity.ok(accountImportService.importAccounts(body, csv));
+    }
+}
@@ -0,0 +1,100 @@
+package com.dinoventures.wallet.controller;
+
+import com.dinoventures.wallet.model.Hold;
+import com.dinoventures.wallet.model.WalletKey;
+import com.dinoventures.wallet.model.dto.*;
+import com.dinoventures.wallet.service.HoldService;
+import com.dinoventures.wallet.service.VelocityLimiter;
+import com.dinoventures.wallet.service.TransactionGateway;
+import com.dinoventures.wallet.service.WriteAdmissionControl;
+import com.dinoventures.wallet.service.WriteRetry;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/holds")
+@RequiredArgsConstructor
+public class HoldController {
+
+    private final HoldService holdService;
+    private final WriteAdmissionControl admission;
+    private final WriteRetry            retry;
+    private final VelocityLimiter       velocity;
+    private final TransactionGateway    gateway;
+
+    /**
+     * POST /api/v1/holds
+     *
+     * Authorizes (reserves) an amount against a wallet's available balance.
+     * Returns 422 if the available balance (balance - active holds) is too low.
+     *
+     * Required header: Idempotency-Key (client-generated UUID)
+     * Returns 201 if a new hold was placed, 200 if idempotent replay,
+     * 429 + Retry-After if it would break the wallet's spend velocity limits
+     * (a hold counts as the spend it reserves for, when authorized; its
+     * capture is not counted again),
+     * 429/503 + Retry-After if rejected by admission control,
+     * 503 + Retry-After if the wallet lock stayed contended through retries.
+     */
+    @PostMapping
+    public ResponseEntity<HoldResponse> authorize(
+            @RequestHeader("Idempotency-Key") String idempotencyKey,
+            @Valid @RequestBody AuthorizeHoldRequest req) {
+
+        WalletKey wallet = new WalletKey(req.getAccountId(), req.getAssetTypeId());
+        HoldResponse response = velocity.execute(wallet, req.getAmount(),
+                () -> admission.execute(wallet, () -> retry.execute(() -> holdService.authorize(req, idempotencyKey))),
+                HoldResponse::isIdempotent);
+        return ResponseEntity
+                .status(response.isIdempotent() ? HttpStatus.OK : HttpStatus.CREATED)
+                .body(response);
+    }
+
+    /**
+     * GET /api/v1/holds/{id}
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Hold> getHold(@PathVariable("id") long holdId) {
+        return ResponseEntity.ok(holdService.getHold(holdId));
+    }
+
+    /**
+     * POST /api/v1/holds/{id}/capture
+     *
+     * Converts the hold into a spend. Omit amount to capture it in full; a
+     * smaller amount is a partial capture and the remainder is released.
+     * Returns 409 if the hold is no longer active or has expired.
+     *
+     * Required header: Idempotency-Key (client-generated UUID)
+     * Returns 201 if new transaction, 200 if idempotent replay,
+     * 429/503 + Retry-After if rejected by admission control (as a spend
+     * from the hold's wallet to Revenue, so it shares Revenue's hot lane),
+     * 503 + Retry-After if the wallet lock stayed contended through retries.
+     */
+    @PostMapping("/{id}/capture")
+    public ResponseEntity<TransactionResponse> capture(
+            @PathVariable("id") long holdId,
+            @RequestHeader("Idempotency-Key") String idempotencyKey,
+            @Valid @RequestBody(required = false) CaptureHoldRequest req) {
+
+        CaptureHoldRequest body = req != null ? req : new CaptureHoldRequest();
+        TransactionResponse response = gateway.capture(holdId, body, idempotencyKey);
+        return ResponseEntity
+                .status(response.isIdempotent() ? HttpStatus.OK : HttpStatus.CREATED)
+                .body(response);
+    }
+
+    /**
+     * POST /api/v1/holds/{id}/release
+     *
+     * Cancels an active hold. Returns 409 if it was already captured or expired,
+     * 503 + Retry-After if the wallet lock stayed contended through retries.
+     */
+    @PostMapping("/{id}/release")
+    public ResponseEntity<HoldResponse> release(@PathVariable("id") long holdId) {
+        return ResponseEntity.ok(retry.execute(() -> holdService.release(holdId)));
+    }
+}
@@ -0,0 +1,55 @@
+package com.dinoventures.wallet.controller;
+
+import com.dinoventures.wallet.model.dto.LeaderboardResponse;
+import com.dinoventures.wallet.service.LeaderboardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+/**
+ * Top-N boards per asset type. Reads are O(limit), independent of the number
+ * of users.
+ */
+@RestController
+@RequestMapping("/api/v1/leaderboards")
+@RequiredArgsConstructor
+public class LeaderboardController {
+
+    private final LeaderboardService leaderboardService;
+
+    /**
+     * GET /api/v1/leaderboards/balance?asset_type_id=1&limit=10
+     *
+     * Users with the highest balances ("richest players").
+     * Returns 400 for a limit outside 1..wallet.leaderboard.max-size,
+     * 404 for an unknown asset type.
+     */
+    @GetMapping("/balance")
+    public ResponseEntity<LeaderboardResponse> balance(
+            @RequestParam("asset_type_id") long assetTypeId,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(leaderboardService.richest(assetTypeId, limit));
+    }
+
+    /**
+     * GET /api/v1/leaderboards/spend?asset_type_id=1&limit=10&week=2026-10-14
+     *
+     * Users who spent the most in a UTC week (Monday to Sunday). {@code week}
+     * is any day of that week and defaults to the current one; weeks older
+     * than wallet.leaderboard.weeks-retained come back empty.
+     */
+    @GetMapping("/spend")
+    public ResponseEntity<LeaderboardResponse> spend(
+            @RequestParam("asset_type_id") long assetTypeId,
+            @RequestParam(value = "limit", defaultValue = "10") int limit,
+            @RequestParam(value = "week", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate week) {
+        return ResponseEntity.ok(leaderboardService.topSpenders(assetTypeId, week, limit));
+    }
+}
@@ -0,0 +1,40 @@
+package com.dinoventures.wallet.controller;
+
+import com.dinoventures.wallet.model.dto.DailyReportResponse;
+import com.dinoventures.wallet.service.ReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+/**
+ * Finance reporting. Reads only the daily rollups, never the ledger.
+ */
+@RestController
+@RequestMapping("/api/v1/reports")
+@RequiredArgsConstructor
+public class ReportController {
+
+    private final ReportService reportService;
+
+    /**
+     * GET /api/v1/reports/daily?asset_type_id=1&from=2026-10-01&to=2026-10-31
+     *
+     * Per UTC day: volume and count per transaction type, and the outstanding
+     * liability (sum of user balances) at the end of the day. Lags the ledger
+     * by about wallet.rollups.interval-ms; see rolled_up_through.
+     * Returns 400 for an inverted or too long range, 404 for an unknown asset type.
+     */
+    @GetMapping("/daily")
+    public ResponseEntity<DailyReportResponse> daily(
+            @RequestParam("asset_type_id") long assetTypeId,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(reportService.daily(assetTypeId, from, to));
+    }
+}
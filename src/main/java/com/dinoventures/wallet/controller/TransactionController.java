@@ -1,19 +1,40 @@
 package com.dinoventures.wallet.controller;
 
 import com.dinoventures.wallet.model.dto.*;
+import com.dinoventures.wallet.service.BalanceEngine;
+import com.dinoventures.wallet.service.IngestionService;
+import com.dinoventures.wallet.service.TransactionGateway;
+import com.dinoventures.wallet.service.VelocityLimiter;
 import com.dinoventures.wallet.service.WalletService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * Topup, bonus and spend go through {@link TransactionGateway}, so each can
+ * also answer 429/503 + Retry-After when admission control rejects it, or
+ * 503 + Retry-After when the wallet lock stayed contended through retries.
+ * Asset types owned by the {@link BalanceEngine} are written through it,
+ * without admission control or wallet locks.
+ */
 @RestController
 @RequestMapping("/api/v1/transactions")
 @RequiredArgsConstructor
 public class TransactionController {
 
-    private final WalletService walletService;
+    private final WalletService      walletService;
+    private final TransactionGateway gateway;
+    private final IngestionService   ingestion;
+
+    // RFC 7240 preference that opts a request into async (accept-then-process) mode
+    private static final String RESPOND_ASYNC = "respond-async";
 
     /**
      * POST /api/v1/transactions/topup
@@ -22,17 +43,17 @@ public class TransactionController {
      * The payment system is assumed to have already succeeded.
      *
      * Required header: Idempotency-Key (client-generated UUID)
+     * Optional header: Prefer: respond-async (see {@link #accepted})
      * Returns 201 if new transaction, 200 if idempotent replay.
      */
     @PostMapping("/topup")
     public ResponseEntity<TransactionResponse> topup(
             @RequestHeader("Idempotency-Key") String idempotencyKey,
+            @RequestHeader(value = "Prefer", required = false) String prefer,
             @Valid @RequestBody TopupRequest req) {
 
-        TransactionResponse response = walletService.topup(req, idempotencyKey);
-        return ResponseEntity
-                .status(response.isIdempotent() ? HttpStatus.OK : HttpStatus.CREATED)
-                .body(response);
+        boolean async = prefersAsync(prefer);
+        return respond(gateway.topup(req, idempotencyKey, async), async);
     }
 
     /**
@@ -42,36 +63,99 @@ public class TransactionController {
      * system Treasury to a user's wallet.
      *
      * Required header: Idempotency-Key (client-generated UUID)
+     * Optional header: Prefer: respond-async (see {@link #accepted})
      * Returns 201 if new transaction, 200 if idempotent replay.
+     *
+     * Optional body field expires_in_seconds makes the bonus expire: what is
+     * unspent by then goes back to Treasury. Sync mode only, and not for
+     * engine-owned asset types.
      */
     @PostMapping("/bonus")
     public ResponseEntity<TransactionResponse> bonus(
             @RequestHeader("Idempotency-Key") String idempotencyKey,
+            @RequestHeader(value = "Prefer", required = false) String prefer,
             @Valid @RequestBody BonusRequest req) {
 
-        TransactionResponse response = walletService.bonus(req, idempotencyKey);
-        return ResponseEntity
-                .status(response.isIdempotent() ? HttpStatus.OK : HttpStatus.CREATED)
-                .body(response);
+        boolean async = prefersAsync(prefer);
+        return respond(gateway.bonus(req, idempotencyKey, async), async);
     }
 
     /**
      * POST /api/v1/transactions/spend
      *
      * Debits a user's wallet when they purchase an in-app service or item.
-     * Returns 422 if the user has insufficient funds.
+     * Returns 422 if the user has insufficient funds, 429 + Retry-After if
+     * the wallet is over its velocity limits ({@link VelocityLimiter}).
      *
      * Required header: Idempotency-Key (client-generated UUID)
+     * Optional header: Prefer: respond-async (see {@link #accepted})
      * Returns 201 if new transaction, 200 if idempotent replay.
      */
     @PostMapping("/spend")
     public ResponseEntity<TransactionResponse> spend(
             @RequestHeader("Idempotency-Key") String idempotencyKey,
+            @RequestHeader(value = "Prefer", required = false) String prefer,
             @Valid @RequestBody SpendRequest req) {
 
-        TransactionResponse response = walletService.spend(req, idempotencyKey);
+        boolean async = prefersAsync(prefer);
+        return respond(gateway.spend(req, idempotencyKey, async), async);
+    }
+
+    /**
+     * POST /api/v1/transactions/stream
+     * Content-Type: application/x-ndjson
+     *
+     * Bulk submission on one long-lived request (settlement workers): one
+     * operation per line, e.g.
+     * {"type":"spend","idempotency_key":"...","account_id":3,"asset_type_id":1,"amount":50}
+     * with type topup, bonus or spend. Responds 200 and streams one NDJSON
+     * result line per input line, in input order, while the body is still
+     * being read; each carries the status the single-operation endpoint would
+     * have returned (201, 200 replay, 404, 422, 429, 503 ...) and the
+     * transaction_id or error. See {@link IngestionService}.
+     */
+    @PostMapping(value = "/stream", consumes = "application/x-ndjson")
+    public void stream(InputStream body, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/x-ndjson");
+        ingestion.ingest(body, response.getOutputStream());
+    }
+
+    /**
+     * GET /api/v1/transactions/{id}
+     *
+     * Current state of a transaction, including its ledger entries once
+     * completed. This is the status URL returned for async requests.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<TransactionResponse> getTransaction(@PathVariable("id") long transactionId) {
+        return ResponseEntity.ok(walletService.getTransaction(transactionId));
+    }
+
+    /** 201 for a new transaction, 200 for an idempotent replay; async requests see {@link #accepted}. */
+    private ResponseEntity<TransactionResponse> respond(TransactionResponse response, boolean async) {
+        if (async) {
+            return accepted(response);
+        }
         return ResponseEntity
                 .status(response.isIdempotent() ? HttpStatus.OK : HttpStatus.CREATED)
                 .body(response);
     }
+
+    /**
+     * Response for a request sent with "Prefer: respond-async": 202 Accepted
+     * with the transaction still 'pending' and a Location header pointing at
+     * its status URL. An idempotent replay returns 200 with the current state.
+     */
+    private ResponseEntity<TransactionResponse> accepted(TransactionResponse response) {
+        return ResponseEntity
+                .status(response.isIdempotent() ? HttpStatus.OK : HttpStatus.ACCEPTED)
+                .location(URI.create("/api/v1/transactions/" + response.getTransaction().getId()))
+                .header("Preference-Applied", RESPOND_ASYNC)
+                .body(response);
+    }
+
+    private static boolean prefersAsync(String prefer) {
+        return prefer != null && prefer.toLowerCase().contains(RESPOND_ASYNC);
+    }
 }
@@ -0,0 +1,13 @@
+package com.dinoventures.wallet.exception;
+
+/**
+ * The caller's request deadline (X-Request-Timeout-Ms) passed before the work
+ * finished; whatever was in progress is abandoned and rolled back. Mapped to
+ * 504 Gateway Timeout.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String phase) {
+        super("Request deadline exceeded (" + phase + ")");
+    }
+}
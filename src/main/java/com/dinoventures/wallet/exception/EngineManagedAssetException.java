@@ -0,0 +1,14 @@
+package com.dinoventures.wallet.exception;
+
+/**
+ * The asset type's balances are owned by the in-memory balance engine, which
+ * only takes synchronous top-ups, bonuses and spends; holds and async
+ * requests are refused. Mapped to 409 Conflict.
+ */
+public class EngineManagedAssetException extends RuntimeException {
+
+    public EngineManagedAssetException(long assetTypeId, String operation) {
+        super(String.format("Asset type %d is managed by the balance engine; %s is not supported",
+                assetTypeId, operation));
+    }
+}
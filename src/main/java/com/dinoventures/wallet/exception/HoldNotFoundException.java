@@ -0,0 +1,7 @@
+package com.dinoventures.wallet.exception;
+
+public class HoldNotFoundException extends RuntimeException {
+    public HoldNotFoundException(long id) {
+        super("Hold not found: id=" + id);
+    }
+}
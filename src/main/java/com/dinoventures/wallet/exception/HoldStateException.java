@@ -0,0 +1,11 @@
+package com.dinoventures.wallet.exception;
+
+/**
+ * The requested operation is not valid for the hold's current state
+ * (e.g. capturing a released hold, or capturing more than was held).
+ */
+public class HoldStateException extends RuntimeException {
+    public HoldStateException(String message) {
+        super(message);
+    }
+}
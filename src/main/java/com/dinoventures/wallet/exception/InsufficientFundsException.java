@@ -7,4 +7,9 @@ public class InsufficientFundsException extends RuntimeException {
             accountId, assetTypeId, available, requested
         ));
     }
+
+    /** As reported by the node that made the check (a write forwarded to a balance engine). */
+    public InsufficientFundsException(String message) {
+        super(message);
+    }
 }
@@ -0,0 +1,20 @@
+package com.dinoventures.wallet.exception;
+
+/**
+ * A write kept losing on wallet locks (lock timeout, deadlock or serialization
+ * failure) after its automatic retries. Nothing was written; mapped to 503
+ * with a Retry-After header.
+ */
+public class LockContentionException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public LockContentionException(int attempts, long retryAfterSeconds, Throwable cause) {
+        super(String.format("Wallet is under heavy contention (%d attempts); retry later", attempts), cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
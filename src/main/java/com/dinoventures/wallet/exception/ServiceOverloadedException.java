@@ -0,0 +1,19 @@
+package com.dinoventures.wallet.exception;
+
+/**
+ * The global write concurrency limit is reached; rejected before borrowing a
+ * connection. Mapped to 503 with a Retry-After header.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(long retryAfterSeconds) {
+        super("Service is overloaded; retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
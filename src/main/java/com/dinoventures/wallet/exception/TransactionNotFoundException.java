@@ -0,0 +1,7 @@
+package com.dinoventures.wallet.exception;
+
+public class TransactionNotFoundException extends RuntimeException {
+    public TransactionNotFoundException(long id) {
+        super("Transaction not found: id=" + id);
+    }
+}
@@ -0,0 +1,23 @@
+package com.dinoventures.wallet.exception;
+
+/**
+ * The wallet has reached its spend velocity limit (count or amount per
+ * sliding window); rejected before any connection is borrowed. Mapped to
+ * 429 with a Retry-After header.
+ */
+public class VelocityLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public VelocityLimitExceededException(long accountId, long assetTypeId, String limit, long retryAfterSeconds) {
+        super(String.format(
+            "Spend velocity limit reached for account %d (asset_type %d): %s; retry in %d s",
+            accountId, assetTypeId, limit, retryAfterSeconds
+        ));
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,22 @@
+package com.dinoventures.wallet.exception;
+
+/**
+ * Too many writes are already in flight for this wallet; rejected before
+ * borrowing a connection. Mapped to 429 with a Retry-After header.
+ */
+public class WalletBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public WalletBusyException(long accountId, long assetTypeId, long retryAfterSeconds) {
+        super(String.format(
+            "Too many concurrent requests for account %d (asset_type %d); retry later",
+            accountId, assetTypeId
+        ));
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,113 @@
+package com.dinoventures.wallet.grpc;
+
+import com.dinoventures.wallet.exception.*;
+import com.dinoventures.wallet.service.RequestDeadline;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The gRPC counterpart of {@code WebConfig}'s deadline interceptor and
+ * {@link GlobalExceptionHandler}, around every callback that runs service
+ * code:
+ *
+ *   1. Starts the {@link RequestDeadline} from the call's deadline, if the
+ *      client set one, and clears it afterwards
+ *   2. Closes the call with the status matching the HTTP status REST would
+ *      answer, plus a retry-after trailer where REST sends Retry-After
+ */
+@Component
+@RequiredArgsConstructor
+public class GrpcCallInterceptor implements ServerInterceptor {
+
+    static final Metadata.Key<String> RETRY_AFTER =
+            Metadata.Key.of("retry-after", Metadata.ASCII_STRING_MARSHALLER);
+
+    private final RequestDeadline deadline;
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        ServerCall.Listener<ReqT> listener = next.startCall(call, headers);
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+            @Override
+            public void onMessage(ReqT message) {
+                guard(call, () -> super.onMessage(message));
+            }
+
+            @Override
+            public void onHalfClose() {
+                guard(call, super::onHalfClose);
+            }
+        };
+    }
+
+    private void guard(ServerCall<?, ?> call, Runnable callback) {
+        Deadline callDeadline = Context.current().getDeadline();
+        if (callDeadline != null) {
+            deadline.start(Math.max(0, callDeadline.timeRemaining(TimeUnit.MILLISECONDS)));
+        }
+        try {
+            callback.run();
+        } catch (RuntimeException e) {
+            Metadata trailers = new Metadata();
+            call.close(status(e, trailers), trailers);
+        } finally {
+            deadline.clear();
+        }
+    }
+
+    /** The status for {@code error}; adds retry-after to {@code trailers} where REST sends Retry-After. */
+    static Status status(RuntimeException error, Metadata trailers) {
+        Long retryAfter = null;
+        Status status;
+        if (error instanceof InsufficientFundsException
+                || error instanceof HoldStateException
+                || error instanceof EngineManagedAssetException) {
+            status = Status.FAILED_PRECONDITION;
+        } else if (error instanceof AccountNotFoundException
+                || error instanceof AssetTypeNotFoundException
+                || error instanceof TransactionNotFoundException
+                || error instanceof HoldNotFoundException) {
+            status = Status.NOT_FOUND;
+        } else if (error instanceof WalletBusyException e) {
+            status = Status.RESOURCE_EXHAUSTED;
+            retryAfter = e.getRetryAfterSeconds();
+        } else if (error instanceof VelocityLimitExceededException e) {
+            status = Status.RESOURCE_EXHAUSTED;
+            retryAfter = e.getRetryAfterSeconds();
+        } else if (error instanceof ServiceOverloadedException e) {
+            status = Status.UNAVAILABLE;
+            retryAfter = e.getRetryAfterSeconds();
+        } else if (error instanceof LockContentionException e) {
+            status = Status.UNAVAILABLE;
+            retryAfter = e.getRetryAfterSeconds();
+        } else if (error instanceof QueryTimeoutException) {
+            return withRetryAfter(Status.UNAVAILABLE.withDescription("Request timed out; retry later"), 1L, trailers);
+        } else if (error instanceof DeadlineExceededException) {
+            status = Status.DEADLINE_EXCEEDED;
+        } else if (error instanceof IllegalArgumentException) {
+            status = Status.INVALID_ARGUMENT;
+        } else {
+            return Status.INTERNAL.withDescription("An unexpected error occurred");
+        }
+        return withRetryAfter(status.withDescription(error.getMessage()), retryAfter, trailers);
+    }
+
+    private static Status withRetryAfter(Status status, Long retryAfter, Metadata trailers) {
+        if (retryAfter != null) {
+            trailers.put(RETRY_AFTER, String.valueOf(retryAfter));
+        }
+        return status;
+    }
+}
@@ -0,0 +1,118 @@
+package com.dinoventures.wallet.grpc;
+
+import com.dinoventures.wallet.exception.AccountNotFoundException;
+import com.dinoventures.wallet.exception.DeadlineExceededException;
+import com.dinoventures.wallet.exception.InsufficientFundsException;
+import com.dinoventures.wallet.exception.ServiceOverloadedException;
+import com.dinoventures.wallet.grpc.v1.WalletGrpc;
+import com.dinoventures.wallet.grpc.v1.WalletProto;
+import com.dinoventures.wallet.model.dto.TransactionResponse;
+import com.dinoventures.wallet.service.EngineOwnerClient;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EngineOwnerClient} over the owner's gRPC API (the same Topup, Bonus
+ * and Spend calls external clients use), one channel per owner address.
+ * The owner's status is turned back into the exception it was mapped from
+ * (see {@link GrpcCallInterceptor#status}):
+ *
+ *   FAILED_PRECONDITION            → InsufficientFundsException
+ *   NOT_FOUND                      → AccountNotFoundException
+ *   INVALID_ARGUMENT               → IllegalArgumentException
+ *   DEADLINE_EXCEEDED              → DeadlineExceededException
+ *   UNAVAILABLE, RESOURCE_EXHAUSTED → ServiceOverloadedException, with the
+ *                                    owner's retry-after if it sent one
+ */
+@Component
+public class GrpcEngineOwnerClient implements EngineOwnerClient {
+
+    private final long retryAfterSeconds;
+    private final ConcurrentHashMap<String, ManagedChannel> channels = new ConcurrentHashMap<>();
+
+    public GrpcEngineOwnerClient(@Value("${wallet.admission.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public TransactionResponse submit(String owner, String type, long accountId, long assetTypeId, long amount,
+                                      String description, String idempotencyKey, long timeoutMs) {
+        WalletGrpc.WalletBlockingStub stub = WalletGrpc.newBlockingStub(channel(owner))
+                .withDeadlineAfter(timeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            WalletProto.TransactionReply reply = switch (type) {
+                case "topup" -> {
+                    WalletProto.TopupRequest.Builder req = WalletProto.TopupRequest.newBuilder()
+                            .setIdempotencyKey(idempotencyKey)
+                            .setAccountId(accountId).setAssetTypeId(assetTypeId).setAmount(amount);
+                    if (description != null) {
+                        req.setDescription(description);
+                    }
+                    yield stub.topup(req.build());
+                }
+                case "bonus" -> {
+                    WalletProto.BonusRequest.Builder req = WalletProto.BonusRequest.newBuilder()
+                            .setIdempotencyKey(idempotencyKey)
+                            .setAccountId(accountId).setAssetTypeId(assetTypeId).setAmount(amount);
+                    if (description != null) {
+                        req.setDescription(description);
+                    }
+                    yield stub.bonus(req.build());
+                }
+                case "spend" -> {
+                    WalletProto.SpendRequest.Builder req = WalletProto.SpendRequest.newBuilder()
+                            .setIdempotencyKey(idempotencyKey)
+                            .setAccountId(accountId).setAssetTypeId(assetTypeId).setAmount(amount);
+                    if (description != null) {
+                        req.setDescription(description);
+                    }
+                    yield stub.spend(req.build());
+                }
+                default -> throw new IllegalArgumentException("Unknown transaction type: " + type);
+            };
+            return GrpcMessages.response(reply);
+        } catch (StatusRuntimeException e) {
+            throw error(e, accountId);
+        }
+    }
+
+    private RuntimeException error(StatusRuntimeException e, long accountId) {
+        Status status = e.getStatus();
+        String message = status.getDescription();
+        return switch (status.getCode()) {
+            case FAILED_PRECONDITION -> new InsufficientFundsException(message);
+            case NOT_FOUND -> new AccountNotFoundException(accountId);
+            case INVALID_ARGUMENT -> new IllegalArgumentException(message);
+            case DEADLINE_EXCEEDED -> new DeadlineExceededException("engine_forward");
+            case UNAVAILABLE, RESOURCE_EXHAUSTED -> new ServiceOverloadedException(retryAfter(e));
+            default -> new IllegalStateException("Balance engine owner failed: " + status, e);
+        };
+    }
+
+    private long retryAfter(StatusRuntimeException e) {
+        Metadata trailers = e.getTrailers();
+        String value = trailers != null ? trailers.get(GrpcCallInterceptor.RETRY_AFTER) : null;
+        return value != null ? Long.parseLong(value) : retryAfterSeconds;
+    }
+
+    private ManagedChannel channel(String owner) {
+        return channels.computeIfAbsent(owner, address ->
+                Grpc.newChannelBuilder(address, InsecureChannelCredentials.create()).build());
+    }
+
+    @PreDestroy
+    public void close() {
+        channels.values().forEach(ManagedChannel::shutdownNow);
+        channels.clear();
+    }
+}
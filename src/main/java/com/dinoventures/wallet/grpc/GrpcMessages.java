@@ -0,0 +1,207 @@
+package com.dinoventures.wallet.grpc;
+
+import com.dinoventures.wallet.grpc.v1.WalletProto;
+import com.dinoventures.wallet.model.LedgerEntry;
+import com.dinoventures.wallet.model.LedgerEntryView;
+import com.dinoventures.wallet.model.Transaction;
+import com.dinoventures.wallet.model.dto.BalanceResponse;
+import com.dinoventures.wallet.model.dto.BonusRequest;
+import com.dinoventures.wallet.model.dto.IngestResult;
+import com.dinoventures.wallet.model.dto.LedgerResponse;
+import com.dinoventures.wallet.model.dto.SpendRequest;
+import com.dinoventures.wallet.model.dto.TopupRequest;
+import com.dinoventures.wallet.model.dto.TransactionResponse;
+import com.google.protobuf.Timestamp;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Conversions between the protobuf messages of wallet.proto and the DTOs the
+ * service layer takes and returns. Unset optional fields stay null, so the
+ * DTOs' bean-validation constraints report them as on REST. Replies are also
+ * read back into DTOs for writes forwarded to a balance engine's owner.
+ */
+final class GrpcMessages {
+
+    private GrpcMessages() {}
+
+    static TopupRequest topup(WalletProto.TopupRequest msg) {
+        TopupRequest req = new TopupRequest();
+        req.setAccountId(msg.hasAccountId() ? msg.getAccountId() : null);
+        req.setAssetTypeId(msg.hasAssetTypeId() ? msg.getAssetTypeId() : null);
+        req.setAmount(msg.hasAmount() ? msg.getAmount() : null);
+        req.setDescription(msg.hasDescription() ? msg.getDescription() : null);
+        return req;
+    }
+
+    static BonusRequest bonus(WalletProto.BonusRequest msg) {
+        BonusRequest req = new BonusRequest();
+        req.setAccountId(msg.hasAccountId() ? msg.getAccountId() : null);
+        req.setAssetTypeId(msg.hasAssetTypeId() ? msg.getAssetTypeId() : null);
+        req.setAmount(msg.hasAmount() ? msg.getAmount() : null);
+        req.setExpiresInSeconds(msg.hasExpiresInSeconds() ? msg.getExpiresInSeconds() : null);
+        req.setDescription(msg.hasDescription() ? msg.getDescription() : null);
+        return req;
+    }
+
+    static SpendRequest spend(WalletProto.SpendRequest msg) {
+        SpendRequest req = new SpendRequest();
+        req.setAccountId(msg.hasAccountId() ? msg.getAccountId() : null);
+        req.setAssetTypeId(msg.hasAssetTypeId() ? msg.getAssetTypeId() : null);
+        req.setAmount(msg.hasAmount() ? msg.getAmount() : null);
+        req.setDescription(msg.hasDescription() ? msg.getDescription() : null);
+        return req;
+    }
+
+    static WalletProto.TransactionReply reply(TransactionResponse response) {
+        WalletProto.TransactionReply.Builder reply = WalletProto.TransactionReply.newBuilder()
+                .setTransaction(transaction(response.getTransaction()))
+                .setIdempotent(response.isIdempotent());
+        List<LedgerEntry> entries = response.getLedgerEntries();
+        if (entries != null) {
+            entries.forEach(entry -> reply.addLedgerEntries(ledgerEntry(entry)));
+        }
+        return reply.build();
+    }
+
+    /** A reply received from another node, read back as the service layer returns it. */
+    static TransactionResponse response(WalletProto.TransactionReply reply) {
+        WalletProto.Transaction msg = reply.getTransaction();
+        Transaction txn = Transaction.builder()
+                .id(msg.getId())
+                .idempotencyKey(msg.getIdempotencyKey())
+                .type(msg.getType())
+                .description(msg.getDescription().isEmpty() ? null : msg.getDescription())
+                .status(msg.getStatus())
+                .accountId(msg.getAccountId())
+                .assetTypeId(msg.getAssetTypeId())
+                .amount(msg.getAmount())
+                .failureReason(msg.hasFailureReason() ? msg.getFailureReason() : null)
+                .createdAt(msg.hasCreatedAt() ? offsetDateTime(msg.getCreatedAt()) : null)
+                .build();
+        List<LedgerEntry> entries = reply.getLedgerEntriesList().stream()
+                .map(entry -> LedgerEntry.builder()
+                        .id(entry.getId())
+                        .transactionId(entry.getTransactionId())
+                        .walletId(entry.getWalletId())
+                        .amount(entry.getAmount())
+                        .createdAt(entry.hasCreatedAt() ? offsetDateTime(entry.getCreatedAt()) : null)
+                        .build())
+                .toList();
+        return new TransactionResponse(txn, entries, reply.getIdempotent());
+    }
+
+    static WalletProto.Balance balance(BalanceResponse response) {
+        return WalletProto.Balance.newBuilder()
+                .setAccountId(response.getAccountId())
+                .setAssetTypeId(response.getAssetTypeId())
+                .setBalance(response.getBalance())
+                .setHeld(response.getHeld())
+                .setAvailable(response.getAvailable())
+                .build();
+    }
+
+    static WalletProto.LedgerPage ledgerPage(LedgerResponse response) {
+        WalletProto.LedgerPage.Builder page = WalletProto.LedgerPage.newBuilder()
+                .setTotal(response.getTotal())
+                .setPage(response.getPage())
+                .setPageSize(response.getPageSize());
+        for (LedgerEntryView view : response.getEntries()) {
+            WalletProto.LedgerEntryView.Builder entry = WalletProto.LedgerEntryView.newBuilder()
+                    .setId(view.getId())
+                    .setTransactionId(view.getTransactionId())
+                    .setWalletId(view.getWalletId())
+                    .setAmount(view.getAmount());
+            if (view.getTransactionType() != null) {
+                entry.setTransactionType(view.getTransactionType());
+            }
+            if (view.getTransactionDescription() != null) {
+                entry.setTransactionDescription(view.getTransactionDescription());
+            }
+            if (view.getCreatedAt() != null) {
+                entry.setCreatedAt(timestamp(view.getCreatedAt()));
+            }
+            page.addEntries(entry);
+        }
+        return page.build();
+    }
+
+    static WalletProto.BatchResult batchResult(IngestResult result) {
+        WalletProto.BatchResult.Builder msg = WalletProto.BatchResult.newBuilder()
+                .setIndex(result.getLine())
+                .setStatus(result.getStatus());
+        if (result.getIdempotencyKey() != null) {
+            msg.setIdempotencyKey(result.getIdempotencyKey());
+        }
+        if (result.getTransactionId() != null) {
+            msg.setTransactionId(result.getTransactionId());
+        }
+        if (result.getIdempotent() != null) {
+            msg.setIdempotent(result.getIdempotent());
+        }
+        if (result.getError() != null) {
+            msg.setError(result.getError());
+        }
+        if (result.getRetryAfterSeconds() != null) {
+            msg.setRetryAfterSeconds(result.getRetryAfterSeconds());
+        }
+        return msg.build();
+    }
+
+    /** "topup", "bonus" or "spend"; null for TYPE_UNSPECIFIED, which the batch rejects. */
+    static String batchType(WalletProto.BatchOperation.Type type) {
+        return switch (type) {
+            case TOPUP -> "topup";
+            case BONUS -> "bonus";
+            case SPEND -> "spend";
+            default -> null;
+        };
+    }
+
+    static WalletProto.Transaction transaction(Transaction txn) {
+        WalletProto.Transaction.Builder msg = WalletProto.Transaction.newBuilder()
+                .setId(txn.getId())
+                .setIdempotencyKey(txn.getIdempotencyKey())
+                .setType(txn.getType())
+                .setStatus(txn.getStatus())
+                .setAccountId(txn.getAccountId())
+                .setAssetTypeId(txn.getAssetTypeId())
+                .setAmount(txn.getAmount());
+        if (txn.getDescription() != null) {
+            msg.setDescription(txn.getDescription());
+        }
+        if (txn.getFailureReason() != null) {
+            msg.setFailureReason(txn.getFailureReason());
+        }
+        if (txn.getCreatedAt() != null) {
+            msg.setCreatedAt(timestamp(txn.getCreatedAt()));
+        }
+        return msg.build();
+    }
+
+    private static WalletProto.LedgerEntry ledgerEntry(LedgerEntry entry) {
+        WalletProto.LedgerEntry.Builder msg = WalletProto.LedgerEntry.newBuilder()
+                .setId(entry.getId())
+                .setTransactionId(entry.getTransactionId())
+                .setWalletId(entry.getWalletId())
+                .setAmount(entry.getAmount());
+        if (entry.getCreatedAt() != null) {
+            msg.setCreatedAt(timestamp(entry.getCreatedAt()));
+        }
+        return msg.build();
+    }
+
+    private static Timestamp timestamp(OffsetDateTime at) {
+        return Timestamp.newBuilder()
+                .setSeconds(at.toEpochSecond())
+                .setNanos(at.getNano())
+                .build();
+    }
+
+    private static OffsetDateTime offsetDateTime(Timestamp at) {
+        return Instant.ofEpochSecond(at.getSeconds(), at.getNanos()).atOffset(ZoneOffset.UTC);
+    }
+}
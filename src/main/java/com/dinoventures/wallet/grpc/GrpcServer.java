@@ -0,0 +1,94 @@
+package com.dinoventures.wallet.grpc;
+
+import io.grpc.Grpc;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The gRPC server (wallet.grpc.*), started and stopped with the application
+ * context like the web server. Calls run on virtual threads, as requests do
+ * on Tomcat, so a call blocked on a wallet lock or a pool costs no platform
+ * thread. Plaintext: it is meant for the internal network only.
+ */
+@Component
+public class GrpcServer implements SmartLifecycle {
+
+    private final WalletGrpcService service;
+    private final GrpcCallInterceptor interceptor;
+    private final boolean enabled;
+    private final int port;
+    private final long shutdownGraceMs;
+
+    private Server server;
+    private ExecutorService executor;
+
+    public GrpcServer(
+            WalletGrpcService service,
+            GrpcCallInterceptor interceptor,
+            @Value("${wallet.grpc.enabled:true}") boolean enabled,
+            @Value("${wallet.grpc.port:9090}") int port,
+            @Value("${wallet.grpc.shutdown-grace-ms:10000}") long shutdownGraceMs) {
+        this.service = service;
+        this.interceptor = interceptor;
+        this.enabled = enabled;
+        this.port = port;
+        this.shutdownGraceMs = shutdownGraceMs;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || server != null) {
+            return;
+        }
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            server = Grpc.newServerBuilderForPort(port, InsecureServerCredentials.create())
+                    .executor(executor)
+                    .addService(ServerInterceptors.intercept(service, interceptor))
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            executor.close();
+            throw new UncheckedIOException("gRPC server could not bind port " + port, e);
+        }
+    }
+
+    /** Stops accepting calls and lets running ones finish within the grace period. */
+    @Override
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.shutdown();
+        try {
+            if (!server.awaitTermination(shutdownGraceMs, TimeUnit.MILLISECONDS)) {
+                server.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            server.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdownNow();
+        server = null;
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    /** The bound port (differs from wallet.grpc.port when that is 0); -1 when not running. */
+    public synchronized int getPort() {
+        return server != null ? server.getPort() : -1;
+    }
+}
@@ -0,0 +1,160 @@
+package com.dinoventures.wallet.grpc;
+
+import com.dinoventures.wallet.grpc.v1.WalletGrpc;
+import com.dinoventures.wallet.grpc.v1.WalletProto;
+import com.dinoventures.wallet.model.dto.IngestResult;
+import com.dinoventures.wallet.service.IngestionService;
+import com.dinoventures.wallet.service.TransactionGateway;
+import com.dinoventures.wallet.service.WalletService;
+import io.grpc.stub.StreamObserver;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * gRPC implementation of wallet.proto for internal callers. Every call goes
+ * through the same services as its REST endpoint — writes through
+ * {@link TransactionGateway}, reads through {@link WalletService}, batches
+ * through {@link IngestionService} — so only the encoding differs. Errors
+ * are thrown as on REST and mapped to statuses by {@link GrpcCallInterceptor}.
+ */
+@Component
+public class WalletGrpcService extends WalletGrpc.WalletImplBase {
+
+    private final TransactionGateway gateway;
+    private final WalletService      walletService;
+    private final IngestionService   ingestion;
+    private final Validator          validator;
+    private final int maxBatchSize;
+
+    public WalletGrpcService(
+            TransactionGateway gateway,
+            WalletService walletService,
+            IngestionService ingestion,
+            Validator validator,
+            @Value("${wallet.grpc.max-batch-size:10000}") int maxBatchSize) {
+        this.gateway = gateway;
+        this.walletService = walletService;
+        this.ingestion = ingestion;
+        this.validator = validator;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public void topup(WalletProto.TopupRequest request, StreamObserver<WalletProto.TransactionReply> reply) {
+        respond(reply, GrpcMessages.reply(gateway.topup(
+                valid(GrpcMessages.topup(request)), key(request.getIdempotencyKey()), request.getRespondAsync())));
+    }
+
+    @Override
+    public void bonus(WalletProto.BonusRequest request, StreamObserver<WalletProto.TransactionReply> reply) {
+        respond(reply, GrpcMessages.reply(gateway.bonus(
+                valid(GrpcMessages.bonus(request)), key(request.getIdempotencyKey()), request.getRespondAsync())));
+    }
+
+    @Override
+    public void spend(WalletProto.SpendRequest request, StreamObserver<WalletProto.TransactionReply> reply) {
+        respond(reply, GrpcMessages.reply(gateway.spend(
+                valid(GrpcMessages.spend(request)), key(request.getIdempotencyKey()), request.getRespondAsync())));
+    }
+
+    @Override
+    public void getTransaction(WalletProto.GetTransactionRequest request,
+                               StreamObserver<WalletProto.TransactionReply> reply) {
+        respond(reply, GrpcMessages.reply(walletService.getTransaction(request.getTransactionId())));
+    }
+
+    @Override
+    public void getBalance(WalletProto.GetBalanceRequest request, StreamObserver<WalletProto.Balance> reply) {
+        respond(reply, GrpcMessages.balance(
+                walletService.getBalance(request.getAccountId(), request.getAssetTypeId())));
+    }
+
+    @Override
+    public void getLedger(WalletProto.GetLedgerRequest request, StreamObserver<WalletProto.LedgerPage> reply) {
+        respond(reply, GrpcMessages.ledgerPage(walletService.getLedger(request.getAccountId(),
+                request.getAssetTypeId(),
+                request.hasPage() ? request.getPage() : 1,
+                request.hasPageSize() ? request.getPageSize() : 20)));
+    }
+
+    /**
+     * Operations are applied while the client streams them; a batch larger
+     * than {@code wallet.grpc.max-batch-size} fails with INVALID_ARGUMENT
+     * (what was applied until then stays applied — resend it in smaller
+     * batches and those operations come back as replays).
+     */
+    @Override
+    public StreamObserver<WalletProto.BatchOperation> submitBatch(StreamObserver<WalletProto.BatchReply> reply) {
+        IngestionService.Batch batch = ingestion.openBatch();
+        return new StreamObserver<>() {
+            private boolean rejected;
+
+            @Override
+            public void onNext(WalletProto.BatchOperation op) {
+                if (rejected) {
+                    return;
+                }
+                if (batch.size() >= maxBatchSize) {
+                    rejected = true;
+                    batch.close();
+                    throw new IllegalArgumentException(
+                            "batch is larger than " + maxBatchSize + " operations; split it");
+                }
+                batch.add(GrpcMessages.batchType(op.getType()), op.getIdempotencyKey(), op.getAccountId(),
+                        op.getAssetTypeId(), op.getAmount(), op.hasDescription() ? op.getDescription() : null);
+            }
+
+            /** Client cancelled: what it sent is still applied, no one reads the results. */
+            @Override
+            public void onError(Throwable t) {
+                batch.close();
+            }
+
+            @Override
+            public void onCompleted() {
+                if (rejected) {
+                    return;
+                }
+                List<IngestResult> results;
+                try {
+                    results = batch.finish();
+                } finally {
+                    batch.close();
+                }
+                WalletProto.BatchReply.Builder out = WalletProto.BatchReply.newBuilder();
+                results.forEach(result -> out.addResults(GrpcMessages.batchResult(result)));
+                respond(reply, out.build());
+            }
+        };
+    }
+
+    /** Bean validation of the request DTO, reported like REST's 400: messages joined by "; ". */
+    private <T> T valid(T request) {
+        Set<ConstraintViolation<T>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        return request;
+    }
+
+    private static String key(String idempotencyKey) {
+        if (idempotencyKey.isBlank()) {
+            throw new IllegalArgumentException("idempotency_key is required");
+        }
+        return idempotencyKey;
+    }
+
+    private static <T> void respond(StreamObserver<T> reply, T message) {
+        reply.onNext(message);
+        reply.onCompleted();
+    }
+}
@@ -0,0 +1,10 @@
+package com.dinoventures.wallet.model;
+
+/**
+ * A request that acts on one account's wallets; its account decides the
+ * shard it runs on (see {@link com.dinoventures.wallet.config.ShardKey}).
+ */
+public interface AccountScoped {
+
+    Long getAccountId();
+}
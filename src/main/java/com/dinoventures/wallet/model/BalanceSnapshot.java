@@ -0,0 +1,15 @@
+package com.dinoventures.wallet.model;
+
+import com.dinoventures.wallet.model.dto.BalanceResponse;
+import lombok.Value;
+
+/**
+ * A balance together with the ETag of the state it was read from. Cached as
+ * one value, so a response never pairs a body with another read's ETag.
+ */
+@Value
+public class BalanceSnapshot {
+    BalanceResponse response;
+    /** Null when the wallet has no row yet (zero balance, nothing to revalidate). */
+    String etag;
+}
@@ -0,0 +1,14 @@
+package com.dinoventures.wallet.model;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/** One daily_rollups row: a (UTC) day's volume of one transaction type. */
+@Value
+public class DailyVolume {
+    LocalDate day;
+    String type;
+    long volume;
+    long count;
+}
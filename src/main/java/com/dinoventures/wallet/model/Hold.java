@@ -0,0 +1,27 @@
+package com.dinoventures.wallet.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Funds reserved against a wallet's available balance (authorize), later
+ * captured into a spend, released, or expired.
+ */
+@Data
+@Builder
+public class Hold {
+    private Long id;
+    private String idempotencyKey;
+    private Long walletId;
+    private Long accountId;
+    private Long assetTypeId;
+    private Long amount;
+    private Long capturedAmount;
+    private String status;
+    private String description;
+    private Long transactionId;
+    private OffsetDateTime expiresAt;
+    private OffsetDateTime createdAt;
+}
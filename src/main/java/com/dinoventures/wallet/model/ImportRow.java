@@ -0,0 +1,15 @@
+package com.dinoventures.wallet.model;
+
+import lombok.Value;
+
+/** One parsed input row of an account import. */
+@Value
+public class ImportRow {
+    /** 1-based line of the input it came from. */
+    long line;
+    String name;
+    /** Null for an account without a wallet. */
+    Long assetTypeId;
+    /** Opening balance, 0 for none. */
+    long amount;
+}
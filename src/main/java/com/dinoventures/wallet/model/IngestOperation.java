@@ -0,0 +1,17 @@
+package com.dinoventures.wallet.model;
+
+import lombok.Value;
+
+/** One parsed input line of a streamed ingestion: a topup, bonus or spend. */
+@Value
+public class IngestOperation {
+    /** 1-based line of the input it came from. */
+    long line;
+    /** "topup", "bonus" or "spend". */
+    String type;
+    String idempotencyKey;
+    long accountId;
+    long assetTypeId;
+    long amount;
+    String description;
+}
@@ -0,0 +1,11 @@
+package com.dinoventures.wallet.model;
+
+import lombok.Value;
+
+/** One leaderboard position: a user and the value they are ranked by. */
+@Value
+public class LeaderboardEntry {
+    long accountId;
+    String accountName;
+    long value;
+}
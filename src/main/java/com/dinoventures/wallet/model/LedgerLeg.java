@@ -0,0 +1,22 @@
+package com.dinoventures.wallet.model;
+
+import lombok.Value;
+
+/**
+ * One leg of a double-entry posting, before it is written: the wallet and the
+ * signed amount (positive = credit, negative = debit). The legs of a
+ * transaction always sum to zero.
+ */
+@Value
+public class LedgerLeg {
+    long walletId;
+    long amount;
+
+    public static LedgerLeg debit(long walletId, long amount) {
+        return new LedgerLeg(walletId, -amount);
+    }
+
+    public static LedgerLeg credit(long walletId, long amount) {
+        return new LedgerLeg(walletId, amount);
+    }
+}
@@ -0,0 +1,16 @@
+package com.dinoventures.wallet.model;
+
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+
+/**
+ * How far the daily rollups have read the ledger: every entry with id up to
+ * {@code throughEntryId} is counted. {@code throughCreatedAt} is that entry's
+ * time (null before the first entry).
+ */
+@Value
+public class RollupWatermark {
+    long throughEntryId;
+    OffsetDateTime throughCreatedAt;
+}
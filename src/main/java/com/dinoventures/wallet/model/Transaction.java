@@ -14,5 +14,10 @@ public class Transaction {
     private String description;
     private String metadata;
     private String status;
+    private Long accountId;
+    private Long assetTypeId;
+    private Long amount;
+    /** Set when an async (pending) transaction ends up 'failed'. */
+    private String failureReason;
     private OffsetDateTime createdAt;
 }
@@ -11,5 +11,7 @@ public class Wallet {
     private Long id;
     private Long accountId;
     private Long assetTypeId;
+    /** Sum of active holds — reserved, not available to spend. */
+    private Long heldAmount;
     private OffsetDateTime createdAt;
 }
@@ -0,0 +1,13 @@
+package com.dinoventures.wallet.model;
+
+import lombok.Value;
+
+/**
+ * Identifies a wallet by its natural key (account + asset type), which is
+ * known from the request before any wallet row has been read.
+ */
+@Value
+public class WalletKey {
+    long accountId;
+    long assetTypeId;
+}
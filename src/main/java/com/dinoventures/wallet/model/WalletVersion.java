@@ -0,0 +1,14 @@
+package com.dinoventures.wallet.model;
+
+import lombok.Value;
+
+/**
+ * Cheap change marker for a wallet: everything a balance or ledger response
+ * is derived from. If neither field changed, neither did the response.
+ */
+@Value
+public class WalletVersion {
+    /** Highest ledger entry id (0 if none) — commit-ordered per wallet. */
+    long lastEntryId;
+    long heldAmount;
+}
@@ -0,0 +1,21 @@
+package com.dinoventures.wallet.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class AccountImportResponse {
+    /** Data rows read (blank lines and the CSV header excluded). */
+    private Long rows;
+    private Long accountsCreated;
+    private Long walletsCreated;
+    private Long balancesPosted;
+    private Long amountPosted;
+    private Long rejected;
+    /** The first wallet.import.max-rejections-reported rejections, by line. */
+    private List<ImportRejection> rejections;
+    private Long durationMs;
+}
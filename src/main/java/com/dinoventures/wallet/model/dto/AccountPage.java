@@ -0,0 +1,15 @@
+package com.dinoventures.wallet.model.dto;
+
+import com.dinoventures.wallet.model.Account;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class AccountPage {
+    private List<Account> accounts;
+    /** Pass as {@code after} for the next page; absent on the last page. */
+    private Long nextAfter;
+}
@@ -0,0 +1,28 @@
+package com.dinoventures.wallet.model.dto;
+
+import com.dinoventures.wallet.model.AccountScoped;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class AuthorizeHoldRequest implements AccountScoped {
+
+    @NotNull(message = "account_id is required")
+    private Long accountId;
+
+    @NotNull(message = "asset_type_id is required")
+    private Long assetTypeId;
+
+    @NotNull(message = "amount is required")
+    @Min(value = 1, message = "amount must be at least 1")
+    private Long amount;
+
+    /** Optional; defaults to wallet.holds.default-ttl-seconds. */
+    @Min(value = 1, message = "ttl_seconds must be at least 1")
+    @Max(value = 604800, message = "ttl_seconds must be at most 604800 (7 days)")
+    private Long ttlSeconds;
+
+    private String description;
+}
@@ -9,4 +9,8 @@ public class BalanceResponse {
     private Long accountId;
     private Long assetTypeId;
     private Long balance;
+    /** Reserved by active holds. */
+    private Long held;
+    /** balance - held: what a spend or new hold may use. */
+    private Long available;
 }
@@ -1,11 +1,12 @@
 package com.dinoventures.wallet.model.dto;
 
+import com.dinoventures.wallet.model.AccountScoped;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
 @Data
-public class BonusRequest {
+public class BonusRequest implements AccountScoped {
 
     @NotNull(message = "account_id is required")
     private Long accountId;
@@ -17,5 +18,9 @@ public class BonusRequest {
     @Min(value = 1, message = "amount must be at least 1")
     private Long amount;
 
+    /** Optional; unspent bonus returns to Treasury this long after the grant. */
+    @Min(value = 1, message = "expires_in_seconds must be at least 1")
+    private Long expiresInSeconds;
+
     private String description;
 }
@@ -0,0 +1,14 @@
+package com.dinoventures.wallet.model.dto;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+@Data
+public class CaptureHoldRequest {
+
+    /** Optional; defaults to the full held amount. Any remainder is released. */
+    @Min(value = 1, message = "amount must be at least 1")
+    private Long amount;
+
+    private String description;
+}
@@ -0,0 +1,22 @@
+package com.dinoventures.wallet.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class DailyReportResponse {
+    private Long assetTypeId;
+    private LocalDate from;
+    private LocalDate to;
+    /**
+     * Entries up to this time are counted on every shard that has rolled
+     * anything up; later ones may not be in the report yet.
+     */
+    private OffsetDateTime rolledUpThrough;
+    private List<DailyReportRow> days;
+}
@@ -0,0 +1,19 @@
+package com.dinoventures.wallet.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class DailyReportRow {
+    private LocalDate day;
+    /** Transaction type → total amount moved that day. */
+    private Map<String, Long> volume;
+    /** Transaction type → number of transactions that day. */
+    private Map<String, Long> count;
+    /** Sum of all user balances at the end of the day. */
+    private Long outstandingLiability;
+}
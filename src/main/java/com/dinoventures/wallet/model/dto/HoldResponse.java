@@ -0,0 +1,16 @@
+package com.dinoventures.wallet.model.dto;
+
+import com.dinoventures.wallet.model.Hold;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class HoldResponse {
+    private Hold hold;
+    /**
+     * true if this response was replayed from a previously processed
+     * authorize with the same Idempotency-Key (no new hold was placed).
+     */
+    private boolean idempotent;
+}
@@ -0,0 +1,18 @@
+package com.dinoventures.wallet.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class HotWalletResponse {
+    private Long accountId;
+    private Long assetTypeId;
+    /** Writes per second over the last complete window (lower bound). */
+    private Double arrivalsPerSecond;
+    /** Average lockForUpdate wait of those writes. */
+    private Double avgLockWaitMs;
+    private Instant hotSince;
+}
@@ -0,0 +1,11 @@
+package com.dinoventures.wallet.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ImportRejection {
+    private Long line;
+    private String reason;
+}
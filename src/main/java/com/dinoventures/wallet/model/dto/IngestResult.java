@@ -0,0 +1,21 @@
+package com.dinoventures.wallet.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One output line of POST /api/v1/transactions/stream, for the input line
+ * {@code line}. {@code status} is what the single-operation endpoint would
+ * have answered (201 new, 200 replay, 404, 422, 429, 503, ...).
+ */
+@Data
+@AllArgsConstructor
+public class IngestResult {
+    private long line;
+    private String idempotencyKey;
+    private int status;
+    private Long transactionId;
+    private Boolean idempotent;
+    private String error;
+    private Long retryAfterSeconds;
+}
@@ -0,0 +1,18 @@
+package com.dinoventures.wallet.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class LeaderboardResponse {
+    private Long assetTypeId;
+    /** "balance" or "spend". */
+    private String board;
+    /** Monday (UTC) of the ranked week; null for the balance board. */
+    private LocalDate weekStart;
+    private List<LeaderboardRow> entries;
+}
@@ -0,0 +1,15 @@
+package com.dinoventures.wallet.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class LeaderboardRow {
+    /** 1-based; equal values are ordered by account id. */
+    private Integer rank;
+    private Long accountId;
+    private String accountName;
+    /** Balance (balance board) or amount spent in the week (spend board). */
+    private Long value;
+}
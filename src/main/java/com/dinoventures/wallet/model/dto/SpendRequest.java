@@ -1,11 +1,12 @@
 package com.dinoventures.wallet.model.dto;
 
+import com.dinoventures.wallet.model.AccountScoped;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
 @Data
-public class SpendRequest {
+public class SpendRequest implements AccountScoped {
 
     @NotNull(message = "account_id is required")
     private Long accountId;
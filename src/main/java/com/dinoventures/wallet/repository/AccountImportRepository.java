@@ -0,0 +1,224 @@
+package com.dinoventures.wallet.repository;
+
+import com.dinoventures.wallet.model.ImportRow;
+import com.dinoventures.wallet.model.dto.ImportRejection;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Set-based statements behind the account import. Every method works on one
+ * chunk of account_import_rows (its chunk_id) on the shard selected by the
+ * caller, and must be called within the transaction that staged the chunk.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccountImportRepository {
+
+    private final JdbcTemplate               jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+
+    private static final String COPY_SQL =
+            "COPY account_import_rows (chunk_id, line, name, asset_type_id, amount) FROM STDIN (FORMAT csv)";
+
+    // Rows still in play: not rejected so far
+    private static final String LIVE = "chunk_id = :chunk AND rejection IS NULL";
+
+    // One topup per opening balance: the gate row claims the transaction id
+    // (as in TransactionRepository), then Treasury −N / user +N, then the user
+    // wallets' stored balances move (Treasury's is not kept, see
+    // LedgerRepository#POST_SQL). Returns (balances posted, amount posted).
+    private static final String POST_OPENING_BALANCES_SQL =
+            "WITH todo AS (" +
+            "    SELECT line, account_id, asset_type_id, amount, " +
+            "           'import-opening:' || account_id || ':' || asset_type_id AS idempotency_key " +
+            "    FROM account_import_rows WHERE " + LIVE + " AND amount > 0" +
+            "), gate AS (" +
+            "    INSERT INTO idempotency_keys (key_hash, transaction_id) " +
+            "    SELECT md5(idempotency_key)::uuid, nextval('transactions_id_seq') FROM todo ORDER BY line " +
+            "    ON CONFLICT (key_hash) DO NOTHING " +
+            "    RETURNING key_hash, transaction_id" +
+            "), txn AS (" +
+            "    INSERT INTO transactions (id, idempotency_key, type, description, status, " +
+            "                              account_id, asset_type_id, amount) " +
+            "    SELECT g.transaction_id, t.idempotency_key, 'topup', :description, 'completed', " +
+            "           t.account_id, t.asset_type_id, t.amount " +
+            "    FROM todo t JOIN gate g ON g.key_hash = md5(t.idempotency_key)::uuid " +
+            "    RETURNING id, account_id, asset_type_id, amount" +
+            "), leg AS (" +
+            "    SELECT txn.id AS transaction_id, tw.id AS wallet_id, tw.account_id, txn.asset_type_id, " +
+            "           -txn.amount AS amount, 1 AS n " +
+            "    FROM txn JOIN wallets tw ON tw.account_id = :treasury AND tw.asset_type_id = txn.asset_type_id " +
+            "    UNION ALL " +
+            "    SELECT txn.id, uw.id, txn.account_id, txn.asset_type_id, txn.amount, 2 " +
+            "    FROM txn JOIN wallets uw ON uw.account_id = txn.account_id AND uw.asset_type_id = txn.asset_type_id" +
+            "), posted AS (" +
+            "    INSERT INTO ledger_entries (transaction_id, wallet_id, account_id, asset_type_id, amount) " +
+            "    SELECT transaction_id, wallet_id, account_id, asset_type_id, amount FROM leg " +
+            "    ORDER BY transaction_id, n " +
+            "    RETURNING wallet_id, amount" +
+            "), moved AS (" +
+            "    UPDATE wallets w SET balance = w.balance + d.delta " +
+            "    FROM (SELECT wallet_id, SUM(amount) AS delta FROM posted GROUP BY wallet_id) d " +
+            "    WHERE w.id = d.wallet_id AND w.account_id <> :treasury" +
+            ") " +
+            "SELECT COUNT(*), COALESCE(SUM(amount), 0) FROM txn";
+
+    /**
+     * Stages the chunk's rows with COPY ... FROM STDIN (CSV) on the
+     * transaction's connection and returns the number of rows copied.
+     */
+    public long stage(UUID chunkId, List<ImportRow> rows) {
+        StringBuilder csv = new StringBuilder(rows.size() * 48);
+        for (ImportRow row : rows) {
+            csv.append(chunkId).append(',')
+               .append(row.getLine()).append(',')
+               .append('"').append(row.getName().replace("\"", "\"\"")).append("\",")
+               .append(row.getAssetTypeId() != null ? row.getAssetTypeId().toString() : "").append(',')
+               .append(row.getAmount()).append('\n');
+        }
+        return jdbc.execute((ConnectionCallback<Long>) con -> {
+            try {
+                return con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, new StringReader(csv.toString()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /** Rejects rows whose name is taken by a system account. */
+    public int rejectSystemNames(UUID chunkId) {
+        return namedJdbc.update(
+                "UPDATE account_import_rows r SET rejection = 'name belongs to a system account' " +
+                "FROM accounts a " +
+                "WHERE r.chunk_id = :chunk AND r.rejection IS NULL AND a.name = r.name AND a.type <> 'user'",
+                chunk(chunkId));
+    }
+
+    /** Creates the user accounts that do not exist yet; returns how many. */
+    public int createAccounts(UUID chunkId) {
+        return namedJdbc.update(
+                "INSERT INTO accounts (type, name) " +
+                "SELECT DISTINCT 'user', name FROM account_import_rows WHERE " + LIVE + " " +
+                "ON CONFLICT (name) DO NOTHING",
+                chunk(chunkId));
+    }
+
+    /**
+     * Creates missing wallets — the rows' own, and Treasury's for every asset
+     * type that gets an opening balance — and records each row's account and
+     * wallet ids. Returns how many user wallets were created.
+     */
+    public int createWallets(UUID chunkId, long treasuryId) {
+        namedJdbc.update(
+                "UPDATE account_import_rows r SET account_id = a.id " +
+                "FROM accounts a WHERE r.chunk_id = :chunk AND r.rejection IS NULL AND a.name = r.name",
+                chunk(chunkId));
+        int created = namedJdbc.update(
+                "INSERT INTO wallets (account_id, asset_type_id) " +
+                "SELECT DISTINCT account_id, asset_type_id FROM account_import_rows " +
+                "WHERE " + LIVE + " AND asset_type_id IS NOT NULL " +
+                "ON CONFLICT (account_id, asset_type_id) DO NOTHING",
+                chunk(chunkId));
+        namedJdbc.update(
+                "INSERT INTO wallets (account_id, asset_type_id) " +
+                "SELECT DISTINCT :treasury, asset_type_id FROM account_import_rows WHERE " + LIVE + " AND amount > 0 " +
+                "ON CONFLICT (account_id, asset_type_id) DO NOTHING",
+                chunk(chunkId).addValue("treasury", treasuryId));
+        namedJdbc.update(
+                "UPDATE account_import_rows r SET wallet_id = w.id " +
+                "FROM wallets w WHERE r.chunk_id = :chunk AND r.rejection IS NULL " +
+                "AND w.account_id = r.account_id AND w.asset_type_id = r.asset_type_id",
+                chunk(chunkId));
+        return created;
+    }
+
+    /**
+     * Locks the user wallets that will receive an opening balance, in
+     * ascending id order, the order every write flow uses. Treasury's wallets
+     * are locked separately, just before the posting statement
+     * ({@link #lockTreasury}), so live top-ups and bonuses wait on them only
+     * for the end of the chunk.
+     */
+    public void lockWallets(UUID chunkId) {
+        namedJdbc.queryForList(
+                "SELECT id FROM wallets WHERE id IN (" +
+                "    SELECT wallet_id FROM account_import_rows WHERE " + LIVE + " AND amount > 0) " +
+                "ORDER BY id FOR UPDATE",
+                chunk(chunkId),
+                Long.class);
+    }
+
+    /**
+     * Locks Treasury's wallets for the asset types the chunk still posts, in
+     * ascending id order. Their stored balance does not move, but ledger ids
+     * must still be assigned in commit order under the wallet lock: the
+     * balance/ledger ETags (WalletRepository#findVersion) and the rollup
+     * watermark rely on it.
+     *
+     * Taken after the user wallets' locks, so a live write on one of the
+     * chunk's wallets can deadlock with it; PostgreSQL aborts one side and
+     * WriteRetry runs it again (40P01).
+     */
+    public void lockTreasury(UUID chunkId, long treasuryId) {
+        namedJdbc.queryForList(
+                "SELECT id FROM wallets WHERE account_id = :treasury AND asset_type_id IN (" +
+                "    SELECT asset_type_id FROM account_import_rows WHERE " + LIVE + " AND amount > 0) " +
+                "ORDER BY id FOR UPDATE",
+                chunk(chunkId).addValue("treasury", treasuryId),
+                Long.class);
+    }
+
+    /**
+     * Rejects opening balances that must not be posted: a wallet listed more
+     * than once (the first line wins) or one that already has ledger history
+     * (which also makes re-running an import harmless). Under the wallet locks.
+     */
+    public int rejectUnpostable(UUID chunkId) {
+        return namedJdbc.update(
+                "UPDATE account_import_rows r " +
+                "SET rejection = CASE WHEN x.first_line <> r.line THEN 'duplicate of line ' || x.first_line " +
+                "                     ELSE 'wallet already has history' END " +
+                "FROM (SELECT line, MIN(line) OVER (PARTITION BY wallet_id) AS first_line " +
+                "      FROM account_import_rows WHERE " + LIVE + " AND amount > 0) x " +
+                "WHERE r.chunk_id = :chunk AND r.line = x.line " +
+                "  AND (x.first_line <> r.line OR EXISTS (" +
+                "       SELECT 1 FROM ledger_entries e " +
+                "       WHERE e.account_id = r.account_id AND e.asset_type_id = r.asset_type_id))",
+                chunk(chunkId));
+    }
+
+    /** Posts the remaining opening balances; returns {balances posted, amount posted}. */
+    public long[] postOpeningBalances(UUID chunkId, long treasuryId, String description) {
+        return namedJdbc.queryForObject(POST_OPENING_BALANCES_SQL,
+                chunk(chunkId).addValue("treasury", treasuryId).addValue("description", description),
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)});
+    }
+
+    public List<ImportRejection> findRejections(UUID chunkId) {
+        return namedJdbc.query(
+                "SELECT line, rejection FROM account_import_rows " +
+                "WHERE chunk_id = :chunk AND rejection IS NOT NULL ORDER BY line",
+                chunk(chunkId),
+                (rs, rowNum) -> new ImportRejection(rs.getLong(1), rs.getString(2)));
+    }
+
+    public void clear(UUID chunkId) {
+        namedJdbc.update("DELETE FROM account_import_rows WHERE chunk_id = :chunk", chunk(chunkId));
+    }
+
+    private static MapSqlParameterSource chunk(UUID chunkId) {
+        return new MapSqlParameterSource(Map.of("chunk", chunkId));
+    }
+}
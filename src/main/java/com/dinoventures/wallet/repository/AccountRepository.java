@@ -26,11 +26,28 @@ public class AccountRepository {
             .createdAt(rs.getObject("created_at", java.time.OffsetDateTime.class))
             .build();
 
-    public List<Account> findAll() {
-        return namedJdbc.query(
-                "SELECT id, type, name, created_at FROM accounts ORDER BY id",
-                ROW_MAPPER
-        );
+    /**
+     * One keyset page: up to {@code limit} accounts with id above
+     * {@code afterId}, in id order, optionally filtered by type and name
+     * prefix (case-sensitive). Never an OFFSET, so page N costs the same as
+     * page 1 — a primary-key range scan, idx_accounts_type_id with a type,
+     * or idx_accounts_name_prefix when the prefix is selective.
+     */
+    public List<Account> findPage(long afterId, String type, String namePrefix, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT id, type, name, created_at FROM accounts WHERE id > :afterId");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
+        if (type != null) {
+            sql.append(" AND type = :type");
+            params.addValue("type", type);
+        }
+        if (namePrefix != null) {
+            sql.append(" AND name LIKE :pattern");
+            params.addValue("pattern", escapeLike(namePrefix) + "%");
+        }
+        sql.append(" ORDER BY id LIMIT :limit");
+        return namedJdbc.query(sql.toString(), params, ROW_MAPPER);
     }
 
     public Optional<Account> findById(long id) {
@@ -42,6 +59,7 @@ public class AccountRepository {
         return results.stream().findFirst();
     }
 
+    /** Exact, case-sensitive lookup: a single probe of uq_accounts_name. */
     public Optional<Account> findByName(String name) {
         List<Account> results = namedJdbc.query(
                 "SELECT id, type, name, created_at FROM accounts WHERE name = :name",
@@ -62,4 +80,9 @@ public class AccountRepository {
         long id = keyHolder.getKey().longValue();
         return findById(id).orElseThrow();
     }
+
+    // LIKE's default escape character is the backslash
+    private static String escapeLike(String literal) {
+        return literal.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 }
@@ -0,0 +1,129 @@
+package com.dinoventures.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * State loading, snapshots and ownership leases for the in-memory balance
+ * engine (see BalanceEngine). The ledger stays authoritative; a snapshot only
+ * lets a restart replay the ledger tail instead of summing everything.
+ *
+ * All methods work on the shard selected by the caller.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BalanceSnapshotRepository {
+
+    private final JdbcTemplate jdbc;
+
+    /** Receives one row of wallet state. */
+    @FunctionalInterface
+    public interface WalletRow {
+        void accept(long walletId, long value);
+    }
+
+    /**
+     * Records {@code owner} as the asset type's engine and returns the new
+     * ownership epoch. Waits for a commit of the previous owner that holds
+     * the lease (see {@link #lockEpoch}), so everything it wrote is visible
+     * afterwards.
+     */
+    public long claimLease(long assetTypeId, String owner) {
+        return jdbc.queryForObject(
+                "INSERT INTO engine_leases (asset_type_id, owner, epoch) VALUES (?, ?, 1) " +
+                "ON CONFLICT (asset_type_id) DO UPDATE " +
+                "SET owner = EXCLUDED.owner, epoch = engine_leases.epoch + 1, claimed_at = NOW() " +
+                "RETURNING epoch",
+                Long.class, assetTypeId, owner);
+    }
+
+    /**
+     * The asset type's current ownership epoch, locked FOR SHARE until the
+     * transaction ends so no claim can move it in between; 0 if never claimed.
+     */
+    public long lockEpoch(long assetTypeId) {
+        return jdbc.query("SELECT epoch FROM engine_leases WHERE asset_type_id = ? FOR SHARE",
+                rs -> rs.next() ? rs.getLong(1) : 0L, assetTypeId);
+    }
+
+    /** Address of the node that last claimed the asset type, if any did. */
+    public Optional<String> findOwner(long assetTypeId) {
+        return jdbc.query("SELECT owner FROM engine_leases WHERE asset_type_id = ?",
+                rs -> rs.next() ? Optional.of(rs.getString(1)) : Optional.<String>empty(), assetTypeId);
+    }
+
+    /**
+     * True if the asset type has work the engine does not take over: active
+     * holds, pending (async) transactions or live bonus grants (the expiry
+     * sweep posts those through the database).
+     */
+    public boolean hasOpenWork(long assetTypeId) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM holds WHERE asset_type_id = ? AND status = 'active') " +
+                "    OR EXISTS (SELECT 1 FROM transactions WHERE asset_type_id = ? AND status = 'pending') " +
+                "    OR EXISTS (SELECT 1 FROM bonus_grants " +
+                "               WHERE asset_type_id = ? AND expired_at IS NULL AND remaining > 0)",
+                Boolean.class, assetTypeId, assetTypeId, assetTypeId));
+    }
+
+    /** Every wallet of the asset type, as (wallet id, account id). */
+    public void loadWallets(long assetTypeId, WalletRow row) {
+        jdbc.query("SELECT id, account_id FROM wallets WHERE asset_type_id = ?",
+                rs -> { row.accept(rs.getLong(1), rs.getLong(2)); }, assetTypeId);
+    }
+
+    /** Ledger entry id the asset type's snapshot runs through, if one was taken. */
+    public Optional<Long> findMark(long assetTypeId) {
+        return jdbc.query("SELECT through_entry_id FROM balance_snapshot_marks WHERE asset_type_id = ?",
+                rs -> rs.next() ? Optional.of(rs.getLong(1)) : Optional.<Long>empty(), assetTypeId);
+    }
+
+    public void loadSnapshot(long assetTypeId, WalletRow row) {
+        jdbc.query("SELECT wallet_id, balance FROM balance_snapshots WHERE asset_type_id = ?",
+                rs -> { row.accept(rs.getLong(1), rs.getLong(2)); }, assetTypeId);
+    }
+
+    /**
+     * Sums the asset type's ledger entries after {@code afterEntryId} per
+     * wallet (the whole ledger for 0) and returns the highest entry id seen,
+     * or {@code afterEntryId} if there are none.
+     */
+    public long loadTail(long assetTypeId, long afterEntryId, WalletRow row) {
+        long[] maxId = {afterEntryId};
+        jdbc.query(
+                "SELECT wallet_id, SUM(amount), MAX(id) FROM ledger_entries " +
+                "WHERE asset_type_id = ? AND id > ? GROUP BY wallet_id",
+                rs -> {
+                    row.accept(rs.getLong(1), rs.getLong(2));
+                    maxId[0] = Math.max(maxId[0], rs.getLong(3));
+                },
+                assetTypeId, afterEntryId);
+        return maxId[0];
+    }
+
+    /**
+     * Upserts the given wallets' balances and moves the asset type's mark to
+     * {@code throughEntryId}. Must be called within a transaction.
+     */
+    public void save(long assetTypeId, Long[] walletIds, Long[] balances, long throughEntryId) {
+        if (walletIds.length > 0) {
+            jdbc.update(
+                    "INSERT INTO balance_snapshots (wallet_id, asset_type_id, balance) " +
+                    "SELECT s.wallet_id, ?, s.balance FROM unnest(?::bigint[], ?::bigint[]) AS s(wallet_id, balance) " +
+                    "ON CONFLICT (wallet_id) DO UPDATE SET balance = EXCLUDED.balance",
+                    ps -> {
+                        ps.setLong(1, assetTypeId);
+                        ps.setArray(2, ps.getConnection().createArrayOf("bigint", walletIds));
+                        ps.setArray(3, ps.getConnection().createArrayOf("bigint", balances));
+                    });
+        }
+        jdbc.update(
+                "INSERT INTO balance_snapshot_marks (asset_type_id, through_entry_id) VALUES (?, ?) " +
+                "ON CONFLICT (asset_type_id) DO UPDATE " +
+                "SET through_entry_id = EXCLUDED.through_entry_id, taken_at = NOW()",
+                assetTypeId, throughEntryId);
+    }
+}
@@ -0,0 +1,196 @@
+package com.dinoventures.wallet.repository;
+
+import com.dinoventures.wallet.model.Wallet;
+import com.dinoventures.wallet.model.WalletKey;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Expiring bonus grants. {@code remaining} is what is left of a grant; it is
+ * only changed under the grant's wallet FOR UPDATE lock, so it is exact
+ * without reading the wallet's ledger.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BonusGrantRepository {
+
+    private final JdbcTemplate               jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+
+    // Live and past expiry, oldest first — served by idx_bonus_grants_due
+    private static final String DUE =
+            "g.expired_at IS NULL AND g.remaining > 0 AND g.expires_at <= NOW()";
+
+    // Asset types of the oldest due grants, minus the ones passed to skip
+    private static final String DUE_ASSET_TYPES_SQL =
+            "SELECT DISTINCT asset_type_id FROM (" +
+            "    SELECT g.asset_type_id FROM bonus_grants g " +
+            "    WHERE " + DUE + " AND g.asset_type_id <> ALL(?) " +
+            "    ORDER BY g.expires_at, g.id LIMIT ?) d " +
+            "ORDER BY asset_type_id";
+
+    // Draws :amount from the wallet's live grants, soonest-expiring first:
+    // each grant gives up to what the grants before it did not cover.
+    private static final String CONSUME_SQL =
+            "WITH g AS (" +
+            "    SELECT id, remaining, " +
+            "           SUM(remaining) OVER (ORDER BY expires_at, id) - remaining AS before " +
+            "    FROM bonus_grants " +
+            "    WHERE wallet_id = :walletId AND expired_at IS NULL AND remaining > 0" +
+            ") " +
+            "UPDATE bonus_grants b SET remaining = b.remaining - LEAST(g.remaining, :amount - g.before) " +
+            "FROM g WHERE b.id = g.id AND g.before < :amount";
+
+    // Closes the claimed grants and returns what is left of each to Treasury.
+    // A grant gives back at most the wallet's available balance (balance -
+    // held) not already given back by an earlier grant of the same wallet, so
+    // funds reserved by holds stay covered. Each non-zero return is a
+    // 'bonus_expiry' transaction behind the idempotency gate (as in
+    // TransactionRepository) with legs user −N, Treasury +N; the user wallet's
+    // stored balance moves in the same statement (Treasury's is not kept, see
+    // LedgerRepository#POST_SQL).
+    private static final String EXPIRE_SQL =
+            "WITH due AS (" +
+            "    SELECT g.id, g.wallet_id, g.account_id, g.asset_type_id, g.remaining, " +
+            "           GREATEST(w.balance - w.held_amount, 0) " +
+            "           - (SUM(g.remaining) OVER (PARTITION BY g.wallet_id ORDER BY g.expires_at, g.id) " +
+            "              - g.remaining) AS room " +
+            "    FROM bonus_grants g JOIN wallets w ON w.id = g.wallet_id " +
+            "    WHERE g.id IN (:ids) AND g.expired_at IS NULL AND g.remaining > 0" +
+            "), take AS (" +
+            "    SELECT id, wallet_id, account_id, asset_type_id, " +
+            "           LEAST(remaining, GREATEST(room, 0)) AS amount, " +
+            "           'bonus-expiry:' || id AS idempotency_key " +
+            "    FROM due" +
+            "), gate AS (" +
+            "    INSERT INTO idempotency_keys (key_hash, transaction_id) " +
+            "    SELECT md5(idempotency_key)::uuid, nextval('transactions_id_seq') " +
+            "    FROM take WHERE amount > 0 ORDER BY id " +
+            "    ON CONFLICT (key_hash) DO NOTHING " +
+            "    RETURNING key_hash, transaction_id" +
+            "), txn AS (" +
+            "    INSERT INTO transactions (id, idempotency_key, type, description, status, " +
+            "                              account_id, asset_type_id, amount) " +
+            "    SELECT g.transaction_id, t.idempotency_key, 'bonus_expiry', :description, 'completed', " +
+            "           t.account_id, t.asset_type_id, t.amount " +
+            "    FROM take t JOIN gate g ON g.key_hash = md5(t.idempotency_key)::uuid " +
+            "    RETURNING id, idempotency_key, asset_type_id, amount" +
+            "), closed AS (" +
+            "    UPDATE bonus_grants b SET remaining = 0, expired_at = NOW(), " +
+            "                              expired_amount = t.amount, expiry_transaction_id = x.id " +
+            "    FROM take t LEFT JOIN txn x ON x.idempotency_key = t.idempotency_key " +
+            "    WHERE b.id = t.id " +
+            "    RETURNING b.id" +
+            "), leg AS (" +
+            "    SELECT x.id AS transaction_id, t.wallet_id, t.account_id, x.asset_type_id, " +
+            "           -x.amount AS amount, 1 AS n " +
+            "    FROM txn x JOIN take t ON t.idempotency_key = x.idempotency_key " +
+            "    UNION ALL " +
+            "    SELECT x.id, tw.id, tw.account_id, x.asset_type_id, x.amount, 2 " +
+            "    FROM txn x JOIN wallets tw ON tw.account_id = :treasury AND tw.asset_type_id = x.asset_type_id" +
+            "), posted AS (" +
+            "    INSERT INTO ledger_entries (transaction_id, wallet_id, account_id, asset_type_id, amount) " +
+            "    SELECT transaction_id, wallet_id, account_id, asset_type_id, amount FROM leg " +
+            "    ORDER BY transaction_id, n " +
+            "    RETURNING wallet_id, amount" +
+            "), moved AS (" +
+            "    UPDATE wallets w SET balance = w.balance + d.delta " +
+            "    FROM (SELECT wallet_id, SUM(amount) AS delta FROM posted GROUP BY wallet_id) d " +
+            "    WHERE w.id = d.wallet_id AND w.account_id <> :treasury" +
+            ") " +
+            "SELECT DISTINCT t.account_id, t.asset_type_id " +
+            "FROM closed c JOIN take t ON t.id = c.id WHERE t.amount > 0";
+
+    /**
+     * Records the bonus {@code transactionId} as a grant of {@code amount}
+     * expiring {@code expiresInSeconds} from now (DB clock).
+     *
+     * Must be called within the bonus's transaction, under its wallet lock.
+     */
+    public void insert(long transactionId, Wallet wallet, long amount, long expiresInSeconds) {
+        namedJdbc.update(
+                "INSERT INTO bonus_grants (transaction_id, wallet_id, account_id, asset_type_id, " +
+                "                          amount, remaining, expires_at) " +
+                "VALUES (:transactionId, :walletId, :accountId, :assetTypeId, :amount, :amount, " +
+                "        NOW() + make_interval(secs => :ttlSeconds))",
+                new MapSqlParameterSource()
+                        .addValue("transactionId", transactionId)
+                        .addValue("walletId", wallet.getId())
+                        .addValue("accountId", wallet.getAccountId())
+                        .addValue("assetTypeId", wallet.getAssetTypeId())
+                        .addValue("amount", amount)
+                        .addValue("ttlSeconds", expiresInSeconds)
+        );
+    }
+
+    /**
+     * Bonus-first: a spend of {@code amount} is drawn from the wallet's live
+     * grants (soonest-expiring first) before its other funds. Returns the
+     * number of grants drawn on; a wallet without grants costs one probe of
+     * idx_bonus_grants_wallet.
+     *
+     * Must be called within the spend's transaction, under the wallet lock.
+     */
+    public int consume(long walletId, long amount) {
+        return namedJdbc.update(CONSUME_SQL,
+                new MapSqlParameterSource()
+                        .addValue("walletId", walletId)
+                        .addValue("amount", amount));
+    }
+
+    /**
+     * Asset types among the oldest {@code limit} due grants, leaving out
+     * {@code skipAssetTypeIds}; read WITHOUT locks: the sweep locks their
+     * Treasury wallets before claiming grants.
+     */
+    public List<Long> findDueAssetTypes(Collection<Long> skipAssetTypeIds, int limit) {
+        return jdbc.query(DUE_ASSET_TYPES_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", skipAssetTypeIds.toArray()));
+            ps.setInt(2, limit);
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+
+    /**
+     * Claims up to {@code limit} due grants of the given asset types, oldest
+     * first, by locking their wallets with SKIP LOCKED. Grants whose wallet is
+     * busy (a live request or another node's sweep) are passed over, so
+     * concurrent sweeps take disjoint batches and never wait on requests.
+     *
+     * Must be called within a transaction.
+     */
+    public List<Long> claimDue(List<Long> assetTypeIds, int limit) {
+        return namedJdbc.queryForList(
+                "SELECT g.id FROM bonus_grants g JOIN wallets w ON w.id = g.wallet_id " +
+                "WHERE " + DUE + " AND g.asset_type_id IN (:assetTypeIds) " +
+                "ORDER BY g.expires_at, g.id " +
+                "LIMIT :limit " +
+                "FOR UPDATE OF w SKIP LOCKED",
+                new MapSqlParameterSource()
+                        .addValue("assetTypeIds", assetTypeIds)
+                        .addValue("limit", limit),
+                Long.class
+        );
+    }
+
+    /**
+     * Expires the claimed grants (see EXPIRE_SQL) and returns the user wallets
+     * that gave anything back.
+     *
+     * Must be called within the transaction that claimed them, holding the
+     * Treasury wallet locks of their asset types.
+     */
+    public List<WalletKey> expire(List<Long> grantIds, long treasuryId, String description) {
+        return namedJdbc.query(EXPIRE_SQL,
+                new MapSqlParameterSource()
+                        .addValue("ids", grantIds)
+                        .addValue("treasury", treasuryId)
+                        .addValue("description", description),
+                (rs, rowNum) -> new WalletKey(rs.getLong(1), rs.getLong(2)));
+    }
+}
@@ -0,0 +1,163 @@
+package com.dinoventures.wallet.repository;
+
+import com.dinoventures.wallet.model.Hold;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class HoldRepository {
+
+    private final NamedParameterJdbcTemplate namedJdbc;
+
+    private static final RowMapper<Hold> ROW_MAPPER = (rs, rowNum) -> Hold.builder()
+            .id(rs.getLong("id"))
+            .idempotencyKey(rs.getString("idempotency_key"))
+            .walletId(rs.getLong("wallet_id"))
+            .accountId(rs.getLong("account_id"))
+            .assetTypeId(rs.getLong("asset_type_id"))
+            .amount(rs.getLong("amount"))
+            .capturedAmount(rs.getLong("captured_amount"))
+            .status(rs.getString("status"))
+            .description(rs.getString("description"))
+            .transactionId(rs.getObject("transaction_id", Long.class))
+            .expiresAt(rs.getObject("expires_at", java.time.OffsetDateTime.class))
+            .createdAt(rs.getObject("created_at", java.time.OffsetDateTime.class))
+            .build();
+
+    private static final String COLUMNS =
+            "id, idempotency_key, wallet_id, account_id, asset_type_id, amount, captured_amount, " +
+            "status, description, transaction_id, expires_at, created_at";
+
+    /**
+     * Places a new active hold expiring {@code ttlSeconds} from now (DB clock).
+     *
+     * Uses ON CONFLICT DO NOTHING on the unique idempotency_key column:
+     *   1 = new hold, 0 = duplicate key (caller replays the existing hold).
+     *
+     * Must be called within a transaction holding the wallet's FOR UPDATE lock.
+     */
+    public int insertIfNew(String idempotencyKey, long walletId, long accountId, long assetTypeId,
+                           long amount, long ttlSeconds, String description) {
+        return namedJdbc.update(
+                "INSERT INTO holds (idempotency_key, wallet_id, account_id, asset_type_id, " +
+                "                   amount, description, expires_at) " +
+                "VALUES (:key, :walletId, :accountId, :assetTypeId, :amount, :description, " +
+                "        NOW() + make_interval(secs => :ttlSeconds)) " +
+                "ON CONFLICT (idempotency_key) DO NOTHING",
+                new MapSqlParameterSource()
+                        .addValue("key", idempotencyKey)
+                        .addValue("walletId", walletId)
+                        .addValue("accountId", accountId)
+                        .addValue("assetTypeId", assetTypeId)
+                        .addValue("amount", amount)
+                        .addValue("description", description)
+                        .addValue("ttlSeconds", ttlSeconds)
+        );
+    }
+
+    public Optional<Hold> findById(long id) {
+        List<Hold> results = namedJdbc.query(
+                "SELECT " + COLUMNS + " FROM holds WHERE id = :id",
+                new MapSqlParameterSource("id", id),
+                ROW_MAPPER
+        );
+        return results.stream().findFirst();
+    }
+
+    public Optional<Hold> findByIdempotencyKey(String idempotencyKey) {
+        List<Hold> results = namedJdbc.query(
+                "SELECT " + COLUMNS + " FROM holds WHERE idempotency_key = :key",
+                new MapSqlParameterSource("key", idempotencyKey),
+                ROW_MAPPER
+        );
+        return results.stream().findFirst();
+    }
+
+    /**
+     * Re-reads and row-locks a hold. Always lock the hold's wallet FIRST — the
+     * wallet → hold lock order is shared by every hold operation and the expiry
+     * sweep, so they cannot deadlock.
+     *
+     * Must be called within a transaction.
+     */
+    public Optional<Hold> lockById(long id) {
+        List<Hold> results = namedJdbc.query(
+                "SELECT " + COLUMNS + " FROM holds WHERE id = :id FOR UPDATE",
+                new MapSqlParameterSource("id", id),
+                ROW_MAPPER
+        );
+        return results.stream().findFirst();
+    }
+
+    /**
+     * True if the (locked) hold is past its expiry by the DB clock — the same
+     * clock used to set expires_at and by the expiry sweep.
+     */
+    public boolean isExpired(long id) {
+        Boolean expired = namedJdbc.queryForObject(
+                "SELECT expires_at <= NOW() FROM holds WHERE id = :id",
+                new MapSqlParameterSource("id", id),
+                Boolean.class
+        );
+        return Boolean.TRUE.equals(expired);
+    }
+
+    public void markCaptured(long id, long capturedAmount, long transactionId) {
+        namedJdbc.update(
+                "UPDATE holds SET status = 'captured', captured_amount = :captured, " +
+                "                 transaction_id = :transactionId " +
+                "WHERE id = :id",
+                new MapSqlParameterSource(Map.of(
+                        "id", id,
+                        "captured", capturedAmount,
+                        "transactionId", transactionId
+                ))
+        );
+    }
+
+    public void markReleased(long id) {
+        namedJdbc.update(
+                "UPDATE holds SET status = 'released' WHERE id = :id",
+                new MapSqlParameterSource("id", id)
+        );
+    }
+
+    /**
+     * Oldest active holds past their expiry, read WITHOUT locks. The sweep locks
+     * their wallets first and then expires them via {@link #expire}.
+     */
+    public List<Hold> findExpired(int limit) {
+        return namedJdbc.query(
+                "SELECT " + COLUMNS + " FROM holds " +
+                "WHERE status = 'active' AND expires_at <= NOW() " +
+                "ORDER BY expires_at ASC " +
+                "LIMIT :limit",
+                new MapSqlParameterSource("limit", limit),
+                ROW_MAPPER
+        );
+    }
+
+    /**
+     * Expires the given holds if they are still active and past expiry, and
+     * returns the ones actually expired (a capture or release may have won).
+     *
+     * Must be called within a transaction holding the holds' wallet locks.
+     */
+    public List<Hold> expire(List<Long> ids) {
+        return namedJdbc.query(
+                "UPDATE holds SET status = 'expired' " +
+                "WHERE id IN (:ids) AND status = 'active' AND expires_at <= NOW() " +
+                "RETURNING " + COLUMNS,
+                new MapSqlParameterSource("ids", ids),
+                ROW_MAPPER
+        );
+    }
+}
@@ -0,0 +1,43 @@
+package com.dinoventures.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Housekeeping for the idempotency_keys gate table. Inserts and lookups live in
+ * {@link TransactionRepository}, next to the transaction rows they guard.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyKeyRepository {
+
+    private final NamedParameterJdbcTemplate namedJdbc;
+
+    /**
+     * Moves up to {@code limit} keys older than {@code windowSeconds} to
+     * idempotency_keys_archive in one statement and returns how many moved.
+     *
+     * The candidates are found through the BRIN index on created_at and
+     * claimed with SKIP LOCKED, so a key being replayed right now is left for
+     * the next pass rather than waited on.
+     */
+    public int archiveExpired(long windowSeconds, int limit) {
+        return namedJdbc.update(
+                "WITH expired AS (" +
+                "    DELETE FROM idempotency_keys " +
+                "    WHERE key_hash IN (SELECT key_hash FROM idempotency_keys " +
+                "                       WHERE created_at < NOW() - make_interval(secs => :windowSeconds) " +
+                "                       LIMIT :limit " +
+                "                       FOR UPDATE SKIP LOCKED) " +
+                "    RETURNING key_hash, transaction_id, created_at" +
+                ") " +
+                "INSERT INTO idempotency_keys_archive (key_hash, transaction_id, created_at) " +
+                "SELECT key_hash, transaction_id, created_at FROM expired",
+                new MapSqlParameterSource()
+                        .addValue("windowSeconds", windowSeconds)
+                        .addValue("limit", limit)
+        );
+    }
+}
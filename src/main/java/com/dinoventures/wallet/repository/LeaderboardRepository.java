@@ -0,0 +1,82 @@
+package com.dinoventures.wallet.repository;
+
+import com.dinoventures.wallet.model.LeaderboardEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Top-N reads over the values {@link LedgerRepository#post} maintains
+ * (wallets.balance, weekly_spend). Each board walks its ordered index from
+ * the top and stops after {@code limit} users, so it costs O(limit) whatever
+ * the number of wallets. All methods work on the shard selected by the caller.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LeaderboardRepository {
+
+    private final JdbcTemplate jdbc;
+
+    // Constant positional SQL, like the write path (see JdbcConfig#jdbcTemplate)
+    private static final String TOP_BALANCES_SQL =
+            "SELECT w.account_id, a.name, w.balance " +
+            "FROM wallets w JOIN accounts a ON a.id = w.account_id " +
+            "WHERE w.asset_type_id = ? AND w.balance > 0 AND a.type = 'user' " +
+            "ORDER BY w.balance DESC, w.account_id " +
+            "LIMIT ?";
+
+    private static final String TOP_SPENDERS_SQL =
+            "SELECT s.account_id, a.name, s.amount " +
+            "FROM weekly_spend s JOIN accounts a ON a.id = s.account_id " +
+            "WHERE s.asset_type_id = ? AND s.week_start = ? " +
+            "ORDER BY s.amount DESC, s.account_id " +
+            "LIMIT ?";
+
+    private static final String PURGE_WEEKS_SQL =
+            "DELETE FROM weekly_spend " +
+            "WHERE (asset_type_id, week_start, account_id) IN (" +
+            "    SELECT asset_type_id, week_start, account_id FROM weekly_spend " +
+            "    WHERE week_start < ? LIMIT ?)";
+
+    /** Positional mapper: account id, name, value. */
+    private static final RowMapper<LeaderboardEntry> ROW_MAPPER = (rs, rowNum) -> new LeaderboardEntry(
+            rs.getLong(1),
+            rs.getString(2),
+            rs.getLong(3));
+
+    /**
+     * Users with the highest balances of the asset type. Index scan on
+     * idx_wallets_leaderboard; system wallets are skipped by the join filter
+     * (at most a couple per asset type).
+     */
+    public List<LeaderboardEntry> topBalances(long assetTypeId, int limit) {
+        return jdbc.query(TOP_BALANCES_SQL, ps -> {
+            ps.setLong(1, assetTypeId);
+            ps.setInt(2, limit);
+        }, ROW_MAPPER);
+    }
+
+    /** Users who spent the most of the asset type in the week starting {@code weekStart}. */
+    public List<LeaderboardEntry> topSpenders(long assetTypeId, LocalDate weekStart, int limit) {
+        return jdbc.query(TOP_SPENDERS_SQL, ps -> {
+            ps.setLong(1, assetTypeId);
+            ps.setObject(2, weekStart);
+            ps.setInt(3, limit);
+        }, ROW_MAPPER);
+    }
+
+    /**
+     * Deletes up to {@code limit} weekly_spend rows of weeks before
+     * {@code weekStart} and returns how many were deleted.
+     */
+    public int purgeWeeksBefore(LocalDate weekStart, int limit) {
+        return jdbc.update(PURGE_WEEKS_SQL, ps -> {
+            ps.setObject(1, weekStart);
+            ps.setInt(2, limit);
+        });
+    }
+}
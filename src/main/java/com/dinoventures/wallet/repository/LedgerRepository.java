@@ -2,53 +2,162 @@ package com.dinoventures.wallet.repository;
 
 import com.dinoventures.wallet.model.LedgerEntry;
 import com.dinoventures.wallet.model.LedgerEntryView;
+import com.dinoventures.wallet.model.LedgerLeg;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
-import java.util.Map;
 
 @Repository
 @RequiredArgsConstructor
 public class LedgerRepository {
 
-    private final NamedParameterJdbcTemplate namedJdbc;
+    private final JdbcTemplate jdbc;
 
-    private static final RowMapper<LedgerEntry> ENTRY_ROW_MAPPER = (rs, rowNum) -> LedgerEntry.builder()
-            .id(rs.getLong("id"))
-            .transactionId(rs.getLong("transaction_id"))
-            .walletId(rs.getLong("wallet_id"))
-            .amount(rs.getLong("amount"))
-            .createdAt(rs.getObject("created_at", java.time.OffsetDateTime.class))
+    // Package-private: StatementAllocationBenchmark issues the same statements
+    // and mappers through NamedParameterJdbcTemplate
+    /** Positional mapper: columns in the order of ENTRY_COLUMNS. */
+    static final RowMapper<LedgerEntry> ENTRY_ROW_MAPPER = (rs, rowNum) -> LedgerEntry.builder()
+            .id(rs.getLong(1))
+            .transactionId(rs.getLong(2))
+            .walletId(rs.getLong(3))
+            .amount(rs.getLong(4))
+            .createdAt(rs.getObject(5, java.time.OffsetDateTime.class))
             .build();
 
+    private static final String ENTRY_COLUMNS = "id, transaction_id, wallet_id, amount, created_at";
+
+    // Hot-path statements: constant positional SQL (see JdbcConfig#jdbcTemplate)
+    // All legs in one statement: the arrays keep the SQL text identical for any
+    // number of legs, and WITH ORDINALITY assigns ids in leg order. The wallet's
+    // account/asset type are copied onto each row (from the leg_wallet lookup)
+    // so reads never join back to wallets.
+    //
+    // The same statement keeps the leaderboard values in step with the ledger:
+    // each user wallet's stored balance moves by its legs, and a spend's debit
+    // leg is added to the user's weekly_spend row for the current UTC week.
+    // Both rows are already covered by the caller's wallet lock. System wallets
+    // (Treasury, Revenue: in every posting, never on a board) keep their stored
+    // balance untouched, so the hottest rows take no update of the indexed
+    // leaderboard column.
+    static final String POST_SQL =
+            "WITH leg AS (" +
+            "    SELECT * FROM unnest(?::bigint[], ?::bigint[]) WITH ORDINALITY AS l(wallet_id, amount, n)" +
+            "), leg_wallet AS (" +
+            "    SELECT w.id, w.account_id, w.asset_type_id, a.type = 'user' AS ranked " +
+            "    FROM wallets w JOIN accounts a ON a.id = w.account_id " +
+            "    WHERE w.id IN (SELECT wallet_id FROM leg)" +
+            "), moved AS (" +
+            "    UPDATE wallets w SET balance = w.balance + d.delta " +
+            "    FROM (SELECT leg.wallet_id, SUM(leg.amount) AS delta " +
+            "          FROM leg JOIN leg_wallet lw ON lw.id = leg.wallet_id AND lw.ranked " +
+            "          GROUP BY leg.wallet_id) d " +
+            "    WHERE w.id = d.wallet_id" +
+            "), spent AS (" +
+            "    INSERT INTO weekly_spend (asset_type_id, week_start, account_id, amount) " +
+            "    SELECT m.asset_type_id, (date_trunc('week', NOW() AT TIME ZONE 'UTC'))::date, m.account_id, -leg.amount " +
+            "    FROM leg JOIN leg_wallet m ON m.id = leg.wallet_id AND m.ranked " +
+            "    JOIN transactions t ON t.id = ? AND t.type = 'spend' " +
+            "    WHERE leg.amount < 0 " +
+            "    ON CONFLICT (asset_type_id, week_start, account_id) " +
+            "    DO UPDATE SET amount = weekly_spend.amount + EXCLUDED.amount" +
+            ") " +
+            "INSERT INTO ledger_entries (transaction_id, wallet_id, account_id, asset_type_id, amount) " +
+            "SELECT ?, leg.wallet_id, m.account_id, m.asset_type_id, leg.amount " +
+            "FROM leg JOIN leg_wallet m ON m.id = leg.wallet_id " +
+            "ORDER BY leg.n " +
+            "RETURNING " + ENTRY_COLUMNS;
+
+    // Index-only scan on idx_ledger_entries_account_asset_id (INCLUDE amount)
+    static final String BALANCE_SQL =
+            "SELECT COALESCE(SUM(amount), 0) FROM ledger_entries " +
+            "WHERE account_id = ? AND asset_type_id = ?";
+
+    private static final String BY_TRANSACTION_SQL =
+            "SELECT " + ENTRY_COLUMNS + " FROM ledger_entries WHERE transaction_id = ? ORDER BY id";
+
+    private static final String LEDGER_PAGE_SQL =
+            "SELECT le.id, le.transaction_id, t.type, t.description, le.wallet_id, le.amount, le.created_at " +
+            "FROM (SELECT id, transaction_id, wallet_id, amount, created_at " +
+            "      FROM ledger_entries " +
+            "      WHERE account_id = ? AND asset_type_id = ? " +
+            "      ORDER BY id DESC " +
+            "      LIMIT ? OFFSET ?) le " +
+            "JOIN transactions t ON t.id = le.transaction_id " +
+            "ORDER BY le.id DESC";
+
+    private static final String LEDGER_COUNT_SQL =
+            "SELECT COUNT(*) FROM ledger_entries WHERE account_id = ? AND asset_type_id = ?";
+
+    private static final String RECENT_SPENDS_SQL =
+            "SELECT e.id, e.transaction_id, e.wallet_id, e.amount, e.created_at " +
+            "FROM (SELECT " + ENTRY_COLUMNS + " FROM ledger_entries " +
+            "      WHERE account_id = ? AND asset_type_id = ? " +
+            "      ORDER BY id DESC " +
+            "      LIMIT ?) e " +
+            "JOIN transactions t ON t.id = e.transaction_id AND t.type = 'spend' " +
+            "WHERE e.amount < 0 AND e.created_at > NOW() - make_interval(secs => ?) " +
+            "ORDER BY e.id DESC";
+
+    private static final ResultSetExtractor<Long> FIRST_LONG = rs -> rs.next() ? rs.getLong(1) : 0L;
+
+    /** Positional mapper: columns in the order of LEDGER_PAGE_SQL. */
     private static final RowMapper<LedgerEntryView> VIEW_ROW_MAPPER = (rs, rowNum) -> LedgerEntryView.builder()
-            .id(rs.getLong("id"))
-            .transactionId(rs.getLong("transaction_id"))
-            .transactionType(rs.getString("transaction_type"))
-            .transactionDescription(rs.getString("transaction_description"))
-            .walletId(rs.getLong("wallet_id"))
-            .amount(rs.getLong("amount"))
-            .createdAt(rs.getObject("created_at", java.time.OffsetDateTime.class))
+            .id(rs.getLong(1))
+            .transactionId(rs.getLong(2))
+            .transactionType(rs.getString(3))
+            .transactionDescription(rs.getString(4))
+            .walletId(rs.getLong(5))
+            .amount(rs.getLong(6))
+            .createdAt(rs.getObject(7, java.time.OffsetDateTime.class))
             .build();
 
     /**
-     * Inserts a single ledger entry. Must be called within a transaction.
+     * Posts all legs of a transaction in a single multi-row INSERT and returns
+     * the written entries (in leg order) straight from RETURNING, so callers
+     * never re-read them. The same statement moves the user wallets' stored
+     * balances and, for a spend, the weekly spend total (leaderboards).
+     * Must be called within a transaction, after the transaction row is written.
+     *
      * Positive amount = credit (money flows in). Negative = debit (money flows out).
+     *
+     * @throws IllegalStateException if fewer than two legs are given or the
+     *         legs do not sum to zero — an unbalanced posting is a bug, never
+     *         a client error, and nothing is written.
      */
-    public void insert(long transactionId, long walletId, long amount) {
-        namedJdbc.update(
-                "INSERT INTO ledger_entries (transaction_id, wallet_id, amount) " +
-                "VALUES (:transactionId, :walletId, :amount)",
-                new MapSqlParameterSource(Map.of(
-                        "transactionId", transactionId,
-                        "walletId", walletId,
-                        "amount", amount
-                ))
-        );
+    public List<LedgerEntry> post(long transactionId, List<LedgerLeg> legs) {
+        if (legs.size() < 2) {
+            throw new IllegalStateException("Transaction " + transactionId + " needs at least two legs");
+        }
+        Long[] walletIds = new Long[legs.size()];
+        Long[] amounts   = new Long[legs.size()];
+        long sum = 0;
+        for (int i = 0; i < legs.size(); i++) {
+            LedgerLeg leg = legs.get(i);
+            walletIds[i] = leg.getWalletId();
+            amounts[i]   = leg.getAmount();
+            sum = Math.addExact(sum, leg.getAmount());
+        }
+        if (sum != 0) {
+            throw new IllegalStateException(
+                    "Unbalanced posting for transaction " + transactionId + ": legs sum to " + sum);
+        }
+
+        List<LedgerEntry> entries = jdbc.query(POST_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", walletIds));
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", amounts));
+            ps.setLong(3, transactionId);
+            ps.setLong(4, transactionId);
+        }, ENTRY_ROW_MAPPER);
+        if (entries.size() != legs.size()) {
+            // A leg's wallet does not exist — the join dropped it
+            throw new IllegalStateException("Posting for transaction " + transactionId
+                    + " references unknown wallets: " + legs);
+        }
+        return entries;
     }
 
     /**
@@ -60,65 +169,60 @@ public class LedgerRepository {
      * insert new entries for this wallet until the lock is released.
      */
     public long getBalance(long accountId, long assetTypeId) {
-        Long balance = namedJdbc.queryForObject(
-                "SELECT COALESCE(SUM(le.amount), 0) " +
-                "FROM ledger_entries le " +
-                "JOIN wallets w ON w.id = le.wallet_id " +
-                "WHERE w.account_id = :accountId AND w.asset_type_id = :assetTypeId",
-                new MapSqlParameterSource(Map.of("accountId", accountId, "assetTypeId", assetTypeId)),
-                Long.class
-        );
+        Long balance = jdbc.query(BALANCE_SQL, ps -> {
+            ps.setLong(1, accountId);
+            ps.setLong(2, assetTypeId);
+        }, FIRST_LONG);
         return balance != null ? balance : 0L;
     }
 
     /**
      * Returns all ledger entries for a given wallet, newest first, paginated.
+     * "Newest" is id order — the wallet's commit order (see {@link WalletRepository#findVersion}).
+     *
+     * The page is cut from the covering index alone (index-only scan); only
+     * the rows on the page are then joined to transactions.
      */
     public List<LedgerEntryView> getLedger(long accountId, long assetTypeId, int page, int pageSize) {
         int offset = (page - 1) * pageSize;
-        return namedJdbc.query(
-                "SELECT le.id, le.transaction_id, t.type AS transaction_type, " +
-                "       t.description AS transaction_description, " +
-                "       le.wallet_id, le.amount, le.created_at " +
-                "FROM ledger_entries le " +
-                "JOIN wallets w      ON w.id  = le.wallet_id " +
-                "JOIN transactions t ON t.id  = le.transaction_id " +
-                "WHERE w.account_id = :accountId AND w.asset_type_id = :assetTypeId " +
-                "ORDER BY le.created_at DESC " +
-                "LIMIT :limit OFFSET :offset",
-                new MapSqlParameterSource(Map.of(
-                        "accountId", accountId,
-                        "assetTypeId", assetTypeId,
-                        "limit", pageSize,
-                        "offset", offset
-                )),
-                VIEW_ROW_MAPPER
-        );
+        return jdbc.query(LEDGER_PAGE_SQL, ps -> {
+            ps.setLong(1, accountId);
+            ps.setLong(2, assetTypeId);
+            ps.setInt(3, pageSize);
+            ps.setInt(4, offset);
+        }, VIEW_ROW_MAPPER);
     }
 
     /**
      * Total count of ledger entries for pagination metadata.
      */
     public long countLedger(long accountId, long assetTypeId) {
-        Long count = namedJdbc.queryForObject(
-                "SELECT COUNT(*) FROM ledger_entries le " +
-                "JOIN wallets w ON w.id = le.wallet_id " +
-                "WHERE w.account_id = :accountId AND w.asset_type_id = :assetTypeId",
-                new MapSqlParameterSource(Map.of("accountId", accountId, "assetTypeId", assetTypeId)),
-                Long.class
-        );
+        Long count = jdbc.query(LEDGER_COUNT_SQL, ps -> {
+            ps.setLong(1, accountId);
+            ps.setLong(2, assetTypeId);
+        }, FIRST_LONG);
         return count != null ? count : 0L;
     }
 
+    /**
+     * The wallet's spend debits of the last {@code seconds}, newest first, for
+     * rebuilding velocity windows after a restart. Only the wallet's newest
+     * {@code maxRows} entries are looked at, so a wallet with a long history
+     * costs a bounded walk of the covering index.
+     */
+    public List<LedgerEntry> findRecentSpends(long accountId, long assetTypeId, long seconds, int maxRows) {
+        return jdbc.query(RECENT_SPENDS_SQL, ps -> {
+            ps.setLong(1, accountId);
+            ps.setLong(2, assetTypeId);
+            ps.setInt(3, maxRows);
+            ps.setLong(4, seconds);
+        }, ENTRY_ROW_MAPPER);
+    }
+
     /**
      * Returns all ledger entries for a specific transaction (used for idempotent replays).
      */
     public List<LedgerEntry> findByTransactionId(long transactionId) {
-        return namedJdbc.query(
-                "SELECT id, transaction_id, wallet_id, amount, created_at " +
-                "FROM ledger_entries WHERE transaction_id = :transactionId ORDER BY id",
-                new MapSqlParameterSource("transactionId", transactionId),
-                ENTRY_ROW_MAPPER
-        );
+        return jdbc.query(BY_TRANSACTION_SQL, ps -> ps.setLong(1, transactionId), ENTRY_ROW_MAPPER);
     }
 }
@@ -0,0 +1,212 @@
+package com.dinoventures.wallet.repository;
+
+import com.dinoventures.wallet.model.DailyVolume;
+import com.dinoventures.wallet.model.RollupWatermark;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Daily rollups (daily_rollups, daily_liability_changes) and their watermark.
+ * All methods work on the shard selected by the caller.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RollupRepository {
+
+    private final NamedParameterJdbcTemplate namedJdbc;
+
+    /**
+     * The entry id the advancer may fold up to, and whether every
+     * transaction that could still add an entry at or below it has ended.
+     */
+    public record Fence(long throughEntryId, boolean settled) {}
+
+    private static final RowMapper<RollupWatermark> WATERMARK_ROW_MAPPER = (rs, rowNum) -> new RollupWatermark(
+            rs.getLong("through_entry_id"),
+            rs.getObject("through_created_at", java.time.OffsetDateTime.class));
+
+    // Both statements fold a set of ledger entries (the %s condition on "e")
+    // into the rollups, adding to rows that already exist.
+    private static final String ADD_VOLUMES_SQL =
+            "INSERT INTO daily_rollups (day, asset_type_id, type, volume, tx_count) " +
+            "SELECT (e.created_at AT TIME ZONE 'UTC')::date, e.asset_type_id, t.type, SUM(e.amount), COUNT(*) " +
+            "FROM ledger_entries e JOIN transactions t ON t.id = e.transaction_id " +
+            "WHERE %s AND e.amount > 0 " +
+            "GROUP BY 1, 2, 3 " +
+            "ON CONFLICT (day, asset_type_id, type) DO UPDATE " +
+            "SET volume = daily_rollups.volume + EXCLUDED.volume, " +
+            "    tx_count = daily_rollups.tx_count + EXCLUDED.tx_count";
+
+    private static final String ADD_LIABILITY_SQL =
+            "INSERT INTO daily_liability_changes (day, asset_type_id, net_change) " +
+            "SELECT (e.created_at AT TIME ZONE 'UTC')::date, e.asset_type_id, SUM(e.amount) " +
+            "FROM ledger_entries e JOIN accounts a ON a.id = e.account_id " +
+            "WHERE %s AND a.type = 'user' " +
+            "GROUP BY 1, 2 " +
+            "ON CONFLICT (day, asset_type_id) DO UPDATE " +
+            "SET net_change = daily_liability_changes.net_change + EXCLUDED.net_change";
+
+    private static final String ID_RANGE = "e.id > :after AND e.id <= :through";
+
+    private static final String DAY_RANGE =
+            "e.created_at >= CAST(:day AS timestamp) AT TIME ZONE 'UTC' " +
+            "AND e.created_at < (CAST(:day AS timestamp) + INTERVAL '1 day') AT TIME ZONE 'UTC' " +
+            "AND e.id <= :through";
+
+    public RollupWatermark findWatermark() {
+        return namedJdbc.queryForObject(
+                "SELECT through_entry_id, through_created_at FROM rollup_watermark",
+                new MapSqlParameterSource(), WATERMARK_ROW_MAPPER);
+    }
+
+    /**
+     * Reads and row-locks the watermark: FOR UPDATE to advance it (one
+     * advancer at a time), FOR SHARE to rebuild days against a fixed
+     * watermark. Must be called within a transaction.
+     */
+    public RollupWatermark lockWatermark(boolean exclusive) {
+        return namedJdbc.queryForObject(
+                "SELECT through_entry_id, through_created_at FROM rollup_watermark "
+                        + (exclusive ? "FOR UPDATE" : "FOR SHARE"),
+                new MapSqlParameterSource(), WATERMARK_ROW_MAPPER);
+    }
+
+    /**
+     * The current fence, if one was placed. Must be called within a
+     * transaction holding the watermark FOR UPDATE.
+     */
+    public Optional<Fence> findFence() {
+        return namedJdbc.query(
+                "SELECT fence_entry_id, pg_snapshot_xmin(pg_current_snapshot()) >= fence_xid AS settled " +
+                "FROM rollup_watermark WHERE fence_entry_id IS NOT NULL",
+                new MapSqlParameterSource(),
+                (rs, rowNum) -> new Fence(rs.getLong("fence_entry_id"), rs.getBoolean("settled"))
+        ).stream().findFirst();
+    }
+
+    /**
+     * Fences the ledger as this statement sees it: the highest visible entry
+     * id, and the snapshot's xmax.
+     *
+     * Ids are taken from a sequence before commit, so a lower id can still be
+     * uncommitted when a higher one is visible. Every id up to the highest
+     * visible one was handed out before this statement, so an entry that can
+     * still appear at or below it belongs to a transaction already running
+     * now — one with an xid below xmax (every ledger writer has an xid before
+     * it inserts: it has written its transaction row or locked its wallets).
+     * Once the oldest running xid has passed xmax, all of them have ended
+     * and the ids up to the fence are final. Must be called within a
+     * transaction holding the watermark FOR UPDATE.
+     */
+    public void placeFence() {
+        namedJdbc.update(
+                "UPDATE rollup_watermark " +
+                "SET fence_entry_id = (SELECT COALESCE(MAX(id), 0) FROM ledger_entries), " +
+                "    fence_xid = pg_snapshot_xmax(pg_current_snapshot())",
+                new MapSqlParameterSource());
+    }
+
+    /**
+     * End of the next batch: the last of the first {@code limit} entries after
+     * {@code afterEntryId}, at most {@code fenceEntryId} (a settled fence).
+     * Empty if there is none.
+     */
+    public Optional<RollupWatermark> findBatchEnd(long afterEntryId, long fenceEntryId, int limit) {
+        return namedJdbc.query(
+                "SELECT id AS through_entry_id, created_at AS through_created_at " +
+                "FROM (SELECT id, created_at FROM ledger_entries " +
+                "      WHERE id > :after AND id <= :fence ORDER BY id LIMIT :limit) batch " +
+                "ORDER BY id DESC LIMIT 1",
+                new MapSqlParameterSource()
+                        .addValue("after", afterEntryId)
+                        .addValue("fence", fenceEntryId)
+                        .addValue("limit", limit),
+                WATERMARK_ROW_MAPPER
+        ).stream().findFirst();
+    }
+
+    /**
+     * Adds the entries in (afterEntryId, end] to the rollups and moves the
+     * watermark to {@code end}. Must be called within a transaction holding
+     * the watermark FOR UPDATE.
+     */
+    public void advance(long afterEntryId, RollupWatermark end) {
+        MapSqlParameterSource range = new MapSqlParameterSource()
+                .addValue("after", afterEntryId)
+                .addValue("through", end.getThroughEntryId());
+        namedJdbc.update(ADD_VOLUMES_SQL.formatted(ID_RANGE), range);
+        namedJdbc.update(ADD_LIABILITY_SQL.formatted(ID_RANGE), range);
+        namedJdbc.update(
+                "UPDATE rollup_watermark SET through_entry_id = :through, through_created_at = :createdAt, " +
+                "                            updated_at = NOW()",
+                new MapSqlParameterSource()
+                        .addValue("through", end.getThroughEntryId())
+                        .addValue("createdAt", end.getThroughCreatedAt()));
+    }
+
+    /**
+     * Recomputes one day from the ledger entries up to {@code throughEntryId}
+     * (later ones are still the advancer's). Must be called within a
+     * transaction holding the watermark FOR SHARE.
+     */
+    public void replaceDay(LocalDate day, long throughEntryId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("day", day)
+                .addValue("through", throughEntryId);
+        namedJdbc.update("DELETE FROM daily_rollups WHERE day = :day", params);
+        namedJdbc.update("DELETE FROM daily_liability_changes WHERE day = :day", params);
+        namedJdbc.update(ADD_VOLUMES_SQL.formatted(DAY_RANGE), params);
+        namedJdbc.update(ADD_LIABILITY_SQL.formatted(DAY_RANGE), params);
+    }
+
+    public List<DailyVolume> findVolumes(long assetTypeId, LocalDate from, LocalDate to) {
+        return namedJdbc.query(
+                "SELECT day, type, volume, tx_count FROM daily_rollups " +
+                "WHERE asset_type_id = :assetTypeId AND day BETWEEN :from AND :to " +
+                "ORDER BY day, type",
+                new MapSqlParameterSource()
+                        .addValue("assetTypeId", assetTypeId)
+                        .addValue("from", from)
+                        .addValue("to", to),
+                (rs, rowNum) -> new DailyVolume(
+                        rs.getObject("day", LocalDate.class),
+                        rs.getString("type"),
+                        rs.getLong("volume"),
+                        rs.getLong("tx_count")));
+    }
+
+    /** Net change of user balances per day in [from, to]; days without entries are absent. */
+    public Map<LocalDate, Long> findLiabilityChanges(long assetTypeId, LocalDate from, LocalDate to) {
+        Map<LocalDate, Long> changes = new LinkedHashMap<>();
+        namedJdbc.query(
+                "SELECT day, net_change FROM daily_liability_changes " +
+                "WHERE asset_type_id = :assetTypeId AND day BETWEEN :from AND :to ORDER BY day",
+                new MapSqlParameterSource()
+                        .addValue("assetTypeId", assetTypeId)
+                        .addValue("from", from)
+                        .addValue("to", to),
+                rs -> { changes.put(rs.getObject("day", LocalDate.class), rs.getLong("net_change")); });
+        return changes;
+    }
+
+    /** Outstanding liability at the start of {@code day}. */
+    public long liabilityBefore(long assetTypeId, LocalDate day) {
+        Long total = namedJdbc.queryForObject(
+                "SELECT COALESCE(SUM(net_change), 0) FROM daily_liability_changes " +
+                "WHERE asset_type_id = :assetTypeId AND day < :day",
+                new MapSqlParameterSource()
+                        .addValue("assetTypeId", assetTypeId)
+                        .addValue("day", day),
+                Long.class);
+        return total != null ? total : 0;
+    }
+}
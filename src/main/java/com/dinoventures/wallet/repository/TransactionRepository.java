@@ -1,12 +1,15 @@
 package com.dinoventures.wallet.repository;
 
 import com.dinoventures.wallet.model.Transaction;
+import com.dinoventures.wallet.model.WalletKey;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -15,58 +18,167 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class TransactionRepository {
 
+    private final JdbcTemplate               jdbc;
     private final NamedParameterJdbcTemplate namedJdbc;
 
-    private static final RowMapper<Transaction> ROW_MAPPER = (rs, rowNum) -> Transaction.builder()
-            .id(rs.getLong("id"))
-            .idempotencyKey(rs.getString("idempotency_key"))
-            .type(rs.getString("type"))
-            .description(rs.getString("description"))
-            .metadata(rs.getString("metadata"))
-            .status(rs.getString("status"))
-            .createdAt(rs.getObject("created_at", java.time.OffsetDateTime.class))
+    // Package-private: StatementAllocationBenchmark issues the same statements
+    // and mappers through NamedParameterJdbcTemplate
+    /** Positional mapper: columns in the order of COLUMNS. */
+    static final RowMapper<Transaction> ROW_MAPPER = (rs, rowNum) -> Transaction.builder()
+            .id(rs.getLong(1))
+            .idempotencyKey(rs.getString(2))
+            .type(rs.getString(3))
+            .description(rs.getString(4))
+            .metadata(rs.getString(5))
+            .status(rs.getString(6))
+            .accountId(rs.getObject(7, Long.class))
+            .assetTypeId(rs.getObject(8, Long.class))
+            .amount(rs.getObject(9, Long.class))
+            .failureReason(rs.getString(10))
+            .createdAt(rs.getObject(11, java.time.OffsetDateTime.class))
             .build();
 
+    private static final String COLUMNS =
+            "id, idempotency_key, type, description, metadata, status, " +
+            "account_id, asset_type_id, amount, failure_reason, created_at";
+
+    // Hot-path statements: constant positional SQL (see JdbcConfig#jdbcTemplate)
+    // The gate row claims the transaction id up front; the transaction row is
+    // only written if the gate row was (md5 of the key → fixed 16-byte UUID).
+    static final String INSERT_IF_NEW_SQL =
+            "WITH gate AS (" +
+            "    INSERT INTO idempotency_keys (key_hash, transaction_id) " +
+            "    VALUES (md5(?)::uuid, nextval('transactions_id_seq')) " +
+            "    ON CONFLICT (key_hash) DO NOTHING " +
+            "    RETURNING transaction_id" +
+            ") " +
+            "INSERT INTO transactions (id, idempotency_key, type, description, status, " +
+            "                          account_id, asset_type_id, amount) " +
+            "SELECT transaction_id, ?, ?, ?, ?, ?, ?, ? FROM gate";
+
+    private static final String UPDATE_STATUS_SQL =
+            "UPDATE transactions SET status = ?, failure_reason = ? WHERE id = ?";
+
+    static final String BY_KEY_SQL =
+            "SELECT " + COLUMNS + " FROM transactions " +
+            "WHERE id = (SELECT transaction_id FROM idempotency_keys WHERE key_hash = md5(?)::uuid)";
+
+    private static final String BY_KEYS_SQL =
+            "SELECT " + COLUMNS + " FROM transactions WHERE id IN (" +
+            "    SELECT k.transaction_id FROM idempotency_keys k " +
+            "    JOIN unnest(?::text[]) AS r(key) ON k.key_hash = md5(r.key)::uuid" +
+            ")";
+
+    private static final String BY_ID_SQL =
+            "SELECT " + COLUMNS + " FROM transactions WHERE id = ?";
+
     /**
      * Attempts to insert a new transaction row.
      *
-     * Uses ON CONFLICT DO NOTHING on the unique idempotency_key column.
+     * Uses ON CONFLICT DO NOTHING on idempotency_keys, in the same statement.
      * Returns the number of rows inserted:
      *   1 = new transaction (proceed with business logic)
      *   0 = duplicate key (return cached result to caller)
      *
+     * The requested operation (account, asset type, amount) is stored on the
+     * row so that a 'pending' transaction can be processed later.
+     *
+     * Duplicates are detected for at least the replay window
+     * (wallet.idempotency.replay-window-hours); after that the key is archived
+     * by {@link IdempotencyKeyRepository#archiveExpired} and may be reused.
+     *
      * Must be called within a transaction.
      */
-    public int insertIfNew(String idempotencyKey, String type, String description) {
-        return namedJdbc.update(
-                "INSERT INTO transactions (idempotency_key, type, description, status) " +
-                "VALUES (:key, :type, :description, 'completed') " +
-                "ON CONFLICT (idempotency_key) DO NOTHING",
-                new MapSqlParameterSource(Map.of(
-                        "key", idempotencyKey,
-                        "type", type,
-                        "description", description != null ? description : ""
-                ))
-        );
+    public int insertIfNew(String idempotencyKey, String type, String description, String status,
+                           long accountId, long assetTypeId, long amount) {
+        return jdbc.update(INSERT_IF_NEW_SQL, ps -> {
+            ps.setString(1, idempotencyKey);
+            ps.setString(2, idempotencyKey);
+            ps.setString(3, type);
+            ps.setString(4, description != null ? description : "");
+            ps.setString(5, status);
+            ps.setLong(6, accountId);
+            ps.setLong(7, assetTypeId);
+            ps.setLong(8, amount);
+        });
     }
 
-    public Optional<Transaction> findByIdempotencyKey(String idempotencyKey) {
-        List<Transaction> results = namedJdbc.query(
-                "SELECT id, idempotency_key, type, description, metadata, status, created_at " +
-                "FROM transactions WHERE idempotency_key = :key",
-                new MapSqlParameterSource("key", idempotencyKey),
+    /**
+     * Moves a transaction to its final status ('completed' or 'failed').
+     * Must be called within a transaction.
+     */
+    public void updateStatus(long id, String status, String failureReason) {
+        jdbc.update(UPDATE_STATUS_SQL, ps -> {
+            ps.setString(1, status);
+            ps.setString(2, failureReason);
+            ps.setLong(3, id);
+        });
+    }
+
+    /**
+     * Claims up to {@code limit} pending transactions, oldest first.
+     *
+     * FOR UPDATE SKIP LOCKED lets several processor instances drain the queue
+     * concurrently without blocking on each other's batches. The row locks are
+     * held until the caller's transaction ends.
+     *
+     * Must be called within a transaction.
+     */
+    public List<Transaction> claimPending(int limit) {
+        return namedJdbc.query(
+                "SELECT " + COLUMNS + " FROM transactions " +
+                "WHERE status = 'pending' " +
+                "ORDER BY id ASC " +
+                "LIMIT :limit " +
+                "FOR UPDATE SKIP LOCKED",
+                new MapSqlParameterSource("limit", limit),
                 ROW_MAPPER
         );
-        return results.stream().findFirst();
     }
 
-    public Optional<Transaction> findById(long id) {
-        List<Transaction> results = namedJdbc.query(
-                "SELECT id, idempotency_key, type, description, metadata, status, created_at " +
-                "FROM transactions WHERE id = :id",
-                new MapSqlParameterSource("id", id),
-                ROW_MAPPER
+    /**
+     * For each (account, asset type) among the given accounts, returns the
+     * lowest id of a pending transaction that is NOT in {@code claimedIds}
+     * (i.e. one claimed by another processor, or not claimed yet).
+     *
+     * Claimed transactions with a higher id for the same wallet must wait —
+     * processing them now would break per-wallet submission order.
+     */
+    public Map<WalletKey, Long> findOldestUnclaimedPending(List<Long> accountIds, List<Long> claimedIds) {
+        Map<WalletKey, Long> oldest = new HashMap<>();
+        namedJdbc.query(
+                "SELECT account_id, asset_type_id, MIN(id) AS min_id FROM transactions " +
+                "WHERE status = 'pending' AND account_id IN (:accountIds) AND id NOT IN (:claimedIds) " +
+                "GROUP BY account_id, asset_type_id",
+                new MapSqlParameterSource(Map.of("accountIds", accountIds, "claimedIds", claimedIds)),
+                rs -> {
+                    oldest.put(new WalletKey(rs.getLong("account_id"), rs.getLong("asset_type_id")),
+                               rs.getLong("min_id"));
+                }
         );
-        return results.stream().findFirst();
+        return oldest;
+    }
+
+    public Optional<Transaction> findByIdempotencyKey(String idempotencyKey) {
+        List<Transaction> results = jdbc.query(BY_KEY_SQL, ps -> ps.setString(1, idempotencyKey), ROW_MAPPER);
+        return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
+    }
+
+    /**
+     * Batch form of {@link #findByIdempotencyKey}: the transactions already
+     * recorded under any of {@code idempotencyKeys}, by key. One statement
+     * for a whole group of streamed operations.
+     */
+    public Map<String, Transaction> findByIdempotencyKeys(List<String> idempotencyKeys) {
+        Map<String, Transaction> found = new HashMap<>();
+        jdbc.query(BY_KEYS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", idempotencyKeys.toArray())),
+                ROW_MAPPER).forEach(txn -> found.put(txn.getIdempotencyKey(), txn));
+        return found;
+    }
+
+    public Optional<Transaction> findById(long id) {
+        List<Transaction> results = jdbc.query(BY_ID_SQL, ps -> ps.setLong(1, id), ROW_MAPPER);
+        return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
 }
@@ -1,14 +1,18 @@
 package com.dinoventures.wallet.repository;
 
 import com.dinoventures.wallet.model.Wallet;
+import com.dinoventures.wallet.model.WalletKey;
+import com.dinoventures.wallet.model.WalletVersion;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -17,35 +21,95 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class WalletRepository {
 
+    private final JdbcTemplate               jdbc;
     private final NamedParameterJdbcTemplate namedJdbc;
 
-    private static final RowMapper<Wallet> ROW_MAPPER = (rs, rowNum) -> Wallet.builder()
-            .id(rs.getLong("id"))
-            .accountId(rs.getLong("account_id"))
-            .assetTypeId(rs.getLong("asset_type_id"))
-            .createdAt(rs.getObject("created_at", java.time.OffsetDateTime.class))
+    // Package-private: StatementAllocationBenchmark issues the same statements
+    // and mappers through NamedParameterJdbcTemplate
+    /** Positional mapper: columns in the order of COLUMNS. */
+    static final RowMapper<Wallet> ROW_MAPPER = (rs, rowNum) -> Wallet.builder()
+            .id(rs.getLong(1))
+            .accountId(rs.getLong(2))
+            .assetTypeId(rs.getLong(3))
+            .heldAmount(rs.getLong(4))
+            .createdAt(rs.getObject(5, java.time.OffsetDateTime.class))
             .build();
 
+    private static final String COLUMNS = "id, account_id, asset_type_id, held_amount, created_at";
+
+    // Hot-path statements: constant positional SQL (see JdbcConfig#jdbcTemplate)
+    static final String INSERT_IF_ABSENT_SQL =
+            "INSERT INTO wallets (account_id, asset_type_id) VALUES (?, ?) " +
+            "ON CONFLICT (account_id, asset_type_id) DO NOTHING";
+
+    static final String FIND_BY_KEY_SQL =
+            "SELECT " + COLUMNS + " FROM wallets WHERE account_id = ? AND asset_type_id = ?";
+
+    // = ANY(array) instead of IN (...) keeps the SQL text identical for any
+    // number of wallets, so one prepared statement serves every lock call.
+    // The outer projection runs as each row leaves LockRows, i.e. right after
+    // that row's lock was granted: consecutive timestamps give the wait per row.
+    // FOR UPDATE keeps the subquery from being flattened into the outer query.
+    static final String LOCK_SQL =
+            "SELECT account_id, asset_type_id, " +
+            "       (EXTRACT(EPOCH FROM clock_timestamp() - statement_timestamp()) * 1000000)::bigint " +
+            "FROM (SELECT id, account_id, asset_type_id FROM wallets " +
+            "      WHERE id = ANY(?) ORDER BY id ASC FOR UPDATE) locked";
+
+    // is_local = true: SET LOCAL semantics, reset when the transaction ends
+    private static final String SET_TIMEOUTS_SQL =
+            "SELECT set_config('lock_timeout', ?, true), set_config('statement_timeout', ?, true)";
+
+    static final String HELD_AMOUNT_SQL = "SELECT held_amount FROM wallets WHERE id = ?";
+
+    private static final String ADJUST_HELD_SQL =
+            "UPDATE wallets SET held_amount = held_amount + ? WHERE id = ?";
+
+    // Unique-index probe on wallets plus one index-only probe for MAX(id)
+    private static final String VERSION_SQL =
+            "SELECT w.held_amount, " +
+            "       COALESCE((SELECT MAX(le.id) FROM ledger_entries le " +
+            "                 WHERE le.account_id = w.account_id AND le.asset_type_id = w.asset_type_id), 0) " +
+            "FROM wallets w WHERE w.account_id = ? AND w.asset_type_id = ?";
+
+    private static final ResultSetExtractor<WalletVersion> FIRST_VERSION =
+            rs -> rs.next() ? new WalletVersion(rs.getLong(2), rs.getLong(1)) : null;
+
+    private static final ResultSetExtractor<Wallet> FIRST_WALLET =
+            rs -> rs.next() ? ROW_MAPPER.mapRow(rs, 0) : null;
+
+    private static final ResultSetExtractor<Long> FIRST_LONG = rs -> rs.next() ? rs.getLong(1) : 0L;
+
+    private static final ResultSetExtractor<Void> DISCARD = rs -> null;
+
+    private static final ResultSetExtractor<Map<WalletKey, Long>> ROW_WAITS = rs -> {
+        Map<WalletKey, Long> waits = new LinkedHashMap<>();
+        long previousMicros = 0;
+        while (rs.next()) {
+            long micros = rs.getLong(3);
+            waits.put(new WalletKey(rs.getLong(1), rs.getLong(2)), Math.max(0, micros - previousMicros) * 1_000);
+            previousMicros = micros;
+        }
+        return waits;
+    };
+
     /**
      * Idempotently get or create a wallet for the given (accountId, assetTypeId) pair.
      * Uses INSERT ON CONFLICT DO NOTHING so concurrent calls are safe.
      * Must be called within a transaction.
      */
     public Wallet getOrCreate(long accountId, long assetTypeId) {
-        namedJdbc.update(
-                "INSERT INTO wallets (account_id, asset_type_id) VALUES (:accountId, :assetTypeId) " +
-                "ON CONFLICT (account_id, asset_type_id) DO NOTHING",
-                new MapSqlParameterSource(Map.of("accountId", accountId, "assetTypeId", assetTypeId))
-        );
+        PreparedStatementSetter byKey = ps -> {
+            ps.setLong(1, accountId);
+            ps.setLong(2, assetTypeId);
+        };
+        jdbc.update(INSERT_IF_ABSENT_SQL, byKey);
 
-        return namedJdbc.query(
-                "SELECT id, account_id, asset_type_id, created_at FROM wallets " +
-                "WHERE account_id = :accountId AND asset_type_id = :assetTypeId",
-                new MapSqlParameterSource(Map.of("accountId", accountId, "assetTypeId", assetTypeId)),
-                ROW_MAPPER
-        ).stream().findFirst().orElseThrow(() ->
-                new IllegalStateException("Wallet should exist after getOrCreate")
-        );
+        Wallet wallet = jdbc.query(FIND_BY_KEY_SQL, byKey, FIRST_WALLET);
+        if (wallet == null) {
+            throw new IllegalStateException("Wallet should exist after getOrCreate");
+        }
+        return wallet;
     }
 
     /**
@@ -57,19 +121,98 @@ public class WalletRepository {
      * and Tx2 needs wallets {7,3}, both will attempt to lock wallet 3 first,
      * and one will block — preventing a deadlock cycle.
      *
+     * Returns how long each wallet's row lock took, in nanoseconds and in
+     * locking order, so a wait can be attributed to the wallet that was
+     * actually contended rather than to every wallet of the transaction.
+     * Resolution is one microsecond.
+     *
+     * Must be called within a transaction.
+     */
+    public Map<WalletKey, Long> lockForUpdate(List<Long> sortedWalletIds) {
+        return jdbc.query(LOCK_SQL, ps -> ps.setArray(1,
+                ps.getConnection().createArrayOf("bigint", sortedWalletIds.toArray())),
+                ROW_WAITS);
+    }
+
+    /**
+     * Bounds lock waits and statement run time for the rest of the current
+     * transaction, in milliseconds (0 = no limit). Must be called within a
+     * transaction — outside one the settings would end with the statement.
+     */
+    public void setLocalTimeouts(long lockTimeoutMs, long statementTimeoutMs) {
+        jdbc.query(SET_TIMEOUTS_SQL, ps -> {
+            ps.setString(1, String.valueOf(lockTimeoutMs));
+            ps.setString(2, String.valueOf(statementTimeoutMs));
+        }, DISCARD);
+    }
+
+    /**
+     * Like {@link #lockForUpdate} but never waits: wallets currently locked by
+     * another transaction are skipped. Returns the ids that were locked.
+     *
+     * Used by background sweeps so they never queue behind live requests on a
+     * hot wallet; skipped wallets are picked up on a later pass.
+     *
      * Must be called within a transaction.
      */
-    public void lockForUpdate(List<Long> sortedWalletIds) {
-        namedJdbc.query(
-                "SELECT id FROM wallets WHERE id IN (:ids) ORDER BY id ASC FOR UPDATE",
+    public List<Long> tryLockForUpdate(List<Long> sortedWalletIds) {
+        return namedJdbc.queryForList(
+                "SELECT id FROM wallets WHERE id IN (:ids) ORDER BY id ASC FOR UPDATE SKIP LOCKED",
                 new MapSqlParameterSource("ids", sortedWalletIds),
-                rs -> {}   // we only need the lock, discard result rows
+                Long.class
+        );
+    }
+
+    /**
+     * Amount currently reserved by active holds. Read it after
+     * {@link #lockForUpdate} so it cannot change before the caller commits.
+     */
+    public long getHeldAmount(long walletId) {
+        Long held = jdbc.query(HELD_AMOUNT_SQL, ps -> ps.setLong(1, walletId), FIRST_LONG);
+        return held != null ? held : 0L;
+    }
+
+    /**
+     * Held amount for an (account, asset type) pair, 0 if the wallet does not exist yet.
+     */
+    public long getHeldAmount(long accountId, long assetTypeId) {
+        List<Long> held = namedJdbc.queryForList(
+                "SELECT held_amount FROM wallets WHERE account_id = :accountId AND asset_type_id = :assetTypeId",
+                new MapSqlParameterSource(Map.of("accountId", accountId, "assetTypeId", assetTypeId)),
+                Long.class
         );
+        return held.isEmpty() ? 0L : held.get(0);
+    }
+
+    /**
+     * Adds {@code delta} (negative to release) to the wallet's held amount.
+     * Must be called within a transaction holding the wallet's FOR UPDATE lock.
+     */
+    public void adjustHeldAmount(long walletId, long delta) {
+        jdbc.update(ADJUST_HELD_SQL, ps -> {
+            ps.setLong(1, delta);
+            ps.setLong(2, walletId);
+        });
+    }
+
+    /**
+     * The wallet's change marker, empty if the wallet does not exist.
+     *
+     * Ledger rows are inserted only under the wallet's FOR UPDATE lock, so
+     * their ids are assigned in commit order per wallet: a committed write
+     * always raises MAX(id). (created_at would not do — it is the writer's
+     * transaction START time.)
+     */
+    public Optional<WalletVersion> findVersion(long accountId, long assetTypeId) {
+        return Optional.ofNullable(jdbc.query(VERSION_SQL, ps -> {
+            ps.setLong(1, accountId);
+            ps.setLong(2, assetTypeId);
+        }, FIRST_VERSION));
     }
 
     public Optional<Wallet> findById(long id) {
         List<Wallet> results = namedJdbc.query(
-                "SELECT id, account_id, asset_type_id, created_at FROM wallets WHERE id = :id",
+                "SELECT " + COLUMNS + " FROM wallets WHERE id = :id",
                 new MapSqlParameterSource("id", id),
                 ROW_MAPPER
         );
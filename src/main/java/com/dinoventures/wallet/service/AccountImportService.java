@@ -0,0 +1,236 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.ShardRouter;
+import com.dinoventures.wallet.model.AssetType;
+import com.dinoventures.wallet.model.ImportRow;
+import com.dinoventures.wallet.model.dto.AccountImportResponse;
+import com.dinoventures.wallet.model.dto.ImportRejection;
+import com.dinoventures.wallet.repository.AssetTypeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk account onboarding: creates accounts, their wallets and opening
+ * balances from a CSV or NDJSON stream.
+ *
+ * The input is read once, line by line, and never held whole. Rows go to
+ * the shard their name is placed on ({@link ShardRouter#placeAccount}, as for
+ * POST /api/v1/accounts) and are applied in chunks of
+ * {@code wallet.import.chunk-size} by {@link ImportChunkService} — COPY into
+ * staging, then set-based statements, one transaction per chunk. Each shard
+ * has at most one chunk in flight while the next one fills, so shards work
+ * in parallel with parsing and memory stays at two chunks per shard.
+ *
+ * Chunks are independent: if one fails, the import stops with the error and
+ * the chunks already committed stay. Re-running the same input is safe —
+ * existing accounts and wallets are reused, and an opening balance is only
+ * posted to a wallet without history.
+ */
+@Service
+public class AccountImportService {
+
+    private static final Comparator<ImportRejection> BY_LINE = Comparator.comparingLong(ImportRejection::getLine);
+
+    private final ImportChunkService  chunks;
+    private final AssetTypeRepository assetTypeRepo;
+    private final BalanceEngine       engine;
+    private final ShardRouter         shards;
+    private final WriteRetry          retry;
+    private final ObjectMapper        objectMapper;
+    private final PlatformTransactionManager transactionManager;
+    private final int chunkSize;
+    private final int maxRejectionsReported;
+
+    private final Counter importedRows;
+    private final Counter rejectedRows;
+
+    public AccountImportService(
+            ImportChunkService chunks,
+            AssetTypeRepository assetTypeRepo,
+            BalanceEngine engine,
+            ShardRouter shards,
+            WriteRetry retry,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry registry,
+            @Value("${wallet.import.chunk-size:10000}") int chunkSize,
+            @Value("${wallet.import.max-rejections-reported:1000}") int maxRejectionsReported) {
+        this.chunks = chunks;
+        this.assetTypeRepo = assetTypeRepo;
+        this.engine = engine;
+        this.shards = shards;
+        this.retry = retry;
+        this.objectMapper = objectMapper;
+        this.transactionManager = transactionManager;
+        this.chunkSize = chunkSize;
+        this.maxRejectionsReported = maxRejectionsReported;
+
+        this.importedRows = Counter.builder("wallet.import.rows").tag("result", "imported").register(registry);
+        this.rejectedRows = Counter.builder("wallet.import.rows").tag("result", "rejected").register(registry);
+    }
+
+    /** Running totals of one import; only touched by the importing thread. */
+    private final class Totals {
+        long rows;
+        long accountsCreated;
+        long walletsCreated;
+        long balancesPosted;
+        long amountPosted;
+        long rejected;
+        // The lowest-numbered rejections, highest on top so it can be evicted
+        final PriorityQueue<ImportRejection> rejections = new PriorityQueue<>(BY_LINE.reversed());
+
+        void reject(ImportRejection rejection) {
+            rejected++;
+            rejections.add(rejection);
+            if (rejections.size() > maxRejectionsReported) {
+                rejections.poll();
+            }
+        }
+
+        void add(ImportChunkService.ChunkResult chunk) {
+            accountsCreated += chunk.accountsCreated();
+            walletsCreated += chunk.walletsCreated();
+            balancesPosted += chunk.balancesPosted();
+            amountPosted += chunk.amountPosted();
+            chunk.rejections().forEach(this::reject);
+        }
+    }
+
+    /**
+     * Algorithm:
+     *   1. Load the asset types (identical on every shard)
+     *   2. Parse each line; reject it here if it is malformed, names an unknown
+     *      asset type or one owned by the {@link BalanceEngine}
+     *   3. Buffer it for its shard; a full buffer is handed to that shard's
+     *      worker once the shard's previous chunk has finished
+     *   4. Flush the remaining buffers and wait for every shard
+     */
+    public AccountImportResponse importAccounts(InputStream input, boolean csv) throws IOException {
+        long start = System.nanoTime();
+
+        // Step 1: Asset types
+        Set<Long> assetTypes = shards.onShard(0, () -> readOnly().execute(status -> assetTypeRepo.findAll()))
+                .stream().map(AssetType::getId).collect(Collectors.toSet());
+
+        ImportRowParser parser = new ImportRowParser(csv, objectMapper);
+        Totals totals = new Totals();
+        List<List<ImportRow>> buffers = new ArrayList<>();
+        List<Future<ImportChunkService.ChunkResult>> inFlight = new ArrayList<>();
+        for (int i = 0; i < shards.shardCount(); i++) {
+            buffers.add(new ArrayList<>());
+            inFlight.add(null);
+        }
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            long lineNo = 0;
+            for (String line; (line = reader.readLine()) != null; ) {
+                lineNo++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (parser.expectsHeader()) {
+                    parser.header(line);
+                    continue;
+                }
+                totals.rows++;
+
+                // Step 2: Parse and validate
+                ImportRow row;
+                try {
+                    row = parser.parse(lineNo, line);
+                    if (row.getAssetTypeId() != null && !assetTypes.contains(row.getAssetTypeId())) {
+                        throw new ImportRowParser.RejectedRow("unknown asset_type_id " + row.getAssetTypeId());
+                    }
+                    if (row.getAssetTypeId() != null && engine.owns(row.getAssetTypeId())) {
+                        throw new ImportRowParser.RejectedRow(
+                                "asset type " + row.getAssetTypeId() + " is managed by the balance engine");
+                    }
+                } catch (ImportRowParser.RejectedRow e) {
+                    totals.reject(new ImportRejection(lineNo, e.getMessage()));
+                    continue;
+                }
+
+                // Step 3: Buffer, hand over full chunks
+                int shard = shards.placeAccount(row.getName());
+                buffers.get(shard).add(row);
+                if (buffers.get(shard).size() >= chunkSize) {
+                    submit(shard, buffers, inFlight, workers, totals);
+                }
+            }
+
+            // Step 4: Drain
+            for (int shard = 0; shard < buffers.size(); shard++) {
+                if (!buffers.get(shard).isEmpty()) {
+                    submit(shard, buffers, inFlight, workers, totals);
+                }
+                if (inFlight.get(shard) != null) {
+                    totals.add(join(inFlight.get(shard)));
+                }
+            }
+        }
+
+        long rejected = totals.rejected;
+        importedRows.increment(totals.rows - rejected);
+        rejectedRows.increment(rejected);
+        List<ImportRejection> rejections = new ArrayList<>(totals.rejections);
+        rejections.sort(BY_LINE);
+        return new AccountImportResponse(totals.rows, totals.accountsCreated, totals.walletsCreated,
+                totals.balancesPosted, totals.amountPosted, rejected, rejections,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void submit(int shard, List<List<ImportRow>> buffers,
+                        List<Future<ImportChunkService.ChunkResult>> inFlight,
+                        ExecutorService workers, Totals totals) {
+        Future<ImportChunkService.ChunkResult> previous = inFlight.get(shard);
+        if (previous != null) {
+            totals.add(join(previous));
+        }
+        List<ImportRow> chunk = buffers.get(shard);
+        buffers.set(shard, new ArrayList<>(Math.min(chunkSize, 1024)));
+        inFlight.set(shard, workers.submit(() -> shards.onShard(shard, () -> retry.execute(() -> chunks.apply(chunk)))));
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during account import", e);
+        }
+    }
+}
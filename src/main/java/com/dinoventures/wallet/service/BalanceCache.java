@@ -0,0 +1,178 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.model.BalanceSnapshot;
+import com.dinoventures.wallet.model.Wallet;
+import com.dinoventures.wallet.model.WalletKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Read-side relief for hot balances (e.g. a streamer's wallet during a live event).
+ *
+ *   1. Single-flight — concurrent reads of the same (account, asset type)
+ *      share one in-flight query instead of each running its own SUM.
+ *   2. Optional short-TTL cache ({@code wallet.balance-cache.enabled}).
+ *
+ * Write flows call {@link #invalidateAfterCommit} for every wallet they post
+ * to. On commit the cached value and any in-flight query for the wallet are
+ * dropped and the wallet's version is bumped; a load that started before the
+ * bump is returned to its own callers but never cached. A read that starts
+ * after a write committed on this node therefore always sees that write.
+ *
+ * Other nodes' writes are seen once the TTL expires.
+ *
+ * Values are {@link BalanceSnapshot}s: a stale body is always served with
+ * its own ETag, never with a fresher one.
+ */
+@Component
+public class BalanceCache {
+
+    // Versions are striped rather than kept per wallet so memory stays bounded;
+    // a collision only costs an occasional skipped cache store.
+    private static final int VERSION_STRIPES = 1024;
+
+    private final boolean cacheEnabled;
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<WalletKey, CompletableFuture<BalanceSnapshot>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<WalletKey, Cached> cache = new ConcurrentHashMap<>();
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    private final Counter cacheHits;
+    private final Counter coalesced;
+    private final Counter queried;
+
+    private record Cached(BalanceSnapshot value, long expiresAtNanos) {}
+
+    public BalanceCache(
+            MeterRegistry registry,
+            @Value("${wallet.balance-cache.enabled:false}") boolean cacheEnabled,
+            @Value("${wallet.balance-cache.ttl-ms:500}") long ttlMs,
+            @Value("${wallet.balance-cache.max-entries:10000}") int maxEntries) {
+        this.cacheEnabled = cacheEnabled;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.maxEntries = maxEntries;
+
+        // hit rate = cache / total, coalescing ratio = coalesced / (coalesced + query)
+        this.cacheHits = Counter.builder("wallet.balance.reads").tag("source", "cache").register(registry);
+        this.coalesced = Counter.builder("wallet.balance.reads").tag("source", "coalesced").register(registry);
+        this.queried   = Counter.builder("wallet.balance.reads").tag("source", "query").register(registry);
+    }
+
+    /**
+     * Returns the cached snapshot, joins an identical in-flight read, or runs
+     * {@code loader} as the leader. A leader's exception is rethrown to every
+     * caller that joined it.
+     */
+    public BalanceSnapshot get(WalletKey key, Supplier<BalanceSnapshot> loader) {
+        if (cacheEnabled) {
+            Cached cached = cache.get(key);
+            if (cached != null && cached.expiresAtNanos - System.nanoTime() > 0) {
+                cacheHits.increment();
+                return cached.value;
+            }
+        }
+
+        CompletableFuture<BalanceSnapshot> mine = new CompletableFuture<>();
+        CompletableFuture<BalanceSnapshot> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            coalesced.increment();
+            return await(leader);
+        }
+
+        queried.increment();
+        int stripe = stripe(key);
+        long version = versions.get(stripe);
+        try {
+            BalanceSnapshot value = loader.get();
+            if (cacheEnabled) {
+                store(key, value, stripe, version);
+            }
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Invalidates the wallets' balances once the current DB transaction
+     * commits (immediately if there is none). Nothing happens on rollback —
+     * the balances did not change.
+     */
+    public void invalidateAfterCommit(Wallet... wallets) {
+        invalidateAfterCommit(Arrays.stream(wallets)
+                .map(w -> new WalletKey(w.getAccountId(), w.getAssetTypeId()))
+                .toList());
+    }
+
+    public void invalidateAfterCommit(List<WalletKey> keys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            keys.forEach(this::invalidate);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                keys.forEach(BalanceCache.this::invalidate);
+            }
+        });
+    }
+
+    private void invalidate(WalletKey key) {
+        versions.incrementAndGet(stripe(key));
+        cache.remove(key);
+        // Later readers must not join a query that may predate the commit
+        inFlight.remove(key);
+    }
+
+    private void store(WalletKey key, BalanceSnapshot value, int stripe, long version) {
+        if (versions.get(stripe) != version) {
+            return;   // invalidated while loading
+        }
+        if (cache.size() >= maxEntries) {
+            cache.values().removeIf(c -> c.expiresAtNanos - System.nanoTime() <= 0);
+            if (cache.size() >= maxEntries) {
+                return;
+            }
+        }
+        Cached entry = new Cached(value, System.nanoTime() + ttlNanos);
+        cache.put(key, entry);
+        // An invalidation may have slipped in between the check and the put
+        if (versions.get(stripe) != version) {
+            cache.remove(key, entry);
+        }
+    }
+
+    private static BalanceSnapshot await(CompletableFuture<BalanceSnapshot> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static int stripe(WalletKey key) {
+        return (key.hashCode() & 0x7fffffff) % VERSION_STRIPES;
+    }
+}
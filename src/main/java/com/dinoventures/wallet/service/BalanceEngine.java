@@ -0,0 +1,758 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.ShardRouter;
+import com.dinoventures.wallet.exception.AccountNotFoundException;
+import com.dinoventures.wallet.exception.AssetTypeNotFoundException;
+import com.dinoventures.wallet.exception.DeadlineExceededException;
+import com.dinoventures.wallet.exception.InsufficientFundsException;
+import com.dinoventures.wallet.exception.ServiceOverloadedException;
+import com.dinoventures.wallet.model.Account;
+import com.dinoventures.wallet.model.LedgerEntry;
+import com.dinoventures.wallet.model.LedgerLeg;
+import com.dinoventures.wallet.model.Transaction;
+import com.dinoventures.wallet.model.WalletKey;
+import com.dinoventures.wallet.model.dto.BalanceResponse;
+import com.dinoventures.wallet.model.dto.BonusRequest;
+import com.dinoventures.wallet.model.dto.SpendRequest;
+import com.dinoventures.wallet.model.dto.TopupRequest;
+import com.dinoventures.wallet.model.dto.TransactionResponse;
+import com.dinoventures.wallet.repository.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Optional in-memory balance engine for selected asset types
+ * ({@code wallet.engine.enabled}, {@code wallet.engine.asset-types}).
+ *
+ * For an owned asset type the authoritative balances live in memory and the
+ * database is the durable log. Synchronous top-ups, bonuses and spends skip
+ * wallet row locks entirely:
+ *
+ *   1. A spend reserves its amount from the wallet's available balance with
+ *      a CAS loop, so concurrent spends can never overdraw (422 otherwise)
+ *   2. The request is queued for the single committer thread
+ *   3. The committer drains up to {@code batch-size} requests and writes them
+ *      in one DB transaction per shard (idempotency gate + ledger legs)
+ *   4. Only after the commit are the in-memory balances updated and the
+ *      callers answered — an acknowledged write is always durable
+ *
+ * Ownership, per (shard, asset type):
+ *
+ *   1. On start a node claims it with a session advisory lock, held on its
+ *      own connection outside the pools and limiters; a node that cannot
+ *      claim it (another one holds it) runs without it
+ *   2. The claim bumps the lease's epoch and records this node's gRPC
+ *      address ({@code wallet.engine.advertise-address}) in engine_leases;
+ *      balances are then rebuilt from the latest snapshot plus the ledger
+ *      entries after its mark (the whole ledger if there is no snapshot)
+ *   3. Every commit batch and snapshot first reads the epoch FOR SHARE; if a
+ *      later claim moved it (this node's lock session died and another node
+ *      took over), nothing is written and the engine stops committing
+ *   4. Writes for a partition this node does not own are forwarded to the
+ *      lease's owner ({@link EngineOwnerClient}); its balances are read
+ *      from the database
+ *
+ * Snapshots of the changed wallets are taken every
+ * {@code snapshot-interval-ms} and on stop.
+ *
+ * Holds and async requests are refused for engine asset types
+ * (EngineManagedAssetException), and start fails while any are open, so no
+ * other path writes the asset type's ledger. Every node must use the same
+ * engine settings: a node without them would still write through the
+ * locking path.
+ *
+ * A caller that times out waiting for the commit (504) does not know the
+ * outcome; retrying with the same Idempotency-Key replays it.
+ */
+@Component
+public class BalanceEngine implements SmartLifecycle {
+
+    // First key of the ownership advisory locks ("WALL"); the second is the asset type id
+    private static final int LOCK_NAMESPACE = 0x57414C4C;
+
+    private static final String SPEND = "spend";
+    private static final String COMPLETED = "completed";
+
+    private final ShardRouter shards;
+    private final PlatformTransactionManager transactionManager;
+    private final AccountRepository accountRepo;
+    private final AssetTypeRepository assetTypeRepo;
+    private final WalletRepository walletRepo;
+    private final TransactionRepository txRepo;
+    private final LedgerRepository ledgerRepo;
+    private final BalanceSnapshotRepository snapshotRepo;
+    private final RequestDeadline deadline;
+    private final EngineOwnerClient ownerClient;
+
+    private final boolean enabled;
+    private final Set<Long> assetTypes;
+    private final int batchSize;
+    private final long ackTimeoutMs;
+    private final long snapshotIntervalNanos;
+    private final long retryAfterSeconds;
+    private final String advertiseAddress;
+
+    private final BlockingQueue<Op> queue;
+    private final ConcurrentHashMap<WalletKey, Long> walletIds = new ConcurrentHashMap<>();
+    private volatile LongPages available = new LongPages();   // CAS'd by request threads
+    private volatile LongPages committed = new LongPages();   // written by the committer only
+    private volatile Map<Long, Partition[]> partitions = Map.of();   // null where another node owns it
+    private final ConcurrentHashMap<LeaseKey, String> owners = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private volatile boolean fenced;   // a claim was lost: forward everything, commit nothing
+    private Thread committer;
+
+    private final Timer commitTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter fundsPassed;
+    private final Counter fundsInsufficient;
+    private final Counter snapshotFailures;
+    private final Counter forwarded;
+    private final Counter ownershipLost;
+
+    /** One asset type on one shard; its mutable state is touched by the committer thread only. */
+    private static final class Partition {
+        final int shard;
+        final long assetTypeId;
+        final Connection owner;
+        final long epoch;
+        final long treasuryWalletId;
+        final long revenueWalletId;
+        final Set<Long> dirty = new HashSet<>();
+        long markedEntryId;
+        long lastEntryId;
+
+        Partition(int shard, long assetTypeId, Connection owner, long epoch, long treasuryWalletId,
+                  long revenueWalletId, long markedEntryId, long lastEntryId) {
+            this.shard = shard;
+            this.assetTypeId = assetTypeId;
+            this.owner = owner;
+            this.epoch = epoch;
+            this.treasuryWalletId = treasuryWalletId;
+            this.revenueWalletId = revenueWalletId;
+            this.markedEntryId = markedEntryId;
+            this.lastEntryId = lastEntryId;
+        }
+    }
+
+    private record Op(String type, long accountId, long walletId, long amount, String description,
+                      String idempotencyKey, Partition partition, CompletableFuture<TransactionResponse> done) {}
+
+    private record LeaseKey(long assetTypeId, int shard) {}
+
+    /** A later claim moved the lease's epoch: this node no longer owns the partition. */
+    private static final class OwnershipLostException extends RuntimeException {
+        OwnershipLostException(Partition p) {
+            super("Asset type " + p.assetTypeId + " on shard " + p.shard + " was claimed by another balance engine");
+        }
+    }
+
+    public BalanceEngine(
+            ShardRouter shards,
+            PlatformTransactionManager transactionManager,
+            AccountRepository accountRepo,
+            AssetTypeRepository assetTypeRepo,
+            WalletRepository walletRepo,
+            TransactionRepository txRepo,
+            LedgerRepository ledgerRepo,
+            BalanceSnapshotRepository snapshotRepo,
+            RequestDeadline deadline,
+            EngineOwnerClient ownerClient,
+            MeterRegistry registry,
+            @Value("${wallet.engine.enabled:false}") boolean enabled,
+            @Value("${wallet.engine.asset-types:}") List<Long> assetTypes,
+            @Value("${wallet.engine.batch-size:256}") int batchSize,
+            @Value("${wallet.engine.queue-capacity:10000}") int queueCapacity,
+            @Value("${wallet.engine.ack-timeout-ms:5000}") long ackTimeoutMs,
+            @Value("${wallet.engine.snapshot-interval-ms:60000}") long snapshotIntervalMs,
+            @Value("${wallet.engine.advertise-address:}") String advertiseAddress,
+            @Value("${wallet.grpc.port:9090}") int grpcPort,
+            @Value("${wallet.admission.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.shards = shards;
+        this.transactionManager = transactionManager;
+        this.accountRepo = accountRepo;
+        this.assetTypeRepo = assetTypeRepo;
+        this.walletRepo = walletRepo;
+        this.txRepo = txRepo;
+        this.ledgerRepo = ledgerRepo;
+        this.snapshotRepo = snapshotRepo;
+        this.deadline = deadline;
+        this.ownerClient = ownerClient;
+        this.enabled = enabled;
+        this.assetTypes = Set.copyOf(assetTypes);
+        this.batchSize = batchSize;
+        this.ackTimeoutMs = ackTimeoutMs;
+        this.snapshotIntervalNanos = TimeUnit.MILLISECONDS.toNanos(snapshotIntervalMs);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.advertiseAddress = advertiseAddress.isBlank() ? hostName() + ":" + grpcPort : advertiseAddress;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.commitTimer = Timer.builder("wallet.engine.commit")
+                .description("One committer DB transaction (a shard's share of a batch)")
+                .register(registry);
+        this.batchSizes = DistributionSummary.builder("wallet.engine.batch.size").register(registry);
+        this.fundsPassed = Counter.builder("wallet.engine.funds_checks").tag("result", "passed").register(registry);
+        this.fundsInsufficient = Counter.builder("wallet.engine.funds_checks").tag("result", "insufficient")
+                .register(registry);
+        this.snapshotFailures = Counter.builder("wallet.engine.snapshot.failures").register(registry);
+        this.forwarded = Counter.builder("wallet.engine.forwarded")
+                .description("Writes sent to the node owning their (shard, asset type)")
+                .register(registry);
+        this.ownershipLost = Counter.builder("wallet.engine.ownership_lost").register(registry);
+        Gauge.builder("wallet.engine.queue", queue, BlockingQueue::size).register(registry);
+        Gauge.builder("wallet.engine.wallets", walletIds, Map::size).register(registry);
+    }
+
+    /**
+     * True if the asset type's writes and balances belong to a balance engine
+     * — this node's, or the owner's they are forwarded to.
+     */
+    public boolean owns(long assetTypeId) {
+        return enabled && assetTypes.contains(assetTypeId);
+    }
+
+    /** The asset types {@link #owns} is true for; empty when the engine is off. */
+    public Set<Long> ownedAssetTypes() {
+        return enabled ? assetTypes : Set.of();
+    }
+
+    // =========================================================================
+    // REQUEST PATH
+    // =========================================================================
+
+    public TransactionResponse topup(TopupRequest req, String idempotencyKey) {
+        return submit("topup", req.getAccountId(), req.getAssetTypeId(), req.getAmount(),
+                req.getDescription(), idempotencyKey);
+    }
+
+    public TransactionResponse bonus(BonusRequest req, String idempotencyKey) {
+        return submit("bonus", req.getAccountId(), req.getAssetTypeId(), req.getAmount(),
+                req.getDescription(), idempotencyKey);
+    }
+
+    public TransactionResponse spend(SpendRequest req, String idempotencyKey) {
+        return submit(SPEND, req.getAccountId(), req.getAssetTypeId(), req.getAmount(),
+                req.getDescription(), idempotencyKey);
+    }
+
+    /**
+     * The wallet's committed balance from memory, or null if this node does
+     * not hold it (owned by another node, not running, or no wallet yet) —
+     * the caller then reads the database.
+     */
+    public BalanceResponse balance(long accountId, long assetTypeId) {
+        Long walletId = walletIds.get(new WalletKey(accountId, assetTypeId));
+        if (!running || fenced || walletId == null) {
+            return null;
+        }
+        long balance = committed.get(walletId);
+        return new BalanceResponse(accountId, assetTypeId, balance, 0L, balance);
+    }
+
+    private TransactionResponse submit(String type, long accountId, long assetTypeId, long amount,
+                                       String description, String idempotencyKey) {
+        int shard = shards.shardOf(accountId);
+        Partition[] byShard = partitions.get(assetTypeId);
+        Partition partition = running && !fenced && byShard != null ? byShard[shard] : null;
+        if (partition == null) {
+            return forward(type, shard, accountId, assetTypeId, amount, description, idempotencyKey);
+        }
+        long walletId = walletId(accountId, assetTypeId);
+
+        // Step 1: Reserve (spends only); available never goes below zero
+        if (SPEND.equals(type)) {
+            long before = available.debitIfAtLeast(walletId, amount, 0);
+            if (before - amount < 0) {
+                fundsInsufficient.increment();
+                return replayOrReject(partition, accountId, amount, before, idempotencyKey);
+            }
+            fundsPassed.increment();
+        }
+
+        // Step 2: Queue for the committer
+        Op op = new Op(type, accountId, walletId, amount, description, idempotencyKey, partition,
+                new CompletableFuture<>());
+        if (!queue.offer(op)) {
+            unreserve(op);
+            throw new ServiceOverloadedException(retryAfterSeconds);
+        }
+
+        // Steps 3+4 run on the committer; wait for the durable outcome
+        try {
+            return op.done.get(deadline.cap(ackTimeoutMs, "engine_ack"), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("engine_ack");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException("engine_ack");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Sends the write to the partition's owner, as recorded in its lease
+     * (cached until a call to it fails). With no other owner — never claimed,
+     * or this node's own claim that it can no longer serve — answers 503.
+     */
+    private TransactionResponse forward(String type, int shard, long accountId, long assetTypeId, long amount,
+                                        String description, String idempotencyKey) {
+        LeaseKey lease = new LeaseKey(assetTypeId, shard);
+        String owner = owners.computeIfAbsent(lease, k -> shards.onShard(shard, () -> readOnly().execute(status ->
+                snapshotRepo.findOwner(assetTypeId).orElse(null))));
+        if (owner == null || owner.equals(advertiseAddress)) {
+            owners.remove(lease);
+            throw new ServiceOverloadedException(retryAfterSeconds);
+        }
+        forwarded.increment();
+        try {
+            return ownerClient.submit(owner, type, accountId, assetTypeId, amount, description, idempotencyKey,
+                    deadline.cap(ackTimeoutMs, "engine_forward"));
+        } catch (ServiceOverloadedException | DeadlineExceededException e) {
+            // The owner may be gone or replaced; read the lease again next time
+            owners.remove(lease, owner);
+            throw e;
+        }
+    }
+
+    /**
+     * A spend that failed its reservation may be the replay of one that
+     * already succeeded (its funds are gone now): answer from the database.
+     */
+    private TransactionResponse replayOrReject(Partition partition, long accountId, long amount,
+                                               long available, String idempotencyKey) {
+        TransactionResponse replay = shards.onShard(partition.shard, () -> readOnly().execute(status ->
+                txRepo.findByIdempotencyKey(idempotencyKey)
+                        .map(txn -> new TransactionResponse(txn, ledgerRepo.findByTransactionId(txn.getId()), true))
+                        .orElse(null)));
+        if (replay != null) {
+            return replay;
+        }
+        throw new InsufficientFundsException(accountId, partition.assetTypeId, available, amount);
+    }
+
+    /** Wallet id from memory; a first write creates the wallet (and validates the account). */
+    private long walletId(long accountId, long assetTypeId) {
+        WalletKey key = new WalletKey(accountId, assetTypeId);
+        Long walletId = walletIds.get(key);
+        if (walletId != null) {
+            return walletId;
+        }
+        long created = shards.onShard(shards.shardOf(accountId), () -> readWrite().execute(status -> {
+            accountRepo.findById(accountId).orElseThrow(() -> new AccountNotFoundException(accountId));
+            return walletRepo.getOrCreate(accountId, assetTypeId).getId();
+        }));
+        Long raced = walletIds.putIfAbsent(key, created);
+        return raced != null ? raced : created;
+    }
+
+    private void unreserve(Op op) {
+        if (SPEND.equals(op.type)) {
+            available.addAndGet(op.walletId, op.amount);
+        }
+    }
+
+    // =========================================================================
+    // COMMITTER
+    // =========================================================================
+
+    private void runCommitter() {
+        List<Op> batch = new ArrayList<>(batchSize);
+        long nextSnapshot = System.nanoTime() + snapshotIntervalNanos;
+        while (running || !queue.isEmpty()) {
+            try {
+                Op first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    if (fenced) {
+                        batch.forEach(this::refuse);
+                    } else {
+                        commit(batch);
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!fenced && System.nanoTime() - nextSnapshot >= 0) {
+                snapshot();
+                nextSnapshot = System.nanoTime() + snapshotIntervalNanos;
+            }
+        }
+    }
+
+    /**
+     * Writes a batch in one transaction per shard; if that fails, each request
+     * on its own. A lost claim fails the rest of the batch unwritten.
+     */
+    private void commit(List<Op> batch) {
+        batchSizes.record(batch.size());
+        Map<Integer, List<Op>> byShard = new LinkedHashMap<>();
+        for (Op op : batch) {
+            byShard.computeIfAbsent(op.partition.shard, s -> new ArrayList<>()).add(op);
+        }
+        for (Map.Entry<Integer, List<Op>> shard : byShard.entrySet()) {
+            List<Op> ops = shard.getValue();
+            if (fenced) {
+                ops.forEach(this::refuse);
+                continue;
+            }
+            List<TransactionResponse> written;
+            try {
+                written = write(shard.getKey(), ops);
+            } catch (OwnershipLostException lost) {
+                fence();
+                ops.forEach(this::refuse);
+                continue;
+            } catch (RuntimeException batchFailure) {
+                ops.forEach(this::commitAlone);
+                continue;
+            }
+            for (int i = 0; i < ops.size(); i++) {
+                applied(ops.get(i), written.get(i));
+            }
+        }
+    }
+
+    private void commitAlone(Op op) {
+        if (fenced) {
+            refuse(op);
+            return;
+        }
+        try {
+            applied(op, write(op.partition.shard, List.of(op)).get(0));
+        } catch (OwnershipLostException lost) {
+            fence();
+            refuse(op);
+        } catch (RuntimeException e) {
+            unreserve(op);
+            op.done.completeExceptionally(e);
+        }
+    }
+
+    private List<TransactionResponse> write(int shard, List<Op> ops) {
+        return commitTimer.record(() -> shards.onShard(shard, () -> readWrite().execute(status -> {
+            ops.stream().map(Op::partition).distinct().forEach(this::checkEpoch);
+            return ops.stream().map(this::write).toList();
+        })));
+    }
+
+    /**
+     * Fencing: holds the partition's lease FOR SHARE for the rest of the
+     * transaction, and fails it if a later claim moved the epoch.
+     */
+    private void checkEpoch(Partition p) {
+        if (snapshotRepo.lockEpoch(p.assetTypeId) != p.epoch) {
+            throw new OwnershipLostException(p);
+        }
+    }
+
+    /** Never written: the caller retries (503) and is forwarded to the new owner. */
+    private void refuse(Op op) {
+        unreserve(op);
+        op.done.completeExceptionally(new ServiceOverloadedException(retryAfterSeconds));
+    }
+
+    /**
+     * A claim was lost: stop committing and snapshotting for good, forward
+     * new writes, and release the remaining claims (their memory can no
+     * longer be trusted to be the only writer's). Committer thread only.
+     */
+    private void fence() {
+        if (fenced) {
+            return;
+        }
+        fenced = true;
+        ownershipLost.increment();
+        owners.clear();
+        partitions.values().forEach(BalanceEngine::release);
+    }
+
+    /** Idempotency gate and ledger legs of one request; no wallet locks — the engine owns the asset type. */
+    private TransactionResponse write(Op op) {
+        Partition p = op.partition;
+        int rowsInserted = txRepo.insertIfNew(op.idempotencyKey, op.type,
+                WalletService.descriptionOrDefault(op.type, op.description), COMPLETED,
+                op.accountId, p.assetTypeId, op.amount);
+        Transaction txn = txRepo.findByIdempotencyKey(op.idempotencyKey).orElseThrow();
+        if (rowsInserted == 0) {
+            return new TransactionResponse(txn, ledgerRepo.findByTransactionId(txn.getId()), true);
+        }
+        List<LedgerLeg> legs = SPEND.equals(op.type)
+                ? List.of(LedgerLeg.debit(op.walletId, op.amount), LedgerLeg.credit(p.revenueWalletId, op.amount))
+                : List.of(LedgerLeg.debit(p.treasuryWalletId, op.amount), LedgerLeg.credit(op.walletId, op.amount));
+        return new TransactionResponse(txn, ledgerRepo.post(txn.getId(), legs), false);
+    }
+
+    /** After commit: move the balances, then answer the caller. */
+    private void applied(Op op, TransactionResponse response) {
+        if (response.isIdempotent()) {
+            unreserve(op);
+            op.done.complete(response);
+            return;
+        }
+        Partition p = op.partition;
+        for (LedgerEntry entry : response.getLedgerEntries()) {
+            committed.addAndGet(entry.getWalletId(), entry.getAmount());
+            // The spent wallet's available balance was debited by the reservation
+            if (!(SPEND.equals(op.type) && entry.getWalletId() == op.walletId)) {
+                available.addAndGet(entry.getWalletId(), entry.getAmount());
+            }
+            p.dirty.add(entry.getWalletId());
+            p.lastEntryId = Math.max(p.lastEntryId, entry.getId());
+        }
+        op.done.complete(response);
+    }
+
+    /** Saves the changed wallets of every partition; a failed partition is retried next time. */
+    private void snapshot() {
+        for (Partition[] byShard : partitions.values()) {
+            for (Partition p : byShard) {
+                if (p == null || p.dirty.isEmpty() && p.lastEntryId == p.markedEntryId) {
+                    continue;
+                }
+                Long[] ids = p.dirty.toArray(Long[]::new);
+                Long[] balances = new Long[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    balances[i] = committed.get(ids[i]);
+                }
+                long through = p.lastEntryId;
+                try {
+                    shards.onShard(p.shard, () -> readWrite().execute(status -> {
+                        checkEpoch(p);
+                        snapshotRepo.save(p.assetTypeId, ids, balances, through);
+                        return null;
+                    }));
+                    p.dirty.clear();
+                    p.markedEntryId = through;
+                } catch (OwnershipLostException lost) {
+                    fence();
+                    return;
+                } catch (RuntimeException e) {
+                    snapshotFailures.increment();
+                }
+            }
+        }
+    }
+
+    // =========================================================================
+    // LIFECYCLE
+    // =========================================================================
+
+    /**
+     * Claims and rebuilds every (shard, asset type) no other node owns, then
+     * starts the committer. Runs before the web server accepts requests.
+     */
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        available = new LongPages();
+        committed = new LongPages();
+        walletIds.clear();
+        owners.clear();
+        fenced = false;
+        Map<Long, Partition[]> loaded = new HashMap<>();
+        try {
+            for (long assetTypeId : assetTypes) {
+                Partition[] byShard = new Partition[shards.shardCount()];
+                loaded.put(assetTypeId, byShard);
+                for (int shard = 0; shard < byShard.length; shard++) {
+                    int s = shard;
+                    byShard[s] = shards.onShard(s, () -> load(s, assetTypeId));
+                }
+            }
+        } catch (RuntimeException e) {
+            loaded.values().forEach(BalanceEngine::release);
+            throw e;
+        }
+        partitions = loaded;
+        running = true;
+        committer = Thread.ofPlatform().name("balance-engine-committer").daemon().start(this::runCommitter);
+    }
+
+    /** Stops taking requests, commits what is queued, takes a final snapshot and releases ownership. */
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Queued after the committer's last look; never written
+        for (Op op; (op = queue.poll()) != null; ) {
+            unreserve(op);
+            op.done.completeExceptionally(new ServiceOverloadedException(retryAfterSeconds));
+        }
+        if (!fenced) {
+            snapshot();
+            partitions.values().forEach(BalanceEngine::release);
+        }
+        partitions = Map.of();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Before the web server starts (and so after it stops). */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    /**
+     * Runs on {@code shard}; null if another node owns the asset type there.
+     *   1. Claim the asset type with a session advisory lock
+     *   2. Refuse to start over open holds or pending transactions
+     *   3. Take the lease: the next epoch, with this node as its owner
+     *   4. Resolve the shard's Treasury and Revenue wallets
+     *   5. Load every wallet, the snapshot and the ledger tail after its mark
+     */
+    private Partition load(int shard, long assetTypeId) {
+        Connection owner = claim(shard, assetTypeId);
+        if (owner == null) {
+            return null;
+        }
+        try {
+            return readWrite().execute(status -> {
+                assetTypeRepo.findById(assetTypeId).orElseThrow(() -> new AssetTypeNotFoundException(assetTypeId));
+                if (snapshotRepo.hasOpenWork(assetTypeId)) {
+                    throw new IllegalStateException("Asset type " + assetTypeId + " has active holds, pending"
+                            + " transactions or live bonus grants on shard " + shard
+                            + "; settle them before enabling the balance engine");
+                }
+                long epoch = snapshotRepo.claimLease(assetTypeId, advertiseAddress);
+                long treasury = systemWallet(WalletService.TREASURY_NAME, assetTypeId);
+                long revenue  = systemWallet(WalletService.REVENUE_NAME, assetTypeId);
+
+                List<Long> ids = new ArrayList<>();
+                snapshotRepo.loadWallets(assetTypeId, (walletId, accountId) -> {
+                    walletIds.put(new WalletKey(accountId, assetTypeId), walletId);
+                    ids.add(walletId);
+                });
+                long mark = snapshotRepo.findMark(assetTypeId).orElse(0L);
+                snapshotRepo.loadSnapshot(assetTypeId, committed::set);
+                long last = snapshotRepo.loadTail(assetTypeId, mark, committed::addAndGet);
+                ids.forEach(id -> available.set(id, committed.get(id)));
+                return new Partition(shard, assetTypeId, owner, epoch, treasury, revenue, mark, last);
+            });
+        } catch (RuntimeException e) {
+            close(owner);
+            throw e;
+        }
+    }
+
+    /**
+     * The session holding the claim, on a connection of its own (not from the
+     * pools: it is held for the engine's lifetime); null if another session
+     * holds it.
+     */
+    private Connection claim(int shard, long assetTypeId) {
+        Connection owner = null;
+        try {
+            owner = shards.connect(shard);
+            try (PreparedStatement ps = owner.prepareStatement("SELECT pg_try_advisory_lock(?, ?)")) {
+                ps.setInt(1, LOCK_NAMESPACE);
+                ps.setInt(2, Math.toIntExact(assetTypeId));
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next() && rs.getBoolean(1)) {
+                        return owner;
+                    }
+                }
+            }
+            close(owner);
+            return null;
+        } catch (SQLException e) {
+            close(owner);
+            throw new IllegalStateException("Could not claim asset type " + assetTypeId + " on shard " + shard, e);
+        } catch (RuntimeException e) {
+            close(owner);
+            throw e;
+        }
+    }
+
+    private long systemWallet(String accountName, long assetTypeId) {
+        Account account = accountRepo.findByName(accountName)
+                .orElseThrow(() -> new AccountNotFoundException(accountName));
+        return walletRepo.getOrCreate(account.getId(), assetTypeId).getId();
+    }
+
+    private static void release(Partition[] byShard) {
+        for (Partition p : byShard) {
+            if (p != null) {
+                close(p.owner);
+            }
+        }
+    }
+
+    /** Closes an ownership connection; its advisory lock ends with the session. */
+    private static void close(Connection owner) {
+        if (owner == null) {
+            return;
+        }
+        try {
+            owner.close();
+        } catch (SQLException ignored) {
+            // Broken already: the session, and its lock, are gone
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+
+    private TransactionTemplate readWrite() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+}
@@ -0,0 +1,89 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.exception.AccountNotFoundException;
+import com.dinoventures.wallet.model.Account;
+import com.dinoventures.wallet.model.Wallet;
+import com.dinoventures.wallet.model.WalletKey;
+import com.dinoventures.wallet.repository.AccountRepository;
+import com.dinoventures.wallet.repository.BonusGrantRepository;
+import com.dinoventures.wallet.repository.WalletRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Returns the unspent part of expired bonus grants to Treasury.
+ *
+ * Lock order: the Treasury wallets first (waiting, while nothing else is
+ * held), then the users' wallets with SKIP LOCKED. The sweep therefore never
+ * waits on a live spend, and a request never waits on a sweep for longer
+ * than one batch statement.
+ *
+ * Asset types owned by the {@link BalanceEngine} are skipped: their balances
+ * live in the engine, and a ledger post here would bypass its funds check.
+ * The gateway refuses expiring bonuses for them, and the engine does not
+ * start while any grant of the asset type is live.
+ */
+@Service
+@RequiredArgsConstructor
+public class BonusExpiryService {
+
+    static final String DESCRIPTION = "Bonus expired";
+
+    private final BonusGrantRepository grantRepo;
+    private final AccountRepository    accountRepo;
+    private final WalletRepository     walletRepo;
+    private final BalanceEngine        engine;
+    private final BalanceCache         balanceCache;
+    private final WriteTimeouts        timeouts;
+
+    /**
+     * Expires up to {@code limit} due grants on the caller's shard and returns
+     * how many were claimed.
+     *
+     * Algorithm (one DB transaction):
+     *   1. Find the asset types of the oldest due grants, skipping the ones
+     *      the balance engine owns (no locks)
+     *   2. Lock their Treasury wallets in ascending ID order
+     *   3. Claim the oldest due grants by locking their wallets SKIP LOCKED
+     *   4. In one statement: close each grant and post what is left of it
+     *      (capped by the wallet's available balance) back to Treasury
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public int expireBatch(int limit) {
+        // Step 1: Asset types
+        List<Long> assetTypeIds = grantRepo.findDueAssetTypes(engine.ownedAssetTypes(), limit);
+        if (assetTypeIds.isEmpty()) {
+            return 0;
+        }
+        timeouts.apply("bonus-expiry");
+
+        // Step 2: Treasury wallets
+        Account treasury = accountRepo.findByName(WalletService.TREASURY_NAME)
+                .orElseThrow(() -> new AccountNotFoundException(WalletService.TREASURY_NAME));
+        List<Long> treasuryWalletIds = assetTypeIds.stream()
+                .map(assetTypeId -> walletRepo.getOrCreate(treasury.getId(), assetTypeId))
+                .map(Wallet::getId)
+                .sorted()
+                .toList();
+        walletRepo.lockForUpdate(treasuryWalletIds);
+
+        // Step 3: Claim
+        List<Long> claimed = grantRepo.claimDue(assetTypeIds, limit);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        // Step 4: Close and post
+        List<WalletKey> changed = new ArrayList<>(grantRepo.expire(claimed, treasury.getId(), DESCRIPTION));
+        if (!changed.isEmpty()) {
+            assetTypeIds.forEach(assetTypeId -> changed.add(new WalletKey(treasury.getId(), assetTypeId)));
+            balanceCache.invalidateAfterCommit(changed);
+        }
+        return claimed.size();
+    }
+}
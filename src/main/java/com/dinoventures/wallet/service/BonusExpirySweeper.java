@@ -0,0 +1,39 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.Bulkhead;
+import com.dinoventures.wallet.config.ShardRouter;
+import com.dinoventures.wallet.config.Workload;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Expires due bonus grants in batches of {@code wallet.bonus.sweep-batch-size},
+ * one DB transaction per batch, until a batch comes back short.
+ *
+ * Runs on the batch connection pool and sweeps each shard in turn. Safe on
+ * every node at once: concurrent sweeps claim disjoint grants.
+ */
+@Component
+@RequiredArgsConstructor
+@Bulkhead(Workload.BATCH)
+@ConditionalOnProperty(name = "wallet.bonus.sweep.enabled", havingValue = "true", matchIfMissing = true)
+public class BonusExpirySweeper {
+
+    private final BonusExpiryService bonusExpiryService;
+    private final ShardRouter        shards;
+
+    @Value("${wallet.bonus.sweep-batch-size:1000}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${wallet.bonus.sweep-interval-ms:5000}")
+    public void sweep() {
+        shards.onEachShard(shard -> {
+            while (bonusExpiryService.expireBatch(batchSize) == batchSize) {
+                // full batch — more may be due
+            }
+        });
+    }
+}
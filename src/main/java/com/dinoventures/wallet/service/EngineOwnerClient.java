@@ -0,0 +1,19 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.model.dto.TransactionResponse;
+
+/**
+ * Sends a synchronous top-up, bonus or spend to the node whose
+ * {@link BalanceEngine} owns its (shard, asset type). Errors come back as the
+ * exceptions the owner threw, so callers answer as if it ran here.
+ */
+public interface EngineOwnerClient {
+
+    /**
+     * @param owner     the owner's address (host:port) from its lease
+     * @param type      "topup", "bonus" or "spend"
+     * @param timeoutMs deadline of the remote call
+     */
+    TransactionResponse submit(String owner, String type, long accountId, long assetTypeId, long amount,
+                               String description, String idempotencyKey, long timeoutMs);
+}
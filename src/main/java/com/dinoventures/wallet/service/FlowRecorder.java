@@ -0,0 +1,123 @@
+package com.dinoventures.wallet.service;
+
+import jdk.jfr.EventType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Emits JFR events for the write flows: one {@link WalletFlowEvent} per flow
+ * and one {@link WalletPhaseEvent} per phase, so a slow request can be lined
+ * up against GC, safepoint and virtual-thread pinning events in the same
+ * recording.
+ *
+ * Usage inside a {@code @Transactional} flow:
+ *
+ *   1. {@link #begin} — opens the flow and its first phase ("validate")
+ *   2. {@link #phase} — ends the current phase and starts the next
+ *   3. Commit/rollback ends the flow (a transaction synchronization)
+ *
+ * Off unless a recording enables com.dinoventures.wallet.Flow: {@link #begin}
+ * then costs one flag read and every other call one ThreadLocal read.
+ */
+@Component
+public class FlowRecorder {
+
+    private static final EventType FLOW_TYPE = EventType.getEventType(WalletFlowEvent.class);
+
+    private static final ThreadLocal<Flow> CURRENT = new ThreadLocal<>();
+
+    private static final class Flow {
+        final WalletFlowEvent event = new WalletFlowEvent();
+        WalletPhaseEvent phase;
+        int phaseStatementsBefore;
+    }
+
+    public void begin(String flow, long accountId, long assetTypeId) {
+        if (!FLOW_TYPE.isEnabled() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Flow current = new Flow();
+        current.event.flow = flow;
+        current.event.accountId = accountId;
+        current.event.assetTypeId = assetTypeId;
+        current.event.outcome = "unknown";
+        current.event.begin();
+        CURRENT.set(current);
+        startPhase(current, "validate");
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                phase("commit");
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                end(status == STATUS_COMMITTED ? "committed"
+                        : status == STATUS_ROLLED_BACK ? "rolled_back" : "unknown");
+            }
+        });
+    }
+
+    public void phase(String name) {
+        Flow current = CURRENT.get();
+        if (current != null) {
+            endPhase(current);
+            startPhase(current, name);
+        }
+    }
+
+    public void idempotentHit() {
+        Flow current = CURRENT.get();
+        if (current != null) {
+            current.event.idempotentHit = true;
+        }
+    }
+
+    public void lockAcquired(List<Long> walletIds, long waitNanos) {
+        Flow current = CURRENT.get();
+        if (current != null) {
+            current.event.walletIds = walletIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+            current.event.lockWait += waitNanos;
+        }
+    }
+
+    /** Called for every JDBC statement created (see JdbcConfig#jdbcTemplate). */
+    public void statementIssued() {
+        Flow current = CURRENT.get();
+        if (current != null) {
+            current.event.statements++;
+        }
+    }
+
+    private void end(String outcome) {
+        Flow current = CURRENT.get();
+        if (current == null) {
+            return;
+        }
+        CURRENT.remove();
+        endPhase(current);
+        current.event.outcome = outcome;
+        current.event.commit();
+    }
+
+    private static void startPhase(Flow current, String name) {
+        WalletPhaseEvent phase = new WalletPhaseEvent();
+        phase.flow = current.event.flow;
+        phase.phase = name;
+        phase.accountId = current.event.accountId;
+        phase.begin();
+        current.phase = phase;
+        current.phaseStatementsBefore = current.event.statements;
+    }
+
+    private static void endPhase(Flow current) {
+        WalletPhaseEvent phase = current.phase;
+        phase.statements = current.event.statements - current.phaseStatementsBefore;
+        phase.commit();
+    }
+}
@@ -0,0 +1,39 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.Bulkhead;
+import com.dinoventures.wallet.config.ShardRouter;
+import com.dinoventures.wallet.config.Workload;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Expires overdue holds in batches of {@code wallet.holds.sweep-batch-size},
+ * one DB transaction per batch, until a batch comes back short.
+ *
+ * Runs on the batch connection pool, never competing with request traffic,
+ * and sweeps each shard in turn.
+ */
+@Component
+@RequiredArgsConstructor
+@Bulkhead(Workload.BATCH)
+@ConditionalOnProperty(name = "wallet.holds.sweep.enabled", havingValue = "true", matchIfMissing = true)
+public class HoldExpirySweeper {
+
+    private final HoldService holdService;
+    private final ShardRouter shards;
+
+    @Value("${wallet.holds.sweep-batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${wallet.holds.sweep-interval-ms:1000}")
+    public void sweep() {
+        shards.onEachShard(shard -> {
+            while (holdService.expireBatch(batchSize) == batchSize) {
+                // full batch — more may be overdue
+            }
+        });
+    }
+}
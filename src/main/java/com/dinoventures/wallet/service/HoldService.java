@@ -0,0 +1,270 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.ShardKey;
+import com.dinoventures.wallet.exception.AccountNotFoundException;
+import com.dinoventures.wallet.exception.AssetTypeNotFoundException;
+import com.dinoventures.wallet.exception.EngineManagedAssetException;
+import com.dinoventures.wallet.exception.HoldNotFoundException;
+import com.dinoventures.wallet.exception.HoldStateException;
+import com.dinoventures.wallet.exception.InsufficientFundsException;
+import com.dinoventures.wallet.model.Account;
+import com.dinoventures.wallet.model.Hold;
+import com.dinoventures.wallet.model.LedgerEntry;
+import com.dinoventures.wallet.model.LedgerLeg;
+import com.dinoventures.wallet.model.Transaction;
+import com.dinoventures.wallet.model.Wallet;
+import com.dinoventures.wallet.model.WalletKey;
+import com.dinoventures.wallet.model.dto.AuthorizeHoldRequest;
+import com.dinoventures.wallet.model.dto.CaptureHoldRequest;
+import com.dinoventures.wallet.model.dto.HoldResponse;
+import com.dinoventures.wallet.model.dto.TransactionResponse;
+import com.dinoventures.wallet.repository.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Authorize/capture holds: reserve funds now, turn them into a spend later.
+ *
+ * An active hold is counted in its wallet's held_amount, which every funds
+ * check subtracts from the ledger balance (available = balance - held). The
+ * counter is only ever changed under the wallet's FOR UPDATE lock, so it is
+ * exact without re-summing the holds table.
+ *
+ * Lock order is always wallet(s) → hold row, shared with the expiry sweep.
+ */
+@Service
+@RequiredArgsConstructor
+public class HoldService {
+
+    private final AccountRepository     accountRepo;
+    private final AssetTypeRepository   assetTypeRepo;
+    private final WalletRepository      walletRepo;
+    private final TransactionRepository txRepo;
+    private final LedgerRepository      ledgerRepo;
+    private final HoldRepository        holdRepo;
+    private final WriteAdmissionControl admission;
+    private final BalanceCache          balanceCache;
+    private final WriteTimeouts         timeouts;
+    private final RequestDeadline       deadline;
+    private final BalanceEngine         engine;
+    private final BonusGrantRepository  bonusGrantRepo;
+
+    @Value("${wallet.holds.default-ttl-seconds:900}")
+    private long defaultTtlSeconds;
+
+    /**
+     * Authorize: reserves {@code amount} against the wallet's available balance.
+     *
+     * Algorithm (inside a single DB transaction):
+     *   1. Resolve/create the user's wallet and lock it
+     *   2. Idempotency gate: INSERT hold ON CONFLICT DO NOTHING
+     *   3. If duplicate key → return the existing hold (idempotent=true)
+     *   4. available = SUM(ledger) - held_amount; if < amount → 422 (rollback)
+     *   5. held_amount += amount
+     *
+     * Not available for asset types owned by the {@link BalanceEngine}.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public HoldResponse authorize(@ShardKey AuthorizeHoldRequest req, String idempotencyKey) {
+        if (engine.owns(req.getAssetTypeId())) {
+            throw new EngineManagedAssetException(req.getAssetTypeId(), "holds");
+        }
+        timeouts.apply("authorize");
+        accountRepo.findById(req.getAccountId())
+                .orElseThrow(() -> new AccountNotFoundException(req.getAccountId()));
+        assetTypeRepo.findById(req.getAssetTypeId())
+                .orElseThrow(() -> new AssetTypeNotFoundException(req.getAssetTypeId()));
+
+        // Step 1: Lock the wallet before touching the hold row (wallet → hold order)
+        Wallet wallet = walletRepo.getOrCreate(req.getAccountId(), req.getAssetTypeId());
+        lockWallets(List.of(wallet.getId()));
+
+        // Step 2+3: Idempotency gate
+        long ttlSeconds = req.getTtlSeconds() != null ? req.getTtlSeconds() : defaultTtlSeconds;
+        int rowsInserted = holdRepo.insertIfNew(idempotencyKey, wallet.getId(), req.getAccountId(),
+                req.getAssetTypeId(), req.getAmount(), ttlSeconds, req.getDescription());
+        Hold hold = holdRepo.findByIdempotencyKey(idempotencyKey).orElseThrow();
+        if (rowsInserted == 0) {
+            return new HoldResponse(hold, true);
+        }
+
+        // Step 4: Funds check inside the lock
+        long available = ledgerRepo.getBalance(req.getAccountId(), req.getAssetTypeId())
+                - walletRepo.getHeldAmount(wallet.getId());
+        if (available < req.getAmount()) {
+            throw new InsufficientFundsException(
+                    req.getAccountId(), req.getAssetTypeId(), available, req.getAmount());
+        }
+
+        // Step 5: Reserve
+        walletRepo.adjustHeldAmount(wallet.getId(), req.getAmount());
+        balanceCache.invalidateAfterCommit(wallet);
+        return new HoldResponse(hold, false);
+    }
+
+    /**
+     * Capture: converts an active hold into a spend (User −N, Revenue +N).
+     * Capturing less than the held amount releases the remainder.
+     *
+     * Algorithm:
+     *   1. Idempotency gate on the spend transaction (replay → idempotent=true)
+     *   2. Lock user + Revenue wallets in ascending ID order, then the hold
+     *   3. Hold must be active, unexpired, and cover the captured amount
+     *   4. Insert two balanced ledger entries — no balance check needed, the
+     *      funds were reserved at authorize time
+     *   5. Release the whole hold from held_amount and mark it captured
+     *   6. Draw the captured amount from the wallet's expiring bonuses first
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public TransactionResponse capture(@ShardKey long holdId, CaptureHoldRequest req, String idempotencyKey) {
+        timeouts.apply("capture");
+        Hold hold = holdRepo.findById(holdId).orElseThrow(() -> new HoldNotFoundException(holdId));
+        long amount = req.getAmount() != null ? req.getAmount() : hold.getAmount();
+
+        // Step 1: Idempotency gate
+        String description = req.getDescription() != null ? req.getDescription()
+                : hold.getDescription() != null ? hold.getDescription() : "Hold capture";
+        int rowsInserted = txRepo.insertIfNew(idempotencyKey, "spend", description, "completed",
+                hold.getAccountId(), hold.getAssetTypeId(), amount);
+        Transaction txn = txRepo.findByIdempotencyKey(idempotencyKey).orElseThrow();
+        if (rowsInserted == 0) {
+            return new TransactionResponse(txn, ledgerRepo.findByTransactionId(txn.getId()), true);
+        }
+
+        // Step 2: Lock wallets, then the hold
+        Account revenue = accountRepo.findByName(WalletService.REVENUE_NAME)
+                .orElseThrow(() -> new AccountNotFoundException(WalletService.REVENUE_NAME));
+        Wallet revenueWallet = walletRepo.getOrCreate(revenue.getId(), hold.getAssetTypeId());
+        List<Long> sortedIds = Stream.of(hold.getWalletId(), revenueWallet.getId())
+                .sorted()
+                .toList();
+        lockWallets(sortedIds);
+        hold = holdRepo.lockById(holdId).orElseThrow();
+
+        // Step 3: Validate state under the lock
+        requireActive(hold, "captured");
+        if (holdRepo.isExpired(holdId)) {
+            throw new HoldStateException("Hold " + holdId + " has expired");
+        }
+        if (amount > hold.getAmount()) {
+            throw new HoldStateException(String.format(
+                    "Cannot capture %d from hold %d: only %d is held", amount, holdId, hold.getAmount()));
+        }
+
+        // Step 4: Double-entry ledger (SUM = 0, balanced)
+        List<LedgerEntry> entries = ledgerRepo.post(txn.getId(), List.of(
+                LedgerLeg.debit(hold.getWalletId(),     amount),    // User debited
+                LedgerLeg.credit(revenueWallet.getId(), amount)));  // Revenue credited
+
+        // Step 5: Release the reservation (including any uncaptured remainder)
+        walletRepo.adjustHeldAmount(hold.getWalletId(), -hold.getAmount());
+        holdRepo.markCaptured(holdId, amount, txn.getId());
+
+        // Step 6: Bonus-first consumption, as for a direct spend
+        bonusGrantRepo.consume(hold.getWalletId(), amount);
+        balanceCache.invalidateAfterCommit(List.of(
+                new WalletKey(hold.getAccountId(), hold.getAssetTypeId()),
+                new WalletKey(revenue.getId(), hold.getAssetTypeId())));
+
+        return new TransactionResponse(txn, entries, false);
+    }
+
+    /**
+     * Release: cancels an active hold, returning its amount to the available
+     * balance. Releasing an already-released hold is a no-op replay.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public HoldResponse release(@ShardKey long holdId) {
+        timeouts.apply("release");
+        Hold hold = holdRepo.findById(holdId).orElseThrow(() -> new HoldNotFoundException(holdId));
+
+        lockWallets(List.of(hold.getWalletId()));
+        hold = holdRepo.lockById(holdId).orElseThrow();
+
+        if ("released".equals(hold.getStatus())) {
+            return new HoldResponse(hold, true);
+        }
+        requireActive(hold, "released");
+
+        walletRepo.adjustHeldAmount(hold.getWalletId(), -hold.getAmount());
+        holdRepo.markReleased(holdId);
+        balanceCache.invalidateAfterCommit(List.of(new WalletKey(hold.getAccountId(), hold.getAssetTypeId())));
+        return new HoldResponse(holdRepo.findById(holdId).orElseThrow(), false);
+    }
+
+    @Transactional(readOnly = true)
+    public Hold getHold(@ShardKey long holdId) {
+        return holdRepo.findById(holdId).orElseThrow(() -> new HoldNotFoundException(holdId));
+    }
+
+    /**
+     * Expires up to {@code limit} overdue holds on the caller's shard and
+     * returns how many were expired.
+     *
+     * Candidates are read without locks; their wallets are then locked with
+     * SKIP LOCKED (ascending order) so the sweep never queues behind live
+     * requests — holds on a busy wallet are simply left for the next pass.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public int expireBatch(int limit) {
+        List<Hold> candidates = holdRepo.findExpired(limit);
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        timeouts.apply("hold-expiry");
+
+        List<Long> walletIds = candidates.stream().map(Hold::getWalletId).distinct().sorted().toList();
+        Set<Long> locked = new HashSet<>(walletRepo.tryLockForUpdate(walletIds));
+        List<Long> holdIds = candidates.stream()
+                .filter(h -> locked.contains(h.getWalletId()))
+                .map(Hold::getId)
+                .toList();
+        if (holdIds.isEmpty()) {
+            return 0;
+        }
+
+        List<Hold> expired = holdRepo.expire(holdIds);
+        Map<Long, Long> releasedByWallet = expired.stream()
+                .collect(Collectors.groupingBy(Hold::getWalletId, Collectors.summingLong(Hold::getAmount)));
+        releasedByWallet.forEach((walletId, released) -> walletRepo.adjustHeldAmount(walletId, -released));
+        balanceCache.invalidateAfterCommit(expired.stream()
+                .map(h -> new WalletKey(h.getAccountId(), h.getAssetTypeId()))
+                .distinct()
+                .toList());
+        return expired.size();
+    }
+
+    private static void requireActive(Hold hold, String attempted) {
+        if (!"active".equals(hold.getStatus())) {
+            throw new HoldStateException(String.format(
+                    "Hold %d is %s and cannot be %s", hold.getId(), hold.getStatus(), attempted));
+        }
+    }
+
+    /**
+     * Locks wallets (caller passes ascending ID order) and feeds the observed
+     * lock wait into admission control's adaptive limit — including waits cut
+     * short by lock_timeout, which are the strongest overload signal. A
+     * caller whose deadline passed while queued is shed before any writes.
+     */
+    private void lockWallets(List<Long> sortedIds) {
+        long start = System.nanoTime();
+        Map<WalletKey, Long> rowWaits = Map.of();
+        try {
+            rowWaits = walletRepo.lockForUpdate(sortedIds);
+        } finally {
+            admission.recordLockWait(System.nanoTime() - start, rowWaits);
+        }
+        deadline.check("after_lock");
+    }
+}
@@ -0,0 +1,239 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.model.WalletKey;
+import com.dinoventures.wallet.model.dto.HotWalletResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Finds the wallets that are hot right now, in bounded memory.
+ *
+ * Write arrivals and their lock waits go into a space-saving top-K sketch:
+ * at most {@code top-k} wallets are tracked, and an untracked arrival evicts
+ * the smallest counter and inherits its count as error. A wallet's
+ * guaranteed count (count - error) is therefore a lower bound, so a wallet
+ * is never flagged hot by sketch error alone. Arrivals include the system
+ * wallet a write posts against, and lock waits are recorded per locked row
+ * against the wallet that was actually contended.
+ *
+ * The sketch is split into stripes by wallet, each with its own lock and
+ * at least {@value #MIN_STRIPE_CAPACITY} counters, so concurrent writes to
+ * different wallets rarely meet on the same monitor. Each stripe is rebuilt
+ * every {@code window-ms}, when an arrival or {@link #hotWallets} finds its
+ * window over. Each completed window is evaluated with hysteresis:
+ *
+ *   becomes hot   rate ≥ hot-arrivals-per-second, or at least min-arrivals
+ *                 writes averaging ≥ hot-lock-wait-ms of lock wait
+ *   cools down    both below half of those thresholds
+ *
+ * {@link #isHot} is a map lookup; {@link WriteAdmissionControl} uses it to
+ * serialize a hot wallet's writes in memory.
+ */
+@Component
+public class HotWalletDetector {
+
+    static final int MIN_STRIPE_CAPACITY = 16;
+    private static final int MAX_STRIPES = 16;
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final double hotRate;
+    private final long hotLockWaitNanos;
+    private final int minArrivals;
+    private final LongSupplier clock;
+
+    private final Stripe[] stripes;
+
+    private final ConcurrentHashMap<WalletKey, HotWalletResponse> hot = new ConcurrentHashMap<>();
+
+    private final Counter becameHot;
+    private final Counter cooledDown;
+
+    private static final class Counts {
+        long arrivals;
+        long error;
+        long lockWaitNanos;
+        long lockWaitSamples;
+    }
+
+    /** One slice of the sketch; every field guarded by the stripe itself. */
+    private static final class Stripe {
+        final Map<WalletKey, Counts> sketch = new HashMap<>();
+        final int capacity;
+        long windowStart;
+
+        Stripe(int capacity, long windowStart) {
+            this.capacity = capacity;
+            this.windowStart = windowStart;
+        }
+    }
+
+    @Autowired
+    public HotWalletDetector(
+            MeterRegistry registry,
+            @Value("${wallet.hot-wallets.enabled:true}") boolean enabled,
+            @Value("${wallet.hot-wallets.window-ms:10000}") long windowMs,
+            @Value("${wallet.hot-wallets.top-k:64}") int capacity,
+            @Value("${wallet.hot-wallets.hot-arrivals-per-second:50}") double hotRate,
+            @Value("${wallet.hot-wallets.hot-lock-wait-ms:10}") long hotLockWaitMs,
+            @Value("${wallet.hot-wallets.min-arrivals:20}") int minArrivals) {
+        this(registry, enabled, windowMs, capacity, hotRate, hotLockWaitMs, minArrivals, System::nanoTime);
+    }
+
+    HotWalletDetector(MeterRegistry registry, boolean enabled, long windowMs, int capacity, double hotRate,
+                      long hotLockWaitMs, int minArrivals, LongSupplier clock) {
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.hotRate = hotRate;
+        this.hotLockWaitNanos = TimeUnit.MILLISECONDS.toNanos(hotLockWaitMs);
+        this.minArrivals = minArrivals;
+        this.clock = clock;
+
+        int stripeCount = Math.max(1, Math.min(MAX_STRIPES, capacity / MIN_STRIPE_CAPACITY));
+        this.stripes = new Stripe[stripeCount];
+        long now = clock.getAsLong();
+        for (int i = 0; i < stripeCount; i++) {
+            // Spread the remainder so the stripes add up to top-k
+            this.stripes[i] = new Stripe(capacity / stripeCount + (i < capacity % stripeCount ? 1 : 0), now);
+        }
+
+        this.becameHot = Counter.builder("wallet.hot_wallets.transitions").tag("to", "hot").register(registry);
+        this.cooledDown = Counter.builder("wallet.hot_wallets.transitions").tag("to", "cool").register(registry);
+        Gauge.builder("wallet.hot_wallets", hot::size).register(registry);
+    }
+
+    /** Counts one write arriving for {@code wallet}. */
+    public void recordArrival(WalletKey wallet) {
+        if (!enabled) {
+            return;
+        }
+        Stripe stripe = stripeOf(wallet);
+        synchronized (stripe) {
+            rotateIfDue(stripe);
+            Counts counts = stripe.sketch.get(wallet);
+            if (counts == null) {
+                counts = admit(stripe, wallet);
+            }
+            counts.arrivals++;
+        }
+    }
+
+    /** Attributes the wait for {@code wallet}'s row lock to it, if it is tracked. */
+    public void recordLockWait(WalletKey wallet, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        Stripe stripe = stripeOf(wallet);
+        synchronized (stripe) {
+            Counts counts = stripe.sketch.get(wallet);
+            if (counts != null) {
+                counts.lockWaitNanos += nanos;
+                counts.lockWaitSamples++;
+            }
+        }
+    }
+
+    public boolean isHot(WalletKey wallet) {
+        return !hot.isEmpty() && hot.containsKey(wallet);
+    }
+
+    /** Current hot wallets, hottest first. */
+    public List<HotWalletResponse> hotWallets() {
+        if (enabled) {
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    rotateIfDue(stripe);
+                }
+            }
+        }
+        List<HotWalletResponse> result = new ArrayList<>(hot.values());
+        result.sort(Comparator.comparing(HotWalletResponse::getArrivalsPerSecond).reversed());
+        return result;
+    }
+
+    private Stripe stripeOf(WalletKey wallet) {
+        return stripes[(wallet.hashCode() & 0x7fffffff) % stripes.length];
+    }
+
+    private static Counts admit(Stripe stripe, WalletKey wallet) {
+        Map<WalletKey, Counts> sketch = stripe.sketch;
+        Counts counts = new Counts();
+        if (sketch.size() >= stripe.capacity) {
+            // Space-saving: replace the smallest counter, inheriting its count as error
+            WalletKey victim = null;
+            long min = Long.MAX_VALUE;
+            for (Map.Entry<WalletKey, Counts> e : sketch.entrySet()) {
+                if (e.getValue().arrivals < min) {
+                    min = e.getValue().arrivals;
+                    victim = e.getKey();
+                }
+            }
+            sketch.remove(victim);
+            counts.arrivals = min;
+            counts.error = min;
+        }
+        sketch.put(wallet, counts);
+        return counts;
+    }
+
+    private void rotateIfDue(Stripe stripe) {
+        long now = clock.getAsLong();
+        long elapsed = now - stripe.windowStart;
+        if (elapsed < windowNanos) {
+            return;
+        }
+        // An idle gap longer than one window means the last window is stale
+        evaluate(stripe, elapsed < 2 * windowNanos ? stripe.sketch : Map.of());
+        stripe.sketch.clear();
+        stripe.windowStart = now;
+    }
+
+    /** Runs under the stripe's lock; touches only the stripe's own wallets in {@code hot}. */
+    private void evaluate(Stripe stripe, Map<WalletKey, Counts> window) {
+        double seconds = windowNanos / 1e9;
+        for (Map.Entry<WalletKey, Counts> e : window.entrySet()) {
+            Counts c = e.getValue();
+            long guaranteed = c.arrivals - c.error;
+            double rate = guaranteed / seconds;
+            long avgWait = c.lockWaitSamples == 0 ? 0 : c.lockWaitNanos / c.lockWaitSamples;
+            boolean wasHot = hot.containsKey(e.getKey());
+            double rateThreshold = wasHot ? hotRate / 2 : hotRate;
+            long waitThreshold = wasHot ? hotLockWaitNanos / 2 : hotLockWaitNanos;
+            boolean isHot = rate >= rateThreshold || (guaranteed >= minArrivals && avgWait >= waitThreshold);
+            if (isHot) {
+                HotWalletResponse previous = hot.get(e.getKey());
+                hot.put(e.getKey(), new HotWalletResponse(
+                        e.getKey().getAccountId(), e.getKey().getAssetTypeId(), rate, avgWait / 1e6,
+                        previous != null ? previous.getHotSince() : Instant.now()));
+                if (!wasHot) {
+                    becameHot.increment();
+                }
+            } else if (wasHot) {
+                hot.remove(e.getKey());
+                cooledDown.increment();
+            }
+        }
+        // Hot wallets that fell out of the sketch entirely have cooled down
+        hot.keySet().removeIf(key -> {
+            if (stripeOf(key) != stripe || window.containsKey(key)) {
+                return false;
+            }
+            cooledDown.increment();
+            return true;
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.Bulkhead;
+import com.dinoventures.wallet.config.ShardRouter;
+import com.dinoventures.wallet.config.Workload;
+import com.dinoventures.wallet.repository.IdempotencyKeyRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Archives idempotency keys older than {@code wallet.idempotency.replay-window-hours}
+ * in batches of {@code wallet.idempotency.purge-batch-size} (one statement, and
+ * so one short transaction, per batch) until a batch comes back short. Keeps
+ * the gate's primary-key index to roughly one window of keys.
+ *
+ * Runs on the batch connection pool, never competing with request traffic,
+ * and purges each shard in turn.
+ */
+@Component
+@RequiredArgsConstructor
+@Bulkhead(Workload.BATCH)
+@ConditionalOnProperty(name = "wallet.idempotency.purge.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyKeyPurger {
+
+    private final IdempotencyKeyRepository keyRepo;
+    private final ShardRouter              shards;
+
+    @Value("${wallet.idempotency.replay-window-hours:24}")
+    private long replayWindowHours;
+
+    @Value("${wallet.idempotency.purge-batch-size:5000}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${wallet.idempotency.purge-interval-ms:60000}")
+    public void purge() {
+        long windowSeconds = TimeUnit.HOURS.toSeconds(replayWindowHours);
+        shards.onEachShard(shard -> {
+            while (keyRepo.archiveExpired(windowSeconds, batchSize) == batchSize) {
+                // full batch — more may be expired
+            }
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.Bulkhead;
+import com.dinoventures.wallet.config.Workload;
+import com.dinoventures.wallet.exception.AccountNotFoundException;
+import com.dinoventures.wallet.model.ImportRow;
+import com.dinoventures.wallet.model.dto.ImportRejection;
+import com.dinoventures.wallet.repository.AccountImportRepository;
+import com.dinoventures.wallet.repository.AccountRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Applies one chunk of an account import on the caller's shard. Runs on the
+ * batch connection pool; the orchestration lives in {@link AccountImportService}.
+ */
+@Service
+@RequiredArgsConstructor
+@Bulkhead(Workload.BATCH)
+public class ImportChunkService {
+
+    static final String DESCRIPTION = "Opening balance (account import)";
+
+    private final AccountImportRepository importRepo;
+    private final AccountRepository       accountRepo;
+    private final WriteTimeouts           timeouts;
+
+    /** Outcome of one chunk. */
+    record ChunkResult(long accountsCreated, long walletsCreated, long balancesPosted, long amountPosted,
+                       List<ImportRejection> rejections) {}
+
+    /**
+     * Algorithm (one DB transaction — the chunk is applied entirely or not at all):
+     *   1. COPY the rows into account_import_rows under a fresh chunk id
+     *   2. Reject names that belong to system accounts
+     *   3. Create missing accounts and wallets (ON CONFLICT DO NOTHING)
+     *   4. Lock the receiving user wallets in ascending ID order
+     *   5. Reject duplicate wallets and wallets that already have history
+     *   6. Lock Treasury's wallets, then post each remaining opening balance as
+     *      a topup: Treasury −N, user +N. Treasury is locked only for the end
+     *      of the chunk, since live top-ups and bonuses lock it too
+     *   7. Read the rejections and empty the chunk
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public ChunkResult apply(List<ImportRow> rows) {
+        timeouts.apply("import");
+        long treasuryId = accountRepo.findByName(WalletService.TREASURY_NAME)
+                .orElseThrow(() -> new AccountNotFoundException(WalletService.TREASURY_NAME))
+                .getId();
+        UUID chunkId = UUID.randomUUID();
+
+        // Step 1: Stage
+        importRepo.stage(chunkId, rows);
+
+        // Step 2+3: Accounts and wallets
+        importRepo.rejectSystemNames(chunkId);
+        long accountsCreated = importRepo.createAccounts(chunkId);
+        long walletsCreated = importRepo.createWallets(chunkId, treasuryId);
+
+        // Step 4+5: Lock, then decide which balances may be posted
+        importRepo.lockWallets(chunkId);
+        importRepo.rejectUnpostable(chunkId);
+
+        // Step 6: Opening balances
+        importRepo.lockTreasury(chunkId, treasuryId);
+        long[] posted = importRepo.postOpeningBalances(chunkId, treasuryId, DESCRIPTION);
+
+        // Step 7: Report and clean up
+        List<ImportRejection> rejections = importRepo.findRejections(chunkId);
+        importRepo.clear(chunkId);
+        return new ChunkResult(accountsCreated, walletsCreated, posted[0], posted[1], rejections);
+    }
+}
@@ -0,0 +1,168 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.model.ImportRow;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses account import input, one line at a time, into {@link ImportRow}s.
+ *
+ *   CSV    — a header line naming the columns (name, asset_type_id,
+ *            opening_balance; only name is required), then one row per
+ *            line. Fields may be double-quoted ("" for a quote); a row may
+ *            not span lines.
+ *   NDJSON — one object per line with the same field names.
+ *
+ * A malformed or invalid row throws {@link RejectedRow}; the import records
+ * it and carries on. Problems with the input as a whole (unknown or missing
+ * columns) are IllegalArgumentExceptions.
+ */
+final class ImportRowParser {
+
+    static final int MAX_NAME_LENGTH = 255;
+
+    private static final List<String> COLUMNS = List.of("name", "asset_type_id", "opening_balance");
+
+    /** A row that cannot be imported; cheap to throw (no stack trace). */
+    static final class RejectedRow extends RuntimeException {
+        RejectedRow(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+
+    private final ObjectMapper json;
+    private final boolean csv;
+    private int[] columns;   // CSV: position of name, asset_type_id, opening_balance (-1 = absent)
+
+    ImportRowParser(boolean csv, ObjectMapper json) {
+        this.csv = csv;
+        this.json = json;
+    }
+
+    /** Whether the next non-blank line is the CSV header rather than a row. */
+    boolean expectsHeader() {
+        return csv && columns == null;
+    }
+
+    void header(String line) {
+        List<String> names = splitCsv(line);
+        columns = new int[COLUMNS.size()];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < names.size(); i++) {
+            int known = COLUMNS.indexOf(names.get(i).trim());
+            if (known < 0) {
+                throw new IllegalArgumentException("Unknown CSV column: " + names.get(i).trim());
+            }
+            columns[known] = i;
+        }
+        if (columns[0] < 0) {
+            throw new IllegalArgumentException("CSV header must include a name column");
+        }
+    }
+
+    ImportRow parse(long lineNo, String line) {
+        String name;
+        String assetTypeId;
+        String amount;
+        if (csv) {
+            List<String> fields;
+            try {
+                fields = splitCsv(line);
+            } catch (IllegalArgumentException e) {
+                throw new RejectedRow(e.getMessage());
+            }
+            name = field(fields, columns[0]);
+            assetTypeId = field(fields, columns[1]);
+            amount = field(fields, columns[2]);
+        } else {
+            JsonNode node;
+            try {
+                node = json.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new RejectedRow("not a JSON object");
+            }
+            if (!node.isObject()) {
+                throw new RejectedRow("not a JSON object");
+            }
+            name = text(node.get("name"));
+            assetTypeId = text(node.get("asset_type_id"));
+            amount = text(node.get("opening_balance"));
+        }
+        return validate(lineNo, name, assetTypeId, amount);
+    }
+
+    private static ImportRow validate(long lineNo, String name, String assetTypeId, String amount) {
+        if (name == null || name.isBlank()) {
+            throw new RejectedRow("name is required");
+        }
+        if (name.length() > MAX_NAME_LENGTH) {
+            throw new RejectedRow("name is longer than " + MAX_NAME_LENGTH + " characters");
+        }
+        Long asset = assetTypeId == null ? null : number(assetTypeId, "asset_type_id");
+        long balance = amount == null ? 0 : number(amount, "opening_balance");
+        if (balance < 0) {
+            throw new RejectedRow("opening_balance must not be negative");
+        }
+        if (balance > 0 && asset == null) {
+            throw new RejectedRow("opening_balance needs an asset_type_id");
+        }
+        return new ImportRow(lineNo, name, asset, balance);
+    }
+
+    private static long number(String value, String field) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RejectedRow(field + " is not a whole number");
+        }
+    }
+
+    private static String field(List<String> fields, int index) {
+        if (index < 0 || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String text(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    /** Splits one CSV line (RFC 4180 quoting, no embedded line breaks). */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,185 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.Bulkhead;
+import com.dinoventures.wallet.config.Workload;
+import com.dinoventures.wallet.exception.AccountNotFoundException;
+import com.dinoventures.wallet.exception.AssetTypeNotFoundException;
+import com.dinoventures.wallet.exception.InsufficientFundsException;
+import com.dinoventures.wallet.model.IngestOperation;
+import com.dinoventures.wallet.model.LedgerEntry;
+import com.dinoventures.wallet.model.LedgerLeg;
+import com.dinoventures.wallet.model.Transaction;
+import com.dinoventures.wallet.model.Wallet;
+import com.dinoventures.wallet.model.WalletKey;
+import com.dinoventures.wallet.model.dto.TransactionResponse;
+import com.dinoventures.wallet.repository.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies one group of streamed operations on the caller's shard, with one
+ * commit for the whole group. Runs on the ingest connection pool, so a
+ * settlement stream neither waits behind batch jobs nor takes connections
+ * from request-path writes; the pipeline lives in {@link IngestionService}.
+ */
+@Service
+@RequiredArgsConstructor
+@Bulkhead(Workload.INGEST)
+public class IngestGroupService {
+
+    private static final String COMPLETED = "completed";
+
+    private final AccountRepository     accountRepo;
+    private final AssetTypeRepository   assetTypeRepo;
+    private final WalletRepository      walletRepo;
+    private final TransactionRepository txRepo;
+    private final LedgerRepository      ledgerRepo;
+    private final BonusGrantRepository  bonusGrantRepo;
+    private final BalanceCache          balanceCache;
+    private final WriteTimeouts         timeouts;
+
+    /** Outcome of one operation: its response, or the error it failed with on its own. */
+    record Outcome(TransactionResponse response, RuntimeException error) {
+
+        static Outcome applied(TransactionResponse response) {
+            return new Outcome(response, null);
+        }
+
+        static Outcome failed(RuntimeException error) {
+            return new Outcome(null, error);
+        }
+    }
+
+    /**
+     * Returns one outcome per operation, in the same order. An operation that
+     * fails on its own (unknown account, insufficient funds) writes nothing
+     * and does not affect the others; any other error rolls back the group.
+     *
+     * Algorithm (one DB transaction):
+     *   1. Look up every idempotency key of the group in one statement
+     *   2. Validate accounts and asset types; resolve the wallets of every
+     *      operation that is not a replay
+     *   3. Lock all of them up front in ascending ID order — the same
+     *      deadlock-free order the single-operation flows use
+     *   4. Apply in input order, as the single-operation flows would: a replay
+     *      (here or earlier in the group) returns the recorded transaction;
+     *      a spend re-checks the available balance, which sees the entries
+     *      written earlier in the group
+     *   5. Commit
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public List<Outcome> apply(List<IngestOperation> ops) {
+        timeouts.apply("ingest");
+        Outcome[] outcomes = new Outcome[ops.size()];
+
+        // Step 1: Replays of earlier requests
+        Map<String, Transaction> recorded = txRepo.findByIdempotencyKeys(
+                ops.stream().map(IngestOperation::getIdempotencyKey).distinct().toList());
+
+        // Step 2: Validate and resolve
+        Map<Long, Boolean> accounts = new HashMap<>();
+        Map<Long, Boolean> assetTypes = new HashMap<>();
+        Map<WalletKey, Wallet> wallets = new HashMap<>();
+        Map<String, Long> systemAccounts = new HashMap<>();
+        Wallet[][] legs = new Wallet[ops.size()][];          // {debited, credited}
+        List<Long> walletIds = new ArrayList<>();
+        for (int i = 0; i < ops.size(); i++) {
+            IngestOperation op = ops.get(i);
+            if (recorded.containsKey(op.getIdempotencyKey())) {
+                continue;
+            }
+            if (!accounts.computeIfAbsent(op.getAccountId(), id -> accountRepo.findById(id).isPresent())) {
+                outcomes[i] = Outcome.failed(new AccountNotFoundException(op.getAccountId()));
+                continue;
+            }
+            if (!assetTypes.computeIfAbsent(op.getAssetTypeId(), id -> assetTypeRepo.findById(id).isPresent())) {
+                outcomes[i] = Outcome.failed(new AssetTypeNotFoundException(op.getAssetTypeId()));
+                continue;
+            }
+            boolean spend = "spend".equals(op.getType());
+            String systemName = spend ? WalletService.REVENUE_NAME : WalletService.TREASURY_NAME;
+            long systemId = systemAccounts.computeIfAbsent(systemName, name -> accountRepo.findByName(name)
+                    .orElseThrow(() -> new AccountNotFoundException(name)).getId());
+            Wallet userWallet = wallet(wallets, op.getAccountId(), op.getAssetTypeId());
+            Wallet systemWallet = wallet(wallets, systemId, op.getAssetTypeId());
+            legs[i] = spend ? new Wallet[]{userWallet, systemWallet} : new Wallet[]{systemWallet, userWallet};
+            walletIds.add(userWallet.getId());
+            walletIds.add(systemWallet.getId());
+        }
+
+        // Step 3: Lock
+        if (!walletIds.isEmpty()) {
+            walletRepo.lockForUpdate(walletIds.stream().distinct().sorted().toList());
+        }
+
+        // Step 4: Apply in input order
+        Map<String, TransactionResponse> appliedHere = new HashMap<>();
+        for (int i = 0; i < ops.size(); i++) {
+            if (outcomes[i] != null) {
+                continue;
+            }
+            IngestOperation op = ops.get(i);
+            Transaction earlier = recorded.get(op.getIdempotencyKey());
+            if (earlier != null) {
+                outcomes[i] = Outcome.applied(
+                        new TransactionResponse(earlier, ledgerRepo.findByTransactionId(earlier.getId()), true));
+                continue;
+            }
+            TransactionResponse same = appliedHere.get(op.getIdempotencyKey());
+            if (same != null) {
+                outcomes[i] = Outcome.applied(
+                        new TransactionResponse(same.getTransaction(), same.getLedgerEntries(), true));
+                continue;
+            }
+            outcomes[i] = applyOne(op, legs[i]);
+            if (outcomes[i].response() != null) {
+                appliedHere.put(op.getIdempotencyKey(), outcomes[i].response());
+            }
+        }
+        return Arrays.asList(outcomes);
+    }
+
+    private Outcome applyOne(IngestOperation op, Wallet[] pair) {
+        boolean spend = "spend".equals(op.getType());
+        if (spend) {
+            long available = ledgerRepo.getBalance(op.getAccountId(), op.getAssetTypeId())
+                    - walletRepo.getHeldAmount(pair[0].getId());
+            if (available < op.getAmount()) {
+                return Outcome.failed(new InsufficientFundsException(
+                        op.getAccountId(), op.getAssetTypeId(), available, op.getAmount()));
+            }
+        }
+
+        // Idempotency gate: 0 rows means a concurrent request with the same
+        // key committed after step 1 — answer with its transaction
+        int rowsInserted = txRepo.insertIfNew(op.getIdempotencyKey(), op.getType(),
+                WalletService.descriptionOrDefault(op.getType(), op.getDescription()), COMPLETED,
+                op.getAccountId(), op.getAssetTypeId(), op.getAmount());
+        Transaction txn = txRepo.findByIdempotencyKey(op.getIdempotencyKey()).orElseThrow();
+        if (rowsInserted == 0) {
+            return Outcome.applied(new TransactionResponse(txn, ledgerRepo.findByTransactionId(txn.getId()), true));
+        }
+
+        List<LedgerEntry> entries = ledgerRepo.post(txn.getId(), List.of(
+                LedgerLeg.debit(pair[0].getId(),  op.getAmount()),
+                LedgerLeg.credit(pair[1].getId(), op.getAmount())));
+        if (spend) {
+            bonusGrantRepo.consume(pair[0].getId(), op.getAmount());
+        }
+        balanceCache.invalidateAfterCommit(pair);
+        return Outcome.applied(new TransactionResponse(txn, entries, false));
+    }
+
+    private Wallet wallet(Map<WalletKey, Wallet> wallets, long accountId, long assetTypeId) {
+        return wallets.computeIfAbsent(new WalletKey(accountId, assetTypeId),
+                key -> walletRepo.getOrCreate(accountId, assetTypeId));
+    }
+}
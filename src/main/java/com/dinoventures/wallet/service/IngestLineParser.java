@@ -0,0 +1,86 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.model.IngestOperation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Set;
+
+/**
+ * Parses one line of a streamed ingestion into an {@link IngestOperation}:
+ *
+ *   {"type": "spend", "idempotency_key": "...", "account_id": 3,
+ *    "asset_type_id": 1, "amount": 50, "description": "..."}
+ *
+ * type is topup, bonus or spend; description is optional. Validation matches
+ * the single-operation endpoints. A bad line throws IllegalArgumentException
+ * with the reason; the stream reports it on that line's result and carries on.
+ */
+final class IngestLineParser {
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private static final Set<String> TYPES = Set.of("topup", "bonus", "spend");
+
+    private final ObjectMapper json;
+
+    IngestLineParser(ObjectMapper json) {
+        this.json = json;
+    }
+
+    IngestOperation parse(long lineNo, String line) {
+        JsonNode node;
+        try {
+            node = json.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("not a JSON object");
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("not a JSON object");
+        }
+        if (node.hasNonNull("expires_in_seconds")) {
+            throw new IllegalArgumentException("expires_in_seconds is not supported on the stream");
+        }
+        return operation(lineNo, text(node, "type"), text(node, "idempotency_key"),
+                number(node, "account_id"), number(node, "asset_type_id"), number(node, "amount"),
+                text(node, "description"));
+    }
+
+    /**
+     * Validates an operation that arrived already split into fields (gRPC
+     * batches) the same way as a line; throws IllegalArgumentException.
+     */
+    static IngestOperation operation(long lineNo, String type, String key, long accountId, long assetTypeId,
+                                     long amount, String description) {
+        if (type == null || !TYPES.contains(type)) {
+            throw new IllegalArgumentException("type must be topup, bonus or spend");
+        }
+        if (key == null || key.isBlank()) {
+            throw new IllegalArgumentException("idempotency_key is required");
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("idempotency_key is longer than " + MAX_KEY_LENGTH + " characters");
+        }
+        if (amount < 1) {
+            throw new IllegalArgumentException("amount must be at least 1");
+        }
+        return new IngestOperation(lineNo, type, key, accountId, assetTypeId, amount, description);
+    }
+
+    private static long number(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        if (!value.canConvertToExactIntegral() || !value.canConvertToLong()) {
+            throw new IllegalArgumentException(field + " is not a whole number");
+        }
+        return value.asLong();
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+}
@@ -0,0 +1,517 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.ShardRouter;
+import com.dinoventures.wallet.exception.AccountNotFoundException;
+import com.dinoventures.wallet.exception.AssetTypeNotFoundException;
+import com.dinoventures.wallet.exception.DeadlineExceededException;
+import com.dinoventures.wallet.exception.EngineManagedAssetException;
+import com.dinoventures.wallet.exception.InsufficientFundsException;
+import com.dinoventures.wallet.exception.LockContentionException;
+import com.dinoventures.wallet.exception.ServiceOverloadedException;
+import com.dinoventures.wallet.exception.VelocityLimitExceededException;
+import com.dinoventures.wallet.exception.WalletBusyException;
+import com.dinoventures.wallet.model.IngestOperation;
+import com.dinoventures.wallet.model.WalletKey;
+import com.dinoventures.wallet.model.dto.BonusRequest;
+import com.dinoventures.wallet.model.dto.IngestResult;
+import com.dinoventures.wallet.model.dto.SpendRequest;
+import com.dinoventures.wallet.model.dto.TopupRequest;
+import com.dinoventures.wallet.model.dto.TransactionResponse;
+import com.dinoventures.wallet.service.IngestGroupService.Outcome;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streamed ingestion for high-volume submitters (settlement workers): topup,
+ * bonus and spend operations as NDJSON on one long-lived request, one result
+ * line per input line on the same response, in input order.
+ *
+ * The request thread reads and parses lines and buffers each operation for
+ * its account's shard. A buffer is handed over as a group — applied by
+ * {@link IngestGroupService} in one transaction with one commit — when it
+ * reaches {@code wallet.ingest.group-size}, or as soon as the input has no
+ * more bytes ready, so a client waiting for its results never waits for a
+ * group to fill. A shard's groups run one after another in input order,
+ * which keeps every wallet's operations in order; shards run in parallel.
+ * A writer thread sends the results in input order as they complete,
+ * flushing whenever it catches up.
+ *
+ * Memory is bounded by {@code wallet.ingest.max-in-flight}: the next line is
+ * only read while fewer operations than that are waiting for their result
+ * to be written. A client that sends faster than groups commit, or reads its
+ * results slower, simply stops being read and TCP flow control pushes back
+ * on it — nothing is buffered for it without bound, on either side.
+ *
+ * A group that fails as a whole (lock timeouts through every retry, say) is
+ * re-applied one operation per transaction, so only the operations that
+ * fail on their own report an error. Spends count against velocity limits
+ * when read. Operations on asset types owned by the {@link BalanceEngine}
+ * are handed to it on a worker, and their result completes when the engine
+ * acknowledges the commit; a wallet's engine operations are submitted one
+ * after another, in input order, since a spend can only reserve funds that
+ * earlier operations have committed.
+ *
+ * Ingestion does not go through {@link WriteAdmissionControl}: a stream is
+ * bounded by max-in-flight, its groups by the ingest connection pool
+ * ({@code Workload.INGEST}), and its engine operations by the engine's queue
+ * (a full queue is the line's 503).
+ */
+@Service
+public class IngestionService {
+
+    private static final CompletableFuture<IngestResult> END = new CompletableFuture<>();
+
+    private final IngestGroupService groups;
+    private final BalanceEngine      engine;
+    private final VelocityLimiter    velocity;
+    private final ShardRouter        shards;
+    private final WriteRetry         retry;
+    private final ObjectMapper       objectMapper;
+    private final int groupSize;
+    private final int maxInFlight;
+
+    private final Counter created;
+    private final Counter replayed;
+    private final Counter failed;
+    private final Counter fallbacks;
+    private final DistributionSummary groupSizes;
+
+    public IngestionService(
+            IngestGroupService groups,
+            BalanceEngine engine,
+            VelocityLimiter velocity,
+            ShardRouter shards,
+            WriteRetry retry,
+            ObjectMapper objectMapper,
+            MeterRegistry registry,
+            @Value("${wallet.ingest.group-size:100}") int groupSize,
+            @Value("${wallet.ingest.max-in-flight:1000}") int maxInFlight) {
+        if (groupSize < 1 || maxInFlight < groupSize) {
+            throw new IllegalArgumentException("wallet.ingest.group-size must be between 1 and max-in-flight");
+        }
+        this.groups = groups;
+        this.engine = engine;
+        this.velocity = velocity;
+        this.shards = shards;
+        this.retry = retry;
+        this.objectMapper = objectMapper;
+        this.groupSize = groupSize;
+        this.maxInFlight = maxInFlight;
+
+        this.created = Counter.builder("wallet.ingest.operations").tag("result", "created").register(registry);
+        this.replayed = Counter.builder("wallet.ingest.operations").tag("result", "replayed").register(registry);
+        this.failed = Counter.builder("wallet.ingest.operations").tag("result", "failed").register(registry);
+        this.fallbacks = Counter.builder("wallet.ingest.group_fallbacks")
+                .description("Groups re-applied one operation at a time after failing as a whole")
+                .register(registry);
+        this.groupSizes = DistributionSummary.builder("wallet.ingest.group.size").register(registry);
+    }
+
+    /** An operation read but not yet answered. */
+    private record Pending(IngestOperation op, VelocityLimiter.Admission counted,
+                           CompletableFuture<IngestResult> result) {}
+
+    /** One request's state; the buffers are only touched by the reading thread. */
+    private final class Session {
+        final BlockingQueue<CompletableFuture<IngestResult>> results = new ArrayBlockingQueue<>(maxInFlight);
+        final List<List<Pending>> buffers = new ArrayList<>();
+        final List<CompletableFuture<Void>> tails = new ArrayList<>();   // last group handed over, per shard
+        final ConcurrentHashMap<WalletKey, CompletableFuture<Void>> engineTails = new ConcurrentHashMap<>();
+        final ExecutorService workers;
+        volatile boolean clientGone;
+
+        Session(ExecutorService workers) {
+            this.workers = workers;
+            for (int i = 0; i < shards.shardCount(); i++) {
+                buffers.add(new ArrayList<>());
+                tails.add(CompletableFuture.completedFuture(null));
+            }
+        }
+
+        /** Queues the shard's buffer as a group behind the shard's previous one. */
+        void handOver(int shard) {
+            List<Pending> group = buffers.get(shard);
+            if (group.isEmpty()) {
+                return;
+            }
+            buffers.set(shard, new ArrayList<>());
+            tails.set(shard, tails.get(shard).thenRunAsync(() -> applyGroup(shard, group), workers));
+        }
+
+        void handOverAll() {
+            for (int shard = 0; shard < buffers.size(); shard++) {
+                handOver(shard);
+            }
+        }
+
+        /**
+         * Hands an engine-owned operation to a worker, behind the wallet's
+         * previous one; the wallet's entry goes once its last operation is
+         * answered, so at most max-in-flight are kept.
+         */
+        void handToEngine(Pending pending) {
+            IngestOperation op = pending.op();
+            WalletKey wallet = new WalletKey(op.getAccountId(), op.getAssetTypeId());
+            CompletableFuture<Void> previous = engineTails.getOrDefault(wallet, CompletableFuture.completedFuture(null));
+            CompletableFuture<Void> next = previous.thenRunAsync(() -> finish(pending, applyToEngine(op)), workers);
+            engineTails.put(wallet, next);
+            next.whenComplete((ignored, e) -> engineTails.remove(wallet, next));
+        }
+
+        /**
+         * Counts a spend against its velocity limits, then hands the
+         * operation to the engine (engine-owned asset types) or buffers it
+         * for its shard, handing the buffer over once it holds a full group.
+         */
+        CompletableFuture<IngestResult> submit(IngestOperation op) {
+            CompletableFuture<IngestResult> result = new CompletableFuture<>();
+            VelocityLimiter.Admission counted = null;
+            if ("spend".equals(op.getType())) {
+                try {
+                    counted = velocity.admit(new WalletKey(op.getAccountId(), op.getAssetTypeId()), op.getAmount());
+                } catch (RuntimeException e) {
+                    failed.increment();
+                    result.complete(failure(op.getLine(), op.getIdempotencyKey(), e));
+                    return result;
+                }
+            }
+            Pending pending = new Pending(op, counted, result);
+            if (engine.owns(op.getAssetTypeId())) {
+                handToEngine(pending);
+                return result;
+            }
+            int shard = shards.shardOf(op.getAccountId());
+            buffers.get(shard).add(pending);
+            if (buffers.get(shard).size() >= groupSize) {
+                handOver(shard);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A client-streamed batch (gRPC SubmitBatch): operations are grouped and
+     * applied exactly as on {@link #ingest} while the client is still
+     * sending, and the results are returned in input order once it is done.
+     * Not thread-safe; the caller bounds the batch size, since every result
+     * is held until {@link #finish}.
+     */
+    public final class Batch implements AutoCloseable {
+        private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+        private final Session session = new Session(workers);
+        private final List<CompletableFuture<IngestResult>> results = new ArrayList<>();
+
+        private Batch() {}
+
+        /**
+         * Adds the next operation (type topup, bonus or spend); one that fails
+         * validation gets the error as its result, like a bad stream line.
+         */
+        public void add(String type, String idempotencyKey, long accountId, long assetTypeId,
+                        long amount, String description) {
+            long index = results.size() + 1;
+            try {
+                IngestOperation op = IngestLineParser.operation(index, type, idempotencyKey,
+                        accountId, assetTypeId, amount, description);
+                results.add(session.submit(op));
+            } catch (RuntimeException e) {
+                failed.increment();
+                results.add(CompletableFuture.completedFuture(failure(index, idempotencyKey, e)));
+            }
+        }
+
+        public int size() {
+            return results.size();
+        }
+
+        /** Applies what is still buffered and waits for every result. */
+        public List<IngestResult> finish() {
+            session.handOverAll();
+            return results.stream().map(CompletableFuture::join).toList();
+        }
+
+        /**
+         * Operations already added are still applied (they are idempotent, so
+         * a client that resends the batch is answered with replays).
+         */
+        @Override
+        public void close() {
+            session.handOverAll();
+            workers.close();
+        }
+    }
+
+    public Batch openBatch() {
+        return new Batch();
+    }
+
+    /**
+     * Algorithm:
+     *   1. Start the writer: it takes result slots in input order, waits for
+     *      each, and writes it
+     *   2. For each line, hand over every partial group first if the input has
+     *      nothing more ready or the in-flight limit is reached — the put
+     *      below blocks until the writer frees a slot
+     *   3. Parse the line and count a spend against its velocity limits — a
+     *      failure is the line's result right away
+     *   4. Hand engine-owned operations to the engine; buffer the rest for
+     *      their shard ({@link Session#submit}), then queue the line's result
+     *      slot
+     *   5. At the end of input, hand over what is left and let the writer drain
+     */
+    public void ingest(InputStream input, OutputStream output) throws IOException {
+        IngestLineParser parser = new IngestLineParser(objectMapper);
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Session session = new Session(workers);
+
+            // Step 1: Writer
+            Future<?> writer = workers.submit(() -> write(session, output));
+            try {
+                long lineNo = 0;
+                while (!session.clientGone) {
+                    // Step 2: Never block on the client with a partial group buffered
+                    if (!reader.ready()) {
+                        session.handOverAll();
+                    }
+                    String line = reader.readLine();
+                    if (line == null) {
+                        break;
+                    }
+                    lineNo++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    if (session.results.remainingCapacity() == 0) {
+                        session.handOverAll();
+                    }
+
+                    // Steps 3-4: Parse, then velocity and engine or group
+                    CompletableFuture<IngestResult> result;
+                    try {
+                        result = session.submit(parser.parse(lineNo, line));
+                    } catch (RuntimeException e) {
+                        failed.increment();
+                        result = CompletableFuture.completedFuture(failure(lineNo, null, e));
+                    }
+                    put(session.results, result);
+                }
+            } finally {
+                // Step 5: Drain
+                session.handOverAll();
+                put(session.results, END);
+            }
+            join(writer);
+        }
+    }
+
+    /** Applies a group; never throws — every operation gets its result. */
+    private void applyGroup(int shard, List<Pending> group) {
+        List<IngestOperation> ops = group.stream().map(Pending::op).toList();
+        try {
+            List<Outcome> outcomes;
+            try {
+                outcomes = shards.onShard(shard, () -> retry.execute(() -> groups.apply(ops)));
+            } catch (RuntimeException e) {
+                fallbacks.increment();
+                outcomes = ops.stream().map(op -> applyAlone(shard, op)).toList();
+            }
+            groupSizes.record(ops.size());
+            for (int i = 0; i < group.size(); i++) {
+                finish(group.get(i), outcomes.get(i));
+            }
+        } catch (RuntimeException e) {
+            group.stream().filter(p -> !p.result().isDone()).forEach(p -> finish(p, Outcome.failed(e)));
+        }
+    }
+
+    private Outcome applyAlone(int shard, IngestOperation op) {
+        try {
+            return shards.onShard(shard, () -> retry.execute(() -> groups.apply(List.of(op)))).get(0);
+        } catch (RuntimeException e) {
+            return Outcome.failed(e);
+        }
+    }
+
+    private Outcome applyToEngine(IngestOperation op) {
+        try {
+            return Outcome.applied(switch (op.getType()) {
+                case "topup" -> {
+                    TopupRequest req = new TopupRequest();
+                    req.setAccountId(op.getAccountId());
+                    req.setAssetTypeId(op.getAssetTypeId());
+                    req.setAmount(op.getAmount());
+                    req.setDescription(op.getDescription());
+                    yield engine.topup(req, op.getIdempotencyKey());
+                }
+                case "bonus" -> {
+                    BonusRequest req = new BonusRequest();
+                    req.setAccountId(op.getAccountId());
+                    req.setAssetTypeId(op.getAssetTypeId());
+                    req.setAmount(op.getAmount());
+                    req.setDescription(op.getDescription());
+                    yield engine.bonus(req, op.getIdempotencyKey());
+                }
+                default -> {
+                    SpendRequest req = new SpendRequest();
+                    req.setAccountId(op.getAccountId());
+                    req.setAssetTypeId(op.getAssetTypeId());
+                    req.setAmount(op.getAmount());
+                    req.setDescription(op.getDescription());
+                    yield engine.spend(req, op.getIdempotencyKey());
+                }
+            });
+        } catch (RuntimeException e) {
+            return Outcome.failed(e);
+        }
+    }
+
+    /** Completes the operation's result; a failed or replayed spend leaves the velocity window. */
+    private void finish(Pending pending, Outcome outcome) {
+        IngestOperation op = pending.op();
+        TransactionResponse response = outcome.response();
+        if (pending.counted() != null && (response == null || response.isIdempotent())) {
+            pending.counted().takeBack();
+        }
+        if (response == null) {
+            failed.increment();
+            pending.result().complete(failure(op.getLine(), op.getIdempotencyKey(), outcome.error()));
+        } else {
+            (response.isIdempotent() ? replayed : created).increment();
+            pending.result().complete(new IngestResult(op.getLine(), op.getIdempotencyKey(),
+                    (response.isIdempotent() ? HttpStatus.OK : HttpStatus.CREATED).value(),
+                    response.getTransaction().getId(), response.isIdempotent(), null, null));
+        }
+    }
+
+    /**
+     * Writes results in input order until END. Flushes when the next result is
+     * not ready yet, so a burst goes out in few packets and a lone result
+     * without delay. After a write fails (client gone) results are still
+     * taken, so the reader never blocks on a full queue.
+     */
+    private Void write(Session session, OutputStream output) {
+        while (true) {
+            CompletableFuture<IngestResult> next = take(session.results);
+            if (next == END) {
+                break;
+            }
+            IngestResult result = next.join();
+            if (session.clientGone) {
+                continue;
+            }
+            try {
+                output.write(objectMapper.writeValueAsBytes(result));
+                output.write('\n');
+                CompletableFuture<IngestResult> after = session.results.peek();
+                if (after == null || after == END || !after.isDone()) {
+                    output.flush();
+                }
+            } catch (IOException e) {
+                session.clientGone = true;
+            }
+        }
+        if (!session.clientGone) {
+            try {
+                output.flush();
+            } catch (IOException e) {
+                session.clientGone = true;
+            }
+        }
+        return null;
+    }
+
+    /** The line's result for an error, with the status the single-operation endpoint would use. */
+    static IngestResult failure(long line, String idempotencyKey, RuntimeException error) {
+        HttpStatus status;
+        Long retryAfter = null;
+        String message = error.getMessage();
+        if (error instanceof InsufficientFundsException) {
+            status = HttpStatus.UNPROCESSABLE_ENTITY;
+        } else if (error instanceof AccountNotFoundException || error instanceof AssetTypeNotFoundException) {
+            status = HttpStatus.NOT_FOUND;
+        } else if (error instanceof EngineManagedAssetException) {
+            status = HttpStatus.CONFLICT;
+        } else if (error instanceof VelocityLimitExceededException e) {
+            status = HttpStatus.TOO_MANY_REQUESTS;
+            retryAfter = e.getRetryAfterSeconds();
+        } else if (error instanceof WalletBusyException e) {
+            status = HttpStatus.TOO_MANY_REQUESTS;
+            retryAfter = e.getRetryAfterSeconds();
+        } else if (error instanceof ServiceOverloadedException e) {
+            status = HttpStatus.SERVICE_UNAVAILABLE;
+            retryAfter = e.getRetryAfterSeconds();
+        } else if (error instanceof LockContentionException e) {
+            status = HttpStatus.SERVICE_UNAVAILABLE;
+            retryAfter = e.getRetryAfterSeconds();
+        } else if (error instanceof QueryTimeoutException) {
+            status = HttpStatus.SERVICE_UNAVAILABLE;
+            retryAfter = 1L;
+            message = "Request timed out; retry later";
+        } else if (error instanceof DeadlineExceededException) {
+            status = HttpStatus.GATEWAY_TIMEOUT;
+        } else if (error instanceof IllegalArgumentException) {
+            status = HttpStatus.BAD_REQUEST;
+        } else {
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+            message = "An unexpected error occurred";
+        }
+        return new IngestResult(line, idempotencyKey, status.value(), null, null, message, retryAfter);
+    }
+
+    private static void put(BlockingQueue<CompletableFuture<IngestResult>> queue,
+                            CompletableFuture<IngestResult> result) {
+        try {
+            queue.put(result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during streamed ingestion", e);
+        }
+    }
+
+    private static CompletableFuture<IngestResult> take(BlockingQueue<CompletableFuture<IngestResult>> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during streamed ingestion", e);
+        }
+    }
+
+    private static void join(Future<?> future) {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during streamed ingestion", e);
+        }
+    }
+}
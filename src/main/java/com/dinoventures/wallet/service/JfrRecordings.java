@@ -0,0 +1,80 @@
+package com.dinoventures.wallet.service;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * The on-demand JFR recording behind /api/v1/admin/jfr: at most one, using
+ * the jfr/wallet.jfc preset, kept as a rolling buffer of the last
+ * {@code max-age} until stopped.
+ */
+@Component
+public class JfrRecordings {
+
+    private static final String PRESET = "jfr/wallet.jfc";
+
+    private final long maxSizeBytes;
+
+    private Recording recording;   // guarded by "this"
+
+    public JfrRecordings(@Value("${wallet.jfr.max-size-mb:100}") long maxSizeMb) {
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+    }
+
+    /** Starts the recording, or returns the one already running. */
+    public synchronized Recording start(Duration maxAge) throws IOException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return recording;
+        }
+        Recording r = new Recording(preset());
+        r.setName("wallet");
+        r.setToDisk(true);
+        r.setMaxAge(maxAge);
+        r.setMaxSize(maxSizeBytes);
+        r.start();
+        recording = r;
+        return r;
+    }
+
+    /**
+     * Writes the running recording's buffer to a temporary file and returns
+     * it; the caller deletes the file. Recording continues.
+     */
+    public synchronized Path dump() throws IOException {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            throw new IllegalArgumentException("No JFR recording is running; start one first");
+        }
+        Path file = Files.createTempFile("wallet-", ".jfr");
+        recording.dump(file);
+        return file;
+    }
+
+    public synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private static Configuration preset() throws IOException {
+        try (Reader reader = new InputStreamReader(
+                new ClassPathResource(PRESET).getInputStream(), StandardCharsets.UTF_8)) {
+            return Configuration.create(reader);
+        } catch (ParseException e) {
+            throw new IOException("Invalid " + PRESET, e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.Bulkhead;
+import com.dinoventures.wallet.config.ShardRouter;
+import com.dinoventures.wallet.config.Workload;
+import com.dinoventures.wallet.repository.LeaderboardRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Deletes weekly_spend rows older than {@code wallet.leaderboard.weeks-retained}
+ * weeks (the current week included) in batches of
+ * {@code wallet.leaderboard.purge-batch-size}, so the table holds a bounded
+ * number of weeks. Old weeks are never written, so the deletes contend with
+ * nothing.
+ *
+ * Runs on the batch connection pool and purges each shard in turn.
+ */
+@Component
+@RequiredArgsConstructor
+@Bulkhead(Workload.BATCH)
+@ConditionalOnProperty(name = "wallet.leaderboard.purge.enabled", havingValue = "true", matchIfMissing = true)
+public class LeaderboardPurger {
+
+    private final LeaderboardRepository leaderboardRepo;
+    private final ShardRouter           shards;
+
+    @Value("${wallet.leaderboard.weeks-retained:8}")
+    private int weeksRetained;
+
+    @Value("${wallet.leaderboard.purge-batch-size:5000}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${wallet.leaderboard.purge-interval-ms:3600000}")
+    public void purge() {
+        LocalDate oldestKept = LeaderboardService.weekStart(LocalDate.now(ZoneOffset.UTC))
+                .minusWeeks(weeksRetained - 1L);
+        shards.onEachShard(shard -> {
+            while (leaderboardRepo.purgeWeeksBefore(oldestKept, batchSize) == batchSize) {
+                // full batch — more may be old
+            }
+        });
+    }
+}
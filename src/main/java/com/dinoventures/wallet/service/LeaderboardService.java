@@ -0,0 +1,106 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.ShardRouter;
+import com.dinoventures.wallet.exception.AssetTypeNotFoundException;
+import com.dinoventures.wallet.model.LeaderboardEntry;
+import com.dinoventures.wallet.model.dto.LeaderboardResponse;
+import com.dinoventures.wallet.model.dto.LeaderboardRow;
+import com.dinoventures.wallet.repository.AssetTypeRepository;
+import com.dinoventures.wallet.repository.LeaderboardRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Top-N boards per asset type: highest balances and biggest spenders of a
+ * UTC week (Monday to Sunday).
+ *
+ * Nothing is computed at read time. The ledger post statement keeps the
+ * ranked values current in the writing transaction, so a board reflects
+ * every committed transaction, on every node.
+ */
+@Service
+@RequiredArgsConstructor
+public class LeaderboardService {
+
+    private static final Comparator<LeaderboardEntry> RANKING =
+            Comparator.comparingLong(LeaderboardEntry::getValue).reversed()
+                    .thenComparingLong(LeaderboardEntry::getAccountId);
+
+    private final LeaderboardRepository leaderboardRepo;
+    private final AssetTypeRepository   assetTypeRepo;
+    private final ShardRouter           shards;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${wallet.leaderboard.max-size:100}")
+    private int maxSize;
+
+    public LeaderboardResponse richest(long assetTypeId, int limit) {
+        List<LeaderboardRow> rows = board(assetTypeId, limit,
+                shard -> leaderboardRepo.topBalances(assetTypeId, limit));
+        return new LeaderboardResponse(assetTypeId, "balance", null, rows);
+    }
+
+    /** {@code week} may be any day of the week; null means the current UTC week. */
+    public LeaderboardResponse topSpenders(long assetTypeId, LocalDate week, int limit) {
+        LocalDate weekStart = weekStart(week != null ? week : LocalDate.now(ZoneOffset.UTC));
+        List<LeaderboardRow> rows = board(assetTypeId, limit,
+                shard -> leaderboardRepo.topSpenders(assetTypeId, weekStart, limit));
+        return new LeaderboardResponse(assetTypeId, "spend", weekStart, rows);
+    }
+
+    /**
+     * Algorithm:
+     *   1. Validate the size and the asset type (identical on every shard)
+     *   2. Read each shard's top {@code limit} in parallel — a user's wallets
+     *      live on one shard, so the global top N is among them
+     *   3. Merge and rank
+     */
+    private List<LeaderboardRow> board(long assetTypeId, int limit, IntFunction<List<LeaderboardEntry>> read) {
+        // Step 1: Validate
+        if (limit < 1 || limit > maxSize) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxSize);
+        }
+        shards.onShard(0, () -> readOnly().execute(status -> assetTypeRepo.findById(assetTypeId)))
+                .orElseThrow(() -> new AssetTypeNotFoundException(assetTypeId));
+
+        // Step 2: Gather
+        List<List<LeaderboardEntry>> perShard =
+                shards.scatter(shard -> readOnly().execute(status -> read.apply(shard)));
+
+        // Step 3: Merge
+        return rank(perShard, limit);
+    }
+
+    static List<LeaderboardRow> rank(List<List<LeaderboardEntry>> perShard, int limit) {
+        List<LeaderboardEntry> all = new ArrayList<>();
+        perShard.forEach(all::addAll);
+        all.sort(RANKING);
+        List<LeaderboardRow> rows = new ArrayList<>(Math.min(limit, all.size()));
+        for (LeaderboardEntry e : all.subList(0, Math.min(limit, all.size()))) {
+            rows.add(new LeaderboardRow(rows.size() + 1, e.getAccountId(), e.getAccountName(), e.getValue()));
+        }
+        return rows;
+    }
+
+    static LocalDate weekStart(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+}
@@ -0,0 +1,83 @@
+package com.dinoventures.wallet.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A long-keyed array of atomic longs (0 by default) for dense ids such as
+ * wallet ids: no boxing, no hashing, one CAS per update.
+ *
+ * Storage is split into fixed pages that are allocated on first write and
+ * never moved, so updates never race with growth. Only the page directory
+ * grows, under a lock; reads and CAS updates are lock-free.
+ */
+final class LongPages {
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int OFFSET_MASK = PAGE_SIZE - 1;
+
+    private final Object growLock = new Object();
+    private volatile AtomicLongArray[] pages = new AtomicLongArray[16];
+
+    long get(long id) {
+        AtomicLongArray page = existingPage(id);
+        return page == null ? 0 : page.get(offset(id));
+    }
+
+    void set(long id, long value) {
+        page(id).set(offset(id), value);
+    }
+
+    long addAndGet(long id, long delta) {
+        return page(id).addAndGet(offset(id), delta);
+    }
+
+    /**
+     * Subtracts {@code amount} unless that would take the value below
+     * {@code floor}, and returns the value before the call: the debit
+     * happened iff {@code returned - amount >= floor}.
+     */
+    long debitIfAtLeast(long id, long amount, long floor) {
+        AtomicLongArray page = page(id);
+        int offset = offset(id);
+        while (true) {
+            long current = page.get(offset);
+            if (current - amount < floor || page.compareAndSet(offset, current, current - amount)) {
+                return current;
+            }
+        }
+    }
+
+    private AtomicLongArray existingPage(long id) {
+        AtomicLongArray[] directory = pages;
+        long index = id >>> PAGE_BITS;
+        return index < directory.length ? directory[(int) index] : null;
+    }
+
+    private AtomicLongArray page(long id) {
+        AtomicLongArray page = existingPage(id);
+        if (page != null) {
+            return page;
+        }
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative id " + id);
+        }
+        int index = Math.toIntExact(id >>> PAGE_BITS);
+        synchronized (growLock) {
+            AtomicLongArray[] directory = pages;
+            if (index >= directory.length) {
+                directory = Arrays.copyOf(directory, Math.max(index + 1, directory.length * 2));
+            }
+            if (directory[index] == null) {
+                directory[index] = new AtomicLongArray(PAGE_SIZE);
+            }
+            pages = directory;   // publish (also when only a page was added)
+            return directory[index];
+        }
+    }
+
+    private static int offset(long id) {
+        return (int) (id & OFFSET_MASK);
+    }
+}
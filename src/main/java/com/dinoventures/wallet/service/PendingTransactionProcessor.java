@@ -0,0 +1,46 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.Bulkhead;
+import com.dinoventures.wallet.config.ShardRouter;
+import com.dinoventures.wallet.config.Workload;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Background pipeline for async (Prefer: respond-async) transactions.
+ *
+ * Every tick drains the pending queue in batches of {@code wallet.async.batch-size},
+ * one DB transaction per batch, until a batch comes back short. Safe to run on
+ * every node: batches are claimed with FOR UPDATE SKIP LOCKED.
+ *
+ * Disable on a node with wallet.async.processor.enabled=false (requests are
+ * still accepted there and processed by the other nodes).
+ *
+ * Runs on the batch connection pool, never competing with request traffic,
+ * and drains each shard in turn.
+ */
+@Component
+@RequiredArgsConstructor
+@Bulkhead(Workload.BATCH)
+@ConditionalOnProperty(name = "wallet.async.processor.enabled", havingValue = "true", matchIfMissing = true)
+public class PendingTransactionProcessor {
+
+    private final WalletService walletService;
+    private final WriteRetry    retry;
+    private final ShardRouter   shards;
+
+    @Value("${wallet.async.batch-size:100}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${wallet.async.poll-interval-ms:100}")
+    public void drain() {
+        shards.onEachShard(shard -> {
+            while (retry.execute(() -> walletService.processPendingBatch(batchSize)) == batchSize) {
+                // full batch — more may be waiting
+            }
+        });
+    }
+}
@@ -0,0 +1,167 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.ShardRouter;
+import com.dinoventures.wallet.exception.AssetTypeNotFoundException;
+import com.dinoventures.wallet.model.DailyVolume;
+import com.dinoventures.wallet.model.RollupWatermark;
+import com.dinoventures.wallet.model.dto.DailyReportResponse;
+import com.dinoventures.wallet.model.dto.DailyReportRow;
+import com.dinoventures.wallet.repository.AssetTypeRepository;
+import com.dinoventures.wallet.repository.RollupRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Finance reporting over the daily rollups — never over the ledger itself.
+ * Each shard keeps its own rollups; reports add them up.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReportService {
+
+    private final RollupRepository    rollupRepo;
+    private final RollupService       rollups;
+    private final AssetTypeRepository assetTypeRepo;
+    private final ShardRouter         shards;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${wallet.rollups.max-days:366}")
+    private int maxDays;
+
+    @Value("${wallet.rollups.rebuild-parallelism:2}")
+    private int rebuildParallelism;
+
+    private record ShardRollups(List<DailyVolume> volumes, Map<LocalDate, Long> liabilityChanges,
+                                long openingLiability, RollupWatermark watermark) {}
+
+    /**
+     * Volume and count per transaction type and the outstanding liability at
+     * the end of every day in [from, to] (UTC).
+     *
+     * Algorithm:
+     *   1. Read each shard's rollups for the range, its liability before
+     *      {@code from} and its watermark, in parallel
+     *   2. Add the shards' volumes per day and type
+     *   3. Outstanding liability = opening + running sum of the daily changes
+     */
+    public DailyReportResponse daily(long assetTypeId, LocalDate from, LocalDate to) {
+        List<LocalDate> days = days(from, to);
+        // Asset types are identical on every shard
+        shards.onShard(0, () -> readOnly().execute(status -> assetTypeRepo.findById(assetTypeId)))
+                .orElseThrow(() -> new AssetTypeNotFoundException(assetTypeId));
+
+        // Step 1: Gather
+        List<ShardRollups> perShard = shards.scatter(shard -> readOnly().execute(status -> new ShardRollups(
+                rollupRepo.findVolumes(assetTypeId, from, to),
+                rollupRepo.findLiabilityChanges(assetTypeId, from, to),
+                rollupRepo.liabilityBefore(assetTypeId, from),
+                rollupRepo.findWatermark())));
+
+        // Step 2: Volumes per day and type
+        Map<LocalDate, Map<String, Long>> volume = new HashMap<>();
+        Map<LocalDate, Map<String, Long>> count = new HashMap<>();
+        Map<LocalDate, Long> liabilityChanges = new HashMap<>();
+        long outstanding = 0;
+        for (ShardRollups shard : perShard) {
+            for (DailyVolume v : shard.volumes()) {
+                volume.computeIfAbsent(v.getDay(), d -> new TreeMap<>()).merge(v.getType(), v.getVolume(), Long::sum);
+                count.computeIfAbsent(v.getDay(), d -> new TreeMap<>()).merge(v.getType(), v.getCount(), Long::sum);
+            }
+            shard.liabilityChanges().forEach((day, change) -> liabilityChanges.merge(day, change, Long::sum));
+            outstanding += shard.openingLiability();
+        }
+
+        // Step 3: Running liability, one row per day
+        List<DailyReportRow> rows = new ArrayList<>(days.size());
+        for (LocalDate day : days) {
+            outstanding += liabilityChanges.getOrDefault(day, 0L);
+            rows.add(new DailyReportRow(day, volume.getOrDefault(day, Map.of()),
+                    count.getOrDefault(day, Map.of()), outstanding));
+        }
+
+        OffsetDateTime rolledUpThrough = perShard.stream()
+                .map(s -> s.watermark().getThroughCreatedAt())
+                .filter(Objects::nonNull)
+                .min(Comparator.naturalOrder())
+                .orElse(null);
+        return new DailyReportResponse(assetTypeId, from, to, rolledUpThrough, rows);
+    }
+
+    /**
+     * Recomputes the rollups of every day in [from, to] from the ledger and
+     * returns the number of days. Shards run in parallel, and each rebuilds
+     * up to {@code wallet.rollups.rebuild-parallelism} days at once (one
+     * transaction per day, see {@link RollupService#rebuildDay}).
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        List<LocalDate> days = days(from, to);
+        shards.scatter(shard -> {
+            Queue<LocalDate> pending = new ConcurrentLinkedQueue<>(days);
+            try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<Object>> futures = new ArrayList<>(rebuildParallelism);
+                for (int i = 0; i < rebuildParallelism; i++) {
+                    futures.add(workers.submit(() -> shards.onShard(shard, () -> {
+                        for (LocalDate day; (day = pending.poll()) != null; ) {
+                            rollups.rebuildDay(day);
+                        }
+                        return null;
+                    })));
+                }
+                futures.forEach(ReportService::join);
+            }
+            return null;
+        });
+        return days.size();
+    }
+
+    private List<LocalDate> days(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("to must not be before from");
+        }
+        long count = ChronoUnit.DAYS.between(from, to) + 1;
+        if (count > maxDays) {
+            throw new IllegalArgumentException("At most " + maxDays + " days per request");
+        }
+        return from.datesUntil(to.plusDays(1)).toList();
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private static void join(Future<?> future) {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during rollup rebuild", e);
+        }
+    }
+}
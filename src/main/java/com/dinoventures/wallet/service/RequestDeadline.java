@@ -0,0 +1,74 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.exception.DeadlineExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The current request's deadline, carried on the request thread.
+ *
+ * Set from the optional X-Request-Timeout-Ms header (a relative budget, so
+ * client and server clocks need not agree) and honoured at every step that
+ * would start new work:
+ *
+ *   1. Before borrowing a connection ({@link WriteRetry}, balance reads)
+ *   2. As the cap on each write transaction's lock/statement timeouts
+ *      ({@link WriteTimeouts}) — the DB cancels work nobody will read
+ *   3. Between phases of the write flows (after the idempotency gate, after
+ *      the wallet locks) — throwing there rolls the transaction back
+ *
+ * Without a deadline every check is a no-op. Shed work is counted in
+ * {@code wallet.deadline.shed{phase}}.
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+
+    public void start(long budgetMs) {
+        DEADLINE_NANOS.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs));
+    }
+
+    public void clear() {
+        DEADLINE_NANOS.remove();
+    }
+
+    /**
+     * Throws {@link DeadlineExceededException} if the deadline has passed.
+     * {@code phase} names the work being skipped, for the shed metric.
+     */
+    public void check(String phase) {
+        Long deadline = DEADLINE_NANOS.get();
+        if (deadline != null && deadline - System.nanoTime() <= 0) {
+            throw shed(phase);
+        }
+    }
+
+    /**
+     * {@code timeoutMs} (0 = unlimited) capped to the time left, rounded up to
+     * whole milliseconds. Throws if no time is left.
+     */
+    public long cap(long timeoutMs, String phase) {
+        Long deadline = DEADLINE_NANOS.get();
+        if (deadline == null) {
+            return timeoutMs;
+        }
+        long leftNanos = deadline - System.nanoTime();
+        if (leftNanos <= 0) {
+            throw shed(phase);
+        }
+        long leftMs = (leftNanos + 999_999) / 1_000_000;
+        return timeoutMs == 0 ? leftMs : Math.min(timeoutMs, leftMs);
+    }
+
+    private DeadlineExceededException shed(String phase) {
+        registry.counter("wallet.deadline.shed", "phase", phase).increment();
+        return new DeadlineExceededException(phase);
+    }
+}
@@ -0,0 +1,44 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.Bulkhead;
+import com.dinoventures.wallet.config.ShardRouter;
+import com.dinoventures.wallet.config.Workload;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the daily rollups current: every tick folds settled ledger entries
+ * into them in batches of {@code wallet.rollups.batch-size}, one short DB
+ * transaction per batch, until none are left. Safe to run on every node:
+ * the watermark row lock admits one advancer per shard.
+ *
+ * Once a tick has folded up to its fence it places the next one, which
+ * settles when every write transaction open at that point has ended (see
+ * RollupService#advance), so reports lag by about one interval.
+ *
+ * Runs on the batch connection pool and visits each shard in turn.
+ */
+@Component
+@RequiredArgsConstructor
+@Bulkhead(Workload.BATCH)
+@ConditionalOnProperty(name = "wallet.rollups.enabled", havingValue = "true", matchIfMissing = true)
+public class RollupJob {
+
+    private final RollupService rollups;
+    private final ShardRouter   shards;
+
+    @Value("${wallet.rollups.batch-size:10000}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${wallet.rollups.interval-ms:60000}")
+    public void advance() {
+        shards.onEachShard(shard -> {
+            while (rollups.advance(batchSize)) {
+                // a batch was folded — more may be settled
+            }
+        });
+    }
+}
@@ -0,0 +1,86 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.Bulkhead;
+import com.dinoventures.wallet.config.Workload;
+import com.dinoventures.wallet.model.RollupWatermark;
+import com.dinoventures.wallet.repository.RollupRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Maintains the daily rollups on the caller's shard. Both operations
+ * serialize on the single watermark row, so the advancer and rebuilds never
+ * count an entry twice or miss one.
+ *
+ * Runs on the batch connection pool: a rebuild scans a whole day of ledger.
+ */
+@Service
+@RequiredArgsConstructor
+@Bulkhead(Workload.BATCH)
+public class RollupService {
+
+    private final RollupRepository rollupRepo;
+
+    /**
+     * Folds the next batch of settled ledger entries into the rollups and
+     * returns false once nothing was left to fold.
+     *
+     * Settled is decided by transaction visibility, not age: an entry is
+     * folded only when no transaction that could still commit an entry with
+     * a lower id is running (see {@link RollupRepository#placeFence}), so a
+     * late commit is never skipped by the watermark.
+     *
+     * Algorithm (inside a single DB transaction):
+     *   1. Lock the watermark (FOR UPDATE) — one advancer at a time
+     *   2. If there is no fence, or the watermark has reached it, fence the
+     *      ledger as visible now and stop — it settles by a later call
+     *   3. If a transaction that was running when the fence was placed is
+     *      still running, stop
+     *   4. Find the batch end: the last of the next {@code batchSize} entries,
+     *      at most the fence
+     *   5. Add the entries in (watermark, end] to both rollups and move the
+     *      watermark to the end
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public boolean advance(int batchSize) {
+        // Step 1: Lock
+        RollupWatermark watermark = rollupRepo.lockWatermark(true);
+
+        // Step 2: Fence
+        Optional<RollupRepository.Fence> fence = rollupRepo.findFence();
+        if (fence.isEmpty() || fence.get().throughEntryId() <= watermark.getThroughEntryId()) {
+            rollupRepo.placeFence();
+            return false;
+        }
+
+        // Step 3: Settled?
+        if (!fence.get().settled()) {
+            return false;
+        }
+
+        // Steps 4-5: Fold
+        Optional<RollupWatermark> end = rollupRepo.findBatchEnd(
+                watermark.getThroughEntryId(), fence.get().throughEntryId(), batchSize);
+        if (end.isEmpty()) {
+            return false;
+        }
+        rollupRepo.advance(watermark.getThroughEntryId(), end.get());
+        return true;
+    }
+
+    /**
+     * Recomputes one day from the ledger, up to the current watermark. Holds
+     * the watermark FOR SHARE, so rebuilds of different days run in parallel
+     * while the advancer waits.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public void rebuildDay(LocalDate day) {
+        RollupWatermark watermark = rollupRepo.lockWatermark(false);
+        rollupRepo.replaceDay(day, watermark.getThroughEntryId());
+    }
+}
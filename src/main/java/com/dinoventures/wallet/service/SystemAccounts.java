@@ -0,0 +1,51 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.ShardRouter;
+import com.dinoventures.wallet.exception.AccountNotFoundException;
+import com.dinoventures.wallet.model.Account;
+import com.dinoventures.wallet.model.WalletKey;
+import com.dinoventures.wallet.repository.AccountRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Treasury and Revenue account ids per shard, looked up once: system
+ * accounts are created with the schema and never renamed or removed. Lets
+ * {@link WriteAdmissionControl} name the system wallet a write posts against
+ * before any connection is borrowed.
+ */
+@Component
+@RequiredArgsConstructor
+public class SystemAccounts {
+
+    private final AccountRepository accountRepo;
+    private final ShardRouter shards;
+    private final PlatformTransactionManager transactionManager;
+
+    private final ConcurrentHashMap<String, Long> ids = new ConcurrentHashMap<>();
+
+    /** The wallet of system account {@code name} on {@code accountId}'s shard. */
+    public WalletKey wallet(String name, long accountId, long assetTypeId) {
+        int shard = shards.shardOf(accountId);
+        String key = name + "@" + shard;
+        Long id = ids.get(key);
+        if (id == null) {
+            // Not computeIfAbsent: no database call while holding a map bin
+            id = lookup(name, shard);
+            ids.putIfAbsent(key, id);
+        }
+        return new WalletKey(id, assetTypeId);
+    }
+
+    private long lookup(String name, int shard) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return shards.onShard(shard, () -> readOnly.execute(status -> accountRepo.findByName(name)))
+                .map(Account::getId)
+                .orElseThrow(() -> new AccountNotFoundException(name));
+    }
+}
@@ -0,0 +1,105 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.exception.EngineManagedAssetException;
+import com.dinoventures.wallet.model.Hold;
+import com.dinoventures.wallet.model.WalletKey;
+import com.dinoventures.wallet.model.dto.BonusRequest;
+import com.dinoventures.wallet.model.dto.CaptureHoldRequest;
+import com.dinoventures.wallet.model.dto.SpendRequest;
+import com.dinoventures.wallet.model.dto.TopupRequest;
+import com.dinoventures.wallet.model.dto.TransactionResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Entry point for topup, bonus and spend requests from every API surface
+ * (REST, gRPC), and for hold captures, so they all take the same path:
+ *
+ *   - async (accept-then-process): recorded 'pending' by {@link WalletService#accept}
+ *   - asset types owned by the {@link BalanceEngine}: written through it,
+ *     without admission control or wallet locks
+ *   - otherwise: {@link WriteAdmissionControl} (for the user's wallet and
+ *     the Treasury or Revenue wallet it posts against), then
+ *     {@link WriteRetry} around the {@link WalletService} flow
+ *
+ * Spends are checked against {@link VelocityLimiter} first (async ones count
+ * when accepted).
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionGateway {
+
+    private final WalletService         walletService;
+    private final WriteAdmissionControl admission;
+    private final WriteRetry            retry;
+    private final BalanceEngine         engine;
+    private final VelocityLimiter       velocity;
+    private final SystemAccounts        systemAccounts;
+    private final HoldService           holdService;
+
+    public TransactionResponse topup(TopupRequest req, String idempotencyKey, boolean async) {
+        if (async) {
+            return retry.execute(() -> walletService.accept("topup", req.getAccountId(),
+                    req.getAssetTypeId(), req.getAmount(), req.getDescription(), idempotencyKey));
+        }
+        return engine.owns(req.getAssetTypeId())
+                ? engine.topup(req, idempotencyKey)
+                : admission.execute(
+                        new WalletKey(req.getAccountId(), req.getAssetTypeId()),
+                        systemAccounts.wallet(WalletService.TREASURY_NAME, req.getAccountId(), req.getAssetTypeId()),
+                        () -> retry.execute(() -> walletService.topup(req, idempotencyKey)));
+    }
+
+    /**
+     * An expiring bonus (expires_in_seconds) is sync-only and not available
+     * for engine-owned asset types.
+     */
+    public TransactionResponse bonus(BonusRequest req, String idempotencyKey, boolean async) {
+        if (req.getExpiresInSeconds() != null) {
+            if (engine.owns(req.getAssetTypeId())) {
+                throw new EngineManagedAssetException(req.getAssetTypeId(), "expiring bonuses");
+            }
+            if (async) {
+                throw new IllegalArgumentException("expires_in_seconds is not supported with Prefer: respond-async");
+            }
+        }
+        if (async) {
+            return retry.execute(() -> walletService.accept("bonus", req.getAccountId(),
+                    req.getAssetTypeId(), req.getAmount(), req.getDescription(), idempotencyKey));
+        }
+        return engine.owns(req.getAssetTypeId())
+                ? engine.bonus(req, idempotencyKey)
+                : admission.execute(
+                        new WalletKey(req.getAccountId(), req.getAssetTypeId()),
+                        systemAccounts.wallet(WalletService.TREASURY_NAME, req.getAccountId(), req.getAssetTypeId()),
+                        () -> retry.execute(() -> walletService.bonus(req, idempotencyKey)));
+    }
+
+    public TransactionResponse spend(SpendRequest req, String idempotencyKey, boolean async) {
+        WalletKey wallet = new WalletKey(req.getAccountId(), req.getAssetTypeId());
+        if (async) {
+            return velocity.execute(wallet, req.getAmount(),
+                    () -> retry.execute(() -> walletService.accept("spend", req.getAccountId(),
+                            req.getAssetTypeId(), req.getAmount(), req.getDescription(), idempotencyKey)));
+        }
+        return velocity.execute(wallet, req.getAmount(),
+                () -> engine.owns(req.getAssetTypeId())
+                        ? engine.spend(req, idempotencyKey)
+                        : admission.execute(wallet,
+                                systemAccounts.wallet(WalletService.REVENUE_NAME, req.getAccountId(), req.getAssetTypeId()),
+                                () -> retry.execute(() -> walletService.spend(req, idempotencyKey))));
+    }
+
+    /**
+     * A capture posts a spend from the hold's wallet to Revenue, so it is
+     * admitted like one (and shares Revenue's hot lane). It is not counted
+     * against velocity limits: the hold was, when authorized.
+     */
+    public TransactionResponse capture(long holdId, CaptureHoldRequest body, String idempotencyKey) {
+        Hold hold = holdService.getHold(holdId);
+        return admission.execute(
+                new WalletKey(hold.getAccountId(), hold.getAssetTypeId()),
+                systemAccounts.wallet(WalletService.REVENUE_NAME, hold.getAccountId(), hold.getAssetTypeId()),
+                () -> retry.execute(() -> holdService.capture(holdId, body, idempotencyKey)));
+    }
+}
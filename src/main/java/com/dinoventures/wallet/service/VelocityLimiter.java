@@ -0,0 +1,331 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.config.ShardRouter;
+import com.dinoventures.wallet.exception.VelocityLimitExceededException;
+import com.dinoventures.wallet.model.LedgerEntry;
+import com.dinoventures.wallet.model.WalletKey;
+import com.dinoventures.wallet.model.dto.TransactionResponse;
+import com.dinoventures.wallet.repository.LedgerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Per-wallet spend velocity limits ("at most N spends or X coins per
+ * minute"), checked in memory before the spend borrows a connection.
+ *
+ * Each wallet has a ring of {@code buckets} slots covering the last
+ * {@code window-seconds}; a slot holds the spend count and amount of its
+ * slice of the window, and is cleared when the ring moves past it. A spend is
+ * added when admitted and taken back if it fails or is an idempotent replay.
+ *
+ * Memory is bounded: at most {@code max-wallets} rings (about 200 bytes
+ * each with 12 slots). Rings that have been idle for a whole window hold
+ * nothing and are evicted. A ring only becomes idle when the clock enters a
+ * new bucket, so with the map full at most one new wallet per bucket scans
+ * it; the others find no room without scanning. If every ring is busy, a new
+ * wallet's spends go through untracked (counted in wallet.velocity.untracked).
+ *
+ * During the first window after start the node has not seen every recent
+ * spend, so a wallet's ring is seeded from its recent ledger rows when first
+ * used. Limits are enforced per node: each node counts the spends it serves.
+ */
+@Component
+public class VelocityLimiter {
+
+    // Newest ledger entries read per wallet when seeding a ring
+    static final int REBUILD_MAX_ROWS = 1000;
+
+    private final boolean enabled;
+    private final int buckets;
+    private final long bucketMillis;
+    private final long windowSeconds;
+    private final int maxSpends;
+    private final long maxAmount;
+    private final int maxWallets;
+    private final RecentSpends recentSpends;
+    private final LongSupplier clock;   // epoch millis
+    private final long startedAt;
+
+    private final ConcurrentHashMap<WalletKey, Ring> rings = new ConcurrentHashMap<>();
+    private final AtomicLong evictedAt = new AtomicLong(Long.MIN_VALUE);   // bucket of the last full scan
+    private final Admission untrackedAdmission = new Admission(null, 0, 0);
+
+    private final Counter countRejections;
+    private final Counter amountRejections;
+    private final Counter seeded;
+    private final Counter untracked;
+
+    /** A wallet's spend debits (amount < 0) of the last {@code seconds}. */
+    @FunctionalInterface
+    interface RecentSpends {
+        List<LedgerEntry> find(WalletKey wallet, long seconds);
+    }
+
+    /** One wallet's window; guarded by itself. */
+    private static final class Ring {
+        final int[] counts;
+        final long[] amounts;
+        long head;          // bucket number of the newest slot
+        boolean evicted;    // removed from the map; callers look up again
+
+        Ring(int buckets, long head) {
+            this.counts = new int[buckets];
+            this.amounts = new long[buckets];
+            this.head = head;
+        }
+    }
+
+    /** A spend counted in its wallet's window. */
+    public final class Admission {
+        private final Ring ring;   // null = not tracked
+        private final long bucket;
+        private final long amount;
+
+        private Admission(Ring ring, long bucket, long amount) {
+            this.ring = ring;
+            this.bucket = bucket;
+            this.amount = amount;
+        }
+
+        /** Removes the spend from the window again (failed or replayed). */
+        public void takeBack() {
+            if (ring != null) {
+                VelocityLimiter.this.takeBack(ring, bucket, amount);
+            }
+        }
+    }
+
+    @Autowired
+    public VelocityLimiter(
+            MeterRegistry registry,
+            LedgerRepository ledgerRepo,
+            ShardRouter shards,
+            PlatformTransactionManager transactionManager,
+            @Value("${wallet.velocity.enabled:false}") boolean enabled,
+            @Value("${wallet.velocity.window-seconds:60}") long windowSeconds,
+            @Value("${wallet.velocity.buckets:12}") int buckets,
+            @Value("${wallet.velocity.max-spends:0}") int maxSpends,
+            @Value("${wallet.velocity.max-amount:0}") long maxAmount,
+            @Value("${wallet.velocity.max-wallets:100000}") int maxWallets) {
+        this(registry, enabled, windowSeconds, buckets, maxSpends, maxAmount, maxWallets,
+                fromLedger(ledgerRepo, shards, transactionManager), System::currentTimeMillis);
+    }
+
+    VelocityLimiter(MeterRegistry registry, boolean enabled, long windowSeconds, int buckets, int maxSpends,
+                    long maxAmount, int maxWallets, RecentSpends recentSpends, LongSupplier clock) {
+        if (buckets < 1 || windowSeconds * 1000 < buckets) {
+            throw new IllegalArgumentException("wallet.velocity.buckets must be between 1 and window-seconds * 1000");
+        }
+        this.enabled = enabled;
+        this.buckets = buckets;
+        this.bucketMillis = windowSeconds * 1000 / buckets;
+        this.windowSeconds = windowSeconds;
+        this.maxSpends = maxSpends;
+        this.maxAmount = maxAmount;
+        this.maxWallets = maxWallets;
+        this.recentSpends = recentSpends;
+        this.clock = clock;
+        this.startedAt = clock.getAsLong();
+
+        this.countRejections = Counter.builder("wallet.velocity.rejected").tag("limit", "count").register(registry);
+        this.amountRejections = Counter.builder("wallet.velocity.rejected").tag("limit", "amount").register(registry);
+        this.seeded = Counter.builder("wallet.velocity.seeded")
+                .description("Windows seeded from the ledger after a restart")
+                .register(registry);
+        this.untracked = Counter.builder("wallet.velocity.untracked")
+                .description("Spends let through untracked because every window was in use")
+                .register(registry);
+        Gauge.builder("wallet.velocity.tracked_wallets", rings::size).register(registry);
+    }
+
+    /**
+     * Runs {@code spend} if it keeps the wallet within its limits, otherwise
+     * throws VelocityLimitExceededException without running it. The spend
+     * is taken back out of the window if it throws or was an idempotent replay.
+     */
+    public TransactionResponse execute(WalletKey wallet, long amount, Supplier<TransactionResponse> spend) {
+        return execute(wallet, amount, spend, TransactionResponse::isIdempotent);
+    }
+
+    /**
+     * As above, for a call that commits funds to a later spend (a hold's
+     * authorization); {@code replayed} tells an idempotent replay.
+     */
+    public <T> T execute(WalletKey wallet, long amount, Supplier<T> spend, Predicate<T> replayed) {
+        Admission admission = admit(wallet, amount);
+        T response;
+        try {
+            response = spend.get();
+        } catch (RuntimeException e) {
+            admission.takeBack();
+            throw e;
+        }
+        if (replayed.test(response)) {
+            admission.takeBack();
+        }
+        return response;
+    }
+
+    /**
+     * Counts a spend whose outcome is only known later (streamed ingestion):
+     * throws VelocityLimitExceededException if it would break a limit,
+     * otherwise the caller must {@link Admission#takeBack} it if the spend
+     * fails or turns out to be a replay.
+     */
+    public Admission admit(WalletKey wallet, long amount) {
+        if (!enabled || (maxSpends <= 0 && maxAmount <= 0)) {
+            return untrackedAdmission;
+        }
+        long now = clock.getAsLong();
+        long bucket = now / bucketMillis;
+        Ring ring = add(wallet, amount, now, bucket);
+        return ring == null ? untrackedAdmission : new Admission(ring, bucket, amount);
+    }
+
+    /** Drops the windows of wallets with no spend in the last window. */
+    @Scheduled(fixedDelayString = "${wallet.velocity.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long bucket = clock.getAsLong() / bucketMillis;
+        evictedAt.accumulateAndGet(bucket, Math::max);
+        rings.forEach((wallet, ring) -> {
+            synchronized (ring) {
+                if (ring.head <= bucket - buckets) {
+                    ring.evicted = true;
+                    rings.remove(wallet, ring);
+                }
+            }
+        });
+    }
+
+    /** Adds the spend to the wallet's window, or throws; null = untracked. */
+    private Ring add(WalletKey wallet, long amount, long now, long bucket) {
+        while (true) {
+            Ring ring = rings.get(wallet);
+            if (ring == null) {
+                ring = open(wallet, now, bucket);
+                if (ring == null) {
+                    untracked.increment();
+                    return null;
+                }
+            }
+            synchronized (ring) {
+                if (ring.evicted) {
+                    continue;
+                }
+                advance(ring, bucket);
+                int count = Arrays.stream(ring.counts).sum();
+                long total = Arrays.stream(ring.amounts).sum();
+                if (maxSpends > 0 && count + 1 > maxSpends) {
+                    countRejections.increment();
+                    throw new VelocityLimitExceededException(wallet.getAccountId(), wallet.getAssetTypeId(),
+                            "at most " + maxSpends + " spends per " + windowSeconds + " s",
+                            retryAfterSeconds(ring, now));
+                }
+                if (maxAmount > 0 && total + amount > maxAmount) {
+                    amountRejections.increment();
+                    throw new VelocityLimitExceededException(wallet.getAccountId(), wallet.getAssetTypeId(),
+                            "at most " + maxAmount + " spent per " + windowSeconds + " s",
+                            retryAfterSeconds(ring, now));
+                }
+                int slot = slot(bucket);
+                ring.counts[slot]++;
+                ring.amounts[slot] += amount;
+                return ring;
+            }
+        }
+    }
+
+    /** A new window for the wallet, seeded from the ledger while the node is young. */
+    private Ring open(WalletKey wallet, long now, long bucket) {
+        if (rings.size() >= maxWallets) {
+            // Nothing turns idle within a bucket: one scan per bucket finds it all
+            long scanned = evictedAt.get();
+            if (scanned < bucket && evictedAt.compareAndSet(scanned, bucket)) {
+                evictIdle();
+            }
+            if (rings.size() >= maxWallets) {
+                return null;
+            }
+        }
+        Ring ring = new Ring(buckets, bucket);
+        if (now - startedAt < windowSeconds * 1000) {
+            for (LedgerEntry entry : recentSpends.find(wallet, windowSeconds)) {
+                long at = Math.min(entry.getCreatedAt().toInstant().toEpochMilli() / bucketMillis, bucket);
+                if (at > bucket - buckets) {
+                    ring.counts[slot(at)]++;
+                    ring.amounts[slot(at)] -= entry.getAmount();
+                }
+            }
+            seeded.increment();
+        }
+        Ring existing = rings.putIfAbsent(wallet, ring);
+        return existing != null ? existing : ring;
+    }
+
+    private void takeBack(Ring ring, long bucket, long amount) {
+        synchronized (ring) {
+            // Nothing to undo once the slot has left the window
+            if (!ring.evicted && bucket > ring.head - buckets) {
+                int slot = slot(bucket);
+                ring.counts[slot]--;
+                ring.amounts[slot] -= amount;
+            }
+        }
+    }
+
+    /** Moves the ring's head to {@code bucket}, clearing the slots it passes. */
+    private void advance(Ring ring, long bucket) {
+        if (bucket <= ring.head) {
+            return;
+        }
+        if (bucket - ring.head >= buckets) {
+            Arrays.fill(ring.counts, 0);
+            Arrays.fill(ring.amounts, 0);
+        } else {
+            for (long b = ring.head + 1; b <= bucket; b++) {
+                ring.counts[slot(b)] = 0;
+                ring.amounts[slot(b)] = 0;
+            }
+        }
+        ring.head = bucket;
+    }
+
+    /** Seconds until the oldest spend in the window leaves it. */
+    private long retryAfterSeconds(Ring ring, long now) {
+        for (long b = ring.head - buckets + 1; b <= ring.head; b++) {
+            if (ring.counts[slot(b)] > 0) {
+                long leavesAt = (b + buckets) * bucketMillis;
+                return Math.max(1, (leavesAt - now + 999) / 1000);
+            }
+        }
+        return 1;
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) buckets);
+    }
+
+    private static RecentSpends fromLedger(LedgerRepository ledgerRepo, ShardRouter shards,
+                                           PlatformTransactionManager transactionManager) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return (wallet, seconds) -> shards.onShard(shards.shardOf(wallet.getAccountId()),
+                () -> readOnly.execute(status -> ledgerRepo.findRecentSpends(
+                        wallet.getAccountId(), wallet.getAssetTypeId(), seconds, REBUILD_MAX_ROWS)));
+    }
+}
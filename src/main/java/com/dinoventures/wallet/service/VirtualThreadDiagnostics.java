@@ -0,0 +1,169 @@
+package com.dinoventures.wallet.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diagnostics mode for virtual-thread pinning and carrier starvation
+ * (wallet.diagnostics.virtual-threads.enabled):
+ *
+ *   1. Pinning — an in-process JFR stream of jdk.VirtualThreadPinned
+ *      (threshold {@code pinned-threshold-ms}): timer wallet.vthreads.pinned
+ *      plus counts by the innermost application frame.
+ *   2. Carrier utilization — CPU time of the virtual-thread scheduler's
+ *      carrier threads per second of wall time, as a fraction of all
+ *      carriers (gauge wallet.vthreads.carrier.utilization).
+ *
+ * Threads blocked waiting for a connection are the per-pool
+ * hikaricp.connections.pending and wallet.db.limiter.waiting gauges.
+ * Snapshot: GET /api/v1/admin/virtual-threads.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.diagnostics.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadDiagnostics {
+
+    private static final String CARRIER_CLASS = "jdk.internal.misc.CarrierThread";
+    private static final String APP_PACKAGE = "com.dinoventures.";
+    private static final int MAX_TRACKED_FRAMES = 100;
+
+    private final long pinnedThresholdMs;
+    private final Timer pinned;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final int parallelism = Integer.getInteger(
+            "jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+
+    private final ConcurrentHashMap<String, LongAdder> pinnedByFrame = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    // Last carrier sample
+    private long lastCpuNanos = -1;
+    private long lastWallNanos;
+    private volatile double carrierUtilization;
+    private volatile int carriers;
+    private final AtomicLong pinnedEvents = new AtomicLong();
+
+    public VirtualThreadDiagnostics(
+            MeterRegistry registry,
+            @Value("${wallet.diagnostics.virtual-threads.pinned-threshold-ms:5}") long pinnedThresholdMs) {
+        this.pinnedThresholdMs = pinnedThresholdMs;
+        this.pinned = Timer.builder("wallet.vthreads.pinned")
+                .description("Virtual threads blocked while pinned to their carrier")
+                .register(registry);
+        Gauge.builder("wallet.vthreads.carrier.utilization", () -> carrierUtilization).register(registry);
+        Gauge.builder("wallet.vthreads.carriers", () -> carriers).register(registry);
+        Gauge.builder("wallet.vthreads.parallelism", () -> parallelism).register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned")
+                .withThreshold(Duration.ofMillis(pinnedThresholdMs))
+                .withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    void stop() {
+        stream.close();
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public void sampleCarriers() {
+        long cpu = 0;
+        int count = 0;
+        for (Thread t : platformThreads()) {
+            if (t.getClass().getName().equals(CARRIER_CLASS)) {
+                long threadCpu = threads.getThreadCpuTime(t.threadId());
+                if (threadCpu > 0) {
+                    cpu += threadCpu;
+                }
+                count++;
+            }
+        }
+        long now = System.nanoTime();
+        if (lastCpuNanos >= 0 && now > lastWallNanos) {
+            // Carriers that exited since the last sample make the delta negative; skip it
+            long cpuDelta = cpu - lastCpuNanos;
+            if (cpuDelta >= 0) {
+                carrierUtilization = (double) cpuDelta / ((now - lastWallNanos) * (double) parallelism);
+            }
+        }
+        carriers = count;
+        lastCpuNanos = cpu;
+        lastWallNanos = now;
+    }
+
+    /** Snapshot for the admin endpoint. */
+    public Map<String, Object> snapshot() {
+        List<Map.Entry<String, LongAdder>> top = new ArrayList<>(pinnedByFrame.entrySet());
+        top.sort((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()));
+        Map<String, Long> topFrames = new LinkedHashMap<>();
+        top.stream().limit(10).forEach(e -> topFrames.put(e.getKey(), e.getValue().sum()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("parallelism", parallelism);
+        result.put("carriers", carriers);
+        result.put("carrier_utilization", carrierUtilization);
+        result.put("pinned_events", pinnedEvents.get());
+        result.put("pinned_total_ms", pinned.totalTime(TimeUnit.MILLISECONDS));
+        result.put("pinned_top_frames", topFrames);
+        return result;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        pinnedEvents.incrementAndGet();
+        String frame = topFrame(event);
+        if (pinnedByFrame.size() < MAX_TRACKED_FRAMES || pinnedByFrame.containsKey(frame)) {
+            pinnedByFrame.computeIfAbsent(frame, k -> new LongAdder()).increment();
+        }
+    }
+
+    /** Innermost application frame, else the innermost frame. */
+    private static String topFrame(RecordedEvent event) {
+        if (event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty()) {
+            return "unknown";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        RecordedFrame chosen = frames.stream()
+                .filter(f -> f.getMethod().getType().getName().startsWith(APP_PACKAGE))
+                .findFirst()
+                .orElse(frames.get(0));
+        return chosen.getMethod().getType().getName() + "." + chosen.getMethod().getName();
+    }
+
+    private static List<Thread> platformThreads() {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        Thread[] all = new Thread[root.activeCount() + 16];
+        int n = root.enumerate(all, true);
+        return Arrays.asList(all).subList(0, n);
+    }
+}
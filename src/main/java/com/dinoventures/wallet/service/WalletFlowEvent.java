@@ -0,0 +1,48 @@
+package com.dinoventures.wallet.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One write flow (topup, bonus, spend, accept) from its first statement to
+ * commit or rollback. Emitted by {@link FlowRecorder}.
+ */
+@Name("com.dinoventures.wallet.Flow")
+@Label("Wallet Flow")
+@Category({"Wallet", "Transactions"})
+@Description("A wallet write transaction, begin to commit/rollback")
+@StackTrace(false)
+class WalletFlowEvent extends Event {
+
+    @Label("Flow")
+    String flow;
+
+    @Label("Account Id")
+    long accountId;
+
+    @Label("Asset Type Id")
+    long assetTypeId;
+
+    @Label("Wallet Ids")
+    @Description("Wallets locked, in lock order")
+    String walletIds;
+
+    @Label("Lock Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long lockWait;
+
+    @Label("Statements")
+    int statements;
+
+    @Label("Idempotent Hit")
+    boolean idempotentHit;
+
+    @Label("Outcome")
+    @Description("committed, rolled_back or unknown")
+    String outcome;
+}
@@ -0,0 +1,33 @@
+package com.dinoventures.wallet.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One phase of a write flow: validate, idempotency, resolve, lock, apply,
+ * commit. Emitted by {@link FlowRecorder}; the phases of a flow tile its
+ * {@link WalletFlowEvent} on the same thread.
+ */
+@Name("com.dinoventures.wallet.Phase")
+@Label("Wallet Flow Phase")
+@Category({"Wallet", "Transactions"})
+@Description("One phase of a wallet write transaction")
+@StackTrace(false)
+class WalletPhaseEvent extends Event {
+
+    @Label("Flow")
+    String flow;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Account Id")
+    long accountId;
+
+    @Label("Statements")
+    int statements;
+}
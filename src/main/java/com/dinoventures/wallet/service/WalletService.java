@@ -1,20 +1,40 @@
 package com.dinoventures.wallet.service;
 
+import com.dinoventures.wallet.config.ShardKey;
+import com.dinoventures.wallet.config.ShardRouter;
 import com.dinoventures.wallet.exception.AccountNotFoundException;
 import com.dinoventures.wallet.exception.AssetTypeNotFoundException;
+import com.dinoventures.wallet.exception.EngineManagedAssetException;
 import com.dinoventures.wallet.exception.InsufficientFundsException;
+import com.dinoventures.wallet.exception.TransactionNotFoundException;
 import com.dinoventures.wallet.model.Account;
+import com.dinoventures.wallet.model.BalanceSnapshot;
+import com.dinoventures.wallet.model.LedgerEntry;
 import com.dinoventures.wallet.model.LedgerEntryView;
+import com.dinoventures.wallet.model.LedgerLeg;
 import com.dinoventures.wallet.model.Transaction;
 import com.dinoventures.wallet.model.Wallet;
+import com.dinoventures.wallet.model.WalletKey;
+import com.dinoventures.wallet.model.WalletVersion;
 import com.dinoventures.wallet.model.dto.*;
 import com.dinoventures.wallet.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 @Service
@@ -22,14 +42,34 @@ import java.util.stream.Stream;
 public class WalletService {
 
     // System account names — must match the seed data
-    private static final String TREASURY_NAME = "Treasury";
-    private static final String REVENUE_NAME  = "Revenue";
+    static final String TREASURY_NAME = "Treasury";
+    static final String REVENUE_NAME  = "Revenue";
+
+    // Transaction statuses
+    private static final String PENDING   = "pending";
+    private static final String COMPLETED = "completed";
+    private static final String FAILED    = "failed";
 
     private final AccountRepository    accountRepo;
     private final AssetTypeRepository  assetTypeRepo;
     private final WalletRepository     walletRepo;
     private final TransactionRepository txRepo;
     private final LedgerRepository     ledgerRepo;
+    private final WriteAdmissionControl admission;
+    private final BalanceCache         balanceCache;
+    private final WriteTimeouts        timeouts;
+    private final RequestDeadline      deadline;
+    private final FlowRecorder         recorder;
+    private final PlatformTransactionManager transactionManager;
+    private final ShardRouter          shards;
+    private final BalanceEngine        engine;
+    private final BonusGrantRepository bonusGrantRepo;
+
+    @Value("${wallet.accounts.max-page-size:1000}")
+    private int maxPageSize;
+
+    @Value("${wallet.accounts.export-batch-size:1000}")
+    private int exportBatchSize;
 
     // =========================================================================
     // TRANSACTION FLOWS
@@ -47,22 +87,34 @@ public class WalletService {
      *   4. Lock wallets in ascending ID order (deadlock prevention)
      *   5. Insert two balanced ledger entries (Treasury −N, User +N)
      *   6. Commit
+     *
+     * Every write flow first bounds its lock/statement waits for this
+     * transaction ({@link WriteTimeouts}); callers wrap it in {@link WriteRetry}.
+     * Phases are marked for JFR via {@link FlowRecorder}.
      */
     @Transactional(isolation = Isolation.READ_COMMITTED)
-    public TransactionResponse topup(TopupRequest req, String idempotencyKey) {
+    public TransactionResponse topup(@ShardKey TopupRequest req, String idempotencyKey) {
+        recorder.begin("topup", req.getAccountId(), req.getAssetTypeId());
+        timeouts.apply("topup");
         validateAccountExists(req.getAccountId());
         validateAssetTypeExists(req.getAssetTypeId());
 
         // Step 1+2: Idempotency gate
+        recorder.phase("idempotency");
         int rowsInserted = txRepo.insertIfNew(idempotencyKey, "topup",
-                req.getDescription() != null ? req.getDescription() : "Wallet top-up");
+                descriptionOrDefault("topup", req.getDescription()), COMPLETED,
+                req.getAccountId(), req.getAssetTypeId(), req.getAmount());
         Transaction txn = txRepo.findByIdempotencyKey(idempotencyKey).orElseThrow();
 
         if (rowsInserted == 0) {
             // Duplicate request — return the cached result
+            recorder.idempotentHit();
             return new TransactionResponse(txn, ledgerRepo.findByTransactionId(txn.getId()), true);
         }
 
+        deadline.check("after_idempotency");
+        recorder.phase("resolve");
+
         // Step 3: Resolve system treasury and user wallets
         Account treasury = accountRepo.findByName(TREASURY_NAME)
                 .orElseThrow(() -> new AccountNotFoundException(TREASURY_NAME));
@@ -73,13 +125,15 @@ public class WalletService {
         List<Long> sortedIds = Stream.of(treasuryWallet.getId(), userWallet.getId())
                 .sorted()
                 .toList();
-        walletRepo.lockForUpdate(sortedIds);
+        lockWallets(sortedIds);
 
         // Step 5: Double-entry ledger (SUM = 0, balanced)
-        ledgerRepo.insert(txn.getId(), treasuryWallet.getId(), -req.getAmount());  // Treasury debited
-        ledgerRepo.insert(txn.getId(), userWallet.getId(),     +req.getAmount());  // User credited
+        List<LedgerEntry> entries = ledgerRepo.post(txn.getId(), List.of(
+                LedgerLeg.debit(treasuryWallet.getId(), req.getAmount()),    // Treasury debited
+                LedgerLeg.credit(userWallet.getId(),    req.getAmount())));  // User credited
+        balanceCache.invalidateAfterCommit(treasuryWallet, userWallet);
 
-        return new TransactionResponse(txn, ledgerRepo.findByTransactionId(txn.getId()), false);
+        return new TransactionResponse(txn, entries, false);
     }
 
     /**
@@ -87,19 +141,30 @@ public class WalletService {
      *
      * Structurally identical to top-up but recorded as type="bonus" for
      * reporting and analytics differentiation.
+     *
+     * With {@code expires_in_seconds} the bonus is also recorded as a grant:
+     * spends draw on it first, and {@link BonusExpirySweeper} returns whatever
+     * is left at expiry to Treasury.
      */
     @Transactional(isolation = Isolation.READ_COMMITTED)
-    public TransactionResponse bonus(BonusRequest req, String idempotencyKey) {
+    public TransactionResponse bonus(@ShardKey BonusRequest req, String idempotencyKey) {
+        recorder.begin("bonus", req.getAccountId(), req.getAssetTypeId());
+        timeouts.apply("bonus");
         validateAccountExists(req.getAccountId());
         validateAssetTypeExists(req.getAssetTypeId());
 
+        recorder.phase("idempotency");
         int rowsInserted = txRepo.insertIfNew(idempotencyKey, "bonus",
-                req.getDescription() != null ? req.getDescription() : "Bonus credit");
+                descriptionOrDefault("bonus", req.getDescription()), COMPLETED,
+                req.getAccountId(), req.getAssetTypeId(), req.getAmount());
         Transaction txn = txRepo.findByIdempotencyKey(idempotencyKey).orElseThrow();
 
         if (rowsInserted == 0) {
+            recorder.idempotentHit();
             return new TransactionResponse(txn, ledgerRepo.findByTransactionId(txn.getId()), true);
         }
+        deadline.check("after_idempotency");
+        recorder.phase("resolve");
 
         Account treasury = accountRepo.findByName(TREASURY_NAME)
                 .orElseThrow(() -> new AccountNotFoundException(TREASURY_NAME));
@@ -109,12 +174,17 @@ public class WalletService {
         List<Long> sortedIds = Stream.of(treasuryWallet.getId(), userWallet.getId())
                 .sorted()
                 .toList();
-        walletRepo.lockForUpdate(sortedIds);
+        lockWallets(sortedIds);
 
-        ledgerRepo.insert(txn.getId(), treasuryWallet.getId(), -req.getAmount());
-        ledgerRepo.insert(txn.getId(), userWallet.getId(),     +req.getAmount());
+        List<LedgerEntry> entries = ledgerRepo.post(txn.getId(), List.of(
+                LedgerLeg.debit(treasuryWallet.getId(), req.getAmount()),
+                LedgerLeg.credit(userWallet.getId(),    req.getAmount())));
+        if (req.getExpiresInSeconds() != null) {
+            bonusGrantRepo.insert(txn.getId(), userWallet, req.getAmount(), req.getExpiresInSeconds());
+        }
+        balanceCache.invalidateAfterCommit(treasuryWallet, userWallet);
 
-        return new TransactionResponse(txn, ledgerRepo.findByTransactionId(txn.getId()), false);
+        return new TransactionResponse(txn, entries, false);
     }
 
     /**
@@ -129,25 +199,34 @@ public class WalletService {
      *   2. If duplicate → return cached result
      *   3. Resolve/create wallets for User and Revenue
      *   4. Lock wallets in ascending ID order
-     *   5. Compute user balance INSIDE the lock (serialized read)
-     *   6. If balance < amount → throw InsufficientFundsException (triggers rollback)
+     *   5. Compute user's available balance INSIDE the lock (ledger balance - active holds)
+     *   6. If available < amount → throw InsufficientFundsException (triggers rollback)
      *   7. Insert two balanced ledger entries (User −N, Revenue +N)
-     *   8. Commit
+     *   8. Draw the amount from the wallet's expiring bonuses first
+     *   9. Commit
      */
     @Transactional(isolation = Isolation.READ_COMMITTED)
-    public TransactionResponse spend(SpendRequest req, String idempotencyKey) {
+    public TransactionResponse spend(@ShardKey SpendRequest req, String idempotencyKey) {
+        recorder.begin("spend", req.getAccountId(), req.getAssetTypeId());
+        timeouts.apply("spend");
         validateAccountExists(req.getAccountId());
         validateAssetTypeExists(req.getAssetTypeId());
 
         // Step 1+2: Idempotency gate
+        recorder.phase("idempotency");
         int rowsInserted = txRepo.insertIfNew(idempotencyKey, "spend",
-                req.getDescription() != null ? req.getDescription() : "Credit spend");
+                descriptionOrDefault("spend", req.getDescription()), COMPLETED,
+                req.getAccountId(), req.getAssetTypeId(), req.getAmount());
         Transaction txn = txRepo.findByIdempotencyKey(idempotencyKey).orElseThrow();
 
         if (rowsInserted == 0) {
+            recorder.idempotentHit();
             return new TransactionResponse(txn, ledgerRepo.findByTransactionId(txn.getId()), true);
         }
 
+        deadline.check("after_idempotency");
+        recorder.phase("resolve");
+
         // Step 3: Resolve wallets
         Account revenue = accountRepo.findByName(REVENUE_NAME)
                 .orElseThrow(() -> new AccountNotFoundException(REVENUE_NAME));
@@ -160,14 +239,16 @@ public class WalletService {
         List<Long> sortedIds = Stream.of(userWallet.getId(), revenueWallet.getId())
                 .sorted()
                 .toList();
-        walletRepo.lockForUpdate(sortedIds);
+        lockWallets(sortedIds);
 
         // Step 5: Compute balance inside the lock — this is a serialized read.
         // Any concurrent spend that locked these wallets before us will have
         // already committed (updating the ledger) before we reach this point.
-        long currentBalance = ledgerRepo.getBalance(req.getAccountId(), req.getAssetTypeId());
+        // Funds reserved by active holds are not available to spend.
+        long currentBalance = ledgerRepo.getBalance(req.getAccountId(), req.getAssetTypeId())
+                - walletRepo.getHeldAmount(userWallet.getId());
 
-        // Step 6: Enforce non-negative balance invariant
+        // Step 6: Enforce non-negative available balance invariant
         if (currentBalance < req.getAmount()) {
             // Rolling back will also undo the transaction row insert,
             // but because the idempotency key is already in the DB within
@@ -181,26 +262,261 @@ public class WalletService {
         }
 
         // Step 7: Double-entry ledger (SUM = 0, balanced)
-        ledgerRepo.insert(txn.getId(), userWallet.getId(),    -req.getAmount());  // User debited
-        ledgerRepo.insert(txn.getId(), revenueWallet.getId(), +req.getAmount());  // Revenue credited
+        List<LedgerEntry> entries = ledgerRepo.post(txn.getId(), List.of(
+                LedgerLeg.debit(userWallet.getId(),     req.getAmount()),    // User debited
+                LedgerLeg.credit(revenueWallet.getId(), req.getAmount())));  // Revenue credited
+
+        // Step 8: Bonus-first consumption
+        bonusGrantRepo.consume(userWallet.getId(), req.getAmount());
+        balanceCache.invalidateAfterCommit(userWallet, revenueWallet);
 
-        return new TransactionResponse(txn, ledgerRepo.findByTransactionId(txn.getId()), false);
+        return new TransactionResponse(txn, entries, false);
     }
 
     // =========================================================================
-    // QUERY OPERATIONS
+    // ASYNC (ACCEPT-THEN-PROCESS) FLOWS
     // =========================================================================
 
-    @Transactional(readOnly = true)
-    public BalanceResponse getBalance(long accountId, long assetTypeId) {
+    /**
+     * Async mode: durably records the request as a 'pending' transaction and
+     * returns immediately, without touching any wallet lock.
+     *
+     * The background {@link PendingTransactionProcessor} later applies it via
+     * {@link #processPendingBatch(int)} and moves it to 'completed' or 'failed'.
+     * A replay of the same Idempotency-Key returns the transaction in whatever
+     * state it has reached (idempotent=true).
+     *
+     * Not available for asset types owned by the {@link BalanceEngine}.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public TransactionResponse accept(String type, @ShardKey long accountId, long assetTypeId, long amount,
+                                      String description, String idempotencyKey) {
+        if (engine.owns(assetTypeId)) {
+            throw new EngineManagedAssetException(assetTypeId, "async processing");
+        }
+        recorder.begin("accept", accountId, assetTypeId);
+        timeouts.apply("accept");
         validateAccountExists(accountId);
         validateAssetTypeExists(assetTypeId);
-        long balance = ledgerRepo.getBalance(accountId, assetTypeId);
-        return new BalanceResponse(accountId, assetTypeId, balance);
+
+        recorder.phase("idempotency");
+        int rowsInserted = txRepo.insertIfNew(idempotencyKey, type,
+                descriptionOrDefault(type, description), PENDING, accountId, assetTypeId, amount);
+        Transaction txn = txRepo.findByIdempotencyKey(idempotencyKey).orElseThrow();
+        if (rowsInserted == 0) {
+            recorder.idempotentHit();
+        }
+
+        return new TransactionResponse(txn, ledgerRepo.findByTransactionId(txn.getId()), rowsInserted == 0);
     }
 
+    /**
+     * Applies up to {@code limit} pending transactions in a single DB transaction
+     * (one commit per batch). Returns the number of transactions finalized.
+     * Works on the shard selected by the caller ({@link PendingTransactionProcessor}
+     * drains each shard in turn).
+     *
+     * Algorithm:
+     *   1. Claim the oldest pending rows (FOR UPDATE SKIP LOCKED)
+     *   2. Drop rows whose wallet has an older pending row this batch does not
+     *      own — they stay pending, preserving per-wallet submission order
+     *   3. Resolve every wallet the batch touches and lock them ALL up front in
+     *      ascending ID order — the same deadlock-free order the sync flows use
+     *   4. Apply each transaction in id order, each under its own savepoint;
+     *      a spend that would overdraw, or a row the database rejects on its
+     *      own (a constraint violation, an amount overflow), is marked
+     *      'failed' (with the reason) instead of rolling back the batch — a
+     *      poison row would otherwise be claimed again on every tick. Lock
+     *      and statement timeouts still roll back the whole batch, to be
+     *      retried
+     *   5. Commit
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public int processPendingBatch(int limit) {
+        // Step 1: Claim
+        List<Transaction> claimed = txRepo.claimPending(limit);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        timeouts.apply("pending-batch");
+
+        // Step 2: Per-wallet ordering
+        List<Long> accountIds = claimed.stream().map(Transaction::getAccountId).distinct().toList();
+        List<Long> claimedIds = claimed.stream().map(Transaction::getId).toList();
+        Map<WalletKey, Long> blockedFrom = txRepo.findOldestUnclaimedPending(accountIds, claimedIds);
+        List<Transaction> runnable = claimed.stream()
+                .filter(t -> {
+                    Long oldestElsewhere = blockedFrom.get(new WalletKey(t.getAccountId(), t.getAssetTypeId()));
+                    return oldestElsewhere == null || t.getId() < oldestElsewhere;
+                })
+                .toList();
+        if (runnable.isEmpty()) {
+            return 0;
+        }
+
+        // Step 3: Resolve and lock every wallet in the batch
+        Map<Long, Wallet[]> legs = new HashMap<>();            // txn id -> {debited, credited}
+        Map<String, Wallet> systemWallets = new HashMap<>();   // "<name>/<asset type>" -> wallet
+        List<Long> walletIds = new ArrayList<>();
+        for (Transaction t : runnable) {
+            Wallet userWallet = walletRepo.getOrCreate(t.getAccountId(), t.getAssetTypeId());
+            String systemName = "spend".equals(t.getType()) ? REVENUE_NAME : TREASURY_NAME;
+            Wallet systemWallet = systemWallets.computeIfAbsent(systemName + "/" + t.getAssetTypeId(),
+                    k -> systemWallet(systemName, t.getAssetTypeId()));
+            Wallet[] pair = "spend".equals(t.getType())
+                    ? new Wallet[]{userWallet, systemWallet}
+                    : new Wallet[]{systemWallet, userWallet};
+            legs.put(t.getId(), pair);
+            walletIds.add(pair[0].getId());
+            walletIds.add(pair[1].getId());
+        }
+        lockWallets(walletIds.stream().distinct().sorted().toList());
+
+        // Step 4: Apply in submission order
+        TransactionTemplate savepoint = new TransactionTemplate(transactionManager);
+        savepoint.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        for (Transaction t : runnable) {
+            try {
+                savepoint.executeWithoutResult(status -> applyPending(t, legs.get(t.getId())));
+            } catch (DataIntegrityViolationException | ArithmeticException e) {
+                txRepo.updateStatus(t.getId(), FAILED, e instanceof ArithmeticException
+                        ? "Could not be applied: amount out of range"
+                        : "Could not be applied: rejected by the database");
+            }
+        }
+        return runnable.size();
+    }
+
+    /** Applies one claimed pending transaction, or marks an overdrawing spend 'failed'. */
+    private void applyPending(Transaction t, Wallet[] pair) {
+        if ("spend".equals(t.getType())) {
+            // Sees the ledger entries written earlier in this batch
+            long currentBalance = ledgerRepo.getBalance(t.getAccountId(), t.getAssetTypeId())
+                    - walletRepo.getHeldAmount(pair[0].getId());
+            if (currentBalance < t.getAmount()) {
+                String reason = new InsufficientFundsException(
+                        t.getAccountId(), t.getAssetTypeId(), currentBalance, t.getAmount()).getMessage();
+                txRepo.updateStatus(t.getId(), FAILED, reason);
+                return;
+            }
+        }
+        ledgerRepo.post(t.getId(), List.of(
+                LedgerLeg.debit(pair[0].getId(),  t.getAmount()),
+                LedgerLeg.credit(pair[1].getId(), t.getAmount())));
+        if ("spend".equals(t.getType())) {
+            bonusGrantRepo.consume(pair[0].getId(), t.getAmount());
+        }
+        txRepo.updateStatus(t.getId(), COMPLETED, null);
+        balanceCache.invalidateAfterCommit(pair);
+    }
+
+    // =========================================================================
+    // QUERY OPERATIONS
+    // =========================================================================
+
+    /**
+     * Concurrent reads of the same wallet are coalesced into one query (and
+     * optionally served from a short-TTL cache) by {@link BalanceCache}. Only
+     * the leading read borrows a connection, in its own read-only transaction.
+     * Wallets held by the {@link BalanceEngine} are answered from memory.
+     */
+    public BalanceResponse getBalance(@ShardKey long accountId, long assetTypeId) {
+        return getBalanceSnapshot(accountId, assetTypeId).getResponse();
+    }
+
+    /**
+     * The balance and the ETag of the state it was read from (see
+     * {@link #getBalance}). The ETag travels with the body through the cache,
+     * so a body served stale within the TTL carries its own, older ETag.
+     *
+     * Algorithm (database path, one read-only transaction):
+     *   1. Read the {@link WalletVersion} and take the held amount from it
+     *   2. SUM the ledger — after step 1, so the body is never older than the
+     *      ETag; a post landing in between only makes the ETag older, which
+     *      costs one extra 200 (entry ids never repeat)
+     */
+    public BalanceSnapshot getBalanceSnapshot(@ShardKey long accountId, long assetTypeId) {
+        if (engine.owns(assetTypeId)) {
+            BalanceResponse fromEngine = engine.balance(accountId, assetTypeId);
+            if (fromEngine != null) {
+                return new BalanceSnapshot(fromEngine, engineETag(fromEngine));
+            }
+        }
+        // Checked before joining a shared read: a leader must not fail its
+        // followers with its own expired deadline.
+        deadline.check("before_connection");
+        return balanceCache.get(new WalletKey(accountId, assetTypeId), () -> readOnly().execute(status -> {
+            validateAccountExists(accountId);
+            validateAssetTypeExists(assetTypeId);
+            Optional<WalletVersion> version = walletRepo.findVersion(accountId, assetTypeId);
+            long balance = ledgerRepo.getBalance(accountId, assetTypeId);
+            long held = version.map(WalletVersion::getHeldAmount).orElse(0L);
+            return new BalanceSnapshot(new BalanceResponse(accountId, assetTypeId, balance, held, balance - held),
+                    version.map(WalletService::balanceETag).orElse(null));
+        }));
+    }
+
+    /**
+     * The ETag {@link #getBalanceSnapshot} would return right now, or null if
+     * the wallet does not exist (the full read then decides between a zero
+     * balance and 404). Computed from {@link WalletVersion} — two index
+     * probes, no SUM — or from memory for engine-held wallets.
+     *
+     * A match means the client already has the current body. A mismatch says
+     * nothing about the cached body: answer it with the snapshot's own ETag.
+     */
+    public String balanceETag(@ShardKey long accountId, long assetTypeId) {
+        if (engine.owns(assetTypeId)) {
+            BalanceResponse fromEngine = engine.balance(accountId, assetTypeId);
+            if (fromEngine != null) {
+                return engineETag(fromEngine);
+            }
+        }
+        return readOnly().execute(status -> walletRepo.findVersion(accountId, assetTypeId)
+                .map(WalletService::balanceETag)
+                .orElse(null));
+    }
+
+    private static String balanceETag(WalletVersion version) {
+        return "b-" + version.getLastEntryId() + "-" + version.getHeldAmount();
+    }
+
+    /**
+     * The engine's committed balance can trail the database by one batch, so
+     * its ETag is derived from the body itself rather than the DB marker.
+     */
+    private static String engineETag(BalanceResponse fromEngine) {
+        return "be-" + fromEngine.getBalance() + "-" + fromEngine.getHeld();
+    }
+
+    /**
+     * ETag for a ledger page, or null if the wallet does not exist. Entries
+     * and their transactions' type/description never change once written, so
+     * the page is determined by the last entry id and the paging parameters.
+     *
+     * Call it BEFORE building the page (which is never cached): a write
+     * landing in between makes the ETag older than the body, which only
+     * costs the client one extra 200.
+     */
     @Transactional(readOnly = true)
-    public LedgerResponse getLedger(long accountId, long assetTypeId, int page, int pageSize) {
+    public String ledgerETag(@ShardKey long accountId, long assetTypeId, int page, int pageSize) {
+        return walletRepo.findVersion(accountId, assetTypeId)
+                .map(v -> "l-" + v.getLastEntryId() + "-" + page + "-" + pageSize)
+                .orElse(null);
+    }
+
+    /**
+     * Current state of a transaction — the status URL of async requests.
+     */
+    @Transactional(readOnly = true)
+    public TransactionResponse getTransaction(@ShardKey long transactionId) {
+        Transaction txn = txRepo.findById(transactionId)
+                .orElseThrow(() -> new TransactionNotFoundException(transactionId));
+        return new TransactionResponse(txn, ledgerRepo.findByTransactionId(transactionId), false);
+    }
+
+    @Transactional(readOnly = true)
+    public LedgerResponse getLedger(@ShardKey long accountId, long assetTypeId, int page, int pageSize) {
         validateAccountExists(accountId);
         validateAssetTypeExists(assetTypeId);
         if (page < 1) page = 1;
@@ -216,25 +532,92 @@ public class WalletService {
     // ACCOUNT & ASSET TYPE OPERATIONS
     // =========================================================================
 
-    @Transactional(readOnly = true)
-    public List<Account> getAllAccounts() {
-        return accountRepo.findAll();
+    /**
+     * One page of accounts in id order, after {@code afterId} (0 for the first
+     * page). Every shard returns its own first {@code limit} matches in
+     * parallel; the page is the lowest {@code limit} ids among them.
+     * {@link AccountPage#getNextAfter()} is set while more may follow.
+     */
+    public AccountPage listAccounts(long afterId, String type, String namePrefix, int limit) {
+        validateListing(type, limit, maxPageSize);
+        List<Account> page = shards.scatter(shard -> readOnly().execute(
+                        status -> accountRepo.findPage(afterId, type, namePrefix, limit))).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingLong(Account::getId))
+                .limit(limit)
+                .toList();
+        Long nextAfter = page.size() == limit ? page.get(page.size() - 1).getId() : null;
+        return new AccountPage(page, nextAfter);
+    }
+
+    /**
+     * Every account (optionally of one type), shard by shard, handed to
+     * {@code sink} in keyset batches of {@code wallet.accounts.export-batch-size}.
+     * Each batch is its own short read-only transaction, so memory stays at
+     * one batch and no snapshot is held open for the length of the dump.
+     */
+    public void exportAccounts(String type, Consumer<List<Account>> sink) {
+        validateListing(type, exportBatchSize, exportBatchSize);
+        for (int shard = 0; shard < shards.shardCount(); shard++) {
+            long after = 0;
+            List<Account> batch;
+            do {
+                long from = after;
+                batch = shards.onShard(shard, () -> readOnly().execute(
+                        status -> accountRepo.findPage(from, type, null, exportBatchSize)));
+                if (!batch.isEmpty()) {
+                    sink.accept(batch);
+                    after = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == exportBatchSize);
+        }
     }
 
-    @Transactional
+    /**
+     * Exact name lookup. Tries the shard the name is placed on first; other
+     * shards are only asked if it is not there (system accounts, or names
+     * placed before shard weights changed).
+     */
+    public Account findAccountByName(String name) {
+        int placed = shards.placeAccount(name);
+        return shards.onShard(placed, () -> readOnly().execute(status -> accountRepo.findByName(name)))
+                .or(() -> shards.scatter(shard -> shard == placed ? Optional.<Account>empty()
+                                : readOnly().execute(status -> accountRepo.findByName(name))).stream()
+                        .flatMap(Optional::stream)
+                        .findFirst())
+                .orElseThrow(() -> new AccountNotFoundException(name));
+    }
+
+    /** Creates the account on the shard {@link ShardRouter#placeAccount} picks for its name. */
     public Account createAccount(CreateAccountRequest req) {
-        return accountRepo.save(req.getType(), req.getName());
+        return shards.onShard(shards.placeAccount(req.getName()),
+                () -> new TransactionTemplate(transactionManager)
+                        .execute(status -> accountRepo.save(req.getType(), req.getName())));
     }
 
-    @Transactional(readOnly = true)
+    /** Asset types are identical on every shard; read from the first. */
     public List<com.dinoventures.wallet.model.AssetType> getAllAssetTypes() {
-        return assetTypeRepo.findAll();
+        return shards.onShard(0, () -> readOnly().execute(status -> assetTypeRepo.findAll()));
     }
 
     // =========================================================================
     // VALIDATION HELPERS
     // =========================================================================
 
+    /** Account type filter: null (any), "user" or "system". */
+    public static void validateAccountType(String type) {
+        if (type != null && !type.equals("user") && !type.equals("system")) {
+            throw new IllegalArgumentException("type must be 'user' or 'system'");
+        }
+    }
+
+    private static void validateListing(String type, int limit, int maxLimit) {
+        validateAccountType(type);
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+    }
+
     private void validateAccountExists(long accountId) {
         accountRepo.findById(accountId)
                 .orElseThrow(() -> new AccountNotFoundException(accountId));
@@ -244,4 +627,47 @@ public class WalletService {
         assetTypeRepo.findById(assetTypeId)
                 .orElseThrow(() -> new AssetTypeNotFoundException(assetTypeId));
     }
+
+    private Wallet systemWallet(String accountName, long assetTypeId) {
+        Account account = accountRepo.findByName(accountName)
+                .orElseThrow(() -> new AccountNotFoundException(accountName));
+        return walletRepo.getOrCreate(account.getId(), assetTypeId);
+    }
+
+    static String descriptionOrDefault(String type, String description) {
+        if (description != null) return description;
+        return switch (type) {
+            case "topup" -> "Wallet top-up";
+            case "bonus" -> "Bonus credit";
+            case "spend" -> "Credit spend";
+            default -> throw new IllegalArgumentException("Unknown transaction type: " + type);
+        };
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    /**
+     * Locks wallets (caller passes ascending ID order) and feeds the observed
+     * lock wait into admission control's adaptive limit — including waits cut
+     * short by lock_timeout, which are the strongest overload signal. A
+     * caller whose deadline passed while queued is shed before any writes.
+     */
+    private void lockWallets(List<Long> sortedIds) {
+        recorder.phase("lock");
+        long start = System.nanoTime();
+        Map<WalletKey, Long> rowWaits = Map.of();
+        try {
+            rowWaits = walletRepo.lockForUpdate(sortedIds);
+        } finally {
+            long waited = System.nanoTime() - start;
+            admission.recordLockWait(waited, rowWaits);
+            recorder.lockAcquired(sortedIds, waited);
+        }
+        deadline.check("after_lock");
+        recorder.phase("apply");
+    }
 }
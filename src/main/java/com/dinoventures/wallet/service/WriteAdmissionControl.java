@@ -0,0 +1,256 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.exception.ServiceOverloadedException;
+import com.dinoventures.wallet.exception.WalletBusyException;
+import com.dinoventures.wallet.model.WalletKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Admission control in front of wallet writes.
+ *
+ * Every write would otherwise borrow a pooled connection and then block in
+ * lockForUpdate for as long as the wallet's lock queue takes to drain. Under a
+ * hot wallet that pins the whole pool. Two limits are enforced BEFORE any
+ * connection is borrowed, and overflow is rejected immediately:
+ *
+ *   1. Per wallet — at most {@code per-wallet-limit} concurrent writes for the
+ *      same (account, asset type). Overflow → 429 Too Many Requests.
+ *   2. Global — an adaptive (AIMD) concurrency limit driven by observed lock
+ *      wait: when the average wait over the last window exceeds the target the
+ *      limit is cut multiplicatively, otherwise it grows by one per window.
+ *      Overflow → 503 Service Unavailable.
+ *
+ * Wallets that {@link HotWalletDetector} currently flags as hot take a
+ * serialized path instead of limit 1: their writes queue in memory (FIFO, at
+ * most {@code hot-wallets.max-queue}, each waiting up to
+ * {@code hot-wallets.max-queue-wait-ms}) and run one at a time, so a hot
+ * wallet holds one connection rather than a connection per queued writer.
+ * A write names its counterparty as well (the Treasury or Revenue wallet it
+ * posts against), so the system wallets every topup, bonus or spend locks
+ * are detected and serialized like any other; a write touching several hot
+ * wallets joins their lanes in (account, asset type) order.
+ *
+ * Rejections carry a Retry-After header. Limiter state is exported as metrics.
+ */
+@Component
+public class WriteAdmissionControl {
+
+    private final HotWalletDetector hotWallets;
+    private final int perWalletLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLockWaitNanos;
+    private final long retryAfterSeconds;
+    private final int maxHotQueue;
+    private final long maxHotQueueWaitMs;
+
+    private final ConcurrentHashMap<WalletKey, Integer> inflightByWallet = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<WalletKey, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicInteger limit;
+
+    private static final Comparator<WalletKey> LANE_ORDER =
+            Comparator.comparingLong(WalletKey::getAccountId).thenComparingLong(WalletKey::getAssetTypeId);
+
+    // Lock-wait samples for the current adjustment window
+    private final Object windowLock = new Object();
+    private long windowWaitNanos;
+    private int windowSamples;
+
+    private final Counter walletBusyRejections;
+    private final Counter overloadRejections;
+    private final Counter serialized;
+    private final Timer lockWait;
+
+    /** A hot wallet's in-memory queue; occupancy = queued + running. */
+    private static final class Lane {
+        final Semaphore permit = new Semaphore(1, true);
+        int occupancy;   // guarded by the lanes map's compute
+    }
+
+    public WriteAdmissionControl(
+            MeterRegistry registry,
+            HotWalletDetector hotWallets,
+            @Value("${wallet.admission.per-wallet-limit:4}") int perWalletLimit,
+            @Value("${wallet.admission.min-limit:4}") int minLimit,
+            @Value("${wallet.admission.max-limit:64}") int maxLimit,
+            @Value("${wallet.admission.target-lock-wait-ms:20}") long targetLockWaitMs,
+            @Value("${wallet.admission.retry-after-seconds:1}") long retryAfterSeconds,
+            @Value("${wallet.hot-wallets.max-queue:64}") int maxHotQueue,
+            @Value("${wallet.hot-wallets.max-queue-wait-ms:2000}") long maxHotQueueWaitMs) {
+        this.hotWallets = hotWallets;
+        this.perWalletLimit = perWalletLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLockWaitNanos = TimeUnit.MILLISECONDS.toNanos(targetLockWaitMs);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.maxHotQueue = maxHotQueue;
+        this.maxHotQueueWaitMs = maxHotQueueWaitMs;
+        this.limit = new AtomicInteger(maxLimit);
+
+        this.walletBusyRejections = Counter.builder("wallet.admission.rejected")
+                .tag("reason", "wallet_busy").register(registry);
+        this.overloadRejections = Counter.builder("wallet.admission.rejected")
+                .tag("reason", "overloaded").register(registry);
+        this.serialized = Counter.builder("wallet.admission.serialized")
+                .description("Writes routed through a hot wallet's serialized path")
+                .register(registry);
+        this.lockWait = Timer.builder("wallet.lock.wait")
+                .description("Time spent waiting in lockForUpdate")
+                .register(registry);
+        Gauge.builder("wallet.admission.limit", limit::get).register(registry);
+        Gauge.builder("wallet.admission.inflight", inflight::get).register(registry);
+        Gauge.builder("wallet.admission.active_wallets", inflightByWallet::size).register(registry);
+    }
+
+    /** A write with no counterparty wallet (e.g. a hold on the user's wallet alone). */
+    public <T> T execute(WalletKey wallet, Supplier<T> write) {
+        return execute(wallet, null, write);
+    }
+
+    /**
+     * Runs {@code write} if both the wallet's and the global limit admit it,
+     * otherwise throws immediately (WalletBusyException / ServiceOverloadedException).
+     * If {@code wallet} or {@code counterparty} is hot, the write goes through
+     * the hot wallets' serialized lanes first. The per-wallet limit applies
+     * to {@code wallet} only: capping a system wallet would cap every user.
+     */
+    public <T> T execute(WalletKey wallet, WalletKey counterparty, Supplier<T> write) {
+        hotWallets.recordArrival(wallet);
+        if (counterparty != null) {
+            hotWallets.recordArrival(counterparty);
+        }
+        List<WalletKey> hot = Stream.of(wallet, counterparty)
+                .filter(key -> key != null && hotWallets.isHot(key))
+                .sorted(LANE_ORDER)
+                .toList();
+        if (!hot.isEmpty()) {
+            return serialized(hot, write);
+        }
+        if (inflightByWallet.merge(wallet, 1, Integer::sum) > perWalletLimit) {
+            releaseWallet(wallet);
+            walletBusyRejections.increment();
+            throw new WalletBusyException(wallet.getAccountId(), wallet.getAssetTypeId(), retryAfterSeconds);
+        }
+        try {
+            return withGlobalLimit(write);
+        } finally {
+            releaseWallet(wallet);
+        }
+    }
+
+    /**
+     * Feeds one lockForUpdate wait into the adaptive limit and each row's
+     * share of it into the hot-wallet sketch, against the wallet whose row it
+     * was (see WalletRepository#lockForUpdate). Called by the services right
+     * after acquiring wallet locks; {@code rowWaits} is empty when the lock
+     * failed (lock_timeout), which still counts towards the limit.
+     */
+    public void recordLockWait(long nanos, Map<WalletKey, Long> rowWaits) {
+        lockWait.record(nanos, TimeUnit.NANOSECONDS);
+        rowWaits.forEach(hotWallets::recordLockWait);
+        long windowAverage;
+        synchronized (windowLock) {
+            windowWaitNanos += nanos;
+            // One adjustment per "window" of roughly limit-many completions
+            if (++windowSamples < limit.get()) {
+                return;
+            }
+            windowAverage = windowWaitNanos / windowSamples;
+            windowWaitNanos = 0;
+            windowSamples = 0;
+        }
+        // Atomic read-modify-write: concurrent windows closing must not lose an adjustment
+        if (windowAverage > targetLockWaitNanos) {
+            limit.updateAndGet(l -> Math.max(minLimit, (int) (l * 0.75)));
+        } else {
+            limit.updateAndGet(l -> Math.min(maxLimit, l + 1));
+        }
+    }
+
+    private <T> T withGlobalLimit(Supplier<T> write) {
+        if (inflight.incrementAndGet() > limit.get()) {
+            inflight.decrementAndGet();
+            overloadRejections.increment();
+            throw new ServiceOverloadedException(retryAfterSeconds);
+        }
+        try {
+            return write.get();
+        } finally {
+            inflight.decrementAndGet();
+        }
+    }
+
+    /** Joins the lanes of {@code hot} (already in lane order), innermost last. */
+    private <T> T serialized(List<WalletKey> hot, Supplier<T> write) {
+        Supplier<T> run = () -> withGlobalLimit(write);
+        for (int i = hot.size() - 1; i >= 0; i--) {
+            WalletKey wallet = hot.get(i);
+            Supplier<T> inner = run;
+            run = () -> inLane(wallet, inner);
+        }
+        return run.get();
+    }
+
+    private <T> T inLane(WalletKey wallet, Supplier<T> write) {
+        // Join (or open) the lane; occupancy changes and lane removal are both
+        // done inside compute, so a lane is never dropped while it has users.
+        boolean[] full = {false};
+        Lane lane = lanes.compute(wallet, (k, l) -> {
+            Lane current = l != null ? l : new Lane();
+            if (current.occupancy >= maxHotQueue) {
+                full[0] = true;
+            } else {
+                current.occupancy++;
+            }
+            return current;
+        });
+        if (full[0]) {
+            walletBusyRejections.increment();
+            throw new WalletBusyException(wallet.getAccountId(), wallet.getAssetTypeId(), retryAfterSeconds);
+        }
+        serialized.increment();
+        try {
+            if (!acquire(lane)) {
+                walletBusyRejections.increment();
+                throw new WalletBusyException(wallet.getAccountId(), wallet.getAssetTypeId(), retryAfterSeconds);
+            }
+            try {
+                return write.get();
+            } finally {
+                lane.permit.release();
+            }
+        } finally {
+            lanes.computeIfPresent(wallet, (k, l) -> --l.occupancy == 0 ? null : l);
+        }
+    }
+
+    private boolean acquire(Lane lane) {
+        try {
+            return lane.permit.tryAcquire(maxHotQueueWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void releaseWallet(WalletKey wallet) {
+        // Removing the entry at zero keeps the map to wallets with writes in flight
+        inflightByWallet.computeIfPresent(wallet, (k, n) -> n > 1 ? n - 1 : null);
+    }
+}
@@ -0,0 +1,114 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.exception.LockContentionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Bounded retry for writes that lose a lock race.
+ *
+ * A write transaction that fails with one of the SQLSTATEs below rolled back
+ * completely — including its idempotency key — so running it again is safe:
+ *
+ *   55P03  lock_not_available     — lock_timeout fired (see {@link WriteTimeouts})
+ *   40P01  deadlock_detected
+ *   40001  serialization_failure
+ *
+ * Attempts are spaced with full jitter (uniform in [0, min(max, base·2^n)])
+ * so a burst of losers does not come back in lockstep. Once attempts are
+ * exhausted the caller gets {@link LockContentionException} (503 + Retry-After).
+ * Every attempt first checks the request deadline, so a retry is never
+ * started — and no connection borrowed — for a caller that has given up.
+ *
+ * Must wrap the {@code @Transactional} call, never run inside it.
+ */
+@Component
+public class WriteRetry {
+
+    private static final Map<String, String> RETRYABLE = Map.of(
+            "55P03", "lock_timeout",
+            "40P01", "deadlock",
+            "40001", "serialization");
+
+    private static final String QUERY_CANCELED = "57014";
+
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final long retryAfterSeconds;
+
+    private final MeterRegistry registry;
+    private final RequestDeadline deadline;
+    private final Counter exhausted;
+
+    public WriteRetry(
+            MeterRegistry registry,
+            RequestDeadline deadline,
+            @Value("${wallet.retry.max-attempts:3}") int maxAttempts,
+            @Value("${wallet.retry.base-backoff-ms:20}") long baseBackoffMs,
+            @Value("${wallet.retry.max-backoff-ms:200}") long maxBackoffMs,
+            @Value("${wallet.retry.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.registry = registry;
+        this.deadline = deadline;
+        this.exhausted = Counter.builder("wallet.write.retry.exhausted").register(registry);
+    }
+
+    public <T> T execute(Supplier<T> write) {
+        for (int attempt = 1; ; attempt++) {
+            deadline.check(attempt == 1 ? "before_connection" : "retry");
+            try {
+                return write.get();
+            } catch (RuntimeException e) {
+                String state = sqlState(e);
+                String reason = RETRYABLE.get(state);
+                if (reason == null) {
+                    if (QUERY_CANCELED.equals(state)) {
+                        // statement_timeout capped by the deadline → 504, not 503
+                        deadline.check("statement");
+                    }
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw new LockContentionException(attempt, retryAfterSeconds, e);
+                }
+                registry.counter("wallet.write.retries", "reason", reason).increment();
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    private void backoff(int attempt, RuntimeException cause) {
+        long cap = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt - 1, 20));
+        if (cap <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    /** SQLSTATE of the first SQLException in the cause chain, or null. */
+    static String sqlState(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql && sql.getSQLState() != null) {
+                return sql.getSQLState();
+            }
+        }
+        return null;
+    }
+}
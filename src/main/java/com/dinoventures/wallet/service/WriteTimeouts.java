@@ -0,0 +1,58 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.repository.WalletRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-flow lock_timeout / statement_timeout for write transactions.
+ *
+ * Each {@code @Transactional} write calls {@link #apply} first, so no statement
+ * in it — the idempotency insert, lockForUpdate, the ledger post — can wait
+ * longer than the flow's budget. A lock timeout surfaces as SQLSTATE 55P03 and
+ * is retried by {@link WriteRetry}. Both are capped to the time left before
+ * the request deadline ({@link RequestDeadline}), so the DB abandons work
+ * whose result the caller will never read.
+ *
+ * Settings (milliseconds, 0 = no limit):
+ *   wallet.timeouts.lock-ms / statement-ms                — defaults
+ *   wallet.timeouts.{flow}.lock-ms / {flow}.statement-ms  — per-flow overrides
+ */
+@Component
+@RequiredArgsConstructor
+public class WriteTimeouts {
+
+    private static final long DEFAULT_LOCK_MS      = 2_000;
+    private static final long DEFAULT_STATEMENT_MS = 5_000;
+
+    private final Environment      env;
+    private final WalletRepository walletRepo;
+    private final RequestDeadline  deadline;
+
+    private final ConcurrentHashMap<String, Limits> byFlow = new ConcurrentHashMap<>();
+
+    record Limits(long lockMs, long statementMs) {}
+
+    /**
+     * Sets both timeouts for the rest of the current transaction (SET LOCAL
+     * semantics — they reset at commit/rollback, never leak to the pooled
+     * connection). Must be called within a transaction.
+     */
+    public void apply(String flow) {
+        Limits limits = byFlow.computeIfAbsent(flow, this::resolve);
+        walletRepo.setLocalTimeouts(
+                deadline.cap(limits.lockMs(), "begin"),
+                deadline.cap(limits.statementMs(), "begin"));
+    }
+
+    Limits resolve(String flow) {
+        long lockMs = env.getProperty("wallet.timeouts.lock-ms", Long.class, DEFAULT_LOCK_MS);
+        long statementMs = env.getProperty("wallet.timeouts.statement-ms", Long.class, DEFAULT_STATEMENT_MS);
+        return new Limits(
+                env.getProperty("wallet.timeouts." + flow + ".lock-ms", Long.class, lockMs),
+                env.getProperty("wallet.timeouts." + flow + ".statement-ms", Long.class, statementMs));
+    }
+}
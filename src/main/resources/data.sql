@@ -1,5 +1,5 @@
 -- Auto-run by Spring Boot on startup (spring.sql.init.mode=always)
--- Fully idempotent: uses ON CONFLICT DO NOTHING throughout
+-- Fully idempotent: uses ON CONFLICT DO NOTHING / NOT EXISTS guards throughout
 
 -- Asset Types
 INSERT INTO asset_types (name, code, decimals) VALUES
@@ -34,48 +34,79 @@ FROM accounts a, asset_types at
 WHERE a.name IN ('Alice', 'Bob') AND at.code = 'GOLD'
 ON CONFLICT (account_id, asset_type_id) DO NOTHING;
 
--- Alice initial balance: 500 Gold Coins
-INSERT INTO transactions (idempotency_key, type, description, status)
-VALUES ('seed-alice-initial-gold', 'topup', 'Initial seed balance for Alice — 500 Gold Coins', 'completed')
-ON CONFLICT (idempotency_key) DO NOTHING;
-
-INSERT INTO ledger_entries (transaction_id, wallet_id, amount)
-SELECT t.id, w.id, -500
-FROM transactions t, wallets w
-JOIN accounts a     ON a.id  = w.account_id
-JOIN asset_types at ON at.id = w.asset_type_id
-WHERE t.idempotency_key = 'seed-alice-initial-gold'
-  AND a.name = 'Treasury' AND at.code = 'GOLD'
-  AND NOT EXISTS (SELECT 1 FROM ledger_entries le WHERE le.transaction_id = t.id AND le.wallet_id = w.id);
+-- Initial balances. Each seed posts its transaction, idempotency key and both
+-- ledger legs (moving the wallets' stored balances with them) in one
+-- statement, and only while the user's Gold wallet has no history — so
+-- re-runs are no-ops even after the seed key has been archived.
 
-INSERT INTO ledger_entries (transaction_id, wallet_id, amount)
-SELECT t.id, w.id, 500
-FROM transactions t, wallets w
-JOIN accounts a     ON a.id  = w.account_id
-JOIN asset_types at ON at.id = w.asset_type_id
-WHERE t.idempotency_key = 'seed-alice-initial-gold'
-  AND a.name = 'Alice' AND at.code = 'GOLD'
-  AND NOT EXISTS (SELECT 1 FROM ledger_entries le WHERE le.transaction_id = t.id AND le.wallet_id = w.id);
+-- Alice initial balance: 500 Gold Coins
+WITH legs AS (
+    SELECT tw.id AS treasury_wallet, tw.account_id AS treasury_account,
+           uw.id AS user_wallet,     uw.account_id AS user_account, uw.asset_type_id
+    FROM wallets tw
+    JOIN accounts ta    ON ta.id = tw.account_id    AND ta.name = 'Treasury'
+    JOIN asset_types at ON at.id = tw.asset_type_id AND at.code = 'GOLD'
+    JOIN wallets uw     ON uw.asset_type_id = at.id
+    JOIN accounts ua    ON ua.id = uw.account_id    AND ua.name = 'Alice'
+    WHERE NOT EXISTS (SELECT 1 FROM ledger_entries le
+                      WHERE le.account_id = uw.account_id AND le.asset_type_id = uw.asset_type_id)
+),
+txn AS (
+    INSERT INTO transactions (idempotency_key, type, description, status, account_id, asset_type_id, amount)
+    SELECT 'seed-alice-initial-gold', 'topup', 'Initial seed balance for Alice — 500 Gold Coins', 'completed',
+           user_account, asset_type_id, 500
+    FROM legs
+    RETURNING id
+),
+gate AS (
+    INSERT INTO idempotency_keys (key_hash, transaction_id)
+    SELECT md5('seed-alice-initial-gold')::uuid, id FROM txn
+    ON CONFLICT (key_hash) DO NOTHING
+),
+posted AS (
+    INSERT INTO ledger_entries (transaction_id, wallet_id, account_id, asset_type_id, amount)
+    SELECT txn.id, leg.wallet_id, leg.account_id, legs.asset_type_id, leg.amount
+    FROM txn, legs,
+         LATERAL (VALUES (legs.treasury_wallet, legs.treasury_account, -500),
+                         (legs.user_wallet,     legs.user_account,      500)) AS leg(wallet_id, account_id, amount)
+    RETURNING wallet_id, amount
+)
+UPDATE wallets w SET balance = w.balance + posted.amount
+FROM posted
+WHERE w.id = posted.wallet_id;
 
 -- Bob initial balance: 200 Gold Coins
-INSERT INTO transactions (idempotency_key, type, description, status)
-VALUES ('seed-bob-initial-gold', 'topup', 'Initial seed balance for Bob — 200 Gold Coins', 'completed')
-ON CONFLICT (idempotency_key) DO NOTHING;
-
-INSERT INTO ledger_entries (transaction_id, wallet_id, amount)
-SELECT t.id, w.id, -200
-FROM transactions t, wallets w
-JOIN accounts a     ON a.id  = w.account_id
-JOIN asset_types at ON at.id = w.asset_type_id
-WHERE t.idempotency_key = 'seed-bob-initial-gold'
-  AND a.name = 'Treasury' AND at.code = 'GOLD'
-  AND NOT EXISTS (SELECT 1 FROM ledger_entries le WHERE le.transaction_id = t.id AND le.wallet_id = w.id);
-
-INSERT INTO ledger_entries (transaction_id, wallet_id, amount)
-SELECT t.id, w.id, 200
-FROM transactions t, wallets w
-JOIN accounts a     ON a.id  = w.account_id
-JOIN asset_types at ON at.id = w.asset_type_id
-WHERE t.idempotency_key = 'seed-bob-initial-gold'
-  AND a.name = 'Bob' AND at.code = 'GOLD'
-  AND NOT EXISTS (SELECT 1 FROM ledger_entries le WHERE le.transaction_id = t.id AND le.wallet_id = w.id);
+WITH legs AS (
+    SELECT tw.id AS treasury_wallet, tw.account_id AS treasury_account,
+           uw.id AS user_wallet,     uw.account_id AS user_account, uw.asset_type_id
+    FROM wallets tw
+    JOIN accounts ta    ON ta.id = tw.account_id    AND ta.name = 'Treasury'
+    JOIN asset_types at ON at.id = tw.asset_type_id AND at.code = 'GOLD'
+    JOIN wallets uw     ON uw.asset_type_id = at.id
+    JOIN accounts ua    ON ua.id = uw.account_id    AND ua.name = 'Bob'
+    WHERE NOT EXISTS (SELECT 1 FROM ledger_entries le
+                      WHERE le.account_id = uw.account_id AND le.asset_type_id = uw.asset_type_id)
+),
+txn AS (
+    INSERT INTO transactions (idempotency_key, type, description, status, account_id, asset_type_id, amount)
+    SELECT 'seed-bob-initial-gold', 'topup', 'Initial seed balance for Bob — 200 Gold Coins', 'completed',
+           user_account, asset_type_id, 200
+    FROM legs
+    RETURNING id
+),
+gate AS (
+    INSERT INTO idempotency_keys (key_hash, transaction_id)
+    SELECT md5('seed-bob-initial-gold')::uuid, id FROM txn
+    ON CONFLICT (key_hash) DO NOTHING
+),
+posted AS (
+    INSERT INTO ledger_entries (transaction_id, wallet_id, account_id, asset_type_id, amount)
+    SELECT txn.id, leg.wallet_id, leg.account_id, legs.asset_type_id, leg.amount
+    FROM txn, legs,
+         LATERAL (VALUES (legs.treasury_wallet, legs.treasury_account, -200),
+                         (legs.user_wallet,     legs.user_account,      200)) AS leg(wallet_id, account_id, amount)
+    RETURNING wallet_id, amount
+)
+UPDATE wallets w SET balance = w.balance + posted.amount
+FROM posted
+WHERE w.id = posted.wallet_id;
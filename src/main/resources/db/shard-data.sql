@@ -0,0 +1,26 @@
+-- Per-shard seed, run by ShardInitializer on every shard when sharding is on
+-- (wallet.sharding.shards). Reference data and system accounts only: every
+-- shard needs its own Treasury/Revenue so each flow stays on one shard, and
+-- asset types must get the same ids everywhere. No demo users — accounts are
+-- placed by ShardRouter when created through the API.
+-- Fully idempotent: uses ON CONFLICT DO NOTHING throughout
+
+-- Asset Types
+INSERT INTO asset_types (name, code, decimals) VALUES
+    ('Gold Coins',      'GOLD', 0),
+    ('Diamonds',        'DIAM', 0),
+    ('Loyalty Points',  'LPTS', 0)
+ON CONFLICT (code) DO NOTHING;
+
+-- System Accounts
+INSERT INTO accounts (type, name) VALUES
+    ('system', 'Treasury'),
+    ('system', 'Revenue')
+ON CONFLICT (name) DO NOTHING;
+
+-- System wallets for all asset types
+INSERT INTO wallets (account_id, asset_type_id)
+SELECT a.id, at.id
+FROM accounts a, asset_types at
+WHERE a.type = 'system'
+ON CONFLICT (account_id, asset_type_id) DO NOTHING;
@@ -18,6 +18,11 @@ CREATE TABLE IF NOT EXISTS accounts (
     CONSTRAINT uq_accounts_name UNIQUE (name)
 );
 
+-- Keyset listing by id with type and name-prefix filters
+-- (see migrations/010_account_listing.sql)
+CREATE INDEX IF NOT EXISTS idx_accounts_name_prefix ON accounts(name text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_accounts_type_id     ON accounts(type, id);
+
 CREATE TABLE IF NOT EXISTS wallets (
     id             BIGSERIAL    PRIMARY KEY,
     account_id     BIGINT       NOT NULL REFERENCES accounts(id)    ON DELETE RESTRICT,
@@ -29,22 +34,60 @@ CREATE TABLE IF NOT EXISTS wallets (
 CREATE INDEX IF NOT EXISTS idx_wallets_account_id    ON wallets(account_id);
 CREATE INDEX IF NOT EXISTS idx_wallets_asset_type_id ON wallets(asset_type_id);
 
+-- Sum of the wallet's active holds, maintained under the wallet row lock so
+-- funds checks never re-sum the holds table.
+ALTER TABLE wallets ADD COLUMN IF NOT EXISTS held_amount BIGINT NOT NULL DEFAULT 0;
+
 CREATE TABLE IF NOT EXISTS transactions (
     id               BIGSERIAL    PRIMARY KEY,
     idempotency_key  VARCHAR(255) NOT NULL,
-    type             VARCHAR(20)  NOT NULL CHECK (type IN ('topup', 'bonus', 'spend')),
+    type             VARCHAR(20)  NOT NULL CHECK (type IN ('topup', 'bonus', 'spend', 'bonus_expiry')),
     description      TEXT,
     metadata         JSONB,
     status           VARCHAR(20)  NOT NULL DEFAULT 'completed'
                          CHECK (status IN ('pending', 'completed', 'failed')),
-    created_at       TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
-    CONSTRAINT uq_transactions_idempotency_key UNIQUE (idempotency_key)
+    created_at       TIMESTAMPTZ  NOT NULL DEFAULT NOW()
 );
 
-CREATE INDEX IF NOT EXISTS idx_transactions_idempotency_key ON transactions(idempotency_key);
 CREATE INDEX IF NOT EXISTS idx_transactions_type            ON transactions(type);
 CREATE INDEX IF NOT EXISTS idx_transactions_created_at      ON transactions(created_at DESC);
 
+-- Requested operation, recorded on the row so that a 'pending' (async)
+-- transaction can be processed later without the original HTTP request.
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS account_id     BIGINT REFERENCES accounts(id);
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS asset_type_id  BIGINT REFERENCES asset_types(id);
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS amount         BIGINT;
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS failure_reason TEXT;
+
+-- Work queue for the background processor: tiny, only holds pending rows
+CREATE INDEX IF NOT EXISTS idx_transactions_pending ON transactions(id) WHERE status = 'pending';
+
+-- Idempotency gate: fixed-width md5(key) UUIDs within the replay window;
+-- older keys are moved to the archive by IdempotencyKeyPurger
+-- (see migrations/005_idempotency_keys.sql).
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    key_hash        UUID         PRIMARY KEY,
+    transaction_id  BIGINT       NOT NULL,
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created_at
+    ON idempotency_keys USING BRIN (created_at);
+
+CREATE TABLE IF NOT EXISTS idempotency_keys_archive (
+    key_hash        UUID         NOT NULL,
+    transaction_id  BIGINT       NOT NULL,
+    created_at      TIMESTAMPTZ  NOT NULL,
+    archived_at     TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_archive_created_at
+    ON idempotency_keys_archive USING BRIN (created_at);
+
+-- Keys of an existing database are copied from the old UNIQUE text column,
+-- which is then dropped, by migrations/005 only — never on boot. Until it
+-- has run, the old constraint stays and still rejects a duplicate key.
+
 CREATE TABLE IF NOT EXISTS ledger_entries (
     id              BIGSERIAL    PRIMARY KEY,
     transaction_id  BIGINT       NOT NULL REFERENCES transactions(id) ON DELETE RESTRICT,
@@ -55,6 +98,155 @@ CREATE TABLE IF NOT EXISTS ledger_entries (
 );
 
 CREATE INDEX IF NOT EXISTS idx_ledger_entries_wallet_id     ON ledger_entries(wallet_id);
-CREATE INDEX IF NOT EXISTS idx_ledger_entries_wallet_amount ON ledger_entries(wallet_id, amount);
-CREATE INDEX IF NOT EXISTS idx_ledger_entries_wallet_time   ON ledger_entries(wallet_id, created_at DESC);
 CREATE INDEX IF NOT EXISTS idx_ledger_entries_tx_id         ON ledger_entries(transaction_id);
+
+-- The wallet's natural key, copied from wallets at insert time so balance and
+-- history reads need no join. Existing rows are backfilled by
+-- migrations/004_ledger_wallet_keys.sql (batched, online), never on boot.
+ALTER TABLE ledger_entries ADD COLUMN IF NOT EXISTS account_id    BIGINT;
+ALTER TABLE ledger_entries ADD COLUMN IF NOT EXISTS asset_type_id BIGINT;
+
+-- Covering index: balance, count, history pages and the ETag marker
+-- (MAX(id) per wallet — ids are commit-ordered per wallet under its lock)
+-- are index-only scans. Built here only on a new (empty) database; an
+-- existing ledger gets it CONCURRENTLY from migrations/004 and 006, which
+-- must run first, and this is then a no-op.
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_account_asset_id
+    ON ledger_entries(account_id, asset_type_id, id DESC)
+    INCLUDE (amount, created_at, transaction_id, wallet_id);
+DROP INDEX IF EXISTS idx_ledger_entries_account_asset;
+
+CREATE TABLE IF NOT EXISTS holds (
+    id               BIGSERIAL    PRIMARY KEY,
+    idempotency_key  VARCHAR(255) NOT NULL,
+    wallet_id        BIGINT       NOT NULL REFERENCES wallets(id)      ON DELETE RESTRICT,
+    account_id       BIGINT       NOT NULL REFERENCES accounts(id)     ON DELETE RESTRICT,
+    asset_type_id    BIGINT       NOT NULL REFERENCES asset_types(id)  ON DELETE RESTRICT,
+    amount           BIGINT       NOT NULL CHECK (amount > 0),
+    captured_amount  BIGINT       NOT NULL DEFAULT 0,
+    status           VARCHAR(20)  NOT NULL DEFAULT 'active'
+                         CHECK (status IN ('active', 'captured', 'released', 'expired')),
+    description      TEXT,
+    transaction_id   BIGINT       REFERENCES transactions(id)          ON DELETE RESTRICT,
+    expires_at       TIMESTAMPTZ  NOT NULL,
+    created_at       TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    CONSTRAINT uq_holds_idempotency_key UNIQUE (idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_holds_active_expiry ON holds(expires_at) WHERE status = 'active';
+
+-- Optional in-memory balance engine: snapshot + ledger tail on startup
+-- (see migrations/007_balance_snapshots.sql).
+CREATE TABLE IF NOT EXISTS balance_snapshots (
+    wallet_id      BIGINT       PRIMARY KEY REFERENCES wallets(id) ON DELETE CASCADE,
+    asset_type_id  BIGINT       NOT NULL,
+    balance        BIGINT       NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_balance_snapshots_asset_type ON balance_snapshots(asset_type_id);
+
+CREATE TABLE IF NOT EXISTS balance_snapshot_marks (
+    asset_type_id     BIGINT       PRIMARY KEY,
+    through_entry_id  BIGINT       NOT NULL,
+    taken_at          TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
+
+CREATE TABLE IF NOT EXISTS engine_leases (
+    asset_type_id  BIGINT        PRIMARY KEY,
+    owner          VARCHAR(255)  NOT NULL,
+    epoch          BIGINT        NOT NULL,
+    claimed_at     TIMESTAMPTZ   NOT NULL DEFAULT NOW()
+);
+
+-- Daily rollups for reporting, advanced behind a watermark by RollupJob
+-- (see migrations/008_daily_rollups.sql).
+CREATE TABLE IF NOT EXISTS daily_rollups (
+    day            DATE         NOT NULL,
+    asset_type_id  BIGINT       NOT NULL,
+    type           VARCHAR(20)  NOT NULL,
+    volume         BIGINT       NOT NULL,
+    tx_count       BIGINT       NOT NULL,
+    PRIMARY KEY (day, asset_type_id, type)
+);
+
+CREATE TABLE IF NOT EXISTS daily_liability_changes (
+    day            DATE         NOT NULL,
+    asset_type_id  BIGINT       NOT NULL,
+    net_change     BIGINT       NOT NULL,
+    PRIMARY KEY (day, asset_type_id)
+);
+
+CREATE TABLE IF NOT EXISTS rollup_watermark (
+    id                  BOOLEAN      PRIMARY KEY DEFAULT TRUE CHECK (id),
+    through_entry_id    BIGINT       NOT NULL,
+    through_created_at  TIMESTAMPTZ,
+    updated_at          TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
+
+INSERT INTO rollup_watermark (through_entry_id) VALUES (0) ON CONFLICT (id) DO NOTHING;
+
+-- Fence for the advancer (see RollupRepository#placeFence): the highest entry
+-- id visible when it was placed and that snapshot's xmax.
+ALTER TABLE rollup_watermark ADD COLUMN IF NOT EXISTS fence_entry_id BIGINT;
+ALTER TABLE rollup_watermark ADD COLUMN IF NOT EXISTS fence_xid      xid8;
+
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_created_at ON ledger_entries USING BRIN (created_at);
+
+-- Leaderboards: wallets.balance and weekly_spend are maintained by the ledger
+-- post statement. A database with history gets the column backfilled by
+-- migrations/009_leaderboards.sql, run once before deploying; here it is only
+-- added (no rewrite, no rescan) where it is missing.
+ALTER TABLE wallets ADD COLUMN IF NOT EXISTS balance BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_wallets_leaderboard
+    ON wallets(asset_type_id, balance DESC, account_id);
+
+CREATE TABLE IF NOT EXISTS weekly_spend (
+    asset_type_id  BIGINT  NOT NULL,
+    week_start     DATE    NOT NULL,
+    account_id     BIGINT  NOT NULL,
+    amount         BIGINT  NOT NULL,
+    PRIMARY KEY (asset_type_id, week_start, account_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_weekly_spend_leaderboard
+    ON weekly_spend(asset_type_id, week_start, amount DESC, account_id);
+
+-- Bulk import staging: one chunk at a time, emptied in the transaction that
+-- fills it (see migrations/011_account_imports.sql).
+CREATE UNLOGGED TABLE IF NOT EXISTS account_import_rows (
+    chunk_id       UUID    NOT NULL,
+    line           BIGINT  NOT NULL,
+    name           TEXT    NOT NULL,
+    asset_type_id  BIGINT,
+    amount         BIGINT  NOT NULL,
+    account_id     BIGINT,
+    wallet_id      BIGINT,
+    rejection      TEXT,
+    PRIMARY KEY (chunk_id, line)
+);
+
+-- Expiring bonuses: live grants and what is left of them. Databases created
+-- before the 'bonus_expiry' type get it from migrations/012_bonus_expiry.sql,
+-- run once before deploying; the constraint is not touched on boot.
+
+CREATE TABLE IF NOT EXISTS bonus_grants (
+    id                     BIGSERIAL    PRIMARY KEY,
+    transaction_id         BIGINT       NOT NULL REFERENCES transactions(id)  ON DELETE RESTRICT,
+    wallet_id              BIGINT       NOT NULL REFERENCES wallets(id)       ON DELETE RESTRICT,
+    account_id             BIGINT       NOT NULL REFERENCES accounts(id)      ON DELETE RESTRICT,
+    asset_type_id          BIGINT       NOT NULL REFERENCES asset_types(id)   ON DELETE RESTRICT,
+    amount                 BIGINT       NOT NULL CHECK (amount > 0),
+    remaining              BIGINT       NOT NULL CHECK (remaining >= 0),
+    expires_at             TIMESTAMPTZ  NOT NULL,
+    expired_at             TIMESTAMPTZ,
+    expired_amount         BIGINT,
+    expiry_transaction_id  BIGINT       REFERENCES transactions(id)           ON DELETE RESTRICT,
+    created_at             TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    CONSTRAINT uq_bonus_grants_transaction UNIQUE (transaction_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_bonus_grants_due
+    ON bonus_grants(expires_at, id) WHERE expired_at IS NULL AND remaining > 0;
+CREATE INDEX IF NOT EXISTS idx_bonus_grants_wallet
+    ON bonus_grants(wallet_id, expires_at, id) WHERE expired_at IS NULL AND remaining > 0;
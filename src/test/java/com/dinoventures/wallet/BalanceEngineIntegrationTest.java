@@ -0,0 +1,185 @@
+package com.dinoventures.wallet;
+
+import com.dinoventures.wallet.service.BalanceEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Gold Coins run through the in-memory balance engine: funds checks,
+ * replays, refused holds/async, and a rebuild after stop/start that must
+ * match the ledger. Accounts are created per test (no @Sql reset — the
+ * engine's memory would not see a truncate).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+class BalanceEngineIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void engineProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url",      postgres::getJdbcUrl);
+        registry.add("spring.datasource.username",  postgres::getUsername);
+        registry.add("spring.datasource.password",  postgres::getPassword);
+        registry.add("wallet.engine.enabled", () -> "true");
+        registry.add("wallet.engine.asset-types", () -> "1");
+    }
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private BalanceEngine engine;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private static final long GOLD_ID = 1L;
+
+    private ResponseEntity<Map> post(String path, String idempotencyKey, Map<String, Object> body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (idempotencyKey != null) {
+            headers.set("Idempotency-Key", idempotencyKey);
+        }
+        return restTemplate.exchange(path, HttpMethod.POST, new HttpEntity<>(body, headers), Map.class);
+    }
+
+    private long createUser() {
+        ResponseEntity<Map> resp = post("/api/v1/accounts", null,
+                Map.of("type", "user", "name", "engine-" + UUID.randomUUID()));
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        return ((Number) resp.getBody().get("id")).longValue();
+    }
+
+    private ResponseEntity<Map> transact(String type, String key, long accountId, long amount) {
+        return post("/api/v1/transactions/" + type, key,
+                Map.of("account_id", accountId, "asset_type_id", GOLD_ID, "amount", amount));
+    }
+
+    private long balance(long accountId) {
+        ResponseEntity<Map> resp = restTemplate.getForEntity(
+                "/api/v1/accounts/{id}/balance?asset_type_id={atid}", Map.class, accountId, GOLD_ID);
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return ((Number) resp.getBody().get("balance")).longValue();
+    }
+
+    private long ledgerBalance(long accountId) {
+        return jdbc.queryForObject(
+                "SELECT COALESCE(SUM(amount), 0) FROM ledger_entries WHERE account_id = ? AND asset_type_id = ?",
+                Long.class, accountId, GOLD_ID);
+    }
+
+    @Test
+    void topupAndSpend_areDurableBeforeTheyAreAcknowledged() {
+        long user = createUser();
+
+        assertThat(transact("topup", UUID.randomUUID().toString(), user, 100).getStatusCode())
+                .isEqualTo(HttpStatus.CREATED);
+        assertThat(transact("spend", UUID.randomUUID().toString(), user, 30).getStatusCode())
+                .isEqualTo(HttpStatus.CREATED);
+
+        assertThat(balance(user)).isEqualTo(70);
+        assertThat(ledgerBalance(user)).isEqualTo(70);
+    }
+
+    @Test
+    void spend_beyondBalance_isRejected_butAReplayOfASpentKeyIsNot() {
+        long user = createUser();
+        transact("topup", UUID.randomUUID().toString(), user, 50);
+        String key = UUID.randomUUID().toString();
+
+        assertThat(transact("spend", key, user, 50).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(transact("spend", UUID.randomUUID().toString(), user, 1).getStatusCode())
+                .isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+
+        // Funds are gone, but the key was already used: replay, not 422
+        ResponseEntity<Map> replay = transact("spend", key, user, 50);
+        assertThat(replay.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(replay.getBody().get("idempotent")).isEqualTo(true);
+        assertThat(balance(user)).isZero();
+    }
+
+    @Test
+    void concurrentSpends_neverOverdraw() throws Exception {
+        long user = createUser();
+        transact("topup", UUID.randomUUID().toString(), user, 100);
+
+        List<CompletableFuture<ResponseEntity<Map>>> spends = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(20)) {
+            for (int i = 0; i < 50; i++) {
+                spends.add(CompletableFuture.supplyAsync(
+                        () -> transact("spend", UUID.randomUUID().toString(), user, 7), executor));
+            }
+            long succeeded = spends.stream()
+                    .map(CompletableFuture::join)
+                    .filter(r -> r.getStatusCode() == HttpStatus.CREATED)
+                    .count();
+            assertThat(succeeded).isEqualTo(14);   // 14 * 7 = 98
+        }
+        assertThat(balance(user)).isEqualTo(2);
+        assertThat(ledgerBalance(user)).isEqualTo(2);
+    }
+
+    @Test
+    void holdsAndAsync_areRefusedForEngineAssets() {
+        long user = createUser();
+        transact("topup", UUID.randomUUID().toString(), user, 100);
+
+        ResponseEntity<Map> hold = post("/api/v1/holds", UUID.randomUUID().toString(),
+                Map.of("account_id", user, "asset_type_id", GOLD_ID, "amount", 10L));
+        assertThat(hold.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Idempotency-Key", UUID.randomUUID().toString());
+        headers.set("Prefer", "respond-async");
+        ResponseEntity<Map> async = restTemplate.exchange("/api/v1/transactions/spend", HttpMethod.POST,
+                new HttpEntity<>(Map.of("account_id", user, "asset_type_id", GOLD_ID, "amount", 10L), headers),
+                Map.class);
+        assertThat(async.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void restart_rebuildsFromSnapshot_orFromTheWholeLedger() {
+        long user = createUser();
+        transact("topup", UUID.randomUUID().toString(), user, 100);
+        transact("spend", UUID.randomUUID().toString(), user, 40);
+
+        engine.stop();   // takes the final snapshot
+        assertThat(jdbc.queryForObject(
+                "SELECT through_entry_id > 0 FROM balance_snapshot_marks WHERE asset_type_id = ?",
+                Boolean.class, GOLD_ID)).isTrue();
+        engine.start();
+        assertThat(balance(user)).isEqualTo(60);
+
+        transact("topup", UUID.randomUUID().toString(), user, 5);
+        engine.stop();
+        // Without a snapshot the whole ledger is summed
+        jdbc.update("DELETE FROM balance_snapshots WHERE asset_type_id = ?", GOLD_ID);
+        jdbc.update("DELETE FROM balance_snapshot_marks WHERE asset_type_id = ?", GOLD_ID);
+        engine.start();
+        assertThat(balance(user)).isEqualTo(65);
+        assertThat(ledgerBalance(user)).isEqualTo(65);
+    }
+}
@@ -0,0 +1,151 @@
+package com.dinoventures.wallet;
+
+import com.dinoventures.wallet.config.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two shards, each its own PostgreSQL container: placement, single-shard
+ * write flows and scatter-gather listing, checked against both databases
+ * directly. Accounts are created per test with unique names (no @Sql reset —
+ * the seed scripts only know one database).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+class ShardingIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> shard0 = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    static PostgreSQLContainer<?> shard1 = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void shardProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url",      shard0::getJdbcUrl);
+        registry.add("spring.datasource.username",  shard0::getUsername);
+        registry.add("spring.datasource.password",  shard0::getPassword);
+        // ShardInitializer prepares both shards instead
+        registry.add("spring.sql.init.mode", () -> "never");
+        registry.add("wallet.sharding.shards[0].url", shard0::getJdbcUrl);
+        registry.add("wallet.sharding.shards[1].url", shard1::getJdbcUrl);
+        registry.add("wallet.sharding.shards[1].username", shard1::getUsername);
+        registry.add("wallet.sharding.shards[1].password", shard1::getPassword);
+    }
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ShardRouter shards;
+
+    private static final long GOLD_ID = 1L;
+
+    private static JdbcTemplate direct(PostgreSQLContainer<?> shard) {
+        return new JdbcTemplate(new DriverManagerDataSource(
+                shard.getJdbcUrl(), shard.getUsername(), shard.getPassword()));
+    }
+
+    private ResponseEntity<Map> post(String path, String idempotencyKey, Map<String, Object> body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (idempotencyKey != null) {
+            headers.set("Idempotency-Key", idempotencyKey);
+        }
+        return restTemplate.exchange(path, HttpMethod.POST, new HttpEntity<>(body, headers), Map.class);
+    }
+
+    private long createUser(String name) {
+        ResponseEntity<Map> resp = post("/api/v1/accounts", null, Map.of("type", "user", "name", name));
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        return ((Number) resp.getBody().get("id")).longValue();
+    }
+
+    @Test
+    void accounts_arePlacedByName_andListedFromEveryShard() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String name = "player-" + UUID.randomUUID();
+            long id = createUser(name);
+            assertThat(shards.shardOf(id)).isEqualTo(shards.placeAccount(name));
+            ids.add(id);
+        }
+        assertThat(ids).extracting(shards::shardOf).contains(0, 1);
+
+        // Keyset pages across both shards: id order, no gaps, no repeats
+        List<Map<String, Object>> listed = new ArrayList<>();
+        Object after = 0;
+        do {
+            ResponseEntity<Map> resp = restTemplate.getForEntity(
+                    "/api/v1/accounts?limit=3&after={after}", Map.class, after);
+            listed.addAll((List<Map<String, Object>>) resp.getBody().get("accounts"));
+            after = resp.getBody().get("next_after");
+        } while (after != null);
+        List<Long> listedIds = listed.stream().map(a -> ((Number) a.get("id")).longValue()).toList();
+        assertThat(listedIds).containsAll(ids).isSorted().doesNotHaveDuplicates();
+        // Every shard has its own Treasury and Revenue
+        assertThat(listed.stream().filter(a -> "Treasury".equals(a.get("name")))).hasSize(2);
+
+        String name = "player-" + UUID.randomUUID();
+        long id = createUser(name);
+        ResponseEntity<Map> byName = restTemplate.getForEntity("/api/v1/accounts/by-name/{name}", Map.class, name);
+        assertThat(((Number) byName.getBody().get("id")).longValue()).isEqualTo(id);
+    }
+
+    @Test
+    void writeFlows_runEntirelyOnTheAccountsShard() {
+        long accountId = createUser("player-" + UUID.randomUUID());
+        int home = shards.shardOf(accountId);
+
+        assertThat(post("/api/v1/transactions/topup", UUID.randomUUID().toString(),
+                Map.of("account_id", accountId, "asset_type_id", GOLD_ID, "amount", 100L))
+                .getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        ResponseEntity<Map> spend = post("/api/v1/transactions/spend", UUID.randomUUID().toString(),
+                Map.of("account_id", accountId, "asset_type_id", GOLD_ID, "amount", 30L));
+        assertThat(spend.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+        ResponseEntity<Map> hold = post("/api/v1/holds", UUID.randomUUID().toString(),
+                Map.of("account_id", accountId, "asset_type_id", GOLD_ID, "amount", 20L));
+        long holdId = ((Number) ((Map<?, ?>) hold.getBody().get("hold")).get("id")).longValue();
+        assertThat(shards.shardOf(holdId)).isEqualTo(home);
+        assertThat(post("/api/v1/holds/" + holdId + "/capture", UUID.randomUUID().toString(), Map.of())
+                .getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+        Map<?, ?> balance = restTemplate.getForEntity("/api/v1/accounts/{id}/balance?asset_type_id={atid}",
+                Map.class, accountId, GOLD_ID).getBody();
+        assertThat(((Number) balance.get("balance")).longValue()).isEqualTo(50);
+
+        // Status URLs route by transaction id
+        long spendId = ((Number) ((Map<?, ?>) spend.getBody().get("transaction")).get("id")).longValue();
+        assertThat(shards.shardOf(spendId)).isEqualTo(home);
+        assertThat(restTemplate.getForEntity("/api/v1/transactions/" + spendId, Map.class).getStatusCode())
+                .isEqualTo(HttpStatus.OK);
+
+        // Every leg — the user's and the system accounts' — is on the home shard
+        JdbcTemplate own = direct(home == 0 ? shard0 : shard1);
+        JdbcTemplate other = direct(home == 0 ? shard1 : shard0);
+        String legs = "SELECT count(*) FROM ledger_entries le JOIN transactions t ON t.id = le.transaction_id "
+                + "WHERE t.account_id = ?";
+        assertThat(own.queryForObject(legs, Long.class, accountId)).isEqualTo(6);
+        assertThat(other.queryForObject(legs, Long.class, accountId)).isZero();
+        assertThat(own.queryForObject("SELECT COALESCE(SUM(amount), 0) FROM ledger_entries", Long.class))
+                .isZero();
+    }
+}
@@ -1,5 +1,18 @@
 package com.dinoventures.wallet;
 
+import com.dinoventures.wallet.grpc.GrpcServer;
+import com.dinoventures.wallet.grpc.v1.WalletGrpc;
+import com.dinoventures.wallet.grpc.v1.WalletProto;
+import com.dinoventures.wallet.repository.IdempotencyKeyRepository;
+import com.dinoventures.wallet.service.BonusExpirySweeper;
+import com.dinoventures.wallet.service.RollupService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -12,11 +25,18 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Full-stack integration tests: HTTP → Controller → Service → PostgreSQL (Testcontainers).
@@ -49,6 +69,18 @@ class WalletIntegrationTest {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepo;
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private BonusExpirySweeper bonusExpirySweeper;
+
+    @Autowired
+    private GrpcServer grpcServer;
+
     // Seeded constants — must match db/seed.sql
     private static final long ALICE_ID  = 3L;
     private static final long BOB_ID    = 4L;
@@ -67,6 +99,26 @@ class WalletIntegrationTest {
         return restTemplate.exchange(path, HttpMethod.POST, new HttpEntity<>(body, headers), Map.class);
     }
 
+    private ResponseEntity<Map> postAsync(String path, String idempotencyKey, Map<String, Object> body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Idempotency-Key", idempotencyKey);
+        headers.set("Prefer", "respond-async");
+        return restTemplate.exchange(path, HttpMethod.POST, new HttpEntity<>(body, headers), Map.class);
+    }
+
+    /** Polls a transaction status URL until it leaves 'pending' (or ~10 s pass). */
+    private Map<?, ?> awaitFinalStatus(String location) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            Map<?, ?> tx = (Map<?, ?>) restTemplate.getForEntity(location, Map.class).getBody().get("transaction");
+            if (!"pending".equals(tx.get("status"))) {
+                return tx;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("transaction still pending: " + location);
+    }
+
     private long getBalance(long accountId, long assetTypeId) {
         ResponseEntity<Map> resp = restTemplate.getForEntity(
                 "/api/v1/accounts/{id}/balance?asset_type_id={atid}",
@@ -156,6 +208,25 @@ class WalletIntegrationTest {
         assertThat(resp.getBody().get("error").toString()).contains("Idempotency-Key");
     }
 
+    @Test
+    void spend_requestTimeoutHeader_isHonouredAndValidated() {
+        Map<String, Object> body = Map.of("account_id", ALICE_ID, "asset_type_id", GOLD_ID, "amount", 100L);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Idempotency-Key", UUID.randomUUID().toString());
+
+        headers.set("X-Request-Timeout-Ms", "0");
+        ResponseEntity<Map> invalid = restTemplate.exchange("/api/v1/transactions/spend",
+                HttpMethod.POST, new HttpEntity<>(body, headers), Map.class);
+        assertThat(invalid.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        headers.set("X-Request-Timeout-Ms", "10000");
+        ResponseEntity<Map> ok = restTemplate.exchange("/api/v1/transactions/spend",
+                HttpMethod.POST, new HttpEntity<>(body, headers), Map.class);
+        assertThat(ok.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(getBalance(ALICE_ID, GOLD_ID)).isEqualTo(400);
+    }
+
     // =========================================================================
     // Idempotency tests
     // =========================================================================
@@ -197,6 +268,101 @@ class WalletIntegrationTest {
         assertThat(getBalance(ALICE_ID, GOLD_ID)).isEqualTo(400); // 500 - 100 once
     }
 
+    @Test
+    void topup_keyReusedAfterReplayWindow_isProcessedAgain() {
+        String key = UUID.randomUUID().toString();
+        Map<String, Object> body = Map.of(
+                "account_id", ALICE_ID, "asset_type_id", GOLD_ID, "amount", 100L);
+
+        ResponseEntity<Map> first = post("/api/v1/transactions/topup", key, body);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+        // A zero-length window archives every key
+        assertThat(idempotencyKeyRepo.archiveExpired(0, 100)).isGreaterThanOrEqualTo(1);
+
+        ResponseEntity<Map> second = post("/api/v1/transactions/topup", key, body);
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(second.getBody().get("idempotent")).isEqualTo(false);
+        assertThat(getBalance(ALICE_ID, GOLD_ID)).isEqualTo(700); // applied twice
+    }
+
+    // =========================================================================
+    // Async mode tests
+    // =========================================================================
+
+    @Test
+    void topup_async_returns202AndCompletesInBackground() throws InterruptedException {
+        ResponseEntity<Map> resp = postAsync(
+                "/api/v1/transactions/topup",
+                UUID.randomUUID().toString(),
+                Map.of("account_id", ALICE_ID, "asset_type_id", GOLD_ID, "amount", 100L));
+
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(resp.getHeaders().getLocation()).isNotNull();
+        Map<?, ?> tx = (Map<?, ?>) resp.getBody().get("transaction");
+        assertThat(tx.get("status")).isEqualTo("pending");
+
+        Map<?, ?> done = awaitFinalStatus(resp.getHeaders().getLocation().toString());
+        assertThat(done.get("status")).isEqualTo("completed");
+        assertThat(getBalance(ALICE_ID, GOLD_ID)).isEqualTo(600); // 500 + 100
+    }
+
+    @Test
+    void spend_async_insufficientFunds_endsFailed() throws InterruptedException {
+        ResponseEntity<Map> resp = postAsync(
+                "/api/v1/transactions/spend",
+                UUID.randomUUID().toString(),
+                Map.of("account_id", ALICE_ID, "asset_type_id", GOLD_ID, "amount", 9999L));
+
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+
+        Map<?, ?> done = awaitFinalStatus(resp.getHeaders().getLocation().toString());
+        assertThat(done.get("status")).isEqualTo("failed");
+        assertThat(done.get("failure_reason").toString()).contains("Insufficient funds");
+        assertThat(getBalance(ALICE_ID, GOLD_ID)).isEqualTo(500); // unchanged
+    }
+
+    // =========================================================================
+    // Hold tests
+    // =========================================================================
+
+    @Test
+    void hold_reducesAvailableBalance_andPartialCaptureReleasesRemainder() {
+        ResponseEntity<Map> auth = post(
+                "/api/v1/holds",
+                UUID.randomUUID().toString(),
+                Map.of("account_id", ALICE_ID, "asset_type_id", GOLD_ID, "amount", 400L));
+        assertThat(auth.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        long holdId = ((Number) ((Map<?, ?>) auth.getBody().get("hold")).get("id")).longValue();
+
+        // Only 100 of Alice's 500 is available while 400 is held
+        ResponseEntity<Map> spend = post(
+                "/api/v1/transactions/spend",
+                UUID.randomUUID().toString(),
+                Map.of("account_id", ALICE_ID, "asset_type_id", GOLD_ID, "amount", 200L));
+        assertThat(spend.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+
+        // Capture 300 of the 400 held — the other 100 is released
+        ResponseEntity<Map> capture = post(
+                "/api/v1/holds/" + holdId + "/capture",
+                UUID.randomUUID().toString(),
+                Map.of("amount", 300L));
+        assertThat(capture.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(getBalance(ALICE_ID, GOLD_ID)).isEqualTo(200); // 500 - 300
+
+        Map<?, ?> balance = restTemplate.getForEntity(
+                "/api/v1/accounts/{id}/balance?asset_type_id={atid}",
+                Map.class, ALICE_ID, GOLD_ID).getBody();
+        assertThat(((Number) balance.get("held")).longValue()).isEqualTo(0);
+
+        // A captured hold cannot be captured again
+        ResponseEntity<Map> again = post(
+                "/api/v1/holds/" + holdId + "/capture",
+                UUID.randomUUID().toString(),
+                Map.of());
+        assertThat(again.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+
     // =========================================================================
     // Balance and ledger tests
     // =========================================================================
@@ -213,6 +379,28 @@ class WalletIntegrationTest {
         assertThat(getBalance(BOB_ID, GOLD_ID)).isEqualTo(200); // unaffected
     }
 
+    @Test
+    void balance_ifNoneMatch_returns304UntilTheWalletChanges() {
+        String url = "/api/v1/accounts/{id}/balance?asset_type_id={atid}";
+        ResponseEntity<Map> first = restTemplate.getForEntity(url, Map.class, ALICE_ID, GOLD_ID);
+        String etag = first.getHeaders().getETag();
+        assertThat(etag).isNotNull();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        HttpEntity<Void> conditional = new HttpEntity<>(headers);
+        ResponseEntity<Map> unchanged = restTemplate.exchange(url, HttpMethod.GET, conditional, Map.class, ALICE_ID, GOLD_ID);
+        assertThat(unchanged.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        post("/api/v1/transactions/topup", UUID.randomUUID().toString(),
+                Map.of("account_id", ALICE_ID, "asset_type_id", GOLD_ID, "amount", 50L));
+
+        ResponseEntity<Map> changed = restTemplate.exchange(url, HttpMethod.GET, conditional, Map.class, ALICE_ID, GOLD_ID);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getHeaders().getETag()).isNotEqualTo(etag);
+        assertThat(((Number) changed.getBody().get("balance")).longValue()).isEqualTo(550);
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     void ledger_returnsEntriesNewestFirst() {
@@ -243,4 +431,342 @@ class WalletIntegrationTest {
         long total = ((Number) resp.getBody().get("total")).longValue();
         assertThat(total).isGreaterThanOrEqualTo(3);
     }
+
+    // =========================================================================
+    // Reporting tests
+    // =========================================================================
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> dailyReport(LocalDate from, LocalDate to) {
+        ResponseEntity<Map> resp = restTemplate.getForEntity(
+                "/api/v1/reports/daily?asset_type_id={atid}&from={from}&to={to}",
+                Map.class, GOLD_ID, from, to);
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return (List<Map<String, Object>>) resp.getBody().get("days");
+    }
+
+    private static long total(List<Map<String, Object>> days, String field, String type) {
+        return days.stream()
+                .map(d -> (Map<?, ?>) d.get(field))
+                .mapToLong(m -> m.containsKey(type) ? ((Number) m.get(type)).longValue() : 0)
+                .sum();
+    }
+
+    @Test
+    void dailyReport_readsRollups_andRebuildRecomputesThem() {
+        post("/api/v1/transactions/topup", UUID.randomUUID().toString(),
+                Map.of("account_id", ALICE_ID, "asset_type_id", GOLD_ID, "amount", 100L));
+        post("/api/v1/transactions/spend", UUID.randomUUID().toString(),
+                Map.of("account_id", BOB_ID, "asset_type_id", GOLD_ID, "amount", 30L));
+
+        // The first call fences what is committed so far; the rest fold up to
+        // the fence once every transaction open when it was placed has ended
+        rollupService.advance(1000);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!rollupService.advance(1000)) {
+            assertThat(System.nanoTime()).as("fence settled").isLessThan(deadline);
+        }
+        while (rollupService.advance(1000)) {
+            // drain
+        }
+
+        // Yesterday too, in case the test straddles midnight UTC
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        List<Map<String, Object>> days = dailyReport(today.minusDays(1), today.plusDays(1));
+        assertThat(days).hasSize(3);
+        assertThat(total(days, "volume", "topup")).isEqualTo(800);   // seed 500 + 200, then 100
+        assertThat(total(days, "count", "topup")).isEqualTo(3);
+        assertThat(total(days, "volume", "spend")).isEqualTo(30);
+        // Alice 600 + Bob 170, carried into tomorrow
+        assertThat(((Number) days.get(2).get("outstanding_liability")).longValue()).isEqualTo(770);
+
+        ResponseEntity<Map> rebuild = restTemplate.postForEntity(
+                "/api/v1/admin/rollups/rebuild?from={from}&to={to}", null, Map.class,
+                today.minusDays(1), today);
+        assertThat(rebuild.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(((Number) rebuild.getBody().get("days")).intValue()).isEqualTo(2);
+        assertThat(dailyReport(today.minusDays(1), today.plusDays(1))).isEqualTo(days);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void leaderboards_followCommittedTransactions() {
+        post("/api/v1/transactions/topup", UUID.randomUUID().toString(),
+                Map.of("account_id", BOB_ID, "asset_type_id", GOLD_ID, "amount", 400L));
+        post("/api/v1/transactions/spend", UUID.randomUUID().toString(),
+                Map.of("account_id", ALICE_ID, "asset_type_id", GOLD_ID, "amount", 50L));
+        post("/api/v1/transactions/spend", UUID.randomUUID().toString(),
+                Map.of("account_id", BOB_ID, "asset_type_id", GOLD_ID, "amount", 20L));
+
+        // Bob 600, Alice 450 — system wallets are never ranked
+        ResponseEntity<Map> balance = restTemplate.getForEntity(
+                "/api/v1/leaderboards/balance?asset_type_id={a}&limit=5", Map.class, GOLD_ID);
+        assertThat(balance.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<Map<String, Object>> richest = (List<Map<String, Object>>) balance.getBody().get("entries");
+        assertThat(richest).extracting(e -> ((Number) e.get("account_id")).longValue())
+                .containsExactly(BOB_ID, ALICE_ID);
+        assertThat(richest).extracting(e -> ((Number) e.get("value")).longValue())
+                .containsExactly(600L, 450L);
+
+        ResponseEntity<Map> spend = restTemplate.getForEntity(
+                "/api/v1/leaderboards/spend?asset_type_id={a}&limit=1", Map.class, GOLD_ID);
+        List<Map<String, Object>> spenders = (List<Map<String, Object>>) spend.getBody().get("entries");
+        assertThat(spenders).hasSize(1);
+        assertThat(((Number) spenders.get(0).get("account_id")).longValue()).isEqualTo(ALICE_ID);
+        assertThat(((Number) spenders.get(0).get("value")).longValue()).isEqualTo(50L);
+
+        assertThat(restTemplate.getForEntity("/api/v1/leaderboards/balance?asset_type_id={a}&limit=0",
+                Map.class, GOLD_ID).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void accounts_areListedInKeysetPages_filteredAndExported() {
+        for (String name : List.of("Alina", "Al_x", "Carol")) {
+            post("/api/v1/accounts", null, Map.of("type", "user", "name", name));
+        }
+
+        // Treasury, Revenue, Alice, Bob, Alina, Al_x, Carol: pages of 3, 3, 1
+        ResponseEntity<Map> first = restTemplate.getForEntity("/api/v1/accounts?limit=3", Map.class);
+        assertThat((List<Map<String, Object>>) first.getBody().get("accounts"))
+                .extracting(a -> a.get("name")).containsExactly("Treasury", "Revenue", "Alice");
+        Object after = first.getBody().get("next_after");
+        ResponseEntity<Map> second = restTemplate.getForEntity("/api/v1/accounts?limit=3&after={a}", Map.class, after);
+        assertThat((List<Map<String, Object>>) second.getBody().get("accounts"))
+                .extracting(a -> a.get("name")).containsExactly("Bob", "Alina", "Al_x");
+        ResponseEntity<Map> last = restTemplate.getForEntity("/api/v1/accounts?limit=3&after={a}", Map.class,
+                second.getBody().get("next_after"));
+        assertThat((List<Map<String, Object>>) last.getBody().get("accounts")).hasSize(1);
+        assertThat(last.getBody()).doesNotContainKey("next_after");
+
+        // '_' in a prefix is literal, not a LIKE wildcard
+        ResponseEntity<Map> prefixed = restTemplate.getForEntity(
+                "/api/v1/accounts?type=user&name_prefix={p}", Map.class, "Al_");
+        assertThat((List<Map<String, Object>>) prefixed.getBody().get("accounts"))
+                .extracting(a -> a.get("name")).containsExactly("Al_x");
+        ResponseEntity<Map> system = restTemplate.getForEntity("/api/v1/accounts?type=system", Map.class);
+        assertThat((List<Map<String, Object>>) system.getBody().get("accounts")).hasSize(2);
+        assertThat(restTemplate.getForEntity("/api/v1/accounts?type=robot", Map.class).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+
+        ResponseEntity<Map> bob = restTemplate.getForEntity("/api/v1/accounts/by-name/Bob", Map.class);
+        assertThat(((Number) bob.getBody().get("id")).longValue()).isEqualTo(BOB_ID);
+        assertThat(restTemplate.getForEntity("/api/v1/accounts/by-name/Nobody", Map.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+
+        ResponseEntity<String> export = restTemplate.getForEntity("/api/v1/accounts/export?type=user", String.class);
+        assertThat(export.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+        assertThat(export.getBody().lines()).hasSize(5).allSatisfy(line -> assertThat(line).contains("\"type\":\"user\""));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void accountImport_createsAccountsAndPostsOpeningBalances_andIsSafeToRerun() {
+        String csv = String.join("\n",
+                "name,asset_type_id,opening_balance",
+                "Carol,1,250",
+                "Dave,1,0",
+                "Carol,1,40",
+                "Alice,1,10",
+                "Treasury,1,5",
+                "Erin,99,5",
+                ",1,5",
+                "");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+
+        ResponseEntity<Map> first = restTemplate.exchange("/api/v1/admin/imports/accounts", HttpMethod.POST,
+                new HttpEntity<>(csv, headers), Map.class);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(first.getBody()).containsEntry("rows", 7).containsEntry("accounts_created", 2)
+                .containsEntry("wallets_created", 2).containsEntry("balances_posted", 1)
+                .containsEntry("amount_posted", 250).containsEntry("rejected", 5);
+        assertThat((List<Map<String, Object>>) first.getBody().get("rejections"))
+                .extracting(r -> r.get("line") + ": " + r.get("reason"))
+                .containsExactly(
+                        "4: duplicate of line 2",
+                        "5: wallet already has history",
+                        "6: name belongs to a system account",
+                        "7: unknown asset_type_id 99",
+                        "8: name is required");
+
+        long carolId = ((Number) restTemplate.getForEntity("/api/v1/accounts/by-name/Carol", Map.class)
+                .getBody().get("id")).longValue();
+        assertThat(getBalance(carolId, GOLD_ID)).isEqualTo(250);
+        assertThat(getBalance(ALICE_ID, GOLD_ID)).isEqualTo(500);
+
+        // The same file again: nothing new is created or posted
+        ResponseEntity<Map> rerun = restTemplate.exchange("/api/v1/admin/imports/accounts", HttpMethod.POST,
+                new HttpEntity<>(csv, headers), Map.class);
+        assertThat(rerun.getBody()).containsEntry("accounts_created", 0).containsEntry("wallets_created", 0)
+                .containsEntry("balances_posted", 0).containsEntry("rejected", 6);
+        assertThat(getBalance(carolId, GOLD_ID)).isEqualTo(250);
+
+        HttpHeaders ndjson = new HttpHeaders();
+        ndjson.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+        ResponseEntity<Map> json = restTemplate.exchange("/api/v1/admin/imports/accounts", HttpMethod.POST,
+                new HttpEntity<>("{\"name\": \"Frank\", \"asset_type_id\": 1, \"opening_balance\": 5}\n", ndjson),
+                Map.class);
+        assertThat(json.getBody()).containsEntry("accounts_created", 1).containsEntry("balances_posted", 1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void expiringBonus_isSpentFirst_andTheRestReturnsToTreasury() throws InterruptedException {
+        ResponseEntity<Map> granted = post("/api/v1/transactions/bonus", UUID.randomUUID().toString(),
+                Map.of("account_id", ALICE_ID, "asset_type_id", GOLD_ID, "amount", 100L, "expires_in_seconds", 1L));
+        assertThat(granted.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+        // Spent from the bonus first: 70 of it is left
+        post("/api/v1/transactions/spend", UUID.randomUUID().toString(),
+                Map.of("account_id", ALICE_ID, "asset_type_id", GOLD_ID, "amount", 30L));
+        assertThat(getBalance(ALICE_ID, GOLD_ID)).isEqualTo(570);
+
+        // The scheduled sweep may get there first; either way the 70 goes back
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (getBalance(ALICE_ID, GOLD_ID) != 500 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(200);
+            bonusExpirySweeper.sweep();
+        }
+        assertThat(getBalance(ALICE_ID, GOLD_ID)).isEqualTo(500);
+
+        ResponseEntity<Map> ledger = restTemplate.getForEntity(
+                "/api/v1/accounts/{id}/ledger?asset_type_id={atid}&page=1&page_size=1",
+                Map.class, ALICE_ID, GOLD_ID);
+        Map<String, Object> latest = ((List<Map<String, Object>>) ledger.getBody().get("entries")).get(0);
+        assertThat(latest).containsEntry("transaction_type", "bonus_expiry").containsEntry("amount", -70);
+
+        // Expiry is sync-only
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Idempotency-Key", UUID.randomUUID().toString());
+        headers.set("Prefer", "respond-async");
+        ResponseEntity<Map> async = restTemplate.exchange("/api/v1/transactions/bonus", HttpMethod.POST,
+                new HttpEntity<>(Map.of("account_id", ALICE_ID, "asset_type_id", GOLD_ID, "amount", 10L,
+                        "expires_in_seconds", 60L), headers), Map.class);
+        assertThat(async.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ingestionStream_answersEveryLineInOrder_andIsSafeToResend() throws IOException {
+        String body = String.join("\n",
+                "{\"type\":\"topup\",\"idempotency_key\":\"s-1\",\"account_id\":3,\"asset_type_id\":1,\"amount\":100}",
+                "{\"type\":\"spend\",\"idempotency_key\":\"s-2\",\"account_id\":3,\"asset_type_id\":1,\"amount\":550}",
+                "{\"type\":\"spend\",\"idempotency_key\":\"s-3\",\"account_id\":3,\"asset_type_id\":1,\"amount\":100}",
+                "{\"type\":\"refund\",\"idempotency_key\":\"s-4\",\"account_id\":3,\"asset_type_id\":1,\"amount\":1}",
+                "",
+                "{\"type\":\"topup\",\"idempotency_key\":\"s-1\",\"account_id\":3,\"asset_type_id\":1,\"amount\":100}",
+                "{\"type\":\"bonus\",\"idempotency_key\":\"s-5\",\"account_id\":999,\"asset_type_id\":1,\"amount\":10}",
+                "{\"type\":\"bonus\",\"idempotency_key\":\"s-6\",\"account_id\":4,\"asset_type_id\":1,\"amount\":10}",
+                "");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+
+        List<Map<String, Object>> first = streamResults(body, headers);
+        assertThat(first).extracting(r -> r.get("line") + ": " + r.get("status")).containsExactly(
+                "1: 201", "2: 201", "3: 422", "4: 400", "6: 200", "7: 404", "8: 201");
+        assertThat(first.get(4)).containsEntry("idempotent", true)
+                .containsEntry("transaction_id", first.get(0).get("transaction_id"));
+        assertThat((String) first.get(2).get("error")).contains("Insufficient funds");
+        assertThat(getBalance(ALICE_ID, GOLD_ID)).isEqualTo(50);
+        assertThat(getBalance(BOB_ID, GOLD_ID)).isEqualTo(210);
+
+        // Resending the same stream replays what was applied and nothing more
+        List<Map<String, Object>> again = streamResults(body, headers);
+        assertThat(again).extracting(r -> r.get("line") + ": " + r.get("status")).containsExactly(
+                "1: 200", "2: 200", "3: 422", "4: 400", "6: 200", "7: 404", "8: 200");
+        assertThat(getBalance(ALICE_ID, GOLD_ID)).isEqualTo(50);
+        assertThat(getBalance(BOB_ID, GOLD_ID)).isEqualTo(210);
+    }
+
+    @Test
+    void grpc_sharesTheRestFlows_andMapsErrorsToStatuses() throws Exception {
+        ManagedChannel channel = Grpc.newChannelBuilderForAddress(
+                "localhost", grpcServer.getPort(), InsecureChannelCredentials.create()).build();
+        try {
+            WalletGrpc.WalletBlockingStub wallet = WalletGrpc.newBlockingStub(channel);
+            WalletProto.TransactionReply topup = wallet.topup(WalletProto.TopupRequest.newBuilder()
+                    .setIdempotencyKey("g-1").setAccountId(ALICE_ID).setAssetTypeId(GOLD_ID).setAmount(100).build());
+            assertThat(topup.getIdempotent()).isFalse();
+            assertThat(topup.getTransaction().getStatus()).isEqualTo("completed");
+            assertThat(topup.getLedgerEntriesCount()).isEqualTo(2);
+
+            // Same idempotency keys as REST: a REST retry of the call is a replay
+            ResponseEntity<Map> replay = post("/api/v1/transactions/topup", "g-1",
+                    Map.of("account_id", ALICE_ID, "asset_type_id", GOLD_ID, "amount", 100));
+            assertThat(replay.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(((Number) ((Map<?, ?>) replay.getBody().get("transaction")).get("id")).longValue())
+                    .isEqualTo(topup.getTransaction().getId());
+
+            WalletProto.Balance balance = wallet.getBalance(WalletProto.GetBalanceRequest.newBuilder()
+                    .setAccountId(ALICE_ID).setAssetTypeId(GOLD_ID).build());
+            assertThat(balance.getBalance()).isEqualTo(600);
+            assertThat(balance.getAvailable()).isEqualTo(600);
+            WalletProto.LedgerPage ledger = wallet.getLedger(WalletProto.GetLedgerRequest.newBuilder()
+                    .setAccountId(ALICE_ID).setAssetTypeId(GOLD_ID).build());
+            assertThat(ledger.getEntries(0).getTransactionId()).isEqualTo(topup.getTransaction().getId());
+            assertThat(ledger.getPageSize()).isEqualTo(20);
+
+            assertThatThrownBy(() -> wallet.spend(WalletProto.SpendRequest.newBuilder()
+                    .setIdempotencyKey("g-2").setAccountId(ALICE_ID).setAssetTypeId(GOLD_ID).setAmount(10_000).build()))
+                    .isInstanceOfSatisfying(StatusRuntimeException.class, e -> {
+                        assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.FAILED_PRECONDITION);
+                        assertThat(e.getStatus().getDescription()).contains("Insufficient funds");
+                    });
+            assertThatThrownBy(() -> wallet.spend(WalletProto.SpendRequest.newBuilder()
+                    .setIdempotencyKey("g-3").setAccountId(ALICE_ID).setAssetTypeId(GOLD_ID).build()))
+                    .isInstanceOfSatisfying(StatusRuntimeException.class, e -> {
+                        assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+                        assertThat(e.getStatus().getDescription()).isEqualTo("amount is required");
+                    });
+            assertThatThrownBy(() -> wallet.getTransaction(WalletProto.GetTransactionRequest.newBuilder()
+                    .setTransactionId(999_999).build()))
+                    .isInstanceOfSatisfying(StatusRuntimeException.class,
+                            e -> assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.NOT_FOUND));
+
+            // Client-streamed batch: one result per operation, in order
+            CompletableFuture<WalletProto.BatchReply> done = new CompletableFuture<>();
+            StreamObserver<WalletProto.BatchOperation> batch = WalletGrpc.newStub(channel).submitBatch(
+                    new StreamObserver<>() {
+                        @Override public void onNext(WalletProto.BatchReply reply) { done.complete(reply); }
+                        @Override public void onError(Throwable t)                 { done.completeExceptionally(t); }
+                        @Override public void onCompleted()                        {}
+                    });
+            batch.onNext(batchOp(WalletProto.BatchOperation.Type.SPEND, "g-4", ALICE_ID, 50));
+            batch.onNext(batchOp(WalletProto.BatchOperation.Type.SPEND, "g-5", ALICE_ID, 10_000));
+            batch.onNext(batchOp(WalletProto.BatchOperation.Type.TOPUP, "g-1", ALICE_ID, 100));
+            batch.onNext(batchOp(WalletProto.BatchOperation.Type.TYPE_UNSPECIFIED, "g-6", ALICE_ID, 1));
+            batch.onNext(batchOp(WalletProto.BatchOperation.Type.BONUS, "g-7", BOB_ID, 10));
+            batch.onCompleted();
+            assertThat(done.get(10, TimeUnit.SECONDS).getResultsList())
+                    .extracting(r -> r.getIndex() + ": " + r.getStatus())
+                    .containsExactly("1: 201", "2: 422", "3: 200", "4: 400", "5: 201");
+            assertThat(getBalance(ALICE_ID, GOLD_ID)).isEqualTo(550);
+            assertThat(getBalance(BOB_ID, GOLD_ID)).isEqualTo(210);
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
+    private static WalletProto.BatchOperation batchOp(WalletProto.BatchOperation.Type type, String key,
+                                                      long accountId, long amount) {
+        return WalletProto.BatchOperation.newBuilder()
+                .setType(type).setIdempotencyKey(key)
+                .setAccountId(accountId).setAssetTypeId(GOLD_ID).setAmount(amount)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> streamResults(String body, HttpHeaders headers) throws IOException {
+        ResponseEntity<String> response = restTemplate.exchange("/api/v1/transactions/stream", HttpMethod.POST,
+                new HttpEntity<>(body, headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        ObjectMapper json = new ObjectMapper();
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (String line : response.getBody().split("\n")) {
+            results.add(json.readValue(line, Map.class));
+        }
+        return results;
+    }
 }
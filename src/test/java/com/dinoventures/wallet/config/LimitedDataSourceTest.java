@@ -0,0 +1,64 @@
+package com.dinoventures.wallet.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Permits and the bounded wait queue, over a fake pool with unlimited connections.
+ */
+class LimitedDataSourceTest {
+
+    @Test
+    void callersBeyondMaxWaiting_areRefusedAtOnce() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LimitedDataSource limited = new LimitedDataSource(fakePool(), 1, 1, 5_000, "test", registry);
+
+        Connection held = limited.getConnection();
+        CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limited.getConnection();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (registry.get("wallet.db.limiter.waiting").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        long start = System.nanoTime();
+        assertThatThrownBy(limited::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+        assertThat(registry.get("wallet.db.limiter.rejected").counter().count()).isEqualTo(1);
+
+        // The queued caller gets the permit once the holder closes
+        held.close();
+        waiter.get(5, TimeUnit.SECONDS).close();
+        assertThat(registry.get("wallet.db.limiter.available").gauge().value()).isEqualTo(1);
+    }
+
+    private static DataSource fakePool() {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("getConnection")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                            new Class<?>[]{Connection.class}, (con, m, a) -> switch (m.getName()) {
+                                case "close" -> null;
+                                case "equals" -> con == a[0];
+                                case "hashCode" -> System.identityHashCode(con);
+                                default -> throw new UnsupportedOperationException(m.getName());
+                            });
+                });
+    }
+}
@@ -0,0 +1,70 @@
+package com.dinoventures.wallet.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Placement and routing rules, without databases.
+ */
+class ShardRouterTest {
+
+    private static ShardRouter router(int... weights) {
+        return new ShardRouter(IntStream.of(weights)
+                .mapToObj(w -> new ShardRouter.Shard("jdbc:postgresql://shard/db", "u", "p", w))
+                .toList());
+    }
+
+    @Test
+    void ids_nameTheirShard() {
+        ShardRouter router = router(1, 1, 1);
+        assertThat(router.shardOf(3)).isZero();
+        assertThat(router.shardOf(7)).isEqualTo(1);
+        assertThat(router.shardOf(11)).isEqualTo(2);
+    }
+
+    @Test
+    void placement_isStablePerName_andFollowsWeights() {
+        ShardRouter router = router(1, 3, 0);
+        int[] placed = new int[3];
+        for (int i = 0; i < 20_000; i++) {
+            String name = "player-" + i;
+            int shard = router.placeAccount(name);
+            assertThat(router.placeAccount(name)).isEqualTo(shard);
+            placed[shard]++;
+        }
+        assertThat(placed[2]).isZero();   // weight 0: closed to new accounts
+        assertThat(placed[1] / (double) placed[0]).isBetween(2.7, 3.3);
+    }
+
+    @Test
+    void scatter_runsEveryShardWithItsRouting_inShardOrder() {
+        ShardRouter router = router(1, 1, 1);
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+
+        List<Object> selected = router.scatter(shard -> routing.determineCurrentLookupKey());
+
+        assertThat(selected).containsExactly(0, 1, 2);
+        assertThatThrownBy(routing::determineCurrentLookupKey)
+                .isInstanceOf(IllegalStateException.class);   // nothing leaks onto the caller
+    }
+
+    @Test
+    void switchingShards_insideATransaction_isRefused() {
+        ShardRouter router = router(1, 1);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThatThrownBy(() -> router.onShard(0, () -> router.onShard(1, () -> null)))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("Cross-shard");
+            assertThat(router.onShard(1, () -> router.onShard(1, () -> "same shard"))).isEqualTo("same shard");
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+}
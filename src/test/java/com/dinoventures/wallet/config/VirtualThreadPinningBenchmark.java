@@ -0,0 +1,191 @@
+package com.dinoventures.wallet.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test of the real driver under virtual threads: pgjdbc 42.7 and Hikari
+ * against PostgreSQL, with jdk.VirtualThreadPinned recorded (threshold 0,
+ * with stack traces) for the whole run.
+ *
+ * Each variant runs {@code DB_THREADS} virtual threads issuing
+ * {@code SELECT pg_sleep(0.002)} through a pool of 2 × carriers connections,
+ * while "light" virtual threads (1 ms sleep + a little CPU, like a cache hit
+ * or a health check) measure how long they wait for a carrier:
+ *
+ *   pool only   — Hikari alone; every DB thread queues inside getConnection
+ *   limited     — LimitedDataSource with its defaults (permits = pool size,
+ *                 max-waiting = 4 × permits); refused threads back off 1 ms
+ *
+ * Asserts that no pinned event has a driver or pool frame: statements park
+ * on pgjdbc's ReentrantLock and unmount, so light latency stays flat in both
+ * variants and the limiter's effect is on the queue, not on carriers.
+ *
+ * Excluded from the default build; run with:  mvn test -Pbenchmark
+ * (the profile sets jdk.virtualThreadScheduler.parallelism=4 so runs compare
+ * across machines).
+ */
+@Tag("benchmark")
+@Testcontainers
+class VirtualThreadPinningBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningBenchmark.class);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final int DB_THREADS    = 200;
+    private static final int LIGHT_THREADS = 50;
+    private static final long RUN_MS       = 3_000;
+
+    private static final int CARRIERS = Integer.getInteger(
+            "jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+
+    @Test
+    void lightRequestLatency_andPinning_withRealDriver() throws Exception {
+        int poolSize = 2 * CARRIERS;
+        List<Result> results = new ArrayList<>();
+        try (HikariDataSource pool = pool(poolSize)) {
+            results.add(run("pool only", pool));
+        }
+        try (HikariDataSource pool = pool(poolSize)) {
+            results.add(run("limited", new LimitedDataSource(
+                    pool, poolSize, 4 * poolSize, 30_000, "bench", new SimpleMeterRegistry())));
+        }
+
+        log.info("carriers={} pool={} db_threads={} query=pg_sleep(2 ms)", CARRIERS, poolSize, DB_THREADS);
+        for (Result r : results) {
+            log.info("{}: {} db ops/s, {} refused/s, light {} ops/s p50 {} µs p99 {} µs, "
+                            + "pinned events {} ({} in driver/pool frames)",
+                    r.name, Math.round(r.dbOpsPerSecond), Math.round(r.refusedPerSecond),
+                    Math.round(r.lightOpsPerSecond), r.lightP50Micros, r.lightP99Micros,
+                    r.pinnedEvents, r.driverPinnedEvents);
+            assertThat(r.driverPinnedEvents).as("%s: pinned in pgjdbc/Hikari", r.name).isZero();
+            assertThat(r.dbOpsPerSecond).as("%s: db ops", r.name).isPositive();
+            assertThat(r.lightOpsPerSecond).as("%s: light ops", r.name).isPositive();
+        }
+    }
+
+    private record Result(String name, double dbOpsPerSecond, double refusedPerSecond, double lightOpsPerSecond,
+                          long lightP50Micros, long lightP99Micros, long pinnedEvents, long driverPinnedEvents) {}
+
+    private static Result run(String name, DataSource dataSource) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder dbOps = new LongAdder();
+        LongAdder refused = new LongAdder();
+        LongAdder pinned = new LongAdder();
+        LongAdder driverPinned = new LongAdder();
+        List<Long> lightLatencies = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+
+        try (RecordingStream pinning = new RecordingStream()) {
+            pinning.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            pinning.onEvent("jdk.VirtualThreadPinned", event -> {
+                pinned.increment();
+                if (event.getStackTrace() != null && event.getStackTrace().getFrames().stream()
+                        .map(RecordedFrame::getMethod)
+                        .anyMatch(m -> m.getType().getName().startsWith("org.postgresql.")
+                                || m.getType().getName().startsWith("com.zaxxer.hikari."))) {
+                    driverPinned.increment();
+                }
+            });
+            pinning.startAsync();
+
+            for (int i = 0; i < DB_THREADS; i++) {
+                threads.add(Thread.ofVirtual().start(() -> {
+                    while (running.get()) {
+                        try (Connection con = dataSource.getConnection();
+                             Statement st = con.createStatement()) {
+                            st.execute("SELECT pg_sleep(0.002)");
+                            dbOps.increment();
+                        } catch (SQLTransientConnectionException e) {
+                            refused.increment();
+                            sleepQuietly(1);
+                        } catch (Exception e) {
+                            return;
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < LIGHT_THREADS; i++) {
+                threads.add(Thread.ofVirtual().start(() -> {
+                    while (running.get()) {
+                        long start = System.nanoTime();
+                        if (!sleepQuietly(1)) {
+                            return;
+                        }
+                        Math.sqrt(start);   // a little work after being rescheduled
+                        lightLatencies.add(System.nanoTime() - start - TimeUnit.MILLISECONDS.toNanos(1));
+                    }
+                }));
+            }
+
+            Thread.sleep(RUN_MS);
+            running.set(false);
+            for (Thread t : threads) {
+                t.join();
+            }
+            // Let the stream deliver what was recorded up to now
+            pinning.stop();
+        }
+
+        List<Long> sorted = new ArrayList<>(lightLatencies);
+        Collections.sort(sorted);
+        double seconds = RUN_MS / 1000.0;
+        return new Result(name, dbOps.sum() / seconds, refused.sum() / seconds, sorted.size() / seconds,
+                percentileMicros(sorted, 0.50), percentileMicros(sorted, 0.99), pinned.sum(), driverPinned.sum());
+    }
+
+    private static boolean sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static long percentileMicros(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) {
+            return -1;
+        }
+        long nanos = sorted.get(Math.min(sorted.size() - 1, (int) (sorted.size() * p)));
+        return Math.max(0, nanos / 1000);
+    }
+
+    private static HikariDataSource pool(int size) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(postgres.getJdbcUrl());
+        config.setUsername(postgres.getUsername());
+        config.setPassword(postgres.getPassword());
+        config.setMaximumPoolSize(size);
+        config.setMinimumIdle(size);
+        config.setConnectionTimeout(30_000);
+        return new HikariDataSource(config);
+    }
+}
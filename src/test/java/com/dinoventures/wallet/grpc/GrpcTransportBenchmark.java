@@ -0,0 +1,222 @@
+package com.dinoventures.wallet.grpc;
+
+import com.dinoventures.wallet.grpc.v1.WalletGrpc;
+import com.dinoventures.wallet.grpc.v1.WalletProto;
+import com.dinoventures.wallet.model.LedgerEntry;
+import com.dinoventures.wallet.model.Transaction;
+import com.dinoventures.wallet.model.dto.TopupRequest;
+import com.dinoventures.wallet.model.dto.TransactionResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * REST (JSON over HTTP/1.1) vs gRPC (protobuf over HTTP/2) for the internal
+ * callers, on the same service layer:
+ *
+ *   1. Serialization — encode + decode cost and size of a topup request and
+ *      of its response (a transaction with two ledger entries), with the
+ *      application's ObjectMapper vs the generated protobuf messages
+ *   2. Round trips — p50/p99 of sequential calls from one client over
+ *      loopback: a balance read (served from the balance cache, so mostly
+ *      transport) and a topup (the write path, mostly database)
+ *
+ * Excluded from the default build; run with:  mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+@Sql(
+    scripts = {"/db/truncate.sql", "/db/seed.sql"},
+    executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
+)
+class GrpcTransportBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(GrpcTransportBenchmark.class);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url",      postgres::getJdbcUrl);
+        registry.add("spring.datasource.username",  postgres::getUsername);
+        registry.add("spring.datasource.password",  postgres::getPassword);
+    }
+
+    private static final long ALICE_ID = 3L;
+    private static final long GOLD_ID  = 1L;
+
+    private static final int CODEC_WARMUP   = 50_000;
+    private static final int CODEC_MEASURED = 200_000;
+    private static final int CALL_WARMUP    = 1_000;
+    private static final int CALL_MEASURED  = 5_000;
+
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private GrpcServer   grpcServer;
+    @LocalServerPort private int    httpPort;
+
+    // Keeps the JIT from dropping the work
+    private long sink;
+
+    @Test
+    void serialization_costAndSize() throws Exception {
+        TopupRequest request = new TopupRequest();
+        request.setAccountId(ALICE_ID);
+        request.setAssetTypeId(GOLD_ID);
+        request.setAmount(100L);
+        request.setDescription("Purchased 100 Gold Coins");
+        WalletProto.TopupRequest requestMsg = WalletProto.TopupRequest.newBuilder()
+                .setIdempotencyKey(UUID.randomUUID().toString())
+                .setAccountId(ALICE_ID).setAssetTypeId(GOLD_ID).setAmount(100)
+                .setDescription("Purchased 100 Gold Coins")
+                .build();
+        TransactionResponse response = sampleResponse();
+
+        report("topup request json", objectMapper.writeValueAsBytes(request).length, codec(() -> {
+            byte[] bytes = objectMapper.writeValueAsBytes(request);
+            return objectMapper.readValue(bytes, TopupRequest.class).getAmount();
+        }));
+        report("topup request proto", requestMsg.getSerializedSize(), codec(() -> {
+            byte[] bytes = requestMsg.toByteArray();
+            return GrpcMessages.topup(WalletProto.TopupRequest.parseFrom(bytes)).getAmount();
+        }));
+        report("transaction json", objectMapper.writeValueAsBytes(response).length, codec(() -> {
+            byte[] bytes = objectMapper.writeValueAsBytes(response);
+            return objectMapper.readTree(bytes).get("ledger_entries").size();
+        }));
+        report("transaction proto", GrpcMessages.reply(response).getSerializedSize(), codec(() -> {
+            byte[] bytes = GrpcMessages.reply(response).toByteArray();
+            return WalletProto.TransactionReply.parseFrom(bytes).getLedgerEntriesCount();
+        }));
+        assertThat(sink).isNotZero();
+    }
+
+    @Test
+    void roundTrips_restVsGrpc() throws Exception {
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        ManagedChannel channel = Grpc.newChannelBuilderForAddress(
+                "localhost", grpcServer.getPort(), InsecureChannelCredentials.create()).build();
+        try {
+            WalletGrpc.WalletBlockingStub wallet = WalletGrpc.newBlockingStub(channel);
+            URI balanceUri = URI.create("http://localhost:" + httpPort
+                    + "/api/v1/accounts/" + ALICE_ID + "/balance?asset_type_id=" + GOLD_ID);
+            URI topupUri = URI.create("http://localhost:" + httpPort + "/api/v1/transactions/topup");
+            WalletProto.GetBalanceRequest balanceRequest = WalletProto.GetBalanceRequest.newBuilder()
+                    .setAccountId(ALICE_ID).setAssetTypeId(GOLD_ID).build();
+            byte[] topupJson = objectMapper.writeValueAsBytes(
+                    Map.of("account_id", ALICE_ID, "asset_type_id", GOLD_ID, "amount", 1));
+
+            report("balance rest", calls(i -> {
+                HttpResponse<byte[]> resp = send(http, HttpRequest.newBuilder(balanceUri).GET().build());
+                sink += objectMapper.readTree(resp.body()).get("balance").asLong();
+            }));
+            report("balance grpc", calls(i -> sink += wallet.getBalance(balanceRequest).getBalance()));
+            report("topup rest", calls(i -> {
+                HttpResponse<byte[]> resp = send(http, HttpRequest.newBuilder(topupUri)
+                        .header("Content-Type", "application/json")
+                        .header("Idempotency-Key", "rest-" + i)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(topupJson))
+                        .build());
+                assertThat(resp.statusCode()).isEqualTo(201);
+                sink += objectMapper.readTree(resp.body()).get("transaction").get("id").asLong();
+            }));
+            report("topup grpc", calls(i -> sink += wallet.topup(WalletProto.TopupRequest.newBuilder()
+                    .setIdempotencyKey("grpc-" + i)
+                    .setAccountId(ALICE_ID).setAssetTypeId(GOLD_ID).setAmount(1)
+                    .build()).getTransaction().getId()));
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Codec {
+        long roundTrip() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        void run(long i) throws Exception;
+    }
+
+    /** Mean ns of one encode + decode. */
+    private double codec(Codec codec) throws Exception {
+        for (int i = 0; i < CODEC_WARMUP; i++) {
+            sink += codec.roundTrip();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < CODEC_MEASURED; i++) {
+            sink += codec.roundTrip();
+        }
+        return (double) (System.nanoTime() - start) / CODEC_MEASURED;
+    }
+
+    /** Sorted latencies in µs of the measured calls. */
+    private static long[] calls(Call call) throws Exception {
+        for (int i = 0; i < CALL_WARMUP; i++) {
+            call.run(i);
+        }
+        long[] micros = new long[CALL_MEASURED];
+        for (int i = 0; i < CALL_MEASURED; i++) {
+            long start = System.nanoTime();
+            call.run(CALL_WARMUP + i);
+            micros[i] = (System.nanoTime() - start) / 1_000;
+        }
+        Arrays.sort(micros);
+        return micros;
+    }
+
+    private static HttpResponse<byte[]> send(HttpClient http, HttpRequest request) throws Exception {
+        return http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static void report(String payload, int bytes, double nanosPerOp) {
+        log.info("{}: {} bytes, {} ns/op", payload, bytes, Math.round(nanosPerOp));
+    }
+
+    private static void report(String call, long[] micros) {
+        log.info("{}: p50 {} µs p99 {} µs", call, micros[micros.length / 2], micros[(int) (micros.length * 0.99)]);
+    }
+
+    private static TransactionResponse sampleResponse() {
+        OffsetDateTime now = OffsetDateTime.now();
+        Transaction txn = Transaction.builder()
+                .id(1_234_567L).idempotencyKey(UUID.randomUUID().toString())
+                .type("topup").description("Purchased 100 Gold Coins").status("completed")
+                .accountId(ALICE_ID).assetTypeId(GOLD_ID).amount(100L).createdAt(now)
+                .build();
+        return new TransactionResponse(txn, List.of(
+                LedgerEntry.builder().id(9_876_543L).transactionId(txn.getId()).walletId(1L)
+                        .amount(-100L).createdAt(now).build(),
+                LedgerEntry.builder().id(9_876_544L).transactionId(txn.getId()).walletId(5L)
+                        .amount(100L).createdAt(now).build()),
+                false);
+    }
+}
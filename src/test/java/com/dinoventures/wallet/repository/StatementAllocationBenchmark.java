@@ -0,0 +1,207 @@
+package com.dinoventures.wallet.repository;
+
+import com.dinoventures.wallet.model.LedgerEntry;
+import com.dinoventures.wallet.model.LedgerLeg;
+import com.dinoventures.wallet.model.Transaction;
+import com.dinoventures.wallet.model.Wallet;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Allocation benchmark for the spend write path: bytes allocated per operation
+ * (measured with ThreadMXBean on the calling thread) for the positional
+ * statement layer vs the NamedParameterJdbcTemplate calls it replaced.
+ *
+ * One "op" is the statement sequence of a single spend: idempotency insert,
+ * transaction read-back, two getOrCreate, lockForUpdate, balance + held
+ * reads, ledger post. Both variants issue the repositories' own statements
+ * with the same projections and row mappers; only the binding differs
+ * (named parameters in a MapSqlParameterSource vs positional setters), so
+ * the difference is the cost of the named-parameter layer alone.
+ * Both run inside a rolled-back transaction against the same data.
+ *
+ * Excluded from the default build; run with:  mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Testcontainers
+@Sql(
+    scripts = {"/db/truncate.sql", "/db/seed.sql"},
+    executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD
+)
+class StatementAllocationBenchmark {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url",      postgres::getJdbcUrl);
+        registry.add("spring.datasource.username",  postgres::getUsername);
+        registry.add("spring.datasource.password",  postgres::getPassword);
+        registry.add("spring.datasource.hikari.data-source-properties.prepareThreshold", () -> "1");
+    }
+
+    private static final long ALICE_ID   = 3L;
+    private static final long REVENUE_ID = 2L;
+    private static final long GOLD_ID    = 1L;
+
+    private static final int WARMUP_OPS   = 2_000;
+    private static final int MEASURED_OPS = 5_000;
+
+    @Autowired private TransactionRepository      txRepo;
+    @Autowired private WalletRepository           walletRepo;
+    @Autowired private LedgerRepository           ledgerRepo;
+    @Autowired private NamedParameterJdbcTemplate namedJdbc;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private static final Logger log = LoggerFactory.getLogger(StatementAllocationBenchmark.class);
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void spendWritePath_bytesPerOp() {
+        Result named      = measure("named",          this::namedSpend);
+        Result positional = measure("positional",     this::positionalSpend);
+
+        for (Result r : List.of(named, positional)) {
+            log.info("{}: {} bytes/op, {} µs/op", r.name, r.bytesPerOp, String.format("%.1f", r.microsPerOp));
+        }
+        log.info("reduction: {}%", Math.round(100.0 * (named.bytesPerOp - positional.bytesPerOp) / named.bytesPerOp));
+
+        assertThat(positional.bytesPerOp).isLessThan(named.bytesPerOp);
+    }
+
+    private record Result(String name, long bytesPerOp, double microsPerOp) {}
+
+    private interface Op {
+        void run(String idempotencyKey);
+    }
+
+    private Result measure(String name, Op op) {
+        // Keys are generated up front so UUID allocation is not counted
+        String[] keys = new String[WARMUP_OPS + MEASURED_OPS];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = UUID.randomUUID().toString();
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long[] result = new long[2];
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < WARMUP_OPS; i++) {
+                op.run(keys[i]);
+            }
+            long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long nanosBefore = System.nanoTime();
+            for (int i = WARMUP_OPS; i < keys.length; i++) {
+                op.run(keys[i]);
+            }
+            result[0] = THREADS.getCurrentThreadAllocatedBytes() - bytesBefore;
+            result[1] = System.nanoTime() - nanosBefore;
+            status.setRollbackOnly();
+        });
+        return new Result(name, result[0] / MEASURED_OPS, result[1] / 1_000.0 / MEASURED_OPS);
+    }
+
+    private void positionalSpend(String key) {
+        txRepo.insertIfNew(key, "spend", "bench", "completed", ALICE_ID, GOLD_ID, 1);
+        long txId = txRepo.findByIdempotencyKey(key).orElseThrow().getId();
+        Wallet user    = walletRepo.getOrCreate(ALICE_ID, GOLD_ID);
+        Wallet revenue = walletRepo.getOrCreate(REVENUE_ID, GOLD_ID);
+        walletRepo.lockForUpdate(List.of(Math.min(user.getId(), revenue.getId()),
+                                         Math.max(user.getId(), revenue.getId())));
+        ledgerRepo.getBalance(ALICE_ID, GOLD_ID);
+        walletRepo.getHeldAmount(user.getId());
+        ledgerRepo.post(txId, List.of(LedgerLeg.debit(user.getId(), 1), LedgerLeg.credit(revenue.getId(), 1)));
+    }
+
+    /** The same statements and mappers, bound the NamedParameterJdbcTemplate way. */
+    private void namedSpend(String key) {
+        namedJdbc.update(NAMED_INSERT_IF_NEW, new MapSqlParameterSource(Map.of(
+                "key", key, "type", "spend", "description", "bench", "status", "completed",
+                "accountId", ALICE_ID, "assetTypeId", GOLD_ID, "amount", 1L)));
+        Transaction txn = namedJdbc.query(NAMED_BY_KEY, new MapSqlParameterSource("key", key),
+                TransactionRepository.ROW_MAPPER).get(0);
+        Wallet user    = namedGetOrCreate(ALICE_ID);
+        Wallet revenue = namedGetOrCreate(REVENUE_ID);
+        namedJdbc.query(NAMED_LOCK, new MapSqlParameterSource("ids", bigints(
+                Math.min(user.getId(), revenue.getId()), Math.max(user.getId(), revenue.getId()))), rs -> {});
+        namedJdbc.queryForObject(NAMED_BALANCE,
+                new MapSqlParameterSource(Map.of("accountId", ALICE_ID, "assetTypeId", GOLD_ID)), Long.class);
+        namedJdbc.queryForObject(NAMED_HELD, new MapSqlParameterSource("id", user.getId()), Long.class);
+        List<LedgerEntry> entries = namedJdbc.query(NAMED_POST, new MapSqlParameterSource(Map.of(
+                        "walletIds", bigints(user.getId(), revenue.getId()),
+                        "amounts", bigints(-1L, 1L),
+                        "transactionId", txn.getId())),
+                LedgerRepository.ENTRY_ROW_MAPPER);
+        if (entries.size() != 2) {
+            throw new IllegalStateException("post wrote " + entries.size() + " legs");
+        }
+    }
+
+    private Wallet namedGetOrCreate(long accountId) {
+        MapSqlParameterSource byKey = new MapSqlParameterSource(Map.of("accountId", accountId, "assetTypeId", GOLD_ID));
+        namedJdbc.update(NAMED_INSERT_IF_ABSENT, byKey);
+        return namedJdbc.query(NAMED_FIND_BY_KEY, byKey, WalletRepository.ROW_MAPPER).get(0);
+    }
+
+    // The repositories' statements with each ? replaced by a named parameter, in order
+    private static final String NAMED_INSERT_IF_NEW = named(TransactionRepository.INSERT_IF_NEW_SQL,
+            "key", "key", "type", "description", "status", "accountId", "assetTypeId", "amount");
+    private static final String NAMED_BY_KEY = named(TransactionRepository.BY_KEY_SQL, "key");
+    private static final String NAMED_INSERT_IF_ABSENT = named(WalletRepository.INSERT_IF_ABSENT_SQL,
+            "accountId", "assetTypeId");
+    private static final String NAMED_FIND_BY_KEY = named(WalletRepository.FIND_BY_KEY_SQL, "accountId", "assetTypeId");
+    private static final String NAMED_LOCK = named(WalletRepository.LOCK_SQL, "ids");
+    private static final String NAMED_BALANCE = named(LedgerRepository.BALANCE_SQL, "accountId", "assetTypeId");
+    private static final String NAMED_HELD = named(WalletRepository.HELD_AMOUNT_SQL, "id");
+    private static final String NAMED_POST = named(LedgerRepository.POST_SQL,
+            "walletIds", "amounts", "transactionId", "transactionId");
+
+    private static String named(String sql, String... names) {
+        StringBuilder out = new StringBuilder();
+        int n = 0;
+        for (char c : sql.toCharArray()) {
+            out.append(c == '?' ? ":" + names[n++] : String.valueOf(c));
+        }
+        if (n != names.length) {
+            throw new IllegalStateException("expected " + names.length + " parameters, found " + n);
+        }
+        return out.toString();
+    }
+
+    /** A bigint[] parameter, created on the statement's connection like the positional setters do. */
+    private static AbstractSqlTypeValue bigints(Long... values) {
+        return new AbstractSqlTypeValue() {
+            @Override
+            protected Object createTypeValue(Connection con, int sqlType, String typeName) throws SQLException {
+                return con.createArrayOf("bigint", values);
+            }
+        };
+    }
+}
@@ -0,0 +1,90 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.model.BalanceSnapshot;
+import com.dinoventures.wallet.model.WalletKey;
+import com.dinoventures.wallet.model.dto.BalanceResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Coalescing and invalidation without a database: loaders are plain suppliers
+ * and "commits" are direct invalidateAfterCommit calls (no transaction active).
+ */
+class BalanceCacheTest {
+
+    private static final WalletKey ALICE_GOLD = new WalletKey(3, 1);
+
+    private static BalanceSnapshot balance(long amount) {
+        return new BalanceSnapshot(new BalanceResponse(3L, 1L, amount, 0L, amount), "b-" + amount);
+    }
+
+    @Test
+    void concurrentReads_shareOneQuery() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BalanceCache cache = new BalanceCache(registry, false, 500, 100);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+
+        CompletableFuture<BalanceSnapshot> leader = CompletableFuture.supplyAsync(() ->
+                cache.get(ALICE_GOLD, () -> {
+                    queries.incrementAndGet();
+                    loading.countDown();
+                    await(release);
+                    return balance(500);
+                }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<BalanceSnapshot> follower = CompletableFuture.supplyAsync(() ->
+                cache.get(ALICE_GOLD, () -> {
+                    queries.incrementAndGet();
+                    return balance(-1);
+                }));
+        // Let the follower reach the in-flight future before the leader finishes
+        while (registry.counter("wallet.balance.reads", "source", "coalesced").count() < 1) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS).getResponse().getBalance()).isEqualTo(500);
+        assertThat(follower.get(5, TimeUnit.SECONDS).getResponse().getBalance()).isEqualTo(500);
+        assertThat(queries).hasValue(1);
+    }
+
+    @Test
+    void invalidationDuringLoad_isNotCached() {
+        BalanceCache cache = new BalanceCache(new SimpleMeterRegistry(), true, 60_000, 100);
+
+        // A write commits while the read is in flight: its result must not be cached
+        BalanceSnapshot stale = cache.get(ALICE_GOLD, () -> {
+            cache.invalidateAfterCommit(List.of(ALICE_GOLD));
+            return balance(500);
+        });
+        assertThat(stale.getResponse().getBalance()).isEqualTo(500);
+
+        assertThat(cache.get(ALICE_GOLD, () -> balance(600)).getResponse().getBalance()).isEqualTo(600);
+        // Cached now, together with the ETag it was read with
+        BalanceSnapshot cached = cache.get(ALICE_GOLD, () -> balance(-1));
+        assertThat(cached.getResponse().getBalance()).isEqualTo(600);
+        assertThat(cached.getEtag()).isEqualTo("b-600");
+
+        cache.invalidateAfterCommit(List.of(ALICE_GOLD));
+        assertThat(cache.get(ALICE_GOLD, () -> balance(700)).getResponse().getBalance()).isEqualTo(700);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
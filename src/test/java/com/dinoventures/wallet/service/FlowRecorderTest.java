@@ -0,0 +1,90 @@
+package com.dinoventures.wallet.service;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Events as a recording sees them, with the transaction lifecycle driven by
+ * hand instead of a transaction manager.
+ */
+class FlowRecorderTest {
+
+    private final FlowRecorder recorder = new FlowRecorder();
+    private final JfrRecordings recordings = new JfrRecordings(16);
+
+    @AfterEach
+    void cleanUp() {
+        recordings.stop();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void committedFlow_emitsFlowAndPhaseEventsWithTheWalletPresetRecording() throws Exception {
+        recordings.start(Duration.ofMinutes(1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        recorder.begin("spend", 3, 1);
+        recorder.statementIssued();
+        recorder.phase("lock");
+        recorder.lockAcquired(List.of(3L, 7L), 1_000_000);
+        recorder.statementIssued();
+        recorder.statementIssued();
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        List<RecordedEvent> events = dump();
+        RecordedEvent flow = events.stream()
+                .filter(e -> e.getEventType().getName().equals("com.dinoventures.wallet.Flow"))
+                .findFirst().orElseThrow();
+        assertThat(flow.getString("flow")).isEqualTo("spend");
+        assertThat(flow.getString("walletIds")).isEqualTo("3,7");
+        assertThat(flow.getInt("statements")).isEqualTo(3);
+        assertThat(flow.getDuration("lockWait")).isEqualTo(Duration.ofMillis(1));
+        assertThat(flow.getString("outcome")).isEqualTo("committed");
+
+        assertThat(events.stream()
+                .filter(e -> e.getEventType().getName().equals("com.dinoventures.wallet.Phase"))
+                .map(e -> e.getString("phase") + ":" + e.getInt("statements")))
+                .containsExactly("validate:1", "lock:2", "commit:0");
+    }
+
+    @Test
+    void withoutARecording_nothingIsTracked() {
+        TransactionSynchronizationManager.initSynchronization();
+        recorder.begin("spend", 3, 1);
+
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+
+    private List<RecordedEvent> dump() throws Exception {
+        Path file = recordings.dump();
+        try {
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().startsWith("com.dinoventures.wallet."))
+                    .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                    .toList();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
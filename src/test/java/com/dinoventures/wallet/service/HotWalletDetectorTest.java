@@ -0,0 +1,88 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.model.WalletKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sketch and hysteresis behaviour on a fake clock; one window = 1 s.
+ */
+class HotWalletDetectorTest {
+
+    private static final WalletKey STREAMER = new WalletKey(10, 1);
+
+    private final long[] now = {0};
+    // hot at ≥ 20 writes/s, or ≥ 5 writes averaging ≥ 10 ms lock wait
+    private final HotWalletDetector detector =
+            new HotWalletDetector(new SimpleMeterRegistry(), true, 1000, 4, 20, 10, 5, () -> now[0]);
+
+    @Test
+    void wallet_becomesHotAboveTheRate_andCoolsDownWithHysteresis() {
+        window(STREAMER, 25);
+        assertThat(detector.isHot(STREAMER)).isTrue();
+        assertThat(detector.hotWallets()).singleElement()
+                .satisfies(w -> assertThat(w.getArrivalsPerSecond()).isEqualTo(25.0));
+
+        // 12/s is below the hot threshold but above half of it: stays hot
+        window(STREAMER, 12);
+        assertThat(detector.isHot(STREAMER)).isTrue();
+
+        window(STREAMER, 5);
+        assertThat(detector.isHot(STREAMER)).isFalse();
+    }
+
+    @Test
+    void slowLocks_makeAWalletHotBelowTheRate() {
+        for (int i = 0; i < 6; i++) {
+            detector.recordArrival(STREAMER);
+            detector.recordLockWait(STREAMER, TimeUnit.MILLISECONDS.toNanos(40));
+        }
+        tick();
+        assertThat(detector.isHot(STREAMER)).isTrue();
+    }
+
+    @Test
+    void sketchError_neverMakesAWalletHot() {
+        // 40 distinct one-off wallets through a 4-slot sketch: each newcomer
+        // inherits a large count, but its guaranteed count stays tiny
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < 3; j++) {
+                detector.recordArrival(new WalletKey(100 + i, 1));
+            }
+        }
+        tick();
+        assertThat(detector.hotWallets()).isEmpty();
+    }
+
+    @Test
+    void stripedSketch_findsHotWalletsInEveryStripe() {
+        // top-k 64: four stripes of 16 counters
+        HotWalletDetector striped =
+                new HotWalletDetector(new SimpleMeterRegistry(), true, 1000, 64, 20, 10, 5, () -> now[0]);
+        for (int account = 1; account <= 8; account++) {
+            for (int i = 0; i < 25; i++) {
+                striped.recordArrival(new WalletKey(account, 1));
+            }
+        }
+        now[0] += TimeUnit.SECONDS.toNanos(1);
+        // Closes the windows of all stripes, not just the ones that saw a new arrival
+        assertThat(striped.hotWallets()).hasSize(8);
+    }
+
+    private void window(WalletKey wallet, int arrivals) {
+        for (int i = 0; i < arrivals; i++) {
+            detector.recordArrival(wallet);
+        }
+        tick();
+    }
+
+    /** Advances one window and lets an arrival close it. */
+    private void tick() {
+        now[0] += TimeUnit.SECONDS.toNanos(1);
+        detector.recordArrival(new WalletKey(999, 1));
+    }
+}
@@ -0,0 +1,70 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.model.ImportRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Import parsing without a database: the header decides the column order,
+ * and every bad row is a RejectedRow with the reason the caller reports.
+ */
+class ImportRowParserTest {
+
+    @Test
+    void csv_followsTheHeader_andHandlesQuotes() {
+        ImportRowParser parser = new ImportRowParser(true, new ObjectMapper());
+        assertThat(parser.expectsHeader()).isTrue();
+        parser.header("opening_balance,name,asset_type_id");
+        assertThat(parser.expectsHeader()).isFalse();
+
+        assertThat(parser.parse(2, "250,Carol,1")).isEqualTo(new ImportRow(2, "Carol", 1L, 250));
+        assertThat(parser.parse(3, ",\"Dave, \"\"Jr.\"\"\",")).isEqualTo(new ImportRow(3, "Dave, \"Jr.\"", null, 0));
+        assertThat(parser.parse(4, "0,Erin")).isEqualTo(new ImportRow(4, "Erin", null, 0));
+    }
+
+    @Test
+    void csv_rejectsBadRows() {
+        ImportRowParser parser = new ImportRowParser(true, new ObjectMapper());
+        parser.header("name,asset_type_id,opening_balance");
+
+        assertRejected(parser, ",1,10", "name is required");
+        assertRejected(parser, "Carol,gold,10", "asset_type_id is not a whole number");
+        assertRejected(parser, "Carol,1,-5", "opening_balance must not be negative");
+        assertRejected(parser, "Carol,,5", "opening_balance needs an asset_type_id");
+        assertRejected(parser, "\"Carol,1,5", "unterminated quoted field");
+        assertRejected(parser, "x".repeat(256) + ",1,5", "name is longer than 255 characters");
+    }
+
+    @Test
+    void csv_badHeader_failsTheWholeImport() {
+        assertThatThrownBy(() -> new ImportRowParser(true, new ObjectMapper()).header("name,balance"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("balance");
+        assertThatThrownBy(() -> new ImportRowParser(true, new ObjectMapper()).header("asset_type_id"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ndjson_readsObjectsByFieldName() {
+        ImportRowParser parser = new ImportRowParser(false, new ObjectMapper());
+        assertThat(parser.expectsHeader()).isFalse();
+
+        assertThat(parser.parse(1, "{\"opening_balance\": 70, \"name\": \"Carol\", \"asset_type_id\": 2}"))
+                .isEqualTo(new ImportRow(1, "Carol", 2L, 70));
+        assertThat(parser.parse(2, "{\"name\": \"Erin\", \"asset_type_id\": null}"))
+                .isEqualTo(new ImportRow(2, "Erin", null, 0));
+        assertRejected(parser, "[\"Carol\"]", "not a JSON object");
+        assertRejected(parser, "{\"name\": ", "not a JSON object");
+        assertRejected(parser, "{\"name\": \"Carol\", \"opening_balance\": 1.5, \"asset_type_id\": 1}",
+                "opening_balance is not a whole number");
+    }
+
+    private static void assertRejected(ImportRowParser parser, String line, String reason) {
+        assertThatThrownBy(() -> parser.parse(9, line))
+                .isInstanceOf(ImportRowParser.RejectedRow.class)
+                .hasMessage(reason);
+    }
+}
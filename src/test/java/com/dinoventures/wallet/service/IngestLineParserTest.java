@@ -0,0 +1,53 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.model.IngestOperation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Stream line parsing without a database: a good line becomes an operation,
+ * a bad one an IllegalArgumentException with the reason its result reports.
+ */
+class IngestLineParserTest {
+
+    private final IngestLineParser parser = new IngestLineParser(new ObjectMapper());
+
+    @Test
+    void parsesAnOperation() {
+        assertThat(parser.parse(7, "{\"type\":\"spend\",\"idempotency_key\":\"k-1\",\"account_id\":3,"
+                + "\"asset_type_id\":1,\"amount\":50,\"description\":\"Sword\"}"))
+                .isEqualTo(new IngestOperation(7, "spend", "k-1", 3, 1, 50, "Sword"));
+        assertThat(parser.parse(8, "{\"type\":\"topup\",\"idempotency_key\":\"k-2\",\"account_id\":3,"
+                + "\"asset_type_id\":1,\"amount\":5}"))
+                .isEqualTo(new IngestOperation(8, "topup", "k-2", 3, 1, 5, null));
+    }
+
+    @Test
+    void rejectsBadLines() {
+        assertRejected("[1, 2]", "not a JSON object");
+        assertRejected("{\"type\":", "not a JSON object");
+        assertRejected(line("refund", "k", "3", "10"), "type must be topup, bonus or spend");
+        assertRejected(line("spend", "", "3", "10"), "idempotency_key is required");
+        assertRejected(line("spend", "k".repeat(256), "3", "10"), "idempotency_key is longer than 255 characters");
+        assertRejected(line("spend", "k", "null", "10"), "account_id is required");
+        assertRejected(line("spend", "k", "\"3\"", "10"), "account_id is not a whole number");
+        assertRejected(line("spend", "k", "3", "1.5"), "amount is not a whole number");
+        assertRejected(line("spend", "k", "3", "0"), "amount must be at least 1");
+        assertRejected("{\"type\":\"bonus\",\"idempotency_key\":\"k\",\"account_id\":3,\"asset_type_id\":1,"
+                + "\"amount\":5,\"expires_in_seconds\":60}", "expires_in_seconds is not supported on the stream");
+    }
+
+    private static String line(String type, String key, String accountId, String amount) {
+        return "{\"type\":\"" + type + "\",\"idempotency_key\":\"" + key + "\",\"account_id\":" + accountId
+                + ",\"asset_type_id\":1,\"amount\":" + amount + "}";
+    }
+
+    private void assertRejected(String line, String reason) {
+        assertThatThrownBy(() -> parser.parse(1, line))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage(reason);
+    }
+}
@@ -0,0 +1,47 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.model.LeaderboardEntry;
+import com.dinoventures.wallet.model.dto.LeaderboardRow;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Merging per-shard boards: each shard's top N is enough to rank the global
+ * top N, ties break by account id, and weeks start on Monday.
+ */
+class LeaderboardServiceTest {
+
+    @Test
+    void rank_mergesShardBoards_andKeepsTheTopN() {
+        List<LeaderboardRow> rows = LeaderboardService.rank(List.of(
+                List.of(entry(2, 900), entry(4, 300), entry(6, 100)),
+                List.of(entry(1, 500), entry(3, 300)),
+                List.of()), 4);
+
+        assertThat(rows).extracting(LeaderboardRow::getAccountId).containsExactly(2L, 1L, 3L, 4L);
+        assertThat(rows).extracting(LeaderboardRow::getRank).containsExactly(1, 2, 3, 4);
+        assertThat(rows).extracting(LeaderboardRow::getValue).containsExactly(900L, 500L, 300L, 300L);
+    }
+
+    @Test
+    void rank_returnsFewerRowsThanTheLimit_whenFewUsersQualify() {
+        assertThat(LeaderboardService.rank(List.of(List.of(entry(1, 5))), 10)).hasSize(1);
+        assertThat(LeaderboardService.rank(List.of(List.of(), List.of()), 10)).isEmpty();
+    }
+
+    @Test
+    void weekStart_isTheMondayOfTheWeek() {
+        LocalDate monday = LocalDate.of(2026, 10, 12);
+        assertThat(LeaderboardService.weekStart(monday)).isEqualTo(monday);
+        assertThat(LeaderboardService.weekStart(LocalDate.of(2026, 10, 18))).isEqualTo(monday);
+        assertThat(LeaderboardService.weekStart(LocalDate.of(2026, 10, 19))).isEqualTo(monday.plusWeeks(1));
+    }
+
+    private static LeaderboardEntry entry(long accountId, long value) {
+        return new LeaderboardEntry(accountId, "user-" + accountId, value);
+    }
+}
@@ -0,0 +1,74 @@
+package com.dinoventures.wallet.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The engine's funds check in isolation: many threads race to debit one id
+ * and the value must never cross the floor.
+ */
+class LongPagesTest {
+
+    @Test
+    void unsetIds_readZero_andSparseIdsGrowTheDirectory() {
+        LongPages pages = new LongPages();
+        assertThat(pages.get(7)).isZero();
+        assertThat(pages.get(50_000_000)).isZero();
+
+        pages.set(50_000_000, 42);
+        pages.addAndGet(3, 5);
+        assertThat(pages.get(50_000_000)).isEqualTo(42);
+        assertThat(pages.get(3)).isEqualTo(5);
+        assertThat(pages.get(4)).isZero();
+    }
+
+    @Test
+    void debitIfAtLeast_refusesToCrossTheFloor() {
+        LongPages pages = new LongPages();
+        pages.set(1, 100);
+
+        assertThat(pages.debitIfAtLeast(1, 60, 0)).isEqualTo(100);   // debited
+        assertThat(pages.debitIfAtLeast(1, 60, 0)).isEqualTo(40);    // refused: 40 - 60 < 0
+        assertThat(pages.get(1)).isEqualTo(40);
+    }
+
+    @Test
+    void concurrentDebits_neverOverdraw() throws Exception {
+        LongPages pages = new LongPages();
+        pages.set(9, 1_000);
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int debited = 0;
+                    for (int i = 0; i < 100; i++) {
+                        if (pages.debitIfAtLeast(9, 7, 0) - 7 >= 0) {
+                            debited++;
+                        }
+                    }
+                    return debited;
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get();
+            }
+            // 1000 / 7 = 142 debits fit, leaving 6
+            assertThat(total).isEqualTo(142);
+            assertThat(pages.get(9)).isEqualTo(6);
+        }
+    }
+}
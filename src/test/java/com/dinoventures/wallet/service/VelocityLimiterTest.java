@@ -0,0 +1,134 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.exception.InsufficientFundsException;
+import com.dinoventures.wallet.exception.VelocityLimitExceededException;
+import com.dinoventures.wallet.model.LedgerEntry;
+import com.dinoventures.wallet.model.WalletKey;
+import com.dinoventures.wallet.model.dto.TransactionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Sliding windows on a fake clock: 60 s in 12 buckets of 5 s, at most
+ * 3 spends or 100 coins per window. The node "started" long ago unless a
+ * test says otherwise, so windows are not seeded from the ledger.
+ */
+class VelocityLimiterTest {
+
+    private static final WalletKey ALICE = new WalletKey(3, 1);
+    private static final WalletKey BOB   = new WalletKey(4, 1);
+
+    private final long[] now = {1_000_000_000L};
+    private final List<WalletKey> ledgerReads = new ArrayList<>();
+    private List<LedgerEntry> ledger = List.of();
+
+    private VelocityLimiter limiter(int maxWallets) {
+        return new VelocityLimiter(new SimpleMeterRegistry(), true, 60, 12, 3, 100, maxWallets,
+                (wallet, seconds) -> {
+                    ledgerReads.add(wallet);
+                    return ledger;
+                },
+                () -> now[0]);
+    }
+
+    @Test
+    void countLimit_rejectsUntilTheOldestSpendLeavesTheWindow() {
+        VelocityLimiter limiter = limiter(10);
+        now[0] += 60_000;   // past the seeding period
+        for (int i = 0; i < 3; i++) {
+            spend(limiter, ALICE, 1);
+            now[0] += 10_000;
+        }
+
+        // First spend was 30 s ago: its bucket leaves the window in 30 s
+        assertThatThrownBy(() -> spend(limiter, ALICE, 1))
+                .isInstanceOf(VelocityLimitExceededException.class)
+                .hasMessageContaining("at most 3 spends per 60 s")
+                .satisfies(e -> assertThat(((VelocityLimitExceededException) e).getRetryAfterSeconds()).isEqualTo(30));
+        spend(limiter, BOB, 1);   // other wallets are unaffected
+
+        now[0] += 30_000;
+        spend(limiter, ALICE, 1);
+    }
+
+    @Test
+    void amountLimit_countsCoins() {
+        VelocityLimiter limiter = limiter(10);
+        now[0] += 60_000;
+        spend(limiter, ALICE, 60);
+        assertThatThrownBy(() -> spend(limiter, ALICE, 50))
+                .isInstanceOf(VelocityLimitExceededException.class)
+                .hasMessageContaining("at most 100 spent per 60 s");
+        spend(limiter, ALICE, 40);
+    }
+
+    @Test
+    void failedSpendsAndReplays_areTakenBack() {
+        VelocityLimiter limiter = limiter(10);
+        now[0] += 60_000;
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> limiter.execute(ALICE, 10, () -> {
+                throw new InsufficientFundsException(3, 1, 0, 10);
+            })).isInstanceOf(InsufficientFundsException.class);
+            limiter.execute(ALICE, 10, () -> new TransactionResponse(null, List.of(), true));
+        }
+        for (int i = 0; i < 3; i++) {
+            spend(limiter, ALICE, 10);
+        }
+    }
+
+    @Test
+    void afterARestart_windowsAreSeededFromTheLedger_onlyDuringTheFirstWindow() {
+        ledger = List.of(entryAt(now[0] - 20_000, -30), entryAt(now[0] - 50_000, -60));
+        VelocityLimiter limiter = limiter(10);
+
+        // 90 of 100 already spent before the restart
+        assertThatThrownBy(() -> spend(limiter, ALICE, 20)).isInstanceOf(VelocityLimitExceededException.class);
+        spend(limiter, ALICE, 10);
+        assertThat(ledgerReads).containsExactly(ALICE);
+
+        now[0] += 60_000;
+        spend(limiter, BOB, 10);
+        assertThat(ledgerReads).containsExactly(ALICE);   // Bob started empty
+    }
+
+    @Test
+    void idleWindows_areEvicted_andCapacityIsBounded() {
+        VelocityLimiter limiter = limiter(1);
+        now[0] += 60_000;
+        spend(limiter, ALICE, 1);
+        spend(limiter, ALICE, 1);
+        spend(limiter, ALICE, 1);
+
+        // No room for Bob while Alice is active: let through untracked
+        for (int i = 0; i < 5; i++) {
+            spend(limiter, BOB, 1);
+        }
+
+        // A minute later Alice's window is empty and makes room for Bob
+        now[0] += 60_000;
+        for (int i = 0; i < 3; i++) {
+            spend(limiter, BOB, 1);
+        }
+        assertThatThrownBy(() -> spend(limiter, BOB, 1)).isInstanceOf(VelocityLimitExceededException.class);
+    }
+
+    private static void spend(VelocityLimiter limiter, WalletKey wallet, long amount) {
+        limiter.execute(wallet, amount, () -> new TransactionResponse(null, List.of(), false));
+    }
+
+    private static LedgerEntry entryAt(long epochMillis, long amount) {
+        return LedgerEntry.builder()
+                .amount(amount)
+                .createdAt(Instant.ofEpochMilli(epochMillis).atOffset(ZoneOffset.UTC))
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.exception.ServiceOverloadedException;
+import com.dinoventures.wallet.exception.WalletBusyException;
+import com.dinoventures.wallet.model.WalletKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Limiter behaviour without a database: nested execute() calls stand in for
+ * concurrent in-flight writes.
+ */
+class WriteAdmissionControlTest {
+
+    private static final WalletKey ALICE_GOLD = new WalletKey(3, 1);
+    private static final WalletKey BOB_GOLD   = new WalletKey(4, 1);
+    private static final WalletKey TREASURY_GOLD = new WalletKey(1, 1);
+
+    @Test
+    void perWalletLimit_rejectsOverflowWithRetryAfter() {
+        WriteAdmissionControl admission = admission(1, 4, 64, 20, 2);
+
+        admission.execute(ALICE_GOLD, () -> {
+            assertThatThrownBy(() -> admission.execute(ALICE_GOLD, () -> "second"))
+                    .isInstanceOf(WalletBusyException.class)
+                    .extracting(e -> ((WalletBusyException) e).getRetryAfterSeconds())
+                    .isEqualTo(2L);
+            // Other wallets are unaffected
+            assertThat(admission.execute(BOB_GOLD, () -> "bob")).isEqualTo("bob");
+            return null;
+        });
+
+        // The slot is released once the first write finishes
+        assertThat(admission.execute(ALICE_GOLD, () -> "again")).isEqualTo("again");
+    }
+
+    @Test
+    void globalLimit_shrinksWhenLockWaitExceedsTarget() {
+        WriteAdmissionControl admission = admission(100, 1, 2, 20, 1);
+
+        // Two windows of slow lock waits cut the limit 2 → 1
+        for (int i = 0; i < 4; i++) {
+            admission.recordLockWait(TimeUnit.MILLISECONDS.toNanos(500), Map.of());
+        }
+
+        admission.execute(ALICE_GOLD, () -> {
+            assertThatThrownBy(() -> admission.execute(BOB_GOLD, () -> "second"))
+                    .isInstanceOf(ServiceOverloadedException.class);
+            return null;
+        });
+    }
+
+    @Test
+    void hotWallet_isSerializedWithABoundedQueue() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        long[] now = {0};
+        HotWalletDetector detector = new HotWalletDetector(registry, true, 1000, 8, 5, 10, 1, () -> now[0]);
+        for (int i = 0; i < 10; i++) {
+            detector.recordArrival(ALICE_GOLD);
+        }
+        now[0] = TimeUnit.SECONDS.toNanos(1);
+        detector.recordArrival(BOB_GOLD);   // closes the window: Alice is hot
+        assertThat(detector.isHot(ALICE_GOLD)).isTrue();
+
+        WriteAdmissionControl admission = new WriteAdmissionControl(registry, detector, 4, 4, 64, 20, 1, 1, 50);
+        admission.execute(ALICE_GOLD, () -> {
+            // The lane holds one write; with max-queue 1 the next is turned away
+            assertThatThrownBy(() -> admission.execute(ALICE_GOLD, () -> "second"))
+                    .isInstanceOf(WalletBusyException.class);
+            return null;
+        });
+        assertThat(admission.execute(ALICE_GOLD, () -> "again")).isEqualTo("again");
+        assertThat(registry.counter("wallet.admission.serialized").count()).isEqualTo(2);
+    }
+
+    @Test
+    void hotCounterparty_serializesWritesOfDifferentUsers() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        long[] now = {0};
+        HotWalletDetector detector = new HotWalletDetector(registry, true, 1000, 8, 5, 10, 1, () -> now[0]);
+        WriteAdmissionControl admission = new WriteAdmissionControl(registry, detector, 4, 4, 64, 20, 1, 1, 50);
+        // Topups from many users: each user is cold, their shared Treasury is not
+        for (int i = 0; i < 10; i++) {
+            admission.execute(new WalletKey(100 + i, 1), TREASURY_GOLD, () -> "topup");
+        }
+        now[0] = TimeUnit.SECONDS.toNanos(1);
+        detector.recordArrival(BOB_GOLD);   // closes the window
+        assertThat(detector.isHot(TREASURY_GOLD)).isTrue();
+        assertThat(detector.isHot(new WalletKey(100, 1))).isFalse();
+
+        admission.execute(ALICE_GOLD, TREASURY_GOLD, () -> {
+            // Bob's topup queues on Treasury's lane, not on Alice's wallet
+            assertThatThrownBy(() -> admission.execute(BOB_GOLD, TREASURY_GOLD, () -> "bob"))
+                    .isInstanceOf(WalletBusyException.class);
+            return null;
+        });
+        assertThat(admission.execute(BOB_GOLD, TREASURY_GOLD, () -> "bob")).isEqualTo("bob");
+    }
+
+    private static WriteAdmissionControl admission(int perWalletLimit, int minLimit, int maxLimit,
+                                                   long targetLockWaitMs, long retryAfterSeconds) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HotWalletDetector off = new HotWalletDetector(registry, false, 10_000, 64, 50, 10, 20);
+        return new WriteAdmissionControl(registry, off, perWalletLimit, minLimit, maxLimit,
+                targetLockWaitMs, retryAfterSeconds, 64, 2000);
+    }
+}
@@ -0,0 +1,88 @@
+package com.dinoventures.wallet.service;
+
+import com.dinoventures.wallet.exception.DeadlineExceededException;
+import com.dinoventures.wallet.exception.LockContentionException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Retry classification and bounds without a database: failures are the
+ * translated exceptions Spring would raise, carrying PostgreSQL SQLSTATEs.
+ */
+class WriteRetryTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RequestDeadline deadline = new RequestDeadline(registry);
+    private final WriteRetry retry = new WriteRetry(registry, deadline, 3, 1, 2, 5);
+
+    @AfterEach
+    void clearDeadline() {
+        deadline.clear();
+    }
+
+    @Test
+    void lockTimeout_isRetriedUntilTheWriteSucceeds() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = retry.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw failure("55P03");
+            }
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(calls).hasValue(3);
+        assertThat(registry.counter("wallet.write.retries", "reason", "lock_timeout").count()).isEqualTo(2);
+    }
+
+    @Test
+    void exhaustedRetries_surfaceAsLockContentionWithRetryAfter() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> retry.execute(() -> {
+            calls.incrementAndGet();
+            throw failure("40P01");
+        }))
+                .isInstanceOf(LockContentionException.class)
+                .extracting(e -> ((LockContentionException) e).getRetryAfterSeconds())
+                .isEqualTo(5L);
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void otherFailures_areNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> retry.execute(() -> {
+            calls.incrementAndGet();
+            throw new DataIntegrityViolationException("check", new SQLException("violation", "23514"));
+        })).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void expiredDeadline_shedsTheWriteBeforeItRuns() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        deadline.start(1);
+        Thread.sleep(5);
+
+        assertThatThrownBy(() -> retry.execute(calls::incrementAndGet))
+                .isInstanceOf(DeadlineExceededException.class);
+        assertThat(calls).hasValue(0);
+        assertThat(registry.counter("wallet.deadline.shed", "phase", "before_connection").count()).isEqualTo(1);
+    }
+
+    private static RuntimeException failure(String sqlState) {
+        return new CannotAcquireLockException("lock", new SQLException("failed", sqlState));
+    }
+}
@@ -43,8 +43,18 @@ INSERT INTO transactions (idempotency_key, type, description, status) VALUES
     ('seed-alice-initial-gold', 'topup', 'Alice initial balance — 500 Gold Coins', 'completed'),
     ('seed-bob-initial-gold',   'topup', 'Bob initial balance — 200 Gold Coins',   'completed');
 
+INSERT INTO idempotency_keys (key_hash, transaction_id) VALUES
+    (md5('seed-alice-initial-gold')::uuid, 1),
+    (md5('seed-bob-initial-gold')::uuid,   2);
+
 -- Alice: 500 Gold Coins  (Treasury wallet id=1, Alice wallet id=7)
-INSERT INTO ledger_entries (transaction_id, wallet_id, amount) VALUES (1, 1, -500), (1, 7, 500);
+INSERT INTO ledger_entries (transaction_id, wallet_id, account_id, asset_type_id, amount) VALUES
+    (1, 1, 1, 1, -500), (1, 7, 3, 1, 500);
 
 -- Bob: 200 Gold Coins  (Treasury wallet id=1, Bob wallet id=8)
-INSERT INTO ledger_entries (transaction_id, wallet_id, amount) VALUES (2, 1, -200), (2, 8, 200);
+INSERT INTO ledger_entries (transaction_id, wallet_id, account_id, asset_type_id, amount) VALUES
+    (2, 1, 1, 1, -200), (2, 8, 4, 1, 200);
+
+-- Stored balances, as LedgerRepository#post would have left them
+UPDATE wallets SET balance = CASE id WHEN 1 THEN -700 WHEN 7 THEN 500 WHEN 8 THEN 200 END
+WHERE id IN (1, 7, 8);
@@ -1,4 +1,5 @@
 -- Reset all tables and restart identity sequences.
 -- Run before each test method to guarantee a clean, deterministic state.
-TRUNCATE ledger_entries, transactions, wallets, accounts, asset_types
+TRUNCATE bonus_grants, weekly_spend, daily_rollups, daily_liability_changes, idempotency_keys, idempotency_keys_archive, balance_snapshot_marks, engine_leases, holds, ledger_entries, transactions, wallets, accounts, asset_types
     RESTART IDENTITY CASCADE;
+UPDATE rollup_watermark SET through_entry_id = 0, through_created_at = NULL, fence_entry_id = NULL, fence_xid = NULL;